@@ -15,6 +15,10 @@
  */
 package de.dennisguse.opentracks.chart;
 
+import android.graphics.Matrix;
+import android.graphics.PathMeasure;
+import android.graphics.RectF;
+
 import androidx.annotation.NonNull;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
@@ -40,7 +44,11 @@ public class ChartValueSeriesTest {
 
     @Before
     public void setUp() {
-        series = new ChartValueSeries(
+        series = createSeries();
+    }
+
+    private static ChartValueSeries createSeries() {
+        return new ChartValueSeries(
                 ApplicationProvider.getApplicationContext(),
                 Integer.MIN_VALUE,
                 Integer.MAX_VALUE,
@@ -106,4 +114,76 @@ public class ChartValueSeriesTest {
         assertEquals(200, series.getMinMarkerValue());
         assertEquals(700, series.getMaxMarkerValue());
     }
+
+    @Test
+    public void testReset() {
+        series.update(new ChartPoint(220));
+        series.update(new ChartPoint(250));
+        assertTrue(series.hasData());
+
+        series.reset();
+        assertFalse(series.hasData());
+
+        series.update(new ChartPoint(Double.NaN));
+        series.update(new ChartPoint(100));
+        assertTrue(Double.isNaN(series.getValue(0)));
+        assertEquals(100, series.getValue(1), 0.01);
+    }
+
+    @Test
+    public void testPyramid() {
+        // given
+        double[] values = {5, Double.NaN, 3, 8, Double.NaN, Double.NaN, 1, 2, 7};
+
+        // when
+        for (double value : values) {
+            series.update(new ChartPoint(value));
+        }
+
+        // then
+        assertEquals(4, series.getPyramidLevels());
+
+        assertEquals(5, series.getMin(1, 0), 0.01);
+        assertEquals(5, series.getMax(1, 0), 0.01);
+        assertTrue(Double.isNaN(series.getMax(1, 2)));
+        assertEquals(7, series.getMax(1, 4), 0.01);
+
+        assertEquals(1, series.getMin(2, 1), 0.01);
+        assertEquals(2, series.getMax(2, 1), 0.01);
+
+        assertEquals(1, series.getMin(3, 0), 0.01);
+        assertEquals(8, series.getMax(3, 0), 0.01);
+        assertEquals(7, series.getMin(3, 1), 0.01);
+
+        assertEquals(1, series.getMin(4, 0), 0.01);
+        assertEquals(8, series.getMax(4, 0), 0.01);
+    }
+
+    @Test
+    public void testUpdatePath_appended_sameAsRebuilt() {
+        // given
+        ChartValueSeries rebuiltSeries = createSeries();
+        double[] xValues = new double[100];
+        Matrix dataToScreen = new Matrix();
+        dataToScreen.setScale(2f, -1f);
+        dataToScreen.postTranslate(10f, 500f);
+
+        // when
+        for (int i = 0; i < xValues.length; i++) {
+            xValues[i] = i;
+            ChartPoint chartPoint = new ChartPoint(i % 7 == 0 ? Double.NaN : i % 13);
+            series.update(chartPoint);
+            series.updatePath(xValues, 0, i, 2, Double.NaN, dataToScreen, 500f);
+            rebuiltSeries.update(chartPoint);
+        }
+        rebuiltSeries.updatePath(xValues, 0, xValues.length - 1, 2, Double.NaN, dataToScreen, 500f);
+
+        // then
+        RectF bounds = new RectF();
+        series.getPath().computeBounds(bounds, true);
+        RectF expectedBounds = new RectF();
+        rebuiltSeries.getPath().computeBounds(expectedBounds, true);
+        assertEquals(expectedBounds, bounds);
+        assertEquals(new PathMeasure(rebuiltSeries.getPath(), false).getLength(), new PathMeasure(series.getPath(), false).getLength(), 0.01);
+    }
 }
@@ -0,0 +1,123 @@
+package de.dennisguse.opentracks.chart;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Looper;
+import android.util.Log;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.TrackSeries;
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.util.BenchmarkRule;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the time to load, to update (while recording), and to scroll (zoomed in) the {@link ChartView}.
+ * Only runs if requested (see {@link BenchmarkRule}).
+ */
+@RunWith(AndroidJUnit4.class)
+public class ChartViewBenchmarkTest {
+
+    @ClassRule
+    public static final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private static final String TAG = ChartViewBenchmarkTest.class.getSimpleName();
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 720;
+
+    private static final int RECORDING_UPDATES = 200;
+
+    private static final int SCROLL_STEP = 20;
+    private static final long FRAME_DURATION_60_FPS_NS = 1000000000 / 60;
+
+    @BeforeClass
+    public static void preSetUp() {
+        // Prepare looper for Android's message queue
+        if (Looper.myLooper() == null) Looper.prepare();
+    }
+
+    @Test
+    public void benchmark_5k() {
+        benchmark(5000);
+    }
+
+    @Test
+    public void benchmark_50k() {
+        benchmark(50000);
+    }
+
+    @Test
+    public void benchmark_100k() {
+        benchmark(100000);
+    }
+
+    private void benchmark(int chartPointCount) {
+        // given
+        ChartView chartView = new ChartView(ApplicationProvider.getApplicationContext(), true);
+        chartView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        chartView.layout(0, 0, WIDTH, HEIGHT);
+        Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+
+        List<ChartPoint> chartPoints = createChartPoints(chartPointCount + RECORDING_UPDATES);
+
+        // when
+        long startTime = System.nanoTime();
+        chartView.addChartPoints(chartPoints.subList(0, chartPointCount));
+        chartView.draw(canvas);
+        long loadDuration = System.nanoTime() - startTime;
+
+        // Recording: one new chartPoint per frame
+        startTime = System.nanoTime();
+        for (int i = chartPointCount; i < chartPoints.size(); i++) {
+            chartView.addChartPoints(chartPoints.subList(i, i + 1));
+            chartView.draw(canvas);
+        }
+        long frameDuration = (System.nanoTime() - startTime) / RECORDING_UPDATES;
+
+        // Zoomed in: scroll through the whole track
+        for (int i = 0; i < 9; i++) {
+            chartView.zoomIn();
+        }
+        int scrollFrames = 0;
+        long maxScrollFrameDuration = 0;
+        startTime = System.nanoTime();
+        for (int scrollX = 0; scrollX < WIDTH * 9; scrollX += SCROLL_STEP) {
+            long frameStartTime = System.nanoTime();
+            chartView.scrollTo(scrollX, 0);
+            chartView.draw(canvas);
+            maxScrollFrameDuration = Math.max(maxScrollFrameDuration, System.nanoTime() - frameStartTime);
+            scrollFrames++;
+        }
+        long scrollFrameDuration = (System.nanoTime() - startTime) / scrollFrames;
+
+        // then
+        Log.i(TAG, chartPointCount + " ChartPoints: load " + loadDuration / 1000000 + "ms, update while recording " + frameDuration / 1000 + "us per frame, scroll " + scrollFrameDuration / 1000 + "us per frame (max " + maxScrollFrameDuration / 1000 + "us)");
+        assertTrue(scrollFrameDuration < FRAME_DURATION_60_FPS_NS);
+    }
+
+    private static List<ChartPoint> createChartPoints(int count) {
+        TrackSeries trackSeries = new TrackSeries(0);
+        List<ChartPoint> chartPoints = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TrackPoint trackPoint = TestDataUtil.createTrackPoint(i);
+            trackPoint.setId(new TrackPoint.Id(i + 1));
+            trackSeries.add(trackPoint, true);
+            chartPoints.add(new ChartPoint(trackSeries, i, true, true));
+        }
+        return chartPoints;
+    }
+}
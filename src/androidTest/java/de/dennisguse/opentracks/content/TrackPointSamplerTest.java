@@ -0,0 +1,158 @@
+package de.dennisguse.opentracks.content;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackPointSamplerTest {
+
+    @Test
+    public void add_keepsPeaks() {
+        // given
+        List<TrackPoint> trackPoints = createFlatTrackPoints(1000);
+        trackPoints.get(517).setHeartRate_bpm(180f);
+        trackPoints.get(803).setAltitude(-10);
+        TrackPointSampler trackPointSampler = new TrackPointSampler(100, trackPoints.size());
+
+        List<TrackPoint> sampledIn = new ArrayList<>();
+        List<TrackPoint> sampledOut = new ArrayList<>();
+
+        // when
+        for (TrackPoint trackPoint : trackPoints) {
+            trackPointSampler.add(trackPoint, sampledIn::add, sampledOut::add);
+        }
+
+        // then
+        assertEquals(40, trackPointSampler.getBucketSize());
+        assertEquals(trackPoints.size(), sampledIn.size() + sampledOut.size());
+        assertEquals(25 + 2, sampledIn.size());
+        assertTrue(sampledIn.contains(trackPoints.get(517)));
+        assertTrue(sampledIn.contains(trackPoints.get(803)));
+    }
+
+    @Test
+    public void flush_includesLastTrackPoint() {
+        // given
+        List<TrackPoint> trackPoints = createFlatTrackPoints(50);
+        TrackPointSampler trackPointSampler = new TrackPointSampler(5, trackPoints.size());
+
+        List<TrackPoint> sampledIn = new ArrayList<>();
+        List<TrackPoint> sampledOut = new ArrayList<>();
+        for (TrackPoint trackPoint : trackPoints) {
+            trackPointSampler.add(trackPoint, sampledIn::add, sampledOut::add);
+        }
+        assertEquals(trackPoints.size() - 10, sampledIn.size() + sampledOut.size());
+
+        // when
+        trackPointSampler.flush(sampledIn::add, sampledOut::add);
+
+        // then
+        assertEquals(trackPoints.size(), sampledIn.size() + sampledOut.size());
+        assertEquals(trackPoints.get(49), sampledIn.get(sampledIn.size() - 1));
+    }
+
+    @Test
+    public void flush_thenAdd_replaySameAsSampling() {
+        // given
+        List<TrackPoint> trackPoints = createFlatTrackPoints(100);
+        TrackPointSampler trackPointSampler = new TrackPointSampler(5, 20);
+
+        List<TrackPoint> sampledIn = new ArrayList<>();
+        List<TrackPoint> sampledOut = new ArrayList<>();
+
+        // when: flushed every 15 TrackPoints
+        for (int i = 0; i < trackPoints.size(); i++) {
+            trackPointSampler.add(trackPoints.get(i), sampledIn::add, sampledOut::add);
+            if (i % 15 == 14) {
+                trackPointSampler.flush(sampledIn::add, sampledOut::add);
+
+                // then
+                assertEquals(i + 1, sampledIn.size() + sampledOut.size());
+                assertEquals(trackPoints.get(i), sampledIn.get(sampledIn.size() - 1));
+            }
+        }
+        trackPointSampler.flush(sampledIn::add, sampledOut::add);
+
+        // then
+        List<TrackPoint> replayedIn = new ArrayList<>();
+        List<TrackPoint> replayedOut = new ArrayList<>();
+        TrackPointSampler.Replay replay = trackPointSampler.replay();
+        for (TrackPoint trackPoint : trackPoints) {
+            replay.add(trackPoint, replayedIn::add, replayedOut::add);
+        }
+        assertTrue(replay.isDone());
+        assertEquals(sampledIn, replayedIn);
+        assertEquals(sampledOut, replayedOut);
+    }
+
+    @Test
+    public void add_doublesBucketSize() {
+        // given
+        TrackPointSampler trackPointSampler = new TrackPointSampler(10, 5);
+        assertEquals(1, trackPointSampler.getBucketSize());
+
+        // when
+        List<TrackPoint> trackPoints = createFlatTrackPoints(20);
+        for (TrackPoint trackPoint : trackPoints) {
+            trackPointSampler.add(trackPoint, trackPoint1 -> {}, trackPoint1 -> {});
+        }
+
+        // then
+        assertEquals(2, trackPointSampler.getBucketSize());
+    }
+
+    @Test
+    public void replay_sameAsSampling() {
+        // given
+        List<TrackPoint> trackPoints = createFlatTrackPoints(1000);
+        for (int i = 0; i < trackPoints.size(); i += 7) {
+            trackPoints.get(i).setSpeed((float) (i % 13));
+        }
+        TrackPointSampler trackPointSampler = new TrackPointSampler(100, 500);
+
+        List<TrackPoint> sampledIn = new ArrayList<>();
+        List<TrackPoint> sampledOut = new ArrayList<>();
+        for (TrackPoint trackPoint : trackPoints) {
+            trackPointSampler.add(trackPoint, sampledIn::add, sampledOut::add);
+        }
+        trackPointSampler.flush(sampledIn::add, sampledOut::add);
+
+        List<TrackPoint> replayedIn = new ArrayList<>();
+        List<TrackPoint> replayedOut = new ArrayList<>();
+
+        // when
+        TrackPointSampler.Replay replay = trackPointSampler.replay();
+        for (TrackPoint trackPoint : trackPoints) {
+            if (replay.isDone()) {
+                break;
+            }
+            replay.add(trackPoint, replayedIn::add, replayedOut::add);
+        }
+
+        // then
+        assertTrue(replay.isDone());
+        assertEquals(sampledIn, replayedIn);
+        assertEquals(sampledOut, replayedOut);
+    }
+
+    private static List<TrackPoint> createFlatTrackPoints(int count) {
+        List<TrackPoint> trackPoints = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TrackPoint trackPoint = TestDataUtil.createTrackPoint(0);
+            trackPoint.setId(new TrackPoint.Id(i + 1));
+            trackPoints.add(trackPoint);
+        }
+        return trackPoints;
+    }
+}
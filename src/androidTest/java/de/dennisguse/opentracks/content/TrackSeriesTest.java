@@ -0,0 +1,107 @@
+package de.dennisguse.opentracks.content;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackSeriesTest {
+
+    @Test
+    public void add_storesOnlySampledIn() {
+        // given
+        TrackSeries trackSeries = new TrackSeries(0);
+
+        // when
+        for (int i = 0; i < 3000; i++) {
+            TrackPoint trackPoint = TestDataUtil.createTrackPoint(i);
+            trackPoint.setId(new TrackPoint.Id(i + 1));
+            trackSeries.add(trackPoint, i % 2 == 0);
+        }
+
+        // then
+        assertEquals(1500, trackSeries.size());
+        assertEquals(0, trackSeries.indexOf(new TrackPoint.Id(1)));
+        assertEquals(-1, trackSeries.indexOf(new TrackPoint.Id(2)));
+        assertEquals(1499, trackSeries.indexOf(new TrackPoint.Id(2999)));
+        assertEquals(-1, trackSeries.indexOf(null));
+
+        assertEquals(100f + 2998, trackSeries.getHeartRate_bpm(1499), 0.01);
+        // Cumulative values
+        assertTrue(trackSeries.getTotalDistance(1) > trackSeries.getTotalDistance(0));
+        assertTrue(trackSeries.getTotalTime_ms(1499) > trackSeries.getTotalTime_ms(1498));
+    }
+
+    @Test
+    public void addPending_lastIsProvisionalUntilCommitted() {
+        // given
+        TrackSeries trackSeries = new TrackSeries(0);
+        TrackPoint[] trackPoints = new TrackPoint[3000];
+        for (int i = 0; i < trackPoints.length; i++) {
+            trackPoints[i] = TestDataUtil.createTrackPoint(i);
+            trackPoints[i].setId(new TrackPoint.Id(i + 1));
+        }
+
+        // when
+        for (int i = 0; i < trackPoints.length; i++) {
+            trackSeries.addPending(trackPoints[i]);
+            // Commit in buckets of 10 and keep the last bucket open.
+            if (i % 10 == 9 && i < trackPoints.length - 10) {
+                for (int j = i - 9; j <= i; j++) {
+                    trackSeries.commit(trackPoints[j], j % 10 == 0);
+                }
+            }
+        }
+
+        // then
+        assertEquals(299, trackSeries.size());
+        assertEquals(298, trackSeries.indexOf(new TrackPoint.Id(2981)));
+        int provisionalIndex = trackSeries.getProvisionalIndex();
+        assertTrue(provisionalIndex >= trackSeries.size());
+        assertEquals(100f + 2999, trackSeries.getHeartRate_bpm(provisionalIndex), 0.01);
+
+        // when
+        for (int j = trackPoints.length - 10; j < trackPoints.length; j++) {
+            trackSeries.commit(trackPoints[j], j == trackPoints.length - 1);
+        }
+
+        // then
+        assertEquals(300, trackSeries.size());
+        assertEquals(-1, trackSeries.getProvisionalIndex());
+        assertEquals(100f + 2999, trackSeries.getHeartRate_bpm(299), 0.01);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void commit_notPending_fails() {
+        TrackSeries trackSeries = new TrackSeries(0);
+        TrackPoint trackPoint = TestDataUtil.createTrackPoint(0);
+        trackPoint.setId(new TrackPoint.Id(1));
+
+        trackSeries.commit(trackPoint, true);
+    }
+
+    @Test
+    public void add_missingSensorData_isNaN() {
+        // given
+        TrackSeries trackSeries = new TrackSeries(0);
+        TrackPoint trackPoint = new TrackPoint(0, 0, 0.0, Instant.ofEpochSecond(1));
+        trackPoint.setId(new TrackPoint.Id(1));
+
+        // when
+        trackSeries.add(trackPoint, true);
+
+        // then
+        assertTrue(Float.isNaN(trackSeries.getHeartRate_bpm(0)));
+        assertTrue(Float.isNaN(trackSeries.getCadence_rpm(0)));
+        assertTrue(Float.isNaN(trackSeries.getPower(0)));
+    }
+}
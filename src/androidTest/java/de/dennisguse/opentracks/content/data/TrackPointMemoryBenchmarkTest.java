@@ -0,0 +1,64 @@
+package de.dennisguse.opentracks.content.data;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.dennisguse.opentracks.util.BenchmarkRule;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the heap used by the {@link TrackPoint}s of a track with 100k TrackPoints (with location, time, and sensor data).
+ * Only runs if requested (see {@link BenchmarkRule}).
+ */
+@RunWith(AndroidJUnit4.class)
+public class TrackPointMemoryBenchmarkTest {
+
+    @ClassRule
+    public static final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private static final String TAG = TrackPointMemoryBenchmarkTest.class.getSimpleName();
+
+    private static final int TRACK_POINT_COUNT = 100000;
+
+    // On ART, a TrackPoint with primitive fields needs 104 bytes; every boxed value would add 16 bytes.
+    private static final long MAX_BYTES_PER_TRACK_POINT = 160;
+
+    @Test
+    public void heap_100k() {
+        // given
+        List<TrackPoint> trackPoints = new ArrayList<>(TRACK_POINT_COUNT);
+        long heapBefore = usedHeap();
+
+        // when
+        for (int i = 0; i < TRACK_POINT_COUNT; i++) {
+            TrackPoint trackPoint = TestDataUtil.createTrackPoint(i);
+            trackPoint.setId(new TrackPoint.Id(i + 1));
+            trackPoints.add(trackPoint);
+        }
+        long heapAfter = usedHeap();
+
+        // then
+        long heap = heapAfter - heapBefore;
+        long bytesPerTrackPoint = heap / trackPoints.size();
+        Log.i(TAG, TRACK_POINT_COUNT + " TrackPoints: " + heap / 1024 + "KiB heap, " + bytesPerTrackPoint + " bytes per TrackPoint");
+        assertTrue(bytesPerTrackPoint + " bytes per TrackPoint", bytesPerTrackPoint <= MAX_BYTES_PER_TRACK_POINT);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            runtime.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -5,7 +5,9 @@ import org.junit.Test;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class TrackPointTest {
@@ -25,4 +27,88 @@ public class TrackPointTest {
 
         assertFalse(tp.isRecent());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void setValues_present() {
+        // given
+        TrackPoint tp = new TrackPoint(TrackPoint.Type.TRACKPOINT);
+        assertNull(tp.getId());
+        assertNull(tp.getTime());
+        assertFalse(tp.hasLocation());
+        assertFalse(tp.hasSpeed());
+
+        // when
+        tp.setId(new TrackPoint.Id(3));
+        tp.setTime(Instant.ofEpochSecond(1, 123456789));
+        tp.setLatitude(1.5);
+        tp.setSpeed(2.5f);
+        tp.setHeartRate_bpm((Float) null);
+
+        // then
+        assertEquals(new TrackPoint.Id(3), tp.getId());
+        assertEquals(Instant.ofEpochSecond(1, 123456789), tp.getTime());
+        assertFalse(tp.hasLocation());
+        assertEquals(1.5, tp.getLatitude(), 0.0);
+        assertTrue(tp.hasSpeed());
+        assertEquals(2.5f, tp.getSpeed(), 0.0f);
+        assertFalse(tp.hasHeartRate());
+        assertFalse(tp.hasAltitude());
+    }
+
+    @Test
+    public void setValues_null_notPresent() {
+        // given
+        TrackPoint tp = new TrackPoint(TrackPoint.Type.TRACKPOINT);
+        tp.setSpeed(1f);
+        tp.setPower(100f);
+        tp.setTime_ms(1500);
+
+        // when
+        tp.setSpeed((Float) null);
+        tp.setPower((Float) null);
+
+        // then
+        assertFalse(tp.hasSpeed());
+        assertFalse(tp.hasPower());
+        assertEquals(Instant.ofEpochMilli(1500), tp.getTime());
+    }
+
+    @Test
+    public void primitiveAccessors_sameAsObjects() {
+        // given
+        TrackPoint tp = new TrackPoint(TrackPoint.Type.TRACKPOINT);
+
+        // when
+        tp.setId(new TrackPoint.Id(42));
+        tp.setTime(Instant.ofEpochMilli(-1500));
+
+        // then
+        assertEquals(tp.getId().getId(), tp.getIdLong());
+        assertEquals(tp.getTime().toEpochMilli(), tp.getTimeEpochMillis());
+
+        // when
+        tp.setTime_ms(1234567);
+
+        // then
+        assertEquals(tp.getTime().toEpochMilli(), tp.getTimeEpochMillis());
+    }
+
+    @Test
+    public void reset() {
+        // given
+        TrackPoint tp = new TrackPoint(0, 0, 10.0, Instant.ofEpochSecond(1));
+        tp.setId(new TrackPoint.Id(1));
+        tp.setSensorDistance(5f);
+
+        // when
+        tp.reset(TrackPoint.Type.SEGMENT_END_MANUAL);
+
+        // then
+        assertEquals(TrackPoint.Type.SEGMENT_END_MANUAL, tp.getType());
+        assertNull(tp.getId());
+        assertNull(tp.getTime());
+        assertFalse(tp.hasLocation());
+        assertFalse(tp.hasAltitude());
+        assertFalse(tp.hasSensorDistance());
+    }
+}
@@ -19,17 +19,24 @@ package de.dennisguse.opentracks.content.provider;
 import android.content.ContentUris;
 import android.content.Context;
 import android.net.Uri;
+import android.util.Pair;
 
 import androidx.test.core.app.ApplicationProvider;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.List;
+
 import de.dennisguse.opentracks.content.data.MarkerColumns;
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
 import de.dennisguse.opentracks.content.data.TrackPointsColumns;
 import de.dennisguse.opentracks.content.data.TracksColumns;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -56,6 +63,24 @@ public class CustomContentProviderTest {
         assertTrue(customContentProvider.onCreate(context));
     }
 
+    @Test
+    public void testOnCreate_deletesIncompleteImports() {
+        // given
+        ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        Pair<Track, List<TrackPoint>> track = TestDataUtil.createTrack(trackId, 10);
+        contentProviderUtils.insertImportingTrack(track.first);
+        contentProviderUtils.bulkInsertTrackPoint(track.second, trackId);
+
+        // when
+        assertTrue(customContentProvider.onCreate(context));
+
+        // then
+        assertEquals(0, TestDataUtil.getTrackPoints(contentProviderUtils, trackId).size());
+        contentProviderUtils.updateTrack(track.first);
+        assertNull(contentProviderUtils.getTrack(trackId));
+    }
+
     /**
      * Tests {@link CustomContentProvider#getType(Uri)}.
      */
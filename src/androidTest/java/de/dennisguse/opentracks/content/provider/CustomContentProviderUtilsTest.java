@@ -15,12 +15,17 @@
  */
 package de.dennisguse.opentracks.content.provider;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.location.Location;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.util.Pair;
 
 import androidx.test.core.app.ApplicationProvider;
@@ -40,6 +45,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import de.dennisguse.opentracks.content.data.Marker;
@@ -60,6 +68,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.Mockito.when;
 
 /**
@@ -414,6 +424,81 @@ public class CustomContentProviderUtilsTest {
         assertEquals(nameNew, contentProviderUtils.getTrack(trackId).getName());
     }
 
+    /**
+     * Tests the method {@link ContentProviderUtils#insertImportingTrack(Track)}
+     */
+    @Test
+    public void testInsertImportingTrack_hiddenUntilUpdate() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        Track track = TestDataUtil.createTrack(trackId);
+        int tracks = contentProviderUtils.getTracks().size();
+
+        // when
+        contentProviderUtils.insertImportingTrack(track);
+
+        // then
+        assertNull(contentProviderUtils.getTrack(trackId));
+        assertNull(contentProviderUtils.getTrack(track.getUuid()));
+        assertEquals(tracks, contentProviderUtils.getTracks().size());
+
+        // when
+        contentProviderUtils.updateTrack(track);
+
+        // then
+        assertNotNull(contentProviderUtils.getTrack(trackId));
+        assertEquals(tracks + 1, contentProviderUtils.getTracks().size());
+    }
+
+    /**
+     * Tests the method {@link ContentProviderUtils#updateTrackStatistics(Track.Id, TrackStatistics)}
+     */
+    @Test
+    public void testUpdateTrackStatistics() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        Track track = TestDataUtil.createTrack(trackId);
+        track.setName("name1");
+        contentProviderUtils.insertTrack(track);
+
+        // Track was renamed (e.g., by the user) while the statistics are updated
+        track.setName("name2");
+        contentProviderUtils.updateTrack(track);
+
+        TrackStatistics trackStatistics = new TrackStatistics();
+        trackStatistics.setTotalDistance(1234);
+
+        // when
+        contentProviderUtils.updateTrackStatistics(trackId, trackStatistics);
+
+        // then
+        Track updatedTrack = contentProviderUtils.getTrack(trackId);
+        assertEquals("name2", updatedTrack.getName());
+        assertEquals(1234, updatedTrack.getTrackStatistics().getTotalDistance(), 0.01);
+    }
+
+    @Test
+    public void testUpdateTrackStatistics_sensorStatistics() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(trackId));
+
+        TrackStatistics trackStatistics = new TrackStatistics();
+        trackStatistics.setSensorStatistics(new SensorStatistics(180f, 140f, null, null, 250f));
+
+        // when
+        contentProviderUtils.updateTrackStatistics(trackId, trackStatistics);
+
+        // then
+        SensorStatistics sensorStatistics = contentProviderUtils.getTrack(trackId).getTrackStatistics().getSensorStatistics();
+        assertTrue(sensorStatistics.hasHeartRate());
+        assertEquals(180f, sensorStatistics.getMaxHeartRate(), 0.01);
+        assertEquals(140f, sensorStatistics.getAvgHeartRate(), 0.01);
+        assertFalse(sensorStatistics.hasCadence());
+        assertTrue(sensorStatistics.hasPower());
+        assertEquals(250f, sensorStatistics.getAvgPower(), 0.01);
+    }
+
     /**
      * Tests the method {@link ContentProviderUtils#createContentValues(Marker)}.
      */
@@ -768,6 +853,174 @@ public class CustomContentProviderUtilsTest {
         assertEquals(28, contentProviderUtils.getTrackPointCursor(trackId, null).getCount());
     }
 
+    /**
+     * The direct insert stores the same values as the insert via {@link ContentValues}.
+     */
+    @Test
+    public void testBulkInsertTrackPoint_sameAsContentValues() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        Track.Id trackIdContentValues = new Track.Id(trackId.getId() + 1);
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(trackId));
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(trackIdContentValues));
+
+        TrackPoint trackPoint = TestDataUtil.createTrackPoint(1);
+        trackPoint.setBearing(45f);
+        trackPoint.setSensorDistance(5f);
+        List<TrackPoint> trackPoints = List.of(
+                trackPoint,
+                TrackPoint.createSegmentStartManualWithTime(Instant.ofEpochSecond(3)),
+                TestDataUtil.createTrackPoint(3, TrackPoint.Type.SEGMENT_START_AUTOMATIC)
+        );
+
+        // when
+        contentProviderUtils.bulkInsertTrackPoint(trackPoints, trackId);
+        contentProviderUtils.bulkInsertTrackPointWithContentValues(trackPoints, trackIdContentValues);
+
+        // then
+        try (Cursor cursor = contentProviderUtils.getTrackPointCursor(trackId, null);
+             Cursor cursorContentValues = contentProviderUtils.getTrackPointCursor(trackIdContentValues, null)) {
+            assertEquals(trackPoints.size(), cursor.getCount());
+            assertEquals(trackPoints.size(), cursorContentValues.getCount());
+            while (cursor.moveToNext() && cursorContentValues.moveToNext()) {
+                for (String column : cursor.getColumnNames()) {
+                    if (column.equals(TrackPointsColumns._ID) || column.equals(TrackPointsColumns.TRACKID)) {
+                        continue;
+                    }
+                    int index = cursor.getColumnIndexOrThrow(column);
+                    assertEquals(column, cursorContentValues.getType(index), cursor.getType(index));
+                    assertEquals(column, cursorContentValues.getString(index), cursor.getString(index));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBulkInsertTrackPoint_notifiesOnlyTrack() throws InterruptedException {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        Track.Id otherTrackId = new Track.Id(trackId.getId() + 1);
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(trackId));
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(otherTrackId));
+
+        HandlerThread handlerThread = new HandlerThread("observer");
+        handlerThread.start();
+        BlockingQueue<Uri> trackChanges = new LinkedBlockingQueue<>();
+        BlockingQueue<Uri> otherTrackChanges = new LinkedBlockingQueue<>();
+        ContentObserver trackObserver = createObserver(handlerThread, trackChanges);
+        ContentObserver otherTrackObserver = createObserver(handlerThread, otherTrackChanges);
+        context.getContentResolver().registerContentObserver(ContentProviderUtils.getTrackPointsUri(trackId), false, trackObserver);
+        context.getContentResolver().registerContentObserver(ContentProviderUtils.getTrackPointsUri(otherTrackId), false, otherTrackObserver);
+
+        try {
+            // when
+            contentProviderUtils.bulkInsertTrackPoint(List.of(TestDataUtil.createTrackPoint(1), TestDataUtil.createTrackPoint(2), TestDataUtil.createTrackPoint(3)), trackId);
+
+            // then
+            Uri change = trackChanges.poll(5, TimeUnit.SECONDS);
+            assertNotNull(change);
+            assertEquals(contentProviderUtils.getLastTrackPointId(trackId), ContentProviderUtils.parseLastTrackPointIdFromChange(change));
+            assertNull(otherTrackChanges.poll(500, TimeUnit.MILLISECONDS));
+        } finally {
+            context.getContentResolver().unregisterContentObserver(trackObserver);
+            context.getContentResolver().unregisterContentObserver(otherTrackObserver);
+            handlerThread.quit();
+        }
+    }
+
+    @Test
+    public void testUpdateMarker_notifiesMarkerOfTrack() throws InterruptedException {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        Marker marker = new Marker(trackId, contentProviderUtils.getLastValidTrackPoint(trackId));
+        marker.setId(new Marker.Id(ContentUris.parseId(contentProviderUtils.insertMarker(marker))));
+
+        HandlerThread handlerThread = new HandlerThread("observer");
+        handlerThread.start();
+        BlockingQueue<Uri> changes = new LinkedBlockingQueue<>();
+        ContentObserver observer = createObserver(handlerThread, changes);
+        context.getContentResolver().registerContentObserver(ContentProviderUtils.getMarkersUri(trackId), false, observer);
+
+        try {
+            // when
+            marker.setName(TEST_NAME_NEW);
+            contentProviderUtils.updateMarker(context, marker);
+            contentProviderUtils.deleteMarker(context, marker.getId());
+
+            // then
+            assertEquals(marker.getId(), ContentProviderUtils.parseMarkerIdFromChange(changes.poll(5, TimeUnit.SECONDS)));
+            assertEquals(marker.getId(), ContentProviderUtils.parseMarkerIdFromChange(changes.poll(5, TimeUnit.SECONDS)));
+        } finally {
+            context.getContentResolver().unregisterContentObserver(observer);
+            handlerThread.quit();
+        }
+    }
+
+    private static ContentObserver createObserver(HandlerThread handlerThread, BlockingQueue<Uri> changes) {
+        return new ContentObserver(new Handler(handlerThread.getLooper())) {
+            @Override
+            public void onChange(boolean selfChange, Uri uri) {
+                changes.add(uri);
+            }
+        };
+    }
+
+    /**
+     * Tests the method {@link ContentProviderUtils#insertTrackPoints(List, Track.Id, TrackStatistics)}.
+     */
+    @Test
+    public void testInsertTrackPoints() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        Pair<Track, List<TrackPoint>> track = TestDataUtil.createTrack(trackId, 10);
+        contentProviderUtils.insertTrack(track.first);
+
+        TrackStatistics trackStatistics = new TrackStatistics();
+        trackStatistics.setTotalDistance(1234);
+
+        // when
+        contentProviderUtils.insertTrackPoints(track.second, trackId, trackStatistics);
+
+        // then
+        assertEquals(10, contentProviderUtils.getTrackPointCursor(trackId, null).getCount());
+        assertEquals(1234, contentProviderUtils.getTrack(trackId).getTrackStatistics().getTotalDistance(), 0.01);
+    }
+
+    /**
+     * A batch is either applied completely or not at all.
+     */
+    @Test
+    public void testApplyBatch_isRolledBackOnError() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(trackId));
+
+        ContentValues valid = new ContentValues();
+        valid.put(TrackPointsColumns.TRACKID, trackId.getId());
+        valid.put(TrackPointsColumns.TYPE, TrackPoint.Type.TRACKPOINT.type_db);
+        valid.put(TrackPointsColumns.TIME, 1L);
+
+        // Violates foreign key constraint: track does not exist.
+        ContentValues invalid = new ContentValues(valid);
+        invalid.put(TrackPointsColumns.TRACKID, trackId.getId() + 1);
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(ContentProviderOperation.newInsert(TrackPointsColumns.CONTENT_URI_BY_ID).withValues(valid).build());
+        operations.add(ContentProviderOperation.newInsert(TrackPointsColumns.CONTENT_URI_BY_ID).withValues(invalid).build());
+
+        // when
+        try {
+            context.getContentResolver().applyBatch(ContentProviderUtils.AUTHORITY_PACKAGE, operations);
+            fail();
+        } catch (Exception e) {
+            // expected
+        }
+
+        // then
+        assertEquals(0, contentProviderUtils.getTrackPointCursor(trackId, null).getCount());
+    }
+
     /**
      * Tests the method {@link ContentProviderUtils#createTrackPoint(Cursor)}.
      */
@@ -1217,6 +1470,65 @@ public class CustomContentProviderUtilsTest {
         assertEquals(sensorStatistics.getAvgPower(), stats.avgPower, 0f);
     }
 
+    @Test
+    public void testComputeSensorStats_withManualResume() {
+        // given
+        Instant start = Instant.now();
+        TestSensorDataUtil sensorDataUtil = new TestSensorDataUtil();
+        sensorDataUtil.add(start, 140f, 75f, 250f, TrackPoint.Type.SEGMENT_START_AUTOMATIC);
+        sensorDataUtil.add(start.plus(2, ChronoUnit.SECONDS), 148f, 80f, 300f, TrackPoint.Type.TRACKPOINT);
+        sensorDataUtil.add(start.plus(6, ChronoUnit.SECONDS), 174f, 88f, 400f, TrackPoint.Type.TRACKPOINT);
+        sensorDataUtil.add(start.plus(26, ChronoUnit.SECONDS), 127f, 54f, 175f, TrackPoint.Type.SEGMENT_START_MANUAL);
+        sensorDataUtil.add(start.plus(29, ChronoUnit.SECONDS), 160f, 90f, 275f, TrackPoint.Type.TRACKPOINT);
+        sensorDataUtil.add(start.plus(36, ChronoUnit.SECONDS), 155f, 85f, 280f, TrackPoint.Type.TRACKPOINT);
+        sensorDataUtil.add(start.plus(44, ChronoUnit.SECONDS), 155f, 84f, 295f, TrackPoint.Type.SEGMENT_END_MANUAL);
+
+        Track.Id trackId = new Track.Id(start.toEpochMilli());
+        Track track = TestDataUtil.createTrack(trackId);
+        TestDataUtil.insertTrackWithLocations(contentProviderUtils, track, sensorDataUtil.getTrackPointList());
+
+        // when
+        SensorStatistics sensorStatistics = contentProviderUtils.computeSensorStats(trackId);
+        TestSensorDataUtil.SensorDataStats stats = sensorDataUtil.computeStats();
+
+        // then
+        assertEquals(sensorStatistics.getAvgHeartRate(), stats.avgHr, 0f);
+        assertEquals(sensorStatistics.getMaxHeartRate(), stats.maxHr, 0f);
+        assertEquals(sensorStatistics.getAvgCadence(), stats.avgCadence, 0f);
+        assertEquals(sensorStatistics.getMaxCadence(), stats.maxCadence, 0f);
+        assertEquals(sensorStatistics.getAvgPower(), stats.avgPower, 0f);
+    }
+
+    @Test
+    public void testComputeSensorStats_equalsQuerySensorStats() {
+        assumeTrue(ContentProviderUtils.SQLITE_SUPPORTS_WINDOW_FUNCTIONS);
+
+        // given
+        Instant start = Instant.now();
+        TestSensorDataUtil sensorDataUtil = new TestSensorDataUtil();
+        Random random = new Random();
+        for (int i = 0; i < 1000; i++) {
+            int randomNum = random.nextInt(50) - 2;
+            TrackPoint.Type type = randomNum >= 0 ? TrackPoint.Type.TRACKPOINT : TrackPoint.Type.getById(randomNum);
+            sensorDataUtil.add(start.plus(i, ChronoUnit.SECONDS), random.nextFloat() * 100f + 90f, random.nextBoolean() ? random.nextFloat() * 70f + 40f : null, random.nextFloat() * 400f + 100f, type);
+        }
+
+        Track.Id trackId = new Track.Id(start.toEpochMilli());
+        Track track = TestDataUtil.createTrack(trackId);
+        TestDataUtil.insertTrackWithLocations(contentProviderUtils, track, sensorDataUtil.getTrackPointList());
+
+        // when
+        SensorStatistics computed = contentProviderUtils.computeSensorStats(trackId);
+        SensorStatistics queried = contentProviderUtils.querySensorStats(trackId);
+
+        // then
+        assertEquals(queried.getAvgHeartRate(), computed.getAvgHeartRate(), 0.001f);
+        assertEquals(queried.getMaxHeartRate(), computed.getMaxHeartRate(), 0f);
+        assertEquals(queried.getAvgCadence(), computed.getAvgCadence(), 0.001f);
+        assertEquals(queried.getMaxCadence(), computed.getMaxCadence(), 0f);
+        assertEquals(queried.getAvgPower(), computed.getAvgPower(), 0.001f);
+    }
+
     private void testGetSensorStats_randomData(int totalPoints, boolean withStartSegments) {
         // given
         Instant start = Instant.now();
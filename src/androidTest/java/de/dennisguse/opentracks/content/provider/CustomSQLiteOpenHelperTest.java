@@ -89,6 +89,8 @@ public class CustomSQLiteOpenHelperTest {
 
             assertTrue(hasSqlCreate(db, TrackPointsColumns.CREATE_TABLE));
             assertTrue(hasSqlCreate(db, TrackPointsColumns.CREATE_TABLE_INDEX));
+            assertTrue(hasSqlCreate(db, TrackPointsColumns.CREATE_TABLE_INDEX_TYPE));
+            assertTrue(hasSqlCreate(db, TrackPointsColumns.CREATE_TABLE_INDEX_TIME));
 
             assertTrue(hasSqlCreate(db, MarkerColumns.CREATE_TABLE));
             assertTrue(hasSqlCreate(db, MarkerColumns.CREATE_TABLE_INDEX));
@@ -129,10 +131,8 @@ public class CustomSQLiteOpenHelperTest {
         assertEquals(tablesByCreate.get(MarkerColumns.TABLE_NAME), tableByUpgrade.get(MarkerColumns.TABLE_NAME));
 
         // then - verify custom indices
-        assertEquals(3, indicesByCreate.size());
-        assertEquals(indicesByUpgrade.get(TracksColumns.TABLE_NAME), indicesByCreate.get(TracksColumns.TABLE_NAME));
-        assertEquals(indicesByUpgrade.get(TrackPointsColumns.TABLE_NAME), indicesByCreate.get(TrackPointsColumns.TABLE_NAME));
-        assertEquals(indicesByUpgrade.get(MarkerColumns.TABLE_NAME), indicesByCreate.get(MarkerColumns.TABLE_NAME));
+        assertEquals(5, indicesByCreate.size());
+        assertEquals(indicesByCreate, indicesByUpgrade);
     }
 
     @Test
@@ -263,6 +263,90 @@ public class CustomSQLiteOpenHelperTest {
         }
     }
 
+    @Test
+    public void upgrade_data_to_32() {
+        // given: tracks in version 31
+        createVersion23();
+        try (SQLiteDatabase db31 = new CustomSQLiteOpenHelper(context, DATABASE_NAME, 31).getWritableDatabase()) {
+            db31.beginTransaction();
+            // Without sensor data
+            db31.execSQL("INSERT INTO tracks (_id) VALUES (1)");
+            db31.execSQL("INSERT INTO trackpoints (trackid, time, type) VALUES (1, 1000, 0)");
+            db31.execSQL("INSERT INTO trackpoints (trackid, time, type) VALUES (1, 2000, 0)");
+
+            // With sensor data and a manual pause
+            db31.execSQL("INSERT INTO tracks (_id) VALUES (2)");
+            db31.execSQL("INSERT INTO trackpoints (trackid, time, type, sensor_heartrate, sensor_power) VALUES (2, 1000, -2, 90, 100)");
+            db31.execSQL("INSERT INTO trackpoints (trackid, time, type, sensor_heartrate, sensor_power) VALUES (2, 2000, 0, 100, 200)");
+            db31.execSQL("INSERT INTO trackpoints (trackid, time, type, sensor_heartrate, sensor_power) VALUES (2, 4000, 0, 150, 300)");
+            db31.execSQL("INSERT INTO trackpoints (trackid, time, type, sensor_heartrate, sensor_power) VALUES (2, 9000, -2, 200, 400)");
+            db31.execSQL("INSERT INTO trackpoints (trackid, time, type, sensor_heartrate, sensor_power) VALUES (2, 10000, 0, 120, 100)");
+            db31.execSQL("INSERT INTO trackpoints (trackid, time, type, sensor_heartrate, sensor_power) VALUES (2, 12000, 1, 120, 100)");
+
+            // Without duration and without heart rate (0)
+            db31.execSQL("INSERT INTO tracks (_id) VALUES (3)");
+            db31.execSQL("INSERT INTO trackpoints (trackid, time, type, sensor_heartrate, sensor_cadence) VALUES (3, 1000, 0, 0, 80)");
+
+            db31.setTransactionSuccessful();
+            db31.endTransaction();
+        }
+
+        // when / then
+        try (SQLiteDatabase db32 = new CustomSQLiteOpenHelper(context, DATABASE_NAME, 32).getWritableDatabase()) {
+            String[] columns = new String[]{"sensor_max_heartrate", "sensor_avg_heartrate", "sensor_max_cadence", "sensor_avg_cadence", "sensor_avg_power"};
+            try (Cursor cursor = db32.query("tracks", columns, null, null, null, null, "_id")) {
+                assertEquals(3, cursor.getCount());
+
+                // Track 1
+                cursor.moveToFirst();
+                for (int i = 0; i < columns.length; i++) {
+                    assertTrue(cursor.isNull(i));
+                }
+
+                // Track 2: 100 for 2s, 150 for 0s (followed by a pause), 120 for 2s
+                cursor.moveToNext();
+                assertEquals(150, cursor.getFloat(0), 0.01);
+                assertEquals((100 * 2 + 120 * 2) / 4f, cursor.getFloat(1), 0.01);
+                assertTrue(cursor.isNull(2));
+                assertTrue(cursor.isNull(3));
+                assertEquals((200 * 2 + 100 * 2) / 4f, cursor.getFloat(4), 0.01);
+
+                // Track 3: only the max cadence
+                cursor.moveToNext();
+                assertTrue(cursor.isNull(0));
+                assertTrue(cursor.isNull(1));
+                assertEquals(80, cursor.getFloat(2), 0.01);
+                assertTrue(cursor.isNull(3));
+                assertTrue(cursor.isNull(4));
+            }
+        }
+    }
+
+    @Test
+    public void downgrade_data_to_33() {
+        // given: a complete and an incomplete import in version 34
+        try (SQLiteDatabase db34 = new CustomSQLiteOpenHelper(context, DATABASE_NAME, 34).getWritableDatabase()) {
+            db34.execSQL("INSERT INTO tracks (_id) VALUES (1)");
+            db34.execSQL("INSERT INTO trackpoints (trackid, time, type) VALUES (1, 1000, 0)");
+            db34.execSQL("INSERT INTO tracks (_id, importing) VALUES (2, 1)");
+            db34.execSQL("INSERT INTO trackpoints (trackid, time, type) VALUES (2, 1000, 0)");
+        }
+
+        // when / then
+        try (SQLiteDatabase db33 = new CustomSQLiteOpenHelper(context, DATABASE_NAME, 33).getWritableDatabase()) {
+            try (Cursor cursor = db33.query("tracks", new String[]{"_id"}, null, null, null, null, null)) {
+                assertEquals(1, cursor.getCount());
+                cursor.moveToFirst();
+                assertEquals(1, cursor.getLong(0));
+            }
+            try (Cursor cursor = db33.query("trackpoints", new String[]{"trackid"}, null, null, null, null, null)) {
+                assertEquals(1, cursor.getCount());
+                cursor.moveToFirst();
+                assertEquals(1, cursor.getLong(0));
+            }
+        }
+    }
+
     private void createVersion23() {
         // Manually create database schema with version 23 (base version)
         SQLiteDatabase dbBase = new SQLiteOpenHelper(context, DATABASE_NAME, null, 23) {
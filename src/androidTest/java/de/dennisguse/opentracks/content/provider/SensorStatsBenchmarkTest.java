@@ -0,0 +1,155 @@
+package de.dennisguse.opentracks.content.provider;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.data.TrackPointsColumns;
+import de.dennisguse.opentracks.stats.SensorStatistics;
+import de.dennisguse.opentracks.util.BenchmarkRule;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the sensor statistics implementations on long tracks.
+ * Only runs if requested (see {@link BenchmarkRule}); takes several minutes.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SensorStatsBenchmarkTest {
+
+    @ClassRule
+    public static final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private static final String TAG = SensorStatsBenchmarkTest.class.getSimpleName();
+
+    private static final int BULK_INSERT_SIZE = 10000;
+
+    /**
+     * Query used before the window function query: the correlated subquery is executed per trackpoint.
+     */
+    private static final String SENSOR_STATS_QUERY_CORRELATED =
+            "WITH time_select as " +
+                "(SELECT t1.time * (t1.type NOT IN (-2)) time_value " +
+                "FROM trackpoints t1 " +
+                "WHERE t1._id > t._id AND t1.trackid = ? ORDER BY _id LIMIT 1) " +
+            "SELECT " +
+                "SUM(t.sensor_heartrate * (COALESCE(MAX(t.time, (SELECT time_value FROM time_select)), t.time) - t.time)) / SUM(COALESCE(MAX(t.time, (SELECT time_value FROM time_select)), t.time) - t.time) avg_hr, " +
+                "MAX(t.sensor_heartrate) max_hr, " +
+                "SUM(t.sensor_cadence * (COALESCE(MAX(t.time, (SELECT time_value FROM time_select)), t.time) - t.time)) / SUM(COALESCE(MAX(t.time, (SELECT time_value FROM time_select)), t.time) - t.time) avg_cadence, " +
+                "MAX(t.sensor_cadence) max_cadence, " +
+                "SUM(t.sensor_power * (COALESCE(MAX(t.time, (SELECT time_value FROM time_select)), t.time) - t.time)) / SUM(COALESCE(MAX(t.time, (SELECT time_value FROM time_select)), t.time) - t.time) avg_power " +
+            "FROM trackpoints t " +
+            "WHERE t.trackid = ? AND t.type NOT IN (-2)";
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private ContentProviderUtils contentProviderUtils;
+
+    @Before
+    public void setUp() {
+        contentProviderUtils = new ContentProviderUtils(context);
+        contentProviderUtils.deleteAllTracks(context);
+    }
+
+    @After
+    public void tearDown() {
+        if (contentProviderUtils != null) {
+            contentProviderUtils.deleteAllTracks(context);
+        }
+    }
+
+    @Test
+    public void benchmark_10k() {
+        benchmark(10000);
+    }
+
+    @Test
+    public void benchmark_100k() {
+        benchmark(100000);
+    }
+
+    @Test
+    public void benchmark_1M() {
+        benchmark(1000000);
+    }
+
+    private void benchmark(int trackPoints) {
+        // given
+        Track.Id trackId = insertTrack(trackPoints);
+
+        // when
+        long startTime = System.nanoTime();
+        float correlatedAvgHr = queryCorrelatedAvgHeartRate(trackId);
+        long correlatedDuration = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        SensorStatistics computed = contentProviderUtils.computeSensorStats(trackId);
+        long computedDuration = System.nanoTime() - startTime;
+
+        long queriedDuration = -1;
+        if (ContentProviderUtils.SQLITE_SUPPORTS_WINDOW_FUNCTIONS) {
+            startTime = System.nanoTime();
+            SensorStatistics queried = contentProviderUtils.querySensorStats(trackId);
+            queriedDuration = System.nanoTime() - startTime;
+
+            assertEquals(correlatedAvgHr, queried.getAvgHeartRate(), 0.01f);
+        }
+
+        // then
+        assertEquals(correlatedAvgHr, computed.getAvgHeartRate(), 0.01f);
+        Log.i(TAG, trackPoints + " TrackPoints: correlated query " + correlatedDuration / 1000000 + "ms, window function query " + (queriedDuration < 0 ? "n/a" : queriedDuration / 1000000 + "ms") + ", streaming " + computedDuration / 1000000 + "ms");
+    }
+
+    private float queryCorrelatedAvgHeartRate(Track.Id trackId) {
+        String[] selectionArgs = {String.valueOf(trackId.getId()), String.valueOf(trackId.getId())};
+        try (SQLiteDatabase db = new CustomSQLiteOpenHelper(context).getReadableDatabase();
+             Cursor cursor = db.rawQuery(SENSOR_STATS_QUERY_CORRELATED, selectionArgs)) {
+            cursor.moveToFirst();
+            return cursor.getFloat(cursor.getColumnIndexOrThrow(TrackPointsColumns.ALIAS_AVG_HR));
+        }
+    }
+
+    private Track.Id insertTrack(int trackPoints) {
+        Instant start = Instant.now();
+        Track.Id trackId = new Track.Id(start.toEpochMilli());
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(trackId));
+
+        Random random = new Random();
+        List<TrackPoint> buffer = new ArrayList<>();
+        for (int i = 0; i < trackPoints; i++) {
+            int randomNum = random.nextInt(1000) - 2;
+            TrackPoint trackPoint = TestDataUtil.createTrackPoint(i);
+            trackPoint.setType(randomNum >= 0 ? TrackPoint.Type.TRACKPOINT : TrackPoint.Type.getById(randomNum));
+            trackPoint.setTime(start.plus(i, ChronoUnit.SECONDS));
+            trackPoint.setHeartRate_bpm(random.nextFloat() * 110f + 90f);
+            trackPoint.setCyclingCadence_rpm(random.nextFloat() * 70f + 40f);
+            trackPoint.setPower(random.nextFloat() * 400f + 100f);
+            buffer.add(trackPoint);
+
+            if (buffer.size() == BULK_INSERT_SIZE) {
+                contentProviderUtils.bulkInsertTrackPoint(buffer, trackId);
+                buffer.clear();
+            }
+        }
+        contentProviderUtils.bulkInsertTrackPoint(buffer, trackId);
+        return trackId;
+    }
+}
@@ -0,0 +1,227 @@
+package de.dennisguse.opentracks.content.provider;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import de.dennisguse.opentracks.content.data.Marker;
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TracksColumns;
+import de.dennisguse.opentracks.io.file.TrackFileFormat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(AndroidJUnit4.class)
+public class ShareFileCacheTest {
+
+    private final ShareFileCache shareFileCache = new ShareFileCache(ApplicationProvider.getApplicationContext());
+
+    private final Set<Track.Id> trackIds = Collections.singleton(new Track.Id(1));
+
+    private int renderCount = 0;
+
+    private final ShareFileCache.ExportWriter exportWriter = outputStream -> {
+        renderCount++;
+        try {
+            outputStream.write(("export " + renderCount).getBytes(StandardCharsets.UTF_8));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    };
+
+    @Test
+    public void get_notRendered() {
+        // when
+        File file = shareFileCache.get(trackIds, TrackFileFormat.GPX);
+
+        // then
+        assertNull(file);
+        assertEquals(0, renderCount);
+    }
+
+    @Test
+    public void write_streamedAndCached() throws IOException {
+        // given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        shareFileCache.write(trackIds, TrackFileFormat.GPX, outputStream, exportWriter);
+        File file = shareFileCache.get(trackIds, TrackFileFormat.GPX);
+        File file2 = shareFileCache.get(trackIds, TrackFileFormat.GPX);
+
+        // then
+        assertEquals(1, renderCount);
+        assertEquals("export 1", outputStream.toString("UTF-8"));
+        assertEquals(file, file2);
+        assertEquals("export 1".length(), file.length());
+    }
+
+    @Test
+    public void get_perFormat() throws IOException {
+        // given
+        render(trackIds, TrackFileFormat.GPX);
+
+        // when
+        File file = shareFileCache.get(trackIds, TrackFileFormat.KML_ONLY_TRACK);
+
+        // then
+        assertNull(file);
+    }
+
+    @Test
+    public void get_trackIdsOrderIgnored() throws IOException {
+        // given
+        Set<Track.Id> trackIds1 = new HashSet<>();
+        trackIds1.add(new Track.Id(1));
+        trackIds1.add(new Track.Id(2));
+        Set<Track.Id> trackIds2 = new HashSet<>();
+        trackIds2.add(new Track.Id(2));
+        trackIds2.add(new Track.Id(1));
+
+        // given
+        render(trackIds1, TrackFileFormat.GPX);
+
+        // when
+        File file = shareFileCache.get(trackIds2, TrackFileFormat.GPX);
+
+        // then
+        assertNotNull(file);
+    }
+
+    @Test
+    public void invalidate_changedTrack() throws IOException {
+        // given
+        render(trackIds, TrackFileFormat.GPX);
+
+        ContentChanges trackPointsInserted = new ContentChanges();
+        trackPointsInserted.addTrackPoints(1, 10, 20);
+        ContentChanges markerChanged = new ContentChanges();
+        markerChanged.add(ContentProviderUtils.getMarkersUri(new Track.Id(1), new Marker.Id(5)));
+
+        // when
+        shareFileCache.invalidate(trackPointsInserted);
+        File outdated = shareFileCache.get(trackIds, TrackFileFormat.GPX);
+        File file = render(trackIds, TrackFileFormat.GPX);
+
+        shareFileCache.invalidate(markerChanged);
+        File outdated2 = shareFileCache.get(trackIds, TrackFileFormat.GPX);
+
+        // then
+        assertNull(outdated);
+        assertNull(outdated2);
+        assertEquals("export 2".length(), file.length());
+    }
+
+    @Test
+    public void invalidate_otherTrack() throws IOException {
+        // given
+        render(trackIds, TrackFileFormat.GPX);
+
+        ContentChanges changes = new ContentChanges();
+        changes.add(ContentProviderUtils.getTrackUri(new Track.Id(2)));
+
+        // when
+        shareFileCache.invalidate(changes);
+        File file = shareFileCache.get(trackIds, TrackFileFormat.GPX);
+
+        // then
+        assertNotNull(file);
+    }
+
+    @Test
+    public void invalidate_allTracks() throws IOException {
+        // given
+        render(trackIds, TrackFileFormat.GPX);
+
+        ContentChanges changes = new ContentChanges();
+        changes.add(TracksColumns.CONTENT_URI);
+
+        // when
+        shareFileCache.invalidate(changes);
+        File file = shareFileCache.get(trackIds, TrackFileFormat.GPX);
+
+        // then
+        assertNull(file);
+    }
+
+    @Test
+    public void write_evictsLeastRecentlyUsed() throws IOException {
+        // given
+        File file = render(trackIds, TrackFileFormat.GPX);
+
+        // when
+        for (int i = 2; i <= ShareFileCache.MAX_EXPORTS + 1; i++) {
+            render(Collections.singleton(new Track.Id(i)), TrackFileFormat.GPX);
+        }
+
+        // then
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void write_failed() {
+        // when
+        try {
+            shareFileCache.write(trackIds, TrackFileFormat.GPX, new ByteArrayOutputStream(), outputStream -> false);
+            fail();
+        } catch (IOException e) {
+            // then
+            assertTrue(e.getMessage().contains(TrackFileFormat.GPX.getName()));
+            assertNull(shareFileCache.get(trackIds, TrackFileFormat.GPX));
+        }
+    }
+
+    @Test
+    public void write_outputStreamFailed_cachedAnyway() {
+        // given
+        OutputStream closedOutputStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("closed");
+            }
+        };
+        ShareFileCache.ExportWriter printWriterExport = outputStream -> {
+            renderCount++;
+            // PrintWriter does not report IOExceptions.
+            PrintWriter printWriter = new PrintWriter(outputStream);
+            printWriter.print("export " + renderCount);
+            printWriter.flush();
+            return true;
+        };
+
+        // when
+        try {
+            shareFileCache.write(trackIds, TrackFileFormat.GPX, closedOutputStream, printWriterExport);
+            fail();
+        } catch (IOException e) {
+            // then
+            assertEquals("closed", e.getMessage());
+        }
+        File file = shareFileCache.get(trackIds, TrackFileFormat.GPX);
+        assertNotNull(file);
+        assertEquals("export 1".length(), file.length());
+    }
+
+    private File render(Set<Track.Id> trackIds, TrackFileFormat trackFileFormat) throws IOException {
+        shareFileCache.write(trackIds, trackFileFormat, new ByteArrayOutputStream(), exportWriter);
+        return shareFileCache.get(trackIds, trackFileFormat);
+    }
+}
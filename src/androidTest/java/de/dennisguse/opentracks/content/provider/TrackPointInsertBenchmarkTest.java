@@ -0,0 +1,102 @@
+package de.dennisguse.opentracks.content.provider;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.util.BenchmarkRule;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares inserting TrackPoints via {@link android.content.ContentValues} with the direct insert.
+ * Only runs if requested (see {@link BenchmarkRule}).
+ */
+@RunWith(AndroidJUnit4.class)
+public class TrackPointInsertBenchmarkTest {
+
+    @ClassRule
+    public static final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private static final String TAG = TrackPointInsertBenchmarkTest.class.getSimpleName();
+
+    private static final int TRACKPOINTS = 100000;
+
+    // Same as file import
+    private static final int BULK_INSERT_SIZE = 1000;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private ContentProviderUtils contentProviderUtils;
+
+    @Before
+    public void setUp() {
+        contentProviderUtils = new ContentProviderUtils(context);
+        contentProviderUtils.deleteAllTracks(context);
+    }
+
+    @After
+    public void tearDown() {
+        if (contentProviderUtils != null) {
+            contentProviderUtils.deleteAllTracks(context);
+        }
+    }
+
+    @Test
+    public void benchmark_100k() {
+        // given
+        List<TrackPoint> trackPoints = createTrackPoints(TRACKPOINTS);
+        Track.Id trackIdContentValues = new Track.Id(System.currentTimeMillis());
+        Track.Id trackIdDirect = new Track.Id(trackIdContentValues.getId() + 1);
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(trackIdContentValues));
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(trackIdDirect));
+
+        // when
+        long startTime = System.nanoTime();
+        for (int i = 0; i < trackPoints.size(); i += BULK_INSERT_SIZE) {
+            contentProviderUtils.bulkInsertTrackPointWithContentValues(trackPoints.subList(i, Math.min(i + BULK_INSERT_SIZE, trackPoints.size())), trackIdContentValues);
+        }
+        long contentValuesDuration = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < trackPoints.size(); i += BULK_INSERT_SIZE) {
+            contentProviderUtils.bulkInsertTrackPoint(trackPoints.subList(i, Math.min(i + BULK_INSERT_SIZE, trackPoints.size())), trackIdDirect);
+        }
+        long directDuration = System.nanoTime() - startTime;
+
+        // then
+        assertEquals(TRACKPOINTS, contentProviderUtils.getTrackPointCursor(trackIdContentValues, null).getCount());
+        assertEquals(TRACKPOINTS, contentProviderUtils.getTrackPointCursor(trackIdDirect, null).getCount());
+        Log.i(TAG, TRACKPOINTS + " TrackPoints: ContentValues " + contentValuesDuration / 1000000 + "ms (" + throughput(contentValuesDuration) + " TrackPoints/s), direct " + directDuration / 1000000 + "ms (" + throughput(directDuration) + " TrackPoints/s)");
+    }
+
+    private static long throughput(long duration_ns) {
+        return TRACKPOINTS * 1000000000L / Math.max(duration_ns, 1);
+    }
+
+    private static List<TrackPoint> createTrackPoints(int count) {
+        Instant start = Instant.now();
+        List<TrackPoint> trackPoints = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TrackPoint trackPoint = TestDataUtil.createTrackPoint(i);
+            trackPoint.setTime(start.plus(i, ChronoUnit.SECONDS));
+            trackPoints.add(trackPoint);
+        }
+        return trackPoints;
+    }
+}
@@ -0,0 +1,114 @@
+package de.dennisguse.opentracks.content.provider;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import de.dennisguse.opentracks.content.data.TrackPointsColumns;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Verifies that the frequently used trackpoint queries are answered by the expected index, i.e., neither scan the trackpoints table nor sort using a temporary B-tree.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TrackPointsQueryPlanTest {
+
+    private static final String DATABASE_NAME = "queryplan.db";
+
+    private static final Pattern TABLE_SCAN = Pattern.compile("SCAN (TABLE )?" + TrackPointsColumns.TABLE_NAME + "\\b");
+    private static final String TEMP_B_TREE = "TEMP B-TREE";
+
+    // See TrackPointsColumns.CREATE_TABLE_INDEX*
+    private static final String INDEX_TRACKID_ID = TrackPointsColumns.TABLE_NAME + "_" + TrackPointsColumns.TRACKID + "_id_index";
+    private static final String INDEX_TRACKID_TYPE_ID = TrackPointsColumns.TABLE_NAME + "_" + TrackPointsColumns.TRACKID + "_" + TrackPointsColumns.TYPE + "_id_index";
+    private static final String INDEX_TRACKID_TIME = TrackPointsColumns.TABLE_NAME + "_" + TrackPointsColumns.TRACKID + "_" + TrackPointsColumns.TIME + "_index";
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        context.deleteDatabase(DATABASE_NAME);
+        db = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void getTrackPointCursor() {
+        assertUsesIndex(INDEX_TRACKID_ID, selectTrackPoints(ContentProviderUtils.SELECTION_TRACKPOINTS_BY_TRACKID), "1");
+    }
+
+    @Test
+    public void getTrackPointCursor_fromTrackPointId() {
+        assertUsesIndex(INDEX_TRACKID_ID, selectTrackPoints(ContentProviderUtils.SELECTION_TRACKPOINTS_BY_TRACKID_FROM_ID), "1", "1");
+    }
+
+    @Test
+    public void getLastTrackPointId() {
+        assertUsesIndex(INDEX_TRACKID_ID, selectTrackPoints(ContentProviderUtils.SELECTION_LAST_TRACKPOINT), "1");
+    }
+
+    @Test
+    public void getTrackPointId() {
+        assertUsesIndex(INDEX_TRACKID_TIME, selectTrackPoints(ContentProviderUtils.SELECTION_LAST_TRACKPOINT_BY_TIME), "1", "1000");
+    }
+
+    @Test
+    public void getLastValidTrackPoint() {
+        assertUsesIndex(INDEX_TRACKID_TYPE_ID, selectTrackPoints(ContentProviderUtils.SELECTION_LAST_VALID_TRACKPOINT), "1");
+    }
+
+    @Test
+    public void getSensorStats() {
+        assumeTrue(ContentProviderUtils.SQLITE_SUPPORTS_WINDOW_FUNCTIONS);
+
+        assertUsesIndex(INDEX_TRACKID_ID, CustomContentProvider.SENSOR_STATS_QUERY, "1");
+    }
+
+    /**
+     * Same SQL as created by {@link CustomContentProvider} for {@link TrackPointsColumns#CONTENT_URI_BY_ID}.
+     */
+    private static String selectTrackPoints(String selection) {
+        return "SELECT * FROM " + TrackPointsColumns.TABLE_NAME + " WHERE (" + selection + ") ORDER BY " + TrackPointsColumns.DEFAULT_SORT_ORDER;
+    }
+
+    private void assertUsesIndex(String index, String sql, String... selectionArgs) {
+        List<String> plan = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, selectionArgs)) {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detailIndex));
+            }
+        }
+
+        for (String detail : plan) {
+            assertFalse("Table scan: " + plan, TABLE_SCAN.matcher(detail).find());
+            assertFalse("Sorting: " + plan, detail.contains(TEMP_B_TREE));
+        }
+
+        // "USING INDEX" or "USING COVERING INDEX"
+        Pattern usesIndex = Pattern.compile("USING (COVERING )?INDEX " + index + "\\b");
+        assertTrue("Not using " + index + ": " + plan, plan.stream().anyMatch(detail -> usesIndex.matcher(detail).find()));
+    }
+}
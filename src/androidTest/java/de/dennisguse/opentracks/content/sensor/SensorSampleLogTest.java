@@ -0,0 +1,174 @@
+package de.dennisguse.opentracks.content.sensor;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class SensorSampleLogTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(context.getCacheDir(), "SensorSampleLogTest");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void encode_decode() {
+        // given
+        SensorSamples sensorSamples = createSamples(1000, 1600000000000L);
+
+        // when
+        SensorSamples decoded = new SensorSamples();
+        SensorSampleLog.decode(SensorSampleLog.encode(sensorSamples), decoded);
+
+        // then
+        assertSamples(sensorSamples, decoded);
+    }
+
+    @Test
+    public void encode_extremeValues() {
+        // given
+        SensorSamples sensorSamples = new SensorSamples();
+        sensorSamples.add(SensorSamples.TYPE_HEART_RATE, 0, Integer.MAX_VALUE);
+        sensorSamples.add(SensorSamples.TYPE_HEART_RATE, Long.MAX_VALUE, Integer.MIN_VALUE);
+        sensorSamples.add(SensorSamples.TYPE_POWER, -1, 0);
+
+        // when
+        SensorSamples decoded = new SensorSamples();
+        SensorSampleLog.decode(SensorSampleLog.encode(sensorSamples), decoded);
+
+        // then
+        assertSamples(sensorSamples, decoded);
+    }
+
+    @Test
+    public void encode_isCompact() {
+        // given
+        SensorSamples sensorSamples = createSamples(1000, 1600000000000L);
+
+        // when
+        byte[] encoded = SensorSampleLog.encode(sensorSamples);
+
+        // then
+        // 1 byte type, 2 bytes time delta (~1000ms), 1 byte value delta
+        assertTrue("size: " + encoded.length, encoded.length < 4 * 1000 + 32);
+    }
+
+    @Test
+    public void append_read() throws IOException {
+        // given
+        SensorSamples batch1 = createSamples(10, 1600000000000L);
+        SensorSamples batch2 = createSamples(20, 1600000100000L);
+
+        // when
+        SensorSampleLog.append(file, batch1);
+        SensorSampleLog.append(file, batch2);
+        SensorSampleLog.append(file, new SensorSamples());
+
+        // then
+        SensorSamples expected = new SensorSamples();
+        expected.addAll(batch1);
+        expected.addAll(batch2);
+        assertSamples(expected, SensorSampleLog.read(file));
+    }
+
+    @Test
+    public void read_ignoresIncompleteLastBatch() throws IOException {
+        // given
+        SensorSamples batch1 = createSamples(10, 1600000000000L);
+        SensorSampleLog.append(file, batch1);
+
+        byte[] batch2 = SensorSampleLog.encode(createSamples(10, 1600000100000L));
+        try (FileOutputStream outputStream = new FileOutputStream(file, true)) {
+            outputStream.write(Arrays.copyOf(batch2, batch2.length - 3));
+        }
+
+        // when
+        SensorSamples sensorSamples = SensorSampleLog.read(file);
+
+        // then
+        assertSamples(batch1, sensorSamples);
+    }
+
+    @Test
+    public void truncateIncomplete_appendAfterIncompleteLastBatch() throws IOException {
+        // given
+        SensorSamples batch1 = createSamples(10, 1600000000000L);
+        SensorSampleLog.append(file, batch1);
+        long length = file.length();
+
+        byte[] batch2 = SensorSampleLog.encode(createSamples(10, 1600000100000L));
+        try (FileOutputStream outputStream = new FileOutputStream(file, true)) {
+            outputStream.write(Arrays.copyOf(batch2, batch2.length - 3));
+        }
+
+        // when
+        boolean truncated = SensorSampleLog.truncateIncomplete(file);
+        SensorSamples batch3 = createSamples(10, 1600000200000L);
+        SensorSampleLog.append(file, batch3);
+
+        // then
+        assertTrue(truncated);
+        assertFalse(SensorSampleLog.truncateIncomplete(file));
+        assertTrue(file.length() > length);
+        SensorSamples expected = new SensorSamples();
+        expected.addAll(batch1);
+        expected.addAll(batch3);
+        assertSamples(expected, SensorSampleLog.read(file));
+    }
+
+    @Test
+    public void read_fileDoesNotExist() throws IOException {
+        // when
+        SensorSamples sensorSamples = SensorSampleLog.read(file);
+
+        // then
+        assertEquals(0, sensorSamples.size());
+    }
+
+    private static SensorSamples createSamples(int count, long startTime_ms) {
+        SensorSamples sensorSamples = new SensorSamples();
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0) {
+                sensorSamples.add(SensorSamples.TYPE_HEART_RATE, startTime_ms + i * 1000L + i % 7, 120 + i % 11);
+            } else {
+                sensorSamples.add(SensorSamples.TYPE_POWER, startTime_ms + i * 1000L, 200 - i % 13);
+            }
+        }
+        return sensorSamples;
+    }
+
+    private static void assertSamples(SensorSamples expected, SensorSamples actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getType(i), actual.getType(i));
+            assertEquals(expected.getTime_ms(i), actual.getTime_ms(i));
+            assertEquals(expected.getValue(i), actual.getValue(i));
+        }
+    }
+}
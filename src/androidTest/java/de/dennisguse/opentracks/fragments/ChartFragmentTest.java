@@ -33,6 +33,7 @@ import java.time.Instant;
 
 import de.dennisguse.opentracks.chart.ChartPoint;
 import de.dennisguse.opentracks.chart.ChartView;
+import de.dennisguse.opentracks.content.TrackSeries;
 import de.dennisguse.opentracks.content.data.TrackPoint;
 import de.dennisguse.opentracks.util.UnitConversions;
 
@@ -49,6 +50,7 @@ public class ChartFragmentTest {
     private static final double HOURS_PER_UNIT = 60.0;
 
     private ChartFragment chartFragment;
+    private TrackSeries trackSeries;
 
     @BeforeClass
     public static void preSetUp() {
@@ -66,6 +68,17 @@ public class ChartFragmentTest {
         boolean chartByDistance = false;
         chartFragment = ChartFragment.newInstance(chartByDistance);
         chartFragment.setChartView(new ChartView(ApplicationProvider.getApplicationContext(), chartByDistance));
+        trackSeries = new TrackSeries(0);
+        chartFragment.setTrackSeries(trackSeries);
+    }
+
+    /**
+     * Adds the trackPoint to the trackSeries (as done by the TrackDataHub) and creates the ChartPoint.
+     */
+    private ChartPoint createPendingPoint(TrackPoint trackPoint) {
+        trackPoint.setId(new TrackPoint.Id(trackSeries.size() + 1));
+        trackSeries.add(trackPoint, true);
+        return chartFragment.createPendingPoint(trackPoint);
     }
 
     /**
@@ -77,7 +90,7 @@ public class ChartFragmentTest {
         TrackPoint trackPoint = TrackStubUtils.createDefaultTrackPoint();
 
         // when
-        ChartPoint point = chartFragment.createPendingPoint(trackPoint);
+        ChartPoint point = createPendingPoint(trackPoint);
 
         // then
         assertEquals(Float.NaN, point.getHeartRate(), 0.01);
@@ -97,7 +110,7 @@ public class ChartFragmentTest {
         trackPoint.setPower(102f);
 
         // when
-        ChartPoint point = chartFragment.createPendingPoint(trackPoint);
+        ChartPoint point = createPendingPoint(trackPoint);
 
         // then
         assertEquals(100.0, point.getHeartRate(), 0.01);
@@ -113,18 +126,18 @@ public class ChartFragmentTest {
         chartFragment.setChartByDistance(true);
         // Resets last location and writes first location.
         TrackPoint trackPoint1 = TrackStubUtils.createDefaultTrackPoint();
-        ChartPoint point = chartFragment.createPendingPoint(trackPoint1);
+        ChartPoint point = createPendingPoint(trackPoint1);
         assertEquals(0.0, point.getTimeOrDistance(), 0.01);
 
         // The second is a same location, just different time.
         TrackPoint trackPoint2 = TrackStubUtils.createDefaultTrackPoint();
-        point = chartFragment.createPendingPoint(trackPoint2);
+        point = createPendingPoint(trackPoint2);
         assertEquals(0.0, point.getTimeOrDistance(), 0.01);
 
         // The third location is a new location, and use metric.
         TrackPoint trackPoint3 = TrackStubUtils.createDefaultTrackPoint();
         trackPoint3.setLatitude(23);
-        point = chartFragment.createPendingPoint(trackPoint3);
+        point = createPendingPoint(trackPoint3);
 
         // Computes the distance between Latitude 22 and 23.
         float[] results = new float[4];
@@ -136,7 +149,7 @@ public class ChartFragmentTest {
         // The fourth location is a new location, and use metric.
         TrackPoint trackPoint4 = TrackStubUtils.createDefaultTrackPoint();
         trackPoint4.setLatitude(24);
-        point = chartFragment.createPendingPoint(trackPoint4);
+        point = createPendingPoint(trackPoint4);
 
         // Computes the distance between Latitude 23 and 24.
         Location.distanceBetween(trackPoint3.getLatitude(), trackPoint3.getLongitude(),
@@ -157,13 +170,13 @@ public class ChartFragmentTest {
 
         // The first is a same location, just different time.
         TrackPoint trackPoint1 = TrackStubUtils.createDefaultTrackPoint();
-        ChartPoint point = chartFragment.createPendingPoint(trackPoint1);
+        ChartPoint point = createPendingPoint(trackPoint1);
         assertEquals(0.0, point.getTimeOrDistance(), 0.01);
 
         // The second location is a new location, and use imperial.
         TrackPoint trackPoint2 = TrackStubUtils.createDefaultTrackPoint();
         trackPoint2.setLatitude(23);
-        point = chartFragment.createPendingPoint(trackPoint2);
+        point = createPendingPoint(trackPoint2);
 
         /*
          * Computes the distance between Latitude 22 and 23.
@@ -177,7 +190,7 @@ public class ChartFragmentTest {
         // The third location is a new location, and use imperial.
         TrackPoint trackPoint3 = TrackStubUtils.createDefaultTrackPoint();
         trackPoint3.setLatitude(24);
-        point = chartFragment.createPendingPoint(trackPoint3);
+        point = createPendingPoint(trackPoint3);
 
         /*
          * Computes the distance between Latitude 23 and 24.
@@ -199,14 +212,14 @@ public class ChartFragmentTest {
         trackPoint1.setTime(Instant.ofEpochMilli(TrackStubUtils.INITIAL_TIME)); //Keep old TrackPoint behavior of having time=0 for this test
 
         // when
-        ChartPoint point = chartFragment.createPendingPoint(trackPoint1);
+        ChartPoint point = createPendingPoint(trackPoint1);
 
         // then
         assertEquals(0.0, point.getTimeOrDistance(), 0.01);
         Duration timeSpan = Duration.ofMillis(222);
         TrackPoint trackPoint2 = TrackStubUtils.createDefaultTrackPoint();
         trackPoint2.setTime(Instant.ofEpochMilli(TrackStubUtils.INITIAL_TIME).plus(timeSpan));
-        point = chartFragment.createPendingPoint(trackPoint2);
+        point = createPendingPoint(trackPoint2);
         assertEquals(timeSpan, Duration.ofMillis((long) point.getTimeOrDistance()));
     }
 
@@ -221,7 +234,7 @@ public class ChartFragmentTest {
          * At first, clear old points of altitude, so give true to the second parameter.
          * Then only one value INITIAL_ALTITUDE in buffer.
          */
-        ChartPoint point = chartFragment.createPendingPoint(trackPoint1);
+        ChartPoint point = createPendingPoint(trackPoint1);
         assertEquals(TrackStubUtils.INITIAL_ALTITUDE, point.getAltitude(), 0.01);
 
         /*
@@ -229,7 +242,7 @@ public class ChartFragmentTest {
          */
         TrackPoint trackPoint2 = TrackStubUtils.createDefaultTrackPoint();
         trackPoint2.setAltitude(TrackStubUtils.INITIAL_ALTITUDE * 2);
-        point = chartFragment.createPendingPoint(trackPoint2);
+        point = createPendingPoint(trackPoint2);
         assertEquals((TrackStubUtils.INITIAL_ALTITUDE + TrackStubUtils.INITIAL_ALTITUDE * 2) / 2.0, point.getAltitude(), 0.01);
     }
 
@@ -246,7 +259,7 @@ public class ChartFragmentTest {
          */
         TrackPoint trackPoint1 = TrackStubUtils.createDefaultTrackPoint();
         trackPoint1.setSpeed(128.5f);
-        ChartPoint point = chartFragment.createPendingPoint(trackPoint1);
+        ChartPoint point = createPendingPoint(trackPoint1);
         assertEquals(0.0, point.getSpeed(), 0.01);
 
         /*
@@ -260,7 +273,7 @@ public class ChartFragmentTest {
          */
         trackPoint2.setTime(trackPoint1.getTime().plusMillis(222));
         trackPoint2.setSpeed(130f);
-        point = chartFragment.createPendingPoint(trackPoint2);
+        point = createPendingPoint(trackPoint2);
         assertEquals(130.0 * UnitConversions.MPS_TO_KMH, point.getSpeed(), 0.01);
     }
 
@@ -274,7 +287,7 @@ public class ChartFragmentTest {
         // First data point is not added to the speed buffer
         TrackPoint trackPoint1 = TrackStubUtils.createDefaultTrackPoint();
         trackPoint1.setSpeed(100.0f);
-        ChartPoint point = chartFragment.createPendingPoint(trackPoint1);
+        ChartPoint point = createPendingPoint(trackPoint1);
         assertEquals(0.0, point.getSpeed(), 0.01);
 
         TrackPoint trackPoint2 = TrackStubUtils.createDefaultTrackPoint();
@@ -285,7 +298,7 @@ public class ChartFragmentTest {
          */
         trackPoint2.setTime(trackPoint2.getTime().plusMillis(222));
         trackPoint2.setSpeed(102f);
-        point = chartFragment.createPendingPoint(trackPoint2);
+        point = createPendingPoint(trackPoint2);
         assertEquals(102.0 * UnitConversions.MPS_TO_KMH * UnitConversions.KM_TO_MI, point.getSpeed(), 0.01);
     }
 
@@ -299,7 +312,7 @@ public class ChartFragmentTest {
         // First data point is not added to the speed buffer
         TrackPoint trackPoint1 = TrackStubUtils.createDefaultTrackPoint();
         trackPoint1.setSpeed(100.0f);
-        ChartPoint point = chartFragment.createPendingPoint(trackPoint1);
+        ChartPoint point = createPendingPoint(trackPoint1);
         assertEquals(0.0, point.getSpeed(), 0.01);
 
         TrackPoint trackPoint2 = TrackStubUtils.createDefaultTrackPoint();
@@ -310,7 +323,7 @@ public class ChartFragmentTest {
          */
         trackPoint2.setTime(trackPoint2.getTime().plusMillis(222));
         trackPoint2.setSpeed(102f);
-        point = chartFragment.createPendingPoint(trackPoint2);
+        point = createPendingPoint(trackPoint2);
         assertEquals(HOURS_PER_UNIT / (102.0 * UnitConversions.MPS_TO_KMH), point.getPace(), 0.01);
     }
 
@@ -322,7 +335,7 @@ public class ChartFragmentTest {
         chartFragment.setReportSpeed(false);
         TrackPoint trackPoint = TrackStubUtils.createDefaultTrackPoint();
         trackPoint.setSpeed(0f);
-        ChartPoint point = chartFragment.createPendingPoint(trackPoint);
+        ChartPoint point = createPendingPoint(trackPoint);
         assertEquals(0.0, point.getPace(), 0.01);
     }
 }
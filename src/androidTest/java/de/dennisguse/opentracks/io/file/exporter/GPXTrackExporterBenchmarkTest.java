@@ -0,0 +1,126 @@
+package de.dennisguse.opentracks.io.file.exporter;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
+import de.dennisguse.opentracks.util.BenchmarkRule;
+import de.dennisguse.opentracks.util.StringUtils;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures the cost per exported {@link TrackPoint} of {@link GPXTrackExporter} compared to formatting with shared {@link NumberFormat}s.
+ * Only runs if requested (see {@link BenchmarkRule}).
+ */
+@RunWith(AndroidJUnit4.class)
+public class GPXTrackExporterBenchmarkTest {
+
+    @ClassRule
+    public static final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private static final String TAG = GPXTrackExporterBenchmarkTest.class.getSimpleName();
+
+    private static final int TRACKPOINTS = 100000;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    @Test
+    public void benchmark_writeTrackPoint() {
+        // given
+        List<TrackPoint> trackPoints = new ArrayList<>();
+        for (int i = 0; i < TRACKPOINTS; i++) {
+            trackPoints.add(TestDataUtil.createTrackPoint(i));
+        }
+        GPXTrackExporter gpxTrackExporter = new GPXTrackExporter(new ContentProviderUtils(context), "benchmark");
+
+        // when
+        ByteArrayOutputStream numberFormatOutput = new ByteArrayOutputStream();
+        long startTime = System.nanoTime();
+        writeTrackPointsWithNumberFormat(trackPoints, numberFormatOutput);
+        long numberFormatDuration = System.nanoTime() - startTime;
+
+        ByteArrayOutputStream lineWriterOutput = new ByteArrayOutputStream();
+        startTime = System.nanoTime();
+        gpxTrackExporter.prepare(lineWriterOutput);
+        for (TrackPoint trackPoint : trackPoints) {
+            gpxTrackExporter.writeTrackPoint(trackPoint);
+        }
+        gpxTrackExporter.close();
+        long lineWriterDuration = System.nanoTime() - startTime;
+
+        // then
+        assertEquals(numberFormatOutput.toString(), lineWriterOutput.toString());
+        Log.i(TAG, TRACKPOINTS + " TrackPoints: NumberFormat " + numberFormatDuration / TRACKPOINTS + "ns per TrackPoint, LineWriter " + lineWriterDuration / TRACKPOINTS + "ns per TrackPoint");
+    }
+
+    /**
+     * The previous implementation of {@link GPXTrackExporter#writeTrackPoint(TrackPoint)}.
+     */
+    private static void writeTrackPointsWithNumberFormat(List<TrackPoint> trackPoints, ByteArrayOutputStream outputStream) {
+        NumberFormat altitudeFormat = createNumberFormat(1);
+        NumberFormat coordinateFormat = createNumberFormat(6);
+        NumberFormat speedFormat = createNumberFormat(2);
+        NumberFormat distanceFormat = createNumberFormat(3);
+        NumberFormat integerFormat = createNumberFormat(0);
+
+        PrintWriter printWriter = new PrintWriter(outputStream);
+        for (TrackPoint trackPoint : trackPoints) {
+            printWriter.println("<trkpt lat=\"" + coordinateFormat.format(trackPoint.getLatitude()) + "\" lon=\"" + coordinateFormat.format(trackPoint.getLongitude()) + "\">");
+            if (trackPoint.hasAltitude()) {
+                printWriter.println("<ele>" + altitudeFormat.format(trackPoint.getAltitude()) + "</ele>");
+            }
+            printWriter.println("<time>" + StringUtils.formatDateTimeIso8601(trackPoint.getTime()) + "</time>");
+            if (trackPoint.hasSpeed() || trackPoint.hasHeartRate() || trackPoint.hasCyclingCadence() || trackPoint.hasAltitudeGain() || trackPoint.hasAltitudeLoss()) {
+                printWriter.println("<extensions><gpxtpx:TrackPointExtension>");
+                if (trackPoint.hasSpeed()) {
+                    printWriter.println("<gpxtpx:speed>" + speedFormat.format(trackPoint.getSpeed()) + "</gpxtpx:speed>");
+                }
+                if (trackPoint.hasHeartRate()) {
+                    printWriter.println("<gpxtpx:hr>" + integerFormat.format(trackPoint.getHeartRate_bpm()) + "</gpxtpx:hr>");
+                }
+                if (trackPoint.hasCyclingCadence()) {
+                    printWriter.println("<gpxtpx:cad>" + integerFormat.format(trackPoint.getCyclingCadence_rpm()) + "</gpxtpx:cad>");
+                }
+                if (trackPoint.hasPower()) {
+                    printWriter.println("<pwr:PowerInWatts>" + integerFormat.format(trackPoint.getPower()) + "</pwr:PowerInWatts>");
+                }
+                if (trackPoint.hasAltitudeGain()) {
+                    printWriter.println("<opentracks:gain>" + altitudeFormat.format(trackPoint.getAltitudeGain()) + "</opentracks:gain>");
+                }
+                if (trackPoint.hasAltitudeLoss()) {
+                    printWriter.println("<opentracks:loss>" + altitudeFormat.format(trackPoint.getAltitudeLoss()) + "</opentracks:loss>");
+                }
+                if (trackPoint.hasSensorDistance()) {
+                    printWriter.println("<opentracks:distance>" + distanceFormat.format(trackPoint.getSensorDistance()) + "</opentracks:distance>");
+                }
+                printWriter.println("</gpxtpx:TrackPointExtension></extensions>");
+            }
+            printWriter.println("</trkpt>");
+        }
+        printWriter.flush();
+    }
+
+    private static NumberFormat createNumberFormat(int maximumFractionDigits) {
+        NumberFormat numberFormat = NumberFormat.getInstance(Locale.US);
+        numberFormat.setMaximumFractionDigits(maximumFractionDigits);
+        numberFormat.setGroupingUsed(false);
+        return numberFormat;
+    }
+}
@@ -50,4 +50,40 @@ public class KmlTrackExporterTest {
         // then
         assertEquals(expected, outputStream.toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void writeCloseSegment_writes_empty_sensordata_values() {
+        String expected = "<when>1970-01-01T00:00:00Z</when>\n" +
+                "<gx:coord/>\n" +
+                "<when>1970-01-01T00:00:01Z</when>\n" +
+                "<gx:coord/>\n" +
+                "<ExtendedData>\n" +
+                "<SchemaData schemaUrl=\"#schema\">\n" +
+                "<gx:SimpleArrayData name=\"heart_rate\">\n" +
+                "<gx:value>120.5</gx:value>\n" +
+                "<gx:value />\n" +
+                "</gx:SimpleArrayData>\n" +
+                "</SchemaData>\n" +
+                "</ExtendedData>\n" +
+                "</gx:Track>\n";
+
+        // given
+        TrackPoint trackPoint1 = new TrackPoint(TrackPoint.Type.TRACKPOINT, Instant.ofEpochSecond(0));
+        trackPoint1.setHeartRate_bpm(120.5f);
+        TrackPoint trackPoint2 = new TrackPoint(TrackPoint.Type.TRACKPOINT, Instant.ofEpochSecond(1));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        KMLTrackExporter kmlTrackWriter = (KMLTrackExporter) TrackFileFormat.KML_WITH_TRACKDETAIL_AND_SENSORDATA.createTrackExporter(context);
+        kmlTrackWriter.prepare(outputStream);
+
+        kmlTrackWriter.writeTrackPoint(trackPoint1);
+        kmlTrackWriter.writeTrackPoint(trackPoint2);
+
+        // when
+        kmlTrackWriter.writeCloseSegment();
+        kmlTrackWriter.close();
+
+        // then
+        assertEquals(expected, outputStream.toString());
+    }
+}
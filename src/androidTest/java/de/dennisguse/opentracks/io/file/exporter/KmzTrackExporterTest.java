@@ -0,0 +1,111 @@
+package de.dennisguse.opentracks.io.file.exporter;
+
+import android.content.ContentUris;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import de.dennisguse.opentracks.content.data.Marker;
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
+import de.dennisguse.opentracks.io.file.TrackFileFormat;
+import de.dennisguse.opentracks.util.FileUtils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class KmzTrackExporterTest {
+
+    private static final int IMAGE_COUNT = 10;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private final Track.Id trackId = new Track.Id(System.currentTimeMillis());
+
+    @After
+    public void tearDown() {
+        contentProviderUtils.deleteTrack(context, trackId);
+    }
+
+    @Test
+    public void writeTrack_storesImagesInMarkerOrder() throws IOException {
+        // given
+        Track track = TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        TrackPoint trackPoint = contentProviderUtils.getLastValidTrackPoint(trackId);
+
+        Random random = new Random(0);
+        Marker[] markers = new Marker[IMAGE_COUNT];
+        byte[][] images = new byte[IMAGE_COUNT][];
+        for (int i = 0; i < IMAGE_COUNT; i++) {
+            markers[i] = TestDataUtil.createMarkerWithPhoto(context, trackId, trackPoint);
+            markers[i].setId(new Marker.Id(ContentUris.parseId(contentProviderUtils.insertMarker(markers[i]))));
+
+            images[i] = new byte[1000 + random.nextInt(100000)];
+            random.nextBytes(images[i]);
+            File file = FileUtils.buildInternalPhotoFile(context, trackId, markers[i].getPhotoURI());
+            try (FileOutputStream fileOutputStream = new FileOutputStream(file)) {
+                fileOutputStream.write(images[i]);
+            }
+        }
+
+        TrackExporter trackExporter = TrackFileFormat.KMZ_WITH_TRACKDETAIL_AND_SENSORDATA_AND_PICTURES.createTrackExporter(context);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        assertTrue(trackExporter.writeTrack(track, outputStream));
+
+        // then
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            ZipEntry zipEntry = zipInputStream.getNextEntry();
+            assertEquals(KmzTrackExporter.KMZ_KML_FILE, zipEntry.getName());
+            assertEquals(ZipEntry.DEFLATED, zipEntry.getMethod());
+
+            for (int i = 0; i < IMAGE_COUNT; i++) {
+                zipEntry = zipInputStream.getNextEntry();
+                assertEquals(KmzTrackExporter.buildKmzImageFilePath(markers[i]), zipEntry.getName());
+                assertEquals(ZipEntry.STORED, zipEntry.getMethod());
+                assertEquals(images[i].length, zipEntry.getSize());
+
+                byte[] image = readEntry(zipInputStream);
+                assertArrayEquals(images[i], image);
+
+                CRC32 crc32 = new CRC32();
+                crc32.update(image);
+                assertEquals(crc32.getValue(), zipEntry.getCrc());
+            }
+
+            assertNull(zipInputStream.getNextEntry());
+        }
+    }
+
+    private static byte[] readEntry(ZipInputStream zipInputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int byteCount;
+        while ((byteCount = zipInputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, byteCount);
+        }
+        return outputStream.toByteArray();
+    }
+}
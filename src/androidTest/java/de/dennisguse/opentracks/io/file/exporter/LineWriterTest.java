@@ -0,0 +1,77 @@
+package de.dennisguse.opentracks.io.file.exporter;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class LineWriterTest {
+
+    private final StringWriter stringWriter = new StringWriter();
+    private final LineWriter lineWriter = new LineWriter(new PrintWriter(stringWriter, true));
+
+    @Test
+    public void append_sameAsNumberFormat() {
+        // given
+        double[] values = {0, -0.0, 1, -1, 0.05, 0.15, 0.25, 2.5, 3.5, 75.5, 1.005, 1.15f, -0.04, 123456.75, 5e-7, 12.3456785, 179.9999995, -179.9999995, 8848.86, Double.NaN};
+        Random random = new Random(0);
+
+        for (int maximumFractionDigits = 0; maximumFractionDigits <= 6; maximumFractionDigits++) {
+            NumberFormat numberFormat = NumberFormat.getInstance(Locale.US);
+            numberFormat.setMaximumFractionDigits(maximumFractionDigits);
+            numberFormat.setGroupingUsed(false);
+
+            for (double value : values) {
+                // when
+                String formatted = format(value, maximumFractionDigits);
+
+                // then
+                assertEquals(value + " " + maximumFractionDigits, numberFormat.format(value), formatted);
+            }
+
+            for (int i = 0; i < 10000; i++) {
+                double value = random.nextBoolean() ? random.nextDouble() * 360 - 180 : random.nextFloat() * 100;
+
+                // when
+                String formatted = format(value, maximumFractionDigits);
+
+                // then
+                assertEquals(value + " " + maximumFractionDigits, numberFormat.format(value), formatted);
+            }
+        }
+    }
+
+    @Test
+    public void append_noGrouping() {
+        // when
+        lineWriter.append(1234.5678, 3).print();
+
+        // then
+        assertEquals("1234.568", stringWriter.toString());
+    }
+
+    @Test
+    public void println() {
+        // when
+        lineWriter.append("<ele>").append(12.34, 1).append("</ele>").println();
+        lineWriter.append('a').print();
+
+        // then
+        assertEquals("<ele>12.3</ele>" + System.lineSeparator() + "a", stringWriter.toString());
+    }
+
+    private String format(double value, int maximumFractionDigits) {
+        stringWriter.getBuffer().setLength(0);
+        lineWriter.append(value, maximumFractionDigits).print();
+        return stringWriter.toString();
+    }
+}
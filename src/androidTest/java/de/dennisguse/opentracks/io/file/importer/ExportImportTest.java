@@ -27,6 +27,10 @@ import java.io.InputStream;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
@@ -49,6 +53,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Export a track to {@link TrackFileFormat} and verify that the import is identical.
@@ -284,6 +289,114 @@ public class ExportImportTest {
         assertMarkers();
     }
 
+    @LargeTest
+    @Test
+    public void gpx_inChunks() {
+        // given
+        Track track = contentProviderUtils.getTrack(trackId);
+
+        TrackExporter trackExporter = TrackFileFormat.GPX.createTrackExporter(context);
+
+        // when
+        // 1. export
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        trackExporter.writeTrack(track, outputStream);
+        contentProviderUtils.deleteTrack(context, trackId);
+
+        // 2. import
+        InputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
+        AbstractFileTrackImporter trackImporter = new GpxFileTrackImporter(context, contentProviderUtils);
+        trackImporter.setTrackPointChunkSize(2);
+        importTrackId = trackImporter.importFile(inputStream).get(0);
+
+        // then
+        // 1. track
+        Track trackImported = contentProviderUtils.getTrack(importTrackId);
+        assertNotNull(trackImported);
+        assertEquals(track.getUuid(), trackImported.getUuid());
+        assertEquals(track.getName(), trackImported.getName());
+
+        // 2. trackpoints
+        List<TrackPoint> trackPointsWithCoordinates = trackPoints.stream().filter(it -> TrackPoint.Type.SEGMENT_START_AUTOMATIC.equals(it.getType()) || TrackPoint.Type.TRACKPOINT.equals(it.getType())).collect(Collectors.toList());
+        trackPointsWithCoordinates.get(0).setType(TrackPoint.Type.SEGMENT_START_AUTOMATIC);
+        trackPointsWithCoordinates.get(3).setType(TrackPoint.Type.SEGMENT_START_AUTOMATIC);
+
+        assertTrackpoints(trackPointsWithCoordinates, true, true, true, true, true, false);
+
+        // 3. trackstatistics
+        assertTrackStatistics(true, true, false);
+
+        // 4. markers
+        assertMarkers();
+    }
+
+    @LargeTest
+    @Test
+    public void gpx_parallel() throws InterruptedException, ExecutionException {
+        // given
+        SharedPreferences.Editor editor = PreferenceManager.getDefaultSharedPreferences(context).edit();
+        editor.putBoolean(context.getString(R.string.import_prevent_reimport_key), false);
+        editor.commit();
+        Track track = contentProviderUtils.getTrack(trackId);
+
+        TrackExporter trackExporter = TrackFileFormat.GPX.createTrackExporter(context);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        trackExporter.writeTrack(track, outputStream);
+        byte[] gpx = outputStream.toByteArray();
+
+        // when
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<List<Track.Id>>> imports = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            imports.add(executorService.submit(() -> {
+                AbstractFileTrackImporter trackImporter = new GpxFileTrackImporter(context, contentProviderUtils);
+                trackImporter.setTrackPointChunkSize(2);
+                return trackImporter.importFile(new ByteArrayInputStream(gpx));
+            }));
+        }
+        List<Track.Id> importedTrackIds = new ArrayList<>();
+        for (Future<List<Track.Id>> future : imports) {
+            importedTrackIds.addAll(future.get());
+        }
+        executorService.shutdown();
+
+        // then
+        assertEquals(4, importedTrackIds.size());
+        int trackPointCount = TestDataUtil.getTrackPoints(contentProviderUtils, importedTrackIds.get(0)).size();
+        assertEquals(4, importedTrackIds.stream().map(it -> contentProviderUtils.getTrack(it).getUuid()).distinct().count());
+        for (Track.Id importedTrackId : importedTrackIds) {
+            assertEquals(trackPointCount, TestDataUtil.getTrackPoints(contentProviderUtils, importedTrackId).size());
+            assertEquals(markers.size(), contentProviderUtils.getMarkerCount(importedTrackId));
+        }
+        contentProviderUtils.deleteTracks(context, importedTrackIds);
+    }
+
+    @LargeTest
+    @Test
+    public void gpx_invalidTrackPoint_afterFlush_removesTrack() {
+        // given
+        String gpx = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                "<gpx version=\"1.1\"><trk><name>invalid</name><trkseg>" +
+                "<trkpt lat=\"3\" lon=\"14\"><time>2021-01-01T10:00:00Z</time></trkpt>" +
+                "<trkpt lat=\"3\" lon=\"14.001\"><time>2021-01-01T10:00:01Z</time></trkpt>" +
+                "<trkpt lat=\"3\" lon=\"14.002\"><time>2021-01-01T10:00:02Z</time></trkpt>" +
+                "<trkpt lat=\"invalid\" lon=\"14.003\"><time>2021-01-01T10:00:03Z</time></trkpt>" +
+                "</trkseg></trk></gpx>";
+        int tracks = contentProviderUtils.getTracks().size();
+
+        AbstractFileTrackImporter trackImporter = new GpxFileTrackImporter(context, contentProviderUtils);
+        trackImporter.setTrackPointChunkSize(1);
+
+        // when
+        try {
+            trackImporter.importFile(new ByteArrayInputStream(gpx.getBytes()));
+            fail();
+        } catch (ImportParserException e) {
+            // then
+            assertEquals(tracks, contentProviderUtils.getTracks().size());
+        }
+    }
+
     @LargeTest
     @Test(expected = ImportAlreadyExistsException.class)
     public void gpx_duplicate_trackUUID() {
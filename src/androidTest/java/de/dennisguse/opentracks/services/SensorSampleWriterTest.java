@@ -0,0 +1,144 @@
+package de.dennisguse.opentracks.services;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.sensor.SensorSampleLog;
+import de.dennisguse.opentracks.content.sensor.SensorSamples;
+import de.dennisguse.opentracks.util.FileUtils;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class SensorSampleWriterTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    private SensorSampleWriter sensorSampleWriter;
+
+    private final Track.Id trackId = new Track.Id(1);
+    private final Track.Id otherTrackId = new Track.Id(2);
+
+    @Before
+    public void setUp() {
+        FileUtils.deleteDirectoryRecurse(FileUtils.getSensorSampleDir(context));
+    }
+
+    @After
+    public void tearDown() {
+        sensorSampleWriter.shutdown();
+        FileUtils.deleteDirectoryRecurse(FileUtils.getSensorSampleDir(context));
+    }
+
+    @Test
+    public void flush_storesBufferedSamples() throws IOException {
+        // given
+        sensorSampleWriter = new SensorSampleWriter(context, 100, Duration.ofHours(1));
+
+        // when
+        addSamples(trackId, 5);
+
+        // then
+        assertEquals(5, sensorSampleWriter.getBufferedSampleCount());
+        assertEquals(0, SensorSampleLog.read(FileUtils.getSensorSampleFile(context, trackId)).size());
+
+        // when
+        sensorSampleWriter.flush();
+
+        // then
+        assertEquals(0, sensorSampleWriter.getBufferedSampleCount());
+        SensorSamples sensorSamples = SensorSampleLog.read(FileUtils.getSensorSampleFile(context, trackId));
+        assertEquals(5, sensorSamples.size());
+        assertEquals(SensorSamples.TYPE_HEART_RATE, sensorSamples.getType(4));
+        assertEquals(4000, sensorSamples.getTime_ms(4));
+        assertEquals(104, sensorSamples.getValue(4));
+
+        assertEquals(1, sensorSampleWriter.getBatchCount());
+        assertEquals(5, sensorSampleWriter.getWrittenSampleCount());
+    }
+
+    @Test
+    public void add_writesFullBatch() throws IOException, InterruptedException {
+        // given
+        sensorSampleWriter = new SensorSampleWriter(context, 10, Duration.ofHours(1));
+
+        // when
+        addSamples(trackId, 10);
+        waitForBatches(1);
+        addSamples(trackId, 5);
+
+        // then
+        assertEquals(5, sensorSampleWriter.getBufferedSampleCount());
+        assertEquals(10, SensorSampleLog.read(FileUtils.getSensorSampleFile(context, trackId)).size());
+    }
+
+    @Test
+    public void add_writesBatchAfterDelay() throws IOException, InterruptedException {
+        // given
+        sensorSampleWriter = new SensorSampleWriter(context, 100, Duration.ofMillis(50));
+
+        // when
+        addSamples(trackId, 3);
+        waitForBatches(1);
+
+        // then
+        assertEquals(0, sensorSampleWriter.getBufferedSampleCount());
+        assertEquals(3, SensorSampleLog.read(FileUtils.getSensorSampleFile(context, trackId)).size());
+    }
+
+    @Test
+    public void add_otherTrack_flushesPreviousTrack() throws IOException {
+        // given
+        sensorSampleWriter = new SensorSampleWriter(context, 100, Duration.ofHours(1));
+        addSamples(trackId, 3);
+
+        // when
+        addSamples(otherTrackId, 2);
+        sensorSampleWriter.flush();
+
+        // then
+        assertEquals(3, SensorSampleLog.read(FileUtils.getSensorSampleFile(context, trackId)).size());
+        assertEquals(2, SensorSampleLog.read(FileUtils.getSensorSampleFile(context, otherTrackId)).size());
+    }
+
+    @Test
+    public void flush_failed_counted() {
+        // given
+        sensorSampleWriter = new SensorSampleWriter(context, 100, Duration.ofHours(1));
+        // A directory cannot be opened for writing.
+        FileUtils.getSensorSampleFile(context, trackId).mkdirs();
+
+        // when
+        addSamples(trackId, 5);
+        sensorSampleWriter.flush();
+
+        // then
+        assertEquals(0, sensorSampleWriter.getBufferedSampleCount());
+        assertEquals(0, sensorSampleWriter.getWrittenSampleCount());
+        assertEquals(5, sensorSampleWriter.getFailedSampleCount());
+    }
+
+    private void addSamples(Track.Id trackId, int count) {
+        for (int i = 0; i < count; i++) {
+            sensorSampleWriter.add(trackId, SensorSamples.TYPE_HEART_RATE, i * 1000L, 100 + i);
+        }
+    }
+
+    private void waitForBatches(int batchCount) throws InterruptedException {
+        for (int i = 0; i < 100 && sensorSampleWriter.getBatchCount() < batchCount; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(batchCount, sensorSampleWriter.getBatchCount());
+    }
+}
@@ -0,0 +1,221 @@
+package de.dennisguse.opentracks.services;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteException;
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Duration;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
+import de.dennisguse.opentracks.stats.TrackStatistics;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackPointWriterTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private ContentProviderUtils contentProviderUtils;
+
+    private TrackPointWriter trackPointWriter;
+
+    private Track.Id trackId;
+    private List<TrackPoint> trackPoints;
+
+    @Before
+    public void setUp() {
+        contentProviderUtils = new ContentProviderUtils(context);
+        contentProviderUtils.deleteAllTracks(context);
+
+        trackId = new Track.Id(System.currentTimeMillis());
+        Pair<Track, List<TrackPoint>> track = TestDataUtil.createTrack(trackId, 10);
+        contentProviderUtils.insertTrack(track.first);
+        trackPoints = track.second;
+    }
+
+    @After
+    public void tearDown() {
+        trackPointWriter.shutdown();
+        contentProviderUtils.deleteAllTracks(context);
+    }
+
+    @Test
+    public void flush_storesBufferedTrackPointsAndStatistics() {
+        // given
+        trackPointWriter = new TrackPointWriter(contentProviderUtils, 100, Duration.ofHours(1));
+
+        // when
+        addTrackPoints(5);
+
+        // then
+        assertEquals(5, trackPointWriter.getBufferedTrackPointCount());
+        assertEquals(0, contentProviderUtils.getTrackPointCursor(trackId, null).getCount());
+
+        // when
+        trackPointWriter.flushAndWait();
+
+        // then
+        assertEquals(0, trackPointWriter.getBufferedTrackPointCount());
+        assertEquals(5, contentProviderUtils.getTrackPointCursor(trackId, null).getCount());
+        assertEquals(5, contentProviderUtils.getTrack(trackId).getTrackStatistics().getTotalDistance(), 0.01);
+
+        assertEquals(1, trackPointWriter.getBatchCount());
+        assertEquals(5, trackPointWriter.getWrittenTrackPointCount());
+        assertEquals(5, trackPointWriter.getLargestBatchSize());
+    }
+
+    @Test
+    public void add_writesFullBatch() throws InterruptedException {
+        // given
+        trackPointWriter = new TrackPointWriter(contentProviderUtils, 3, Duration.ofHours(1));
+
+        // when
+        addTrackPoints(7);
+        waitForWrittenTrackPoints(6);
+
+        // then
+        assertEquals(6, contentProviderUtils.getTrackPointCursor(trackId, null).getCount());
+        assertEquals(1, trackPointWriter.getBufferedTrackPointCount());
+        assertEquals(2, trackPointWriter.getBatchCount());
+        assertEquals(3, trackPointWriter.getLargestBatchSize());
+    }
+
+    @Test
+    public void add_writesBatchAfterDelay() throws InterruptedException {
+        // given
+        trackPointWriter = new TrackPointWriter(contentProviderUtils, 100, Duration.ofMillis(100));
+
+        // when
+        addTrackPoints(2);
+        waitForWrittenTrackPoints(2);
+
+        // then
+        assertEquals(2, contentProviderUtils.getTrackPointCursor(trackId, null).getCount());
+        assertEquals(1, trackPointWriter.getBatchCount());
+    }
+
+    @Test
+    public void flush_failingBatchIsNotStored() {
+        // given
+        trackPointWriter = new TrackPointWriter(contentProviderUtils, 100, Duration.ofHours(1));
+        Track.Id notExistingTrackId = new Track.Id(trackId.getId() + 1);
+
+        // when
+        trackPointWriter.add(notExistingTrackId, trackPoints.get(0), new TrackStatistics());
+        trackPointWriter.flushAndWait();
+
+        // then
+        assertEquals(0, trackPointWriter.getBufferedTrackPointCount());
+        assertEquals(0, trackPointWriter.getBatchCount());
+        assertEquals(1, trackPointWriter.getDroppedTrackPointCount());
+        assertEquals(0, contentProviderUtils.getTrackPointCursor(notExistingTrackId, null).getCount());
+    }
+
+    @Test
+    public void add_otherTrack_storesPreviousTrackSeparately() {
+        // given
+        trackPointWriter = new TrackPointWriter(contentProviderUtils, 100, Duration.ofHours(1));
+        Track.Id notExistingTrackId = new Track.Id(trackId.getId() + 1);
+        addTrackPoints(2);
+
+        // when
+        trackPointWriter.add(notExistingTrackId, trackPoints.get(2), new TrackStatistics());
+        trackPointWriter.flushAndWait();
+
+        // then
+        assertEquals(0, trackPointWriter.getBufferedTrackPointCount());
+        assertEquals(2, contentProviderUtils.getTrackPointCursor(trackId, null).getCount());
+        assertEquals(1, trackPointWriter.getBatchCount());
+        assertEquals(1, trackPointWriter.getDroppedTrackPointCount());
+    }
+
+    @Test
+    public void flush_busyBatchIsStoredLater() {
+        // given
+        ContentProviderUtils busyContentProviderUtils = new ContentProviderUtils(context) {
+            private boolean busy = true;
+
+            @Override
+            public void insertTrackPoints(@NonNull List<TrackPoint> trackPoints, @NonNull Track.Id trackId, @NonNull TrackStatistics trackStatistics) {
+                if (busy) {
+                    busy = false;
+                    throw new SQLiteException("database is locked (code 5 SQLITE_BUSY)");
+                }
+                super.insertTrackPoints(trackPoints, trackId, trackStatistics);
+            }
+        };
+        trackPointWriter = new TrackPointWriter(busyContentProviderUtils, 100, Duration.ofHours(1));
+
+        // when
+        addTrackPoints(3);
+        trackPointWriter.flushAndWait();
+
+        // then
+        assertEquals(3, trackPointWriter.getBufferedTrackPointCount());
+        assertEquals(1, trackPointWriter.getFailedWriteCount());
+        assertEquals(0, contentProviderUtils.getTrackPointCursor(trackId, null).getCount());
+
+        // when
+        addTrackPoints(3, 5);
+        trackPointWriter.flushAndWait();
+
+        // then
+        assertEquals(0, trackPointWriter.getBufferedTrackPointCount());
+        assertEquals(5, contentProviderUtils.getTrackPointCursor(trackId, null).getCount());
+        assertEquals(5, contentProviderUtils.getTrack(trackId).getTrackStatistics().getTotalDistance(), 0.01);
+        assertEquals(5, trackPointWriter.getWrittenTrackPointCount());
+    }
+
+    @Test
+    public void shutdown_dropsBatchesThatCouldNotBeStored() {
+        // given
+        ContentProviderUtils busyContentProviderUtils = new ContentProviderUtils(context) {
+            @Override
+            public void insertTrackPoints(@NonNull List<TrackPoint> trackPoints, @NonNull Track.Id trackId, @NonNull TrackStatistics trackStatistics) {
+                throw new SQLiteException("database is locked (code 5 SQLITE_BUSY)");
+            }
+        };
+        trackPointWriter = new TrackPointWriter(busyContentProviderUtils, 100, Duration.ofHours(1));
+        addTrackPoints(3);
+
+        // when
+        trackPointWriter.shutdown();
+
+        // then
+        assertEquals(0, trackPointWriter.getBufferedTrackPointCount());
+        assertEquals(3, trackPointWriter.getDroppedTrackPointCount());
+        assertEquals(0, trackPointWriter.getWrittenTrackPointCount());
+    }
+
+    private void addTrackPoints(int count) {
+        addTrackPoints(0, count);
+    }
+
+    private void addTrackPoints(int from, int to) {
+        for (int i = from; i < to; i++) {
+            TrackStatistics trackStatistics = new TrackStatistics();
+            trackStatistics.setTotalDistance(i + 1);
+            trackPointWriter.add(trackId, trackPoints.get(i), trackStatistics);
+        }
+    }
+
+    private void waitForWrittenTrackPoints(int count) throws InterruptedException {
+        for (int i = 0; i < 50 && trackPointWriter.getWrittenTrackPointCount() < count; i++) {
+            Thread.sleep(100);
+        }
+    }
+}
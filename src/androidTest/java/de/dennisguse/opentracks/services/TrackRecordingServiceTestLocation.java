@@ -241,10 +241,10 @@ public class TrackRecordingServiceTestLocation {
             }
 
             @Override
-            public SensorDataSet getSensorData() {
-                SensorDataSet sensorDataSet = new SensorDataSet();
-                sensorDataSet.set(new SensorDataHeartRate("sensorName", "sensorAddress", 5f));
-                return sensorDataSet;
+            public SensorDataSet getAndResetSensorData() {
+                return new SensorDataSet.Builder()
+                        .set(new SensorDataHeartRate("sensorName", "sensorAddress", 5f))
+                        .build();
             }
         });
 
@@ -273,6 +273,9 @@ public class TrackRecordingServiceTestLocation {
                 new Pair<>(TrackPoint.Type.TRACKPOINT, 6),
                 new Pair<>(TrackPoint.Type.SEGMENT_END_MANUAL, null)
         ), trackPoints);
+        for (TrackPoint trackPoint : trackPoints.subList(1, 7)) {
+            assertEquals(5f, trackPoint.getHeartRate_bpm(), 0.01);
+        }
     }
 
     @MediumTest
@@ -0,0 +1,169 @@
+package de.dennisguse.opentracks.services.sensors;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.sensor.SensorData;
+import de.dennisguse.opentracks.content.sensor.SensorDataCycling;
+import de.dennisguse.opentracks.content.sensor.SensorDataCyclingPower;
+import de.dennisguse.opentracks.content.sensor.SensorDataHeartRate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays captured notification values.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BluetoothConnectionManagerTest {
+
+    private static final String ADDRESS = "00:11:22:33:44:55";
+    private static final String NAME = "sensor";
+
+    // Heart rate strap: UINT8 heart rate with RR intervals (flags 0x10).
+    private static final byte[][] HEART_RATE = {
+            {0x10, 0x48, 0x3A, 0x03},
+            {0x10, 0x49, 0x34, 0x03},
+            {0x10, 0x4B, 0x2C, 0x03, 0x2E, 0x03},
+            {0x10},
+            {0x10, 0x4A, 0x30, 0x03},
+    };
+
+    // Power meter: instantaneous power with crank revolution data (flags 0x0020).
+    private static final byte[][] POWER = {
+            {0x20, 0x00, (byte) 0xC8, 0x00, 0x0A, 0x00, 0x00, 0x04},
+            {0x20, 0x00, (byte) 0xD2, 0x00, 0x0B, 0x00, 0x00, 0x08},
+            {0x20, 0x00, 0x2C, 0x01, 0x0C, 0x00, 0x00, 0x0C},
+            {0x20, 0x00, 0x2C},
+    };
+
+    // Cadence sensor: crank revolutions; one revolution per second; the sensor repeats its last notification.
+    private static final byte[][] CADENCE = {
+            {0x01, 0x64, 0x00, 0x00, 0x00, 0x00, 0x00},
+            {0x01, 0x65, 0x00, 0x00, 0x00, 0x00, 0x04},
+            {0x01, 0x65, 0x00, 0x00, 0x00, 0x00, 0x04},
+            {0x01, 0x66, 0x00, 0x00, 0x00, 0x00, 0x08},
+    };
+
+    @Test
+    public void replay_heartRate() {
+        // given
+        RecordingObserver observer = new RecordingObserver();
+        BluetoothConnectionManager subject = new BluetoothConnectionManager.HeartRate(observer);
+
+        // when
+        replay(subject, HEART_RATE);
+
+        // then
+        assertEquals(4, observer.sensorData.size());
+        assertEquals(72f, ((SensorDataHeartRate) observer.sensorData.get(0)).getValue(), 0.01);
+        assertEquals(73f, ((SensorDataHeartRate) observer.sensorData.get(1)).getValue(), 0.01);
+        assertEquals(75f, ((SensorDataHeartRate) observer.sensorData.get(2)).getValue(), 0.01);
+        assertEquals(74f, ((SensorDataHeartRate) observer.sensorData.get(3)).getValue(), 0.01);
+
+        assertEquals(5, subject.getNotificationCount());
+        assertEquals(1, subject.getInvalidNotificationCount());
+        assertEquals(4, subject.getSensorDataCount());
+    }
+
+    @Test
+    public void replay_power() {
+        // given
+        RecordingObserver observer = new RecordingObserver();
+        BluetoothConnectionManager subject = new BluetoothConnectionManager.CyclingPower(observer);
+
+        // when
+        replay(subject, POWER);
+
+        // then
+        assertEquals(3, observer.sensorData.size());
+        assertEquals(200f, ((SensorDataCyclingPower) observer.sensorData.get(0)).getValue(), 0.01);
+        assertEquals(210f, ((SensorDataCyclingPower) observer.sensorData.get(1)).getValue(), 0.01);
+        assertEquals(300f, ((SensorDataCyclingPower) observer.sensorData.get(2)).getValue(), 0.01);
+
+        assertEquals(4, subject.getNotificationCount());
+        assertEquals(1, subject.getInvalidNotificationCount());
+        assertEquals(3, subject.getSensorDataCount());
+    }
+
+    @Test
+    public void replay_cadence() {
+        // given
+        Context context = ApplicationProvider.getApplicationContext();
+        BluetoothRemoteSensorManager remoteSensorManager = new BluetoothRemoteSensorManager(context);
+        BluetoothConnectionManager subject = new BluetoothConnectionManager.CyclingCadence(remoteSensorManager);
+
+        // when
+        replay(subject, CADENCE);
+
+        // then
+        SensorDataCycling.Cadence cadence = remoteSensorManager.getSensorData().getCyclingCadence();
+        assertEquals(0x66, cadence.getCrankRevolutionsCount());
+        assertEquals(60, cadence.getValue(), 0.01);
+
+        assertEquals(4, subject.getNotificationCount());
+        assertEquals(0, subject.getInvalidNotificationCount());
+        assertEquals(4, subject.getSensorDataCount());
+    }
+
+    @Test
+    public void replay_cadence_speedSensor() {
+        // given
+        RecordingObserver observer = new RecordingObserver();
+        BluetoothConnectionManager subject = new BluetoothConnectionManager.CyclingDistanceSpeed(observer);
+
+        // when
+        // Workaround for Garmin Speed Sensor 2: provides cadence instead of speed
+        replay(subject, CADENCE);
+
+        // then
+        assertEquals(4, observer.sensorData.size());
+        SensorDataCycling.DistanceSpeed speed = (SensorDataCycling.DistanceSpeed) observer.sensorData.get(3);
+        assertEquals(0x66, speed.getWheelRevolutionsCount());
+        assertEquals(0x0800, speed.getWheelRevolutionsTime());
+        assertEquals(ADDRESS, speed.getSensorAddress());
+    }
+
+    @Test
+    public void replay_emptyCrankAndWheel() {
+        // given
+        RecordingObserver observer = new RecordingObserver();
+        BluetoothConnectionManager subject = new BluetoothConnectionManager.CyclingCadence(observer);
+
+        // when
+        replay(subject, new byte[][]{{0x00}, {}});
+
+        // then
+        assertTrue(observer.sensorData.isEmpty());
+        assertEquals(2, subject.getNotificationCount());
+        assertEquals(1, subject.getInvalidNotificationCount());
+        assertEquals(0, subject.getSensorDataCount());
+    }
+
+    private static void replay(BluetoothConnectionManager connectionManager, byte[][] notifications) {
+        for (byte[] value : notifications) {
+            connectionManager.onNotification(NAME, ADDRESS, value);
+        }
+    }
+
+    private static class RecordingObserver implements BluetoothConnectionManager.SensorDataObserver {
+        private final List<SensorData<?>> sensorData = new ArrayList<>();
+
+        @Override
+        public void onChanged(SensorData<?> sensorData) {
+            this.sensorData.add(sensorData);
+        }
+
+        @Override
+        public void onDisconnecting(SensorData<?> sensorData) {
+        }
+    }
+}
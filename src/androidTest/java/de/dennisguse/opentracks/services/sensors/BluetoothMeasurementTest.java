@@ -0,0 +1,122 @@
+package de.dennisguse.opentracks.services.sensors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BluetoothMeasurementTest {
+
+    private final BluetoothMeasurement measurement = new BluetoothMeasurement();
+
+    @Test
+    public void decodeHeartRate_uint8() {
+        // when
+        boolean decoded = measurement.decodeHeartRate(new byte[]{0x02, 0x3C});
+
+        // then
+        assertTrue(decoded);
+        assertEquals(60, measurement.getHeartRate_bpm());
+    }
+
+    @Test
+    public void decodeHeartRate_uint16() {
+        // when
+        boolean decoded = measurement.decodeHeartRate(new byte[]{0x01, 0x01, 0x01});
+
+        // then
+        assertTrue(decoded);
+        assertEquals(257, measurement.getHeartRate_bpm());
+    }
+
+    @Test
+    public void decodeHeartRate_invalid() {
+        assertFalse(measurement.decodeHeartRate(new byte[]{}));
+        assertFalse(measurement.decodeHeartRate(new byte[]{0x00}));
+        assertFalse(measurement.decodeHeartRate(new byte[]{0x01, 0x01}));
+    }
+
+    @Test
+    public void decodeCyclingSpeedCadence_crankOnly() {
+        // when
+        boolean decoded = measurement.decodeCyclingCrankAndWheel(new byte[]{0x01, (byte) 0xC8, 0x00, 0x00, 0x00, 0x06, (byte) 0x99});
+
+        // then
+        assertTrue(decoded);
+        assertTrue(measurement.hasCrank());
+        assertEquals(200, measurement.getCrankRevolutionsCount());
+        assertEquals(0x9906, measurement.getCrankRevolutionsTime());
+        assertFalse(measurement.hasWheel());
+    }
+
+    @Test
+    public void decodeCyclingSpeedCadence_wheelOnly() {
+        // when
+        boolean decoded = measurement.decodeCyclingCrankAndWheel(new byte[]{0x02, (byte) 0xE1, 0x00, 0x45, (byte) 0x99});
+
+        // then
+        assertTrue(decoded);
+        assertFalse(measurement.hasCrank());
+        assertTrue(measurement.hasWheel());
+        assertEquals(225, measurement.getWheelRevolutionsCount());
+        assertEquals(0x9945, measurement.getWheelRevolutionsTime());
+    }
+
+    @Test
+    public void decodeCyclingSpeedCadence_crankWheel() {
+        // when
+        boolean decoded = measurement.decodeCyclingCrankAndWheel(new byte[]{0x03, (byte) 0xC8, 0x00, 0x00, 0x00, 0x06, (byte) 0x99, (byte) 0xE1, 0x00, 0x45, (byte) 0x99});
+
+        // then
+        assertTrue(decoded);
+        assertEquals(200, measurement.getCrankRevolutionsCount());
+        assertEquals(225, measurement.getWheelRevolutionsCount());
+    }
+
+    @Test
+    public void decodeCyclingSpeedCadence_uint32CrankCount() {
+        // when
+        measurement.decodeCyclingCrankAndWheel(new byte[]{0x01, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x00, 0x00});
+
+        // then
+        assertEquals(4294967295L, measurement.getCrankRevolutionsCount());
+    }
+
+    @Test
+    public void decodeCyclingSpeedCadence_overwritesPreviousMeasurement() {
+        // given
+        measurement.decodeCyclingCrankAndWheel(new byte[]{0x03, (byte) 0xC8, 0x00, 0x00, 0x00, 0x06, (byte) 0x99, (byte) 0xE1, 0x00, 0x45, (byte) 0x99});
+
+        // when
+        measurement.decodeCyclingCrankAndWheel(new byte[]{0x02, (byte) 0xE2, 0x00, 0x45, (byte) 0x9A});
+
+        // then
+        assertFalse(measurement.hasCrank());
+        assertEquals(226, measurement.getWheelRevolutionsCount());
+    }
+
+    @Test
+    public void decodeCyclingPower_power() {
+        // when
+        boolean decoded = measurement.decodeCyclingPower(new byte[]{0, 0, 40, 0});
+
+        // then
+        assertTrue(decoded);
+        assertEquals(40, measurement.getPower_w());
+    }
+
+    @Test
+    public void decodeCyclingPower_sint16() {
+        // when
+        measurement.decodeCyclingPower(new byte[]{0, 0, (byte) 0xFE, (byte) 0xFF});
+
+        // then
+        assertEquals(-2, measurement.getPower_w());
+    }
+
+    @Test
+    public void decodeCyclingPower_invalid() {
+        assertFalse(measurement.decodeCyclingPower(new byte[]{0, 0, 40}));
+    }
+}
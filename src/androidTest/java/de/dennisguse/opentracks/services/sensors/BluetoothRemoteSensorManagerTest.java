@@ -0,0 +1,205 @@
+package de.dennisguse.opentracks.services.sensors;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.dennisguse.opentracks.content.sensor.SensorDataCycling;
+import de.dennisguse.opentracks.content.sensor.SensorDataCyclingPower;
+import de.dennisguse.opentracks.content.sensor.SensorDataHeartRate;
+import de.dennisguse.opentracks.content.sensor.SensorDataSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class BluetoothRemoteSensorManagerTest {
+
+    private static final int UPDATES = 20000;
+
+    // The overall distance is aggregated as float: the rounding error must stay below the distance of one update.
+    private static final int DISTANCE_SPEED_UPDATES = 2000;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    private BluetoothRemoteSensorManager subject;
+
+    @Before
+    public void setUp() {
+        subject = new BluetoothRemoteSensorManager(context);
+        // Loads the wheel circumference; no sensors are configured.
+        subject.start();
+    }
+
+    @After
+    public void tearDown() {
+        subject.stop();
+    }
+
+    @Test
+    public void getAndResetSensorData_resetsAggregatedValues() {
+        // given
+        subject.onChanged(new SensorDataCycling.DistanceSpeed("address", "name", 1, 1024));
+        subject.onChanged(new SensorDataCycling.DistanceSpeed("address", "name", 2, 2048));
+        subject.onChanged(new SensorDataCycling.DistanceSpeed("address", "name", 3, 3072));
+
+        // when
+        SensorDataSet sensorDataSet = subject.getAndResetSensorData();
+
+        // then
+        SensorDataCycling.DistanceSpeed.Data data = sensorDataSet.getCyclingDistanceSpeed().getValue();
+        assertEquals(2 * data.distance_m, data.distance_overall_m, 0.01);
+        assertEquals(0, subject.getSensorData().getCyclingDistanceSpeed().getValue().distance_overall_m, 0.01);
+        // The returned snapshot is not modified by the reset.
+        assertEquals(2 * data.distance_m, sensorDataSet.getCyclingDistanceSpeed().getValue().distance_overall_m, 0.01);
+    }
+
+    @Test
+    public void onDisconnecting_removesSensorData() {
+        // given
+        subject.onChanged(new SensorDataHeartRate("address", "name", 60));
+        SensorDataSet before = subject.getSensorData();
+
+        // when
+        subject.onDisconnecting(new SensorDataHeartRate("address"));
+
+        // then
+        assertNull(subject.getSensorData().getHeartRate());
+        assertEquals(60, before.getHeartRate().getValue(), 0.01);
+    }
+
+    /**
+     * Sensor updates from several threads while the recorder takes snapshots and resets.
+     * Every snapshot must be consistent: the values of each sensor only increase and no distance is lost or counted twice.
+     */
+    @Test
+    public void stress_concurrentUpdatesAndSnapshots() throws Exception {
+        // given
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> writers = new ArrayList<>();
+        writers.add(new Thread(() -> {
+            await(start);
+            for (int i = 1; i <= UPDATES; i++) {
+                subject.onChanged(new SensorDataHeartRate("hr", "hr", i));
+            }
+        }));
+        writers.add(new Thread(() -> {
+            await(start);
+            for (int i = 1; i <= UPDATES; i++) {
+                subject.onChanged(new SensorDataCyclingPower("power", "power", i));
+            }
+        }));
+        writers.add(new Thread(() -> {
+            await(start);
+            for (int i = 1; i <= DISTANCE_SPEED_UPDATES; i++) {
+                // 1 wheel revolution per second; UINT16 roll over is handled by compute()
+                subject.onChanged(new SensorDataCycling.DistanceSpeed("speed", "speed", i, (i * 1024) & 0xFFFF));
+            }
+        }));
+
+        Recorder recorder = new Recorder(writing, failure);
+        Thread recorderThread = new Thread(() -> {
+            await(start);
+            recorder.run();
+        });
+
+        // when
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        recorderThread.start();
+        start.countDown();
+
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        recorderThread.join();
+
+        // then
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertTrue("snapshots: " + recorder.snapshots, recorder.snapshots > 1);
+
+        SensorDataSet last = subject.getSensorData();
+        assertEquals(UPDATES, last.getHeartRate().getValue(), 0.01);
+        assertEquals(UPDATES, last.getCyclingPower().getValue(), 0.01);
+
+        float distance_m = last.getCyclingDistanceSpeed().getValue().distance_m;
+        assertTrue(distance_m > 0);
+        // The first update has no previous update: no distance.
+        assertEquals((DISTANCE_SPEED_UPDATES - 1) * (double) distance_m, recorder.totalDistance_m, distance_m / 2);
+    }
+
+    private class Recorder implements Runnable {
+        private final AtomicBoolean writing;
+        private final AtomicReference<Throwable> failure;
+
+        private int snapshots = 0;
+        private double totalDistance_m = 0;
+
+        private float lastHeartRate = 0;
+        private float lastPower = 0;
+
+        Recorder(AtomicBoolean writing, AtomicReference<Throwable> failure) {
+            this.writing = writing;
+            this.failure = failure;
+        }
+
+        @Override
+        public void run() {
+            try {
+                boolean lastRound;
+                do {
+                    lastRound = !writing.get();
+                    SensorDataSet sensorDataSet = subject.getAndResetSensorData();
+                    snapshots++;
+
+                    if (sensorDataSet.getHeartRate() != null) {
+                        float heartRate = sensorDataSet.getHeartRate().getValue();
+                        assertTrue(heartRate >= lastHeartRate);
+                        lastHeartRate = heartRate;
+                    }
+                    if (sensorDataSet.getCyclingPower() != null) {
+                        float power = sensorDataSet.getCyclingPower().getValue();
+                        assertTrue(power >= lastPower);
+                        lastPower = power;
+                    }
+                    SensorDataCycling.DistanceSpeed distanceSpeed = sensorDataSet.getCyclingDistanceSpeed();
+                    if (distanceSpeed != null && distanceSpeed.hasValue()) {
+                        // Distance and speed belong to the same update (1 revolution per second).
+                        assertEquals(distanceSpeed.getValue().distance_m, distanceSpeed.getValue().speed_mps, 0.01);
+                        totalDistance_m += distanceSpeed.getValue().distance_overall_m;
+                    }
+                } while (!lastRound);
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
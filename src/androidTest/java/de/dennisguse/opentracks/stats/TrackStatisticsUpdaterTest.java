@@ -12,8 +12,11 @@ import java.time.Instant;
 import de.dennisguse.opentracks.content.data.TestDataUtil;
 import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.sensor.SensorSamples;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(AndroidJUnit4.class)
 public class TrackStatisticsUpdaterTest {
@@ -45,6 +48,62 @@ public class TrackStatisticsUpdaterTest {
         assertEquals(6.566, statistics.getAverageSpeed(), 0.01);
     }
 
+    @Test
+    public void addTrackPoint_sensorStatistics() {
+        // given
+        TrackStatisticsUpdater subject = new TrackStatisticsUpdater();
+
+        TrackPoint tp1 = new TrackPoint(TrackPoint.Type.SEGMENT_START_MANUAL, Instant.ofEpochMilli(1000));
+        TrackPoint tp2 = new TrackPoint(0, 0, 5.0, Instant.ofEpochMilli(2000));
+        tp2.setHeartRate_bpm(100f);
+        tp2.setPower(200f);
+        TrackPoint tp3 = new TrackPoint(0.00001, 0, 5.0, Instant.ofEpochMilli(5000));
+        tp3.setHeartRate_bpm(160f);
+        tp3.setPower(300f);
+        TrackPoint tp4 = new TrackPoint(0.00002, 0, 5.0, Instant.ofEpochMilli(6000));
+        tp4.setHeartRate_bpm(120f);
+
+        // when
+        subject.addTrackPoint(tp1, GPS_DISTANCE);
+        subject.addTrackPoint(tp2, GPS_DISTANCE);
+        subject.addTrackPoint(tp3, GPS_DISTANCE);
+        subject.addTrackPoint(tp4, GPS_DISTANCE);
+
+        // then
+        SensorStatistics sensorStatistics = subject.getTrackStatistics().getSensorStatistics();
+        assertEquals(160f, sensorStatistics.getMaxHeartRate(), 0.01);
+        assertEquals((100f * 3 + 160f) / 4, sensorStatistics.getAvgHeartRate(), 0.01);
+        assertEquals((200f * 3 + 300f) / 4, sensorStatistics.getAvgPower(), 0.01);
+        assertFalse(sensorStatistics.hasCadence());
+    }
+
+    @Test
+    public void addSensorSample_usedForSensorStatistics() {
+        // given
+        TrackStatisticsUpdater subject = new TrackStatisticsUpdater();
+        subject.addTrackPoint(new TrackPoint(0, 0, 5.0, Instant.ofEpochMilli(1000)), GPS_DISTANCE);
+
+        // when
+        subject.addSensorSample(SensorSamples.TYPE_HEART_RATE, 100);
+        subject.addSensorSample(SensorSamples.TYPE_HEART_RATE, 130);
+        subject.addSensorSample(SensorSamples.TYPE_HEART_RATE, 115);
+        subject.addSensorSample(SensorSamples.TYPE_POWER, 250);
+        subject.addTrackPoint(new TrackPoint(0, 0, 5.0, Instant.ofEpochMilli(4000)), GPS_DISTANCE);
+
+        subject.addSensorSample(SensorSamples.TYPE_HEART_RATE, 90);
+        subject.addTrackPoint(new TrackPoint(0, 0, 5.0, Instant.ofEpochMilli(5000)), GPS_DISTANCE);
+
+        // then
+        SensorStatistics sensorStatistics = subject.getTrackStatistics().getSensorStatistics();
+        assertTrue(sensorStatistics.hasHeartRate());
+        assertEquals(130, sensorStatistics.getMaxHeartRate(), 0.01);
+        // (115 * 3s + 90 * 1s) / 4s
+        assertEquals(108.75, sensorStatistics.getAvgHeartRate(), 0.01);
+        // 250 * 3s / 4s: the TrackPoints have no power
+        assertTrue(sensorStatistics.hasPower());
+        assertEquals(187.5, sensorStatistics.getAvgPower(), 0.01);
+    }
+
     @Test
     public void addTrackPoint_distance_from_GPS_not_moving() {
         // given
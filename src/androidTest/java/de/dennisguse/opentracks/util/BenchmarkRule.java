@@ -0,0 +1,29 @@
+package de.dennisguse.opentracks.util;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Skips a benchmark unless requested:
+ * ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.benchmark=true
+ * <p>
+ * To be used as {@link org.junit.ClassRule}, so nothing of a skipped benchmark is set up.
+ */
+public class BenchmarkRule implements TestRule {
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                assumeTrue("Benchmark not requested.", Boolean.parseBoolean(InstrumentationRegistry.getArguments().getString("benchmark")));
+                base.evaluate();
+            }
+        };
+    }
+}
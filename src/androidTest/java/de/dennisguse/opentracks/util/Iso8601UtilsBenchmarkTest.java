@@ -0,0 +1,110 @@
+package de.dennisguse.opentracks.util;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares {@link Iso8601Utils} with java.time for formatting and parsing timestamps.
+ * Only runs if requested (see {@link BenchmarkRule}).
+ */
+@RunWith(AndroidJUnit4.class)
+public class Iso8601UtilsBenchmarkTest {
+
+    @ClassRule
+    public static final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private static final String TAG = Iso8601UtilsBenchmarkTest.class.getSimpleName();
+
+    private static final int COUNT = 100000;
+    private static final int WARMUP_COUNT = 10000;
+
+    private final Instant[] times = new Instant[COUNT];
+    private final String[] texts = new String[COUNT];
+
+    @Before
+    public void setUp() {
+        Instant start = Instant.parse("2020-02-02T02:02:02Z");
+        for (int i = 0; i < COUNT; i++) {
+            // One TrackPoint per second with milliseconds (as recorded)
+            times[i] = start.plusMillis(i * 1000L + i % 1000);
+            texts[i] = times[i].toString();
+        }
+    }
+
+    @Test
+    public void format() {
+        char[] buffer = new char[Iso8601Utils.MAX_LENGTH];
+        StringBuilder stringBuilder = new StringBuilder();
+
+        for (int i = 0; i < WARMUP_COUNT; i++) {
+            Iso8601Utils.format(times[i].getEpochSecond(), times[i].getNano(), buffer, 0);
+            stringBuilder.setLength(0);
+            stringBuilder.append(times[i].toString());
+        }
+
+        // when
+        long startTime = System.nanoTime();
+        for (Instant time : times) {
+            Iso8601Utils.format(time.getEpochSecond(), time.getNano(), buffer, 0);
+        }
+        long codecDuration = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        for (Instant time : times) {
+            stringBuilder.setLength(0);
+            stringBuilder.append(time.toString());
+        }
+        long javaTimeDuration = System.nanoTime() - startTime;
+
+        // then
+        Log.i(TAG, "format: " + codecDuration / COUNT + "ns per timestamp (Instant.toString(): " + javaTimeDuration / COUNT + "ns)");
+    }
+
+    @Test
+    public void parse() {
+        for (int i = 0; i < WARMUP_COUNT; i++) {
+            Iso8601Utils.parse(texts[i]);
+            parseJavaTime(texts[i]);
+        }
+
+        // when
+        long startTime = System.nanoTime();
+        for (String text : texts) {
+            Iso8601Utils.parse(text);
+        }
+        long codecDuration = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        for (String text : texts) {
+            parseJavaTime(text);
+        }
+        long javaTimeDuration = System.nanoTime() - startTime;
+
+        // then
+        Log.i(TAG, "parse: " + codecDuration / COUNT + "ns per timestamp (DateTimeFormatter.ISO_DATE_TIME: " + javaTimeDuration / COUNT + "ns)");
+        assertEquals(times[COUNT - 1], Iso8601Utils.parse(texts[COUNT - 1]));
+    }
+
+    private static Instant parseJavaTime(String text) {
+        TemporalAccessor t = DateTimeFormatter.ISO_DATE_TIME.parseBest(text, ZonedDateTime::from, LocalDateTime::from);
+        if (t instanceof LocalDateTime) {
+            t = ((LocalDateTime) t).atZone(ZoneOffset.UTC);
+        }
+        return Instant.from(t);
+    }
+}
@@ -0,0 +1,160 @@
+package de.dennisguse.opentracks.util;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(AndroidJUnit4.class)
+public class Iso8601UtilsTest {
+
+    private static final long MIN_EPOCH_SECOND = Instant.parse("0000-01-01T00:00:00Z").getEpochSecond();
+    private static final long MAX_EPOCH_SECOND = Instant.parse("9999-12-31T23:59:59Z").getEpochSecond();
+
+    private final Random random = new Random(0);
+
+    @Test
+    public void format_sameAsInstant() {
+        // given
+        char[] buffer = new char[Iso8601Utils.MAX_LENGTH + 1];
+
+        for (int i = 0; i < 100000; i++) {
+            Instant time = createRandomInstant(i);
+
+            // when
+            int length = Iso8601Utils.format(time.getEpochSecond(), time.getNano(), buffer, 1);
+
+            // then
+            assertEquals(time.toString(), new String(buffer, 1, length));
+        }
+    }
+
+    @Test
+    public void format_yearOutOfRange() {
+        char[] buffer = new char[Iso8601Utils.MAX_LENGTH];
+
+        assertEquals(-1, Iso8601Utils.format(MIN_EPOCH_SECOND - 1, 0, buffer, 0));
+        assertEquals(-1, Iso8601Utils.format(MAX_EPOCH_SECOND + 1, 0, buffer, 0));
+    }
+
+    @Test
+    public void parse_roundTrip() {
+        for (int i = 0; i < 100000; i++) {
+            // given
+            Instant time = createRandomInstant(i);
+
+            // when
+            Instant parsed = Iso8601Utils.parse(time.toString());
+
+            // then
+            assertEquals(time, parsed);
+        }
+    }
+
+    @Test
+    public void parse_sameAsJavaTime_fractionAndOffset() {
+        for (int i = 0; i < 100000; i++) {
+            // given
+            Instant time = createRandomInstant(i);
+            int offsetSeconds = Math.min((random.nextInt(37) - 18) * 3600 + random.nextInt(4) * 15 * 60, 18 * 3600);
+            OffsetDateTime dateTime = time.atOffset(ZoneOffset.ofTotalSeconds(offsetSeconds));
+            if (dateTime.getYear() < 0 || dateTime.getYear() > 9999) {
+                continue;
+            }
+
+            String fraction = "";
+            if (time.getNano() > 0) {
+                fraction = "." + String.format(Locale.US, "%09d", time.getNano()).substring(0, 1 + random.nextInt(9));
+            }
+            String offset;
+            switch (random.nextInt(3)) {
+                case 0:
+                    offset = "";
+                    dateTime = dateTime.withOffsetSameLocal(ZoneOffset.UTC);
+                    break;
+                case 1:
+                    offset = "Z";
+                    dateTime = dateTime.withOffsetSameLocal(ZoneOffset.UTC);
+                    break;
+                default:
+                    int totalMinutes = dateTime.getOffset().getTotalSeconds() / 60;
+                    offset = String.format(Locale.US, "%s%02d:%02d", totalMinutes < 0 ? "-" : "+", Math.abs(totalMinutes) / 60, Math.abs(totalMinutes) % 60);
+            }
+            String text = String.format(Locale.US, "%04d-%02d-%02dT%02d:%02d:%02d", dateTime.getYear(), dateTime.getMonthValue(), dateTime.getDayOfMonth(), dateTime.getHour(), dateTime.getMinute(), dateTime.getSecond()) + fraction + offset;
+
+            // when
+            Instant parsed = Iso8601Utils.parse(text);
+
+            // then
+            assertEquals(text, parseJavaTime(text), parsed);
+        }
+    }
+
+    @Test
+    public void parse_withinText() {
+        assertEquals(Instant.parse("2010-05-04T03:02:01.352Z"), Iso8601Utils.parse("<time>2010-05-04T03:02:01.352Z</time>", 6, 30));
+    }
+
+    @Test
+    public void parse_unsupportedOrInvalid() {
+        // Supported by java.time
+        assertNull(Iso8601Utils.parse("2010-05-04T03:02"));
+        assertNull(Iso8601Utils.parse("2010-05-04t03:02:01z"));
+        assertNull(Iso8601Utils.parse("2010-05-04T03:02:01Z[UTC]"));
+        assertNull(Iso8601Utils.parse("2010-05-04T03:02:01+01:00:30"));
+
+        // Invalid
+        assertNull(Iso8601Utils.parse(""));
+        assertNull(Iso8601Utils.parse("2010-02-29T03:02:01Z"));
+        assertNull(Iso8601Utils.parse("2010-13-04T03:02:01Z"));
+        assertNull(Iso8601Utils.parse("2010-05-04T24:00:00Z"));
+        assertNull(Iso8601Utils.parse("2010-05-04T03:02:60Z"));
+        assertNull(Iso8601Utils.parse("2010-05-04T03:02:01.1234567891Z"));
+        assertNull(Iso8601Utils.parse("2010-05-04T03:02:01+19:00"));
+        assertNull(Iso8601Utils.parse("2010-05-04T03:02:01+0100"));
+        assertNull(Iso8601Utils.parse("2010-05-04T03:02:01ZZ"));
+    }
+
+    /**
+     * Creates instants in [0000, 9999] with 0, 3, 6, or 9 fraction digits.
+     */
+    private Instant createRandomInstant(int i) {
+        long epochSecond = i % 2 == 0 ? MIN_EPOCH_SECOND + (long) (random.nextDouble() * (MAX_EPOCH_SECOND - MIN_EPOCH_SECOND)) : 1000000000L + random.nextInt(1000000000);
+        int nano;
+        switch (i % 4) {
+            case 0:
+                nano = 0;
+                break;
+            case 1:
+                nano = random.nextInt(1000) * 1000000;
+                break;
+            case 2:
+                nano = random.nextInt(1000000) * 1000;
+                break;
+            default:
+                nano = random.nextInt(1000000000);
+        }
+        return Instant.ofEpochSecond(epochSecond, nano);
+    }
+
+    private static Instant parseJavaTime(String text) {
+        TemporalAccessor t = DateTimeFormatter.ISO_DATE_TIME.parseBest(text, ZonedDateTime::from, LocalDateTime::from);
+        if (t instanceof LocalDateTime) {
+            t = ((LocalDateTime) t).atZone(ZoneOffset.UTC);
+        }
+        return Instant.from(t);
+    }
+}
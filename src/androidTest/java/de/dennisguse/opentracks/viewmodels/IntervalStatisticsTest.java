@@ -14,6 +14,7 @@ import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
 import de.dennisguse.opentracks.util.UnitConversions;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 @RunWith(JUnit4.class)
 public class IntervalStatisticsTest {
@@ -112,6 +113,64 @@ public class IntervalStatisticsTest {
 		whenAndThen(trackPoints, trackStatistics, distanceInterval);
 	}
 
+	/**
+	 * Tests that adding TrackPoints one by one results in the same intervals as computing them from the whole list.
+	 */
+	@Test
+	public void testAddTrackPoint_incremental() {
+		// given
+		List<TrackPoint> trackPoints = buildTrackPoints(1000);
+		float distanceInterval = 1000f;
+		IntervalStatistics expected = new IntervalStatistics(trackPoints, distanceInterval);
+
+		// when
+		IntervalStatistics intervalStatistics = new IntervalStatistics(distanceInterval);
+		assertNull(intervalStatistics.getLastInterval());
+		for (TrackPoint trackPoint : trackPoints) {
+			intervalStatistics.addTrackPoint(trackPoint);
+		}
+
+		// then
+		List<IntervalStatistics.Interval> expectedIntervals = expected.getIntervalList();
+		List<IntervalStatistics.Interval> intervals = intervalStatistics.getIntervalList();
+		assertEquals(expectedIntervals.size(), intervals.size());
+		for (int i = 0; i < intervals.size(); i++) {
+			assertEquals(expectedIntervals.get(i).getDistance_m(), intervals.get(i).getDistance_m(), 0.001);
+			assertEquals(expectedIntervals.get(i).getSpeed_ms(), intervals.get(i).getSpeed_ms(), 0.001);
+			assertEquals(expectedIntervals.get(i).getGain_m(), intervals.get(i).getGain_m(), 0.001);
+		}
+		assertEquals(distanceInterval, intervalStatistics.getLastInterval().getDistance_m(), 0.001);
+	}
+
+	/**
+	 * Tests that changing the distance interval keeps the totals without the TrackPoints.
+	 */
+	@Test
+	public void testWithDistanceInterval() {
+		// given
+		List<TrackPoint> trackPoints = buildTrackPoints(1000);
+		TrackStatistics trackStatistics = buildTrackStatistics(trackPoints);
+		IntervalStatistics intervalStatistics = new IntervalStatistics(trackPoints, 1000f);
+		float distanceInterval = (float) UnitConversions.MI_TO_M;
+
+		// when
+		IntervalStatistics rescaled = intervalStatistics.withDistanceInterval(distanceInterval);
+
+		// then
+		assertEquals(distanceInterval, rescaled.getDistanceInterval_m(), 0.001);
+		List<IntervalStatistics.Interval> intervalList = rescaled.getIntervalList();
+		assertEquals((int) Math.ceil(trackStatistics.getTotalDistance() / distanceInterval), intervalList.size());
+		double totalDistance = 0d;
+		float totalGain = 0f;
+		for (IntervalStatistics.Interval i : intervalList) {
+			totalDistance += i.getDistance_m();
+			totalGain += i.getGain_m();
+		}
+		assertEquals(trackStatistics.getTotalDistance(), totalDistance, 0.1);
+		assertEquals(trackPoints.size() * TestDataUtil.ALTITUDE_GAIN, totalGain, 0.1);
+		assertEquals(distanceInterval, rescaled.getLastInterval().getDistance_m(), 0.001);
+	}
+
 	private void whenAndThen(List<TrackPoint> trackPoints, TrackStatistics trackStatistics, float distanceInterval) {
 		IntervalStatistics intervalStatistics = new IntervalStatistics(trackPoints, distanceInterval);
 		List<IntervalStatistics.Interval> intervalList = intervalStatistics.getIntervalList();
@@ -3,9 +3,7 @@ package de.dennisguse.opentracks.chart;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
-import de.dennisguse.opentracks.content.data.TrackPoint;
-import de.dennisguse.opentracks.stats.TrackStatistics;
-import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
+import de.dennisguse.opentracks.content.TrackSeries;
 import de.dennisguse.opentracks.util.UnitConversions;
 
 public class ChartPoint {
@@ -25,40 +23,31 @@ public class ChartPoint {
         this.altitude = altitude;
     }
 
-    public ChartPoint(@NonNull TrackStatisticsUpdater trackStatisticsUpdater, TrackPoint trackPoint, boolean chartByDistance, boolean metricUnits) {
-        TrackStatistics trackStatistics = trackStatisticsUpdater.getTrackStatistics();
-
+    public ChartPoint(@NonNull TrackSeries trackSeries, int index, boolean chartByDistance, boolean metricUnits) {
         if (chartByDistance) {
-            double distance = trackStatistics.getTotalDistance() * UnitConversions.M_TO_KM;
+            double distance = trackSeries.getTotalDistance(index) * UnitConversions.M_TO_KM;
             if (!metricUnits) {
                 distance *= UnitConversions.KM_TO_MI;
             }
             timeOrDistance = distance;
         } else {
-            timeOrDistance = trackStatistics.getTotalTime().toMillis();
+            timeOrDistance = trackSeries.getTotalTime_ms(index);
         }
 
-        altitude = trackStatisticsUpdater.getSmoothedAltitude();
+        altitude = trackSeries.getSmoothedAltitude(index);
         if (!metricUnits) {
             altitude *= UnitConversions.M_TO_FT;
         }
 
-        speed = trackStatisticsUpdater.getSmoothedSpeed() * UnitConversions.MPS_TO_KMH;
+        speed = trackSeries.getSmoothedSpeed(index) * UnitConversions.MPS_TO_KMH;
         if (!metricUnits) {
             speed *= UnitConversions.KM_TO_MI;
         }
         pace = speed == 0 ? 0.0 : 60.0 / speed;
-        if (trackPoint != null) {
-            if (trackPoint.hasHeartRate()) {
-                heartRate = trackPoint.getHeartRate_bpm();
-            }
-            if (trackPoint.hasCyclingCadence()) {
-                cadence = trackPoint.getCyclingCadence_rpm();
-            }
-            if (trackPoint.hasPower()) {
-                power = trackPoint.getPower();
-            }
-        }
+
+        heartRate = trackSeries.getHeartRate_bpm(index);
+        cadence = trackSeries.getCadence_rpm(index);
+        power = trackSeries.getPower(index);
     }
 
     public double getTimeOrDistance() {
@@ -18,19 +18,27 @@ package de.dennisguse.opentracks.chart;
 
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Paint.Align;
 import android.graphics.Paint.Style;
 import android.graphics.Path;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import de.dennisguse.opentracks.stats.ExtremityMonitor;
 
 /**
- * This class encapsulates the meta data for one series of the chart values.
+ * This class encapsulates the meta data and the values (one column of the {@link ChartView}'s data) for one series of the chart values.
+ * A min/max pyramid of the values is maintained while the values are added, so the path of a range can be created at pixel resolution (level of detail).
+ * The path of the rendered range is kept in data coordinates and extended while values are added to its end.
  *
  * @author Sandor Dornbush
  */
@@ -38,6 +46,8 @@ abstract class ChartValueSeries {
 
     private static final float STROKE_WIDTH = 2f;
 
+    private static final int INITIAL_CAPACITY = 1024;
+
     private final int absoluteMin;
     private final int absoluteMax;
     private final int[] intervalValues;
@@ -49,7 +59,34 @@ abstract class ChartValueSeries {
     private final Paint markerPaint;
     private final ExtremityMonitor extremityMonitor = new ExtremityMonitor();
     private final NumberFormat numberFormat = NumberFormat.getIntegerInstance();
+    // Path in screen coordinates of the rendered range including the closing lines (to fill the area below)
     private final Path path = new Path();
+    private final float[] points = new float[4];
+
+    // Path in data coordinates (x: time or distance, y: value) of the rendered range's blocks that are complete; their min and max do not change anymore.
+    private final Path dataPath = new Path();
+    private int dataPathLevel = -1;
+    private int dataPathFromBlock;
+    // The next block to be added to the dataPath
+    private int dataPathToBlock;
+    private boolean dataPathIsEmpty = true;
+    // First and last point of the dataPath (data coordinates)
+    private float dataPathFirstX;
+    private float dataPathFirstY;
+    private float dataPathLastX;
+
+    // NaN if not valid
+    private double[] values = new double[INITIAL_CAPACITY];
+    private int size = 0;
+    private int firstValidIndex = -1;
+    private int lastValidIndex = -1;
+    // Value of the provisional last chart point (NaN if none or not valid); not stored in values.
+    private double provisionalValue = Double.NaN;
+
+    // Level k (k >= 1; stored at k - 1) contains min and max of the valid values of blocks of 2^k values (NaN if none is valid).
+    // Only used for drawing: float is precise enough and halves the pyramid's memory (about n floats each for min and max).
+    private final List<float[]> pyramidMin = new ArrayList<>();
+    private final List<float[]> pyramidMax = new ArrayList<>();
 
     private int interval = 1;
     private int minMarkerValue = 0;
@@ -127,15 +164,145 @@ abstract class ChartValueSeries {
      * Updates the series with a new {@link ChartPoint}.
      */
     void update(ChartPoint chartPoint) {
-        if (isChartPointValid(chartPoint)) {
-            extremityMonitor.update(extractDataFromChartPoint(chartPoint));
+        double value = extractDataFromChartPoint(chartPoint);
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+
+        if (!Double.isNaN(value)) {
+            extremityMonitor.update(value);
+
+            if (firstValidIndex < 0) {
+                firstValidIndex = size;
+            }
+            lastValidIndex = size;
         }
+
+        for (int level = 1; level <= pyramidMin.size(); level++) {
+            updatePyramid(level, size, value);
+        }
+        size++;
+
+        if (1 << pyramidMin.size() < size) {
+            addPyramidLevel();
+        }
+    }
+
+    private void updatePyramid(int level, int index, double value) {
+        int block = index >> level;
+        float[] min = pyramidMin.get(level - 1);
+        float[] max = pyramidMax.get(level - 1);
+        if (block == min.length) {
+            min = Arrays.copyOf(min, block * 2);
+            max = Arrays.copyOf(max, block * 2);
+            pyramidMin.set(level - 1, min);
+            pyramidMax.set(level - 1, max);
+        }
+
+        if ((index & ((1 << level) - 1)) == 0) {
+            // First value of the block
+            min[block] = (float) value;
+            max[block] = (float) value;
+        } else {
+            min[block] = nanMin(min[block], (float) value);
+            max[block] = nanMax(max[block], (float) value);
+        }
+    }
+
+    /**
+     * Adds the next level to the pyramid; computed from the previous level.
+     */
+    private void addPyramidLevel() {
+        int level = pyramidMin.size() + 1;
+        int blocks = ((size - 1) >> level) + 1;
+        float[] min = new float[Math.max(INITIAL_CAPACITY, blocks * 2)];
+        float[] max = new float[min.length];
+
+        int previousBlocks = ((size - 1) >> (level - 1)) + 1;
+        for (int block = 0; block < blocks; block++) {
+            min[block] = (float) getMin(level - 1, 2 * block);
+            max[block] = (float) getMax(level - 1, 2 * block);
+            if (2 * block + 1 < previousBlocks) {
+                min[block] = nanMin(min[block], (float) getMin(level - 1, 2 * block + 1));
+                max[block] = nanMax(max[block], (float) getMax(level - 1, 2 * block + 1));
+            }
+        }
+
+        pyramidMin.add(min);
+        pyramidMax.add(max);
+    }
+
+    private static float nanMin(float a, float b) {
+        if (Float.isNaN(a)) {
+            return b;
+        }
+        return Float.isNaN(b) ? a : Math.min(a, b);
+    }
+
+    private static float nanMax(float a, float b) {
+        if (Float.isNaN(a)) {
+            return b;
+        }
+        return Float.isNaN(b) ? a : Math.max(a, b);
+    }
+
+    /**
+     * Sets the value of the provisional last chart point; see {@link ChartView#setProvisionalChartPoint(ChartPoint)}.
+     *
+     * @param chartPoint the chart point; null if none
+     */
+    void setProvisional(@Nullable ChartPoint chartPoint) {
+        provisionalValue = chartPoint != null ? extractDataFromChartPoint(chartPoint) : Double.NaN;
+    }
+
+    /**
+     * Removes all values.
+     */
+    void reset() {
+        size = 0;
+        provisionalValue = Double.NaN;
+        firstValidIndex = -1;
+        lastValidIndex = -1;
+        pyramidMin.clear();
+        pyramidMax.clear();
+        extremityMonitor.reset();
+        path.reset();
+        dataPath.reset();
+        dataPathIsEmpty = true;
+        dataPathLevel = -1;
+    }
+
+    /**
+     * @return the number of levels of the pyramid (without the values).
+     */
+    int getPyramidLevels() {
+        return pyramidMin.size();
+    }
+
+    /**
+     * @return the min of the valid values of a block of 2^level values (NaN if none is valid).
+     */
+    @VisibleForTesting
+    double getMin(int level, int block) {
+        return level == 0 ? values[block] : pyramidMin.get(level - 1)[block];
+    }
+
+    /**
+     * @return the max of the valid values of a block of 2^level values (NaN if none is valid).
+     */
+    @VisibleForTesting
+    double getMax(int level, int block) {
+        return level == 0 ? values[block] : pyramidMax.get(level - 1)[block];
     }
 
     abstract double extractDataFromChartPoint(@NonNull ChartPoint chartPoint);
 
-    boolean isChartPointValid(@NonNull ChartPoint chartPoint) {
-        return !Double.isNaN(extractDataFromChartPoint(chartPoint));
+    /**
+     * @return the value of a chartPoint (NaN if not valid).
+     */
+    double getValue(int index) {
+        return values[index];
     }
 
     protected abstract boolean drawIfChartPointHasNoData();
@@ -144,6 +311,118 @@ abstract class ChartValueSeries {
         return path;
     }
 
+    /**
+     * Updates the path in screen coordinates for a range of values; needs to be called after the values, the dimensions, or the range changed.
+     * For level > 0, min and max of each block are used instead of the values.
+     * While only values are added to the end of the range (e.g., while recording), only the new complete blocks are added to the path in data coordinates; it is mapped to screen coordinates natively (Path.transform).
+     *
+     * @param xValues      the x values of the chart points
+     * @param fromIndex    the first index of the range
+     * @param toIndex      the last index of the range (inclusive)
+     * @param level        the level of the pyramid
+     * @param provisionalX the x value of the provisional last chart point if it is part of the range (NaN otherwise)
+     * @param dataToScreen the transformation from data to screen coordinates
+     * @param yCorner      the y screen coordinate of the bottom of the area
+     */
+    void updatePath(double[] xValues, int fromIndex, int toIndex, int level, double provisionalX, Matrix dataToScreen, float yCorner) {
+        boolean hasProvisional = !Double.isNaN(provisionalX) && !Double.isNaN(provisionalValue) && toIndex >= lastValidIndex;
+        path.reset();
+        fromIndex = Math.max(fromIndex, firstValidIndex);
+        toIndex = Math.min(toIndex, lastValidIndex);
+        if (firstValidIndex < 0 || fromIndex > toIndex) {
+            return;
+        }
+        level = Math.min(level, pyramidMin.size());
+
+        int fromBlock = fromIndex >> level;
+        int toBlock = toIndex >> level;
+        int completeToBlock = Math.min(toBlock, (size >> level) - 1);
+        if (level != dataPathLevel || fromBlock != dataPathFromBlock || completeToBlock < dataPathToBlock - 1) {
+            dataPath.reset();
+            dataPathIsEmpty = true;
+            dataPathLevel = level;
+            dataPathFromBlock = fromBlock;
+            dataPathToBlock = fromBlock;
+        }
+        for (; dataPathToBlock <= completeToBlock; dataPathToBlock++) {
+            addBlock(xValues, level, dataPathToBlock);
+        }
+
+        // The last block may still change: added in screen coordinates.
+        boolean hasLastBlock = toBlock > completeToBlock && !Double.isNaN(getMax(level, toBlock));
+        if (dataPathIsEmpty && !hasLastBlock) {
+            return;
+        }
+
+        dataPath.transform(dataToScreen, path);
+
+        float lastX;
+        if (hasLastBlock) {
+            double min = getMin(level, toBlock);
+            double max = getMax(level, toBlock);
+            points[0] = (float) xValues[toBlock << level];
+            points[1] = (float) max;
+            points[2] = points[0];
+            points[3] = (float) min;
+            dataToScreen.mapPoints(points);
+            if (dataPathIsEmpty) {
+                dataPathFirstX = (float) xValues[toBlock << level];
+                dataPathFirstY = (float) max;
+                path.moveTo(points[0], points[1]);
+            } else {
+                path.lineTo(points[0], points[1]);
+            }
+            if (min != max) {
+                path.lineTo(points[2], points[3]);
+            }
+            lastX = points[0];
+        } else {
+            points[0] = dataPathLastX;
+            dataToScreen.mapPoints(points, 0, points, 0, 1);
+            lastX = points[0];
+        }
+
+        if (hasProvisional) {
+            points[0] = (float) provisionalX;
+            points[1] = (float) provisionalValue;
+            dataToScreen.mapPoints(points, 0, points, 0, 1);
+            lastX = points[0];
+            path.lineTo(points[0], points[1]);
+        }
+
+        points[0] = dataPathFirstX;
+        points[1] = dataPathFirstY;
+        dataToScreen.mapPoints(points, 0, points, 0, 1);
+        path.lineTo(lastX, yCorner);
+        path.lineTo(points[0], yCorner);
+        path.lineTo(points[0], points[1]);
+    }
+
+    /**
+     * Adds a block to the dataPath: a vertical line from its max to its min (if they differ).
+     */
+    private void addBlock(double[] xValues, int level, int block) {
+        double max = getMax(level, block);
+        if (Double.isNaN(max)) {
+            return;
+        }
+        double min = getMin(level, block);
+
+        float x = (float) xValues[block << level];
+        if (dataPathIsEmpty) {
+            dataPathIsEmpty = false;
+            dataPathFirstX = x;
+            dataPathFirstY = (float) max;
+            dataPath.moveTo(x, (float) max);
+        } else {
+            dataPath.lineTo(x, (float) max);
+        }
+        if (min != max) {
+            dataPath.lineTo(x, (float) min);
+        }
+        dataPathLastX = x;
+    }
+
     void drawPath(Canvas canvas) {
         canvas.drawPath(path, fillPaint);
         canvas.drawPath(path, strokePaint);
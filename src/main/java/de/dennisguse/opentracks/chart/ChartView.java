@@ -20,10 +20,10 @@ import android.content.Context;
 import android.content.Intent;
 import android.graphics.Canvas;
 import android.graphics.DashPathEffect;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Paint.Align;
 import android.graphics.Paint.Style;
-import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.view.GestureDetector;
@@ -34,14 +34,18 @@ import android.view.ViewParent;
 import android.widget.Scroller;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.core.content.ContextCompat;
 import androidx.core.view.GestureDetectorCompat;
 
 import java.text.NumberFormat;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 import de.dennisguse.opentracks.MarkerDetailActivity;
 import de.dennisguse.opentracks.R;
@@ -87,8 +91,20 @@ public class ChartView extends View {
     private final ChartValueSeries speedSeries;
     private final ChartValueSeries paceSeries;
 
-    private final List<ChartPoint> chartPoints = new ArrayList<>();
-    private final List<Marker> markers = new ArrayList<>();
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // The chart data is stored column-wise: the x values here and the y values in the seriesList.
+    private final Object chartPointsLock = new Object();
+    private double[] xValues = new double[INITIAL_CAPACITY];
+    private int chartPointsSize = 0;
+    // x value of the provisional last chart point (NaN if none); drawn after the chart points until it is replaced.
+    private double provisionalX = Double.NaN;
+    private final Matrix dataToScreen = new Matrix();
+    // The paths are rendered for the visible part and one effectiveWidth on each side; scrollX while the paths were updated.
+    private int pathsScrollX = 0;
+
+    // Markers by id; updated by diffs.
+    private final Map<Marker.Id, Marker> markers = new HashMap<>();
     private final ExtremityMonitor xExtremityMonitor = new ExtremityMonitor();
     private final int backgroundColor;
     private final Paint axisPaint;
@@ -154,7 +170,7 @@ public class ChartView extends View {
                 int minDistance = Integer.MAX_VALUE;
                 Marker nearestMarker = null;
                 synchronized (markers) {
-                    for (Marker marker : markers) {
+                    for (Marker marker : markers.values()) {
                         int distance = Math.abs(getX(getMarkerXValue(marker)) - (int) event.getX() - getScrollX());
                         if (distance < minDistance) {
                             minDistance = distance;
@@ -416,9 +432,12 @@ public class ChartView extends View {
     }
 
     public void addChartPoints(List<ChartPoint> dataPoints) {
-        synchronized (chartPoints) {
-            chartPoints.addAll(dataPoints);
+        synchronized (chartPointsLock) {
+            if (chartPointsSize + dataPoints.size() > xValues.length) {
+                xValues = Arrays.copyOf(xValues, Math.max(xValues.length * 2, chartPointsSize + dataPoints.size()));
+            }
             for (ChartPoint dataPoint : dataPoints) {
+                xValues[chartPointsSize++] = dataPoint.getTimeOrDistance();
                 xExtremityMonitor.update(dataPoint.getTimeOrDistance());
                 for (ChartValueSeries i : seriesList) {
                     i.update(dataPoint);
@@ -429,12 +448,33 @@ public class ChartView extends View {
         }
     }
 
+    /**
+     * Sets the provisional last chart point (e.g., the latest TrackPoint of a recording that is not sampled yet); replaces the previous one.
+     * It is drawn after the chart points, but not stored.
+     *
+     * @param dataPoint the chart point; null to remove it
+     */
+    public void setProvisionalChartPoint(@Nullable ChartPoint dataPoint) {
+        synchronized (chartPointsLock) {
+            provisionalX = dataPoint != null ? dataPoint.getTimeOrDistance() : Double.NaN;
+            for (ChartValueSeries i : seriesList) {
+                i.setProvisional(dataPoint);
+            }
+            updateDimensions();
+            updatePaths();
+        }
+    }
+
     /**
      * Clears all data.
      */
     public void reset() {
-        synchronized (chartPoints) {
-            chartPoints.clear();
+        synchronized (chartPointsLock) {
+            chartPointsSize = 0;
+            provisionalX = Double.NaN;
+            for (ChartValueSeries chartValueSeries : seriesList) {
+                chartValueSeries.reset();
+            }
             xExtremityMonitor.reset();
             zoomLevel = 1;
             updateDimensions();
@@ -451,7 +491,24 @@ public class ChartView extends View {
 
     public void addMarker(Marker marker) {
         synchronized (markers) {
-            markers.add(marker);
+            markers.put(marker.getId(), marker);
+        }
+    }
+
+    /**
+     * Replaces the marker with the same id.
+     */
+    public void updateMarker(Marker marker) {
+        synchronized (markers) {
+            if (markers.containsKey(marker.getId())) {
+                markers.put(marker.getId(), marker);
+            }
+        }
+    }
+
+    public void removeMarker(Marker.Id markerId) {
+        synchronized (markers) {
+            markers.remove(markerId);
         }
     }
 
@@ -469,7 +526,8 @@ public class ChartView extends View {
         return zoomLevel > MIN_ZOOM_LEVEL;
     }
 
-    private void zoomIn() {
+    @VisibleForTesting
+    void zoomIn() {
         if (canZoomIn()) {
             zoomLevel++;
             updatePaths();
@@ -570,7 +628,11 @@ public class ChartView extends View {
 
     @Override
     protected void onDraw(Canvas canvas) {
-        synchronized (chartPoints) {
+        synchronized (chartPointsLock) {
+            if (Math.abs(getScrollX() - pathsScrollX) > effectiveWidth) {
+                updatePaths();
+            }
+
             canvas.save();
 
             canvas.drawColor(backgroundColor);
@@ -621,14 +683,20 @@ public class ChartView extends View {
     }
 
     private void drawMarker(Canvas canvas) {
+        // Only markers within the visible part of the graph area are drawn
+        int minVisibleX = getScrollX() + leftBorder - markerWidth;
+        int maxVisibleX = getScrollX() + leftBorder + effectiveWidth + markerWidth;
         synchronized (markers) {
-            for (Marker marker : markers) {
+            for (Marker marker : markers.values()) {
                 double xValue = getMarkerXValue(marker);
                 if (xValue > maxX) {
                     continue;
                 }
+                float x = getX(xValue);
+                if (x < minVisibleX || x > maxVisibleX) {
+                    continue;
+                }
                 canvas.save();
-                float x = getX(getMarkerXValue(marker));
                 canvas.drawLine(x, topBorder + spacer + markerHeight / 2, x, topBorder + effectiveHeight, markerPaint);
                 canvas.translate(x - (markerWidth * MARKER_X_ANCHOR), topBorder + spacer);
 
@@ -844,9 +912,9 @@ public class ChartView extends View {
                 break;
             }
         }
-        if (firstChartValueSeries != null && chartPoints.size() > 0) {
+        if (firstChartValueSeries != null && chartPointsSize > 0) {
             int dx = getX(maxX) - pointer.getIntrinsicWidth() / 2;
-            double value = firstChartValueSeries.extractDataFromChartPoint(chartPoints.get(chartPoints.size() - 1));
+            double value = firstChartValueSeries.getValue(chartPointsSize - 1);
             int dy = getY(firstChartValueSeries, value) - pointer.getIntrinsicHeight();
             canvas.translate(dx, dy);
             pointer.draw(canvas);
@@ -855,62 +923,58 @@ public class ChartView extends View {
 
     /**
      * Updates paths.
-     * The path needs to be updated any time after the data or the dimensions change.
+     * The path needs to be updated any time after the data or the dimensions change or after scrolling beyond the rendered part.
+     * Only the visible part and one effectiveWidth on each side are rendered at pixel resolution using the series' min/max pyramid.
+     * If only chart points were added to the end of the rendered part (e.g., while recording), the series only add the new ones to their paths.
      */
     private void updatePaths() {
-        synchronized (chartPoints) {
+        synchronized (chartPointsLock) {
             for (ChartValueSeries chartValueSeries : seriesList) {
                 chartValueSeries.getPath().reset();
             }
-            drawPaths();
-            closePaths();
-        }
-    }
+            pathsScrollX = getScrollX();
+            if (chartPointsSize == 0 || effectiveWidth == 0) {
+                return;
+            }
 
-    private void drawPaths() {
-        boolean[] hasMoved = new boolean[seriesList.size()];
+            double scaleX = maxX > 0 ? effectiveWidth * zoomLevel / maxX : 0;
+            int fromIndex = 0;
+            int toIndex = chartPointsSize - 1;
+            if (scaleX > 0) {
+                fromIndex = Math.max(fromIndex, indexOfX((pathsScrollX - effectiveWidth) / scaleX) - 1);
+                toIndex = Math.min(toIndex, indexOfX((pathsScrollX + 2 * effectiveWidth) / scaleX) + 1);
+            }
 
-        for (ChartPoint dataPoint : chartPoints) {
-            for (int i = 0; i < seriesList.size(); i++) {
-                ChartValueSeries chartValueSeries = seriesList.get(i);
+            // At most one block per pixel
+            int pixels = Math.max(1, getX(xValues[toIndex]) - getX(xValues[fromIndex]));
+            int level = 0;
+            while ((toIndex - fromIndex + 1) >> level > pixels) {
+                level++;
+            }
 
-                if (!chartValueSeries.isChartPointValid(dataPoint)) {
-                    continue;
-                }
+            float yCorner = topBorder + effectiveHeight;
+            int rangeHeight = effectiveHeight - 2 * yAxisOffset;
+            for (ChartValueSeries chartValueSeries : seriesList) {
+                // See getX() and getY()
+                double effectiveSpread = chartValueSeries.getInterval() * Y_AXIS_INTERVALS;
+                double scaleY = rangeHeight / effectiveSpread;
+                dataToScreen.setScale((float) scaleX, (float) -scaleY);
+                dataToScreen.postTranslate(leftBorder, (float) (topBorder + yAxisOffset + rangeHeight + chartValueSeries.getMinMarkerValue() * scaleY));
 
-                double value = chartValueSeries.extractDataFromChartPoint(dataPoint);
-                Path path = chartValueSeries.getPath();
-                int x = getX(dataPoint.getTimeOrDistance());
-                int y = getY(chartValueSeries, value);
-                if (!hasMoved[i]) {
-                    hasMoved[i] = true;
-                    path.moveTo(x, y);
-                } else {
-                    path.lineTo(x, y);
-                }
+                chartValueSeries.updatePath(xValues, fromIndex, toIndex, level, toIndex == chartPointsSize - 1 ? provisionalX : Double.NaN, dataToScreen, yCorner);
             }
         }
     }
 
-    private void closePaths() {
-        for (ChartValueSeries chartValueSeries : seriesList) {
-            Optional<ChartPoint> firstValid = chartPoints.stream().filter(chartValueSeries::isChartPointValid)
-                    .findFirst();
-            Optional<ChartPoint> lastValid = chartPoints.stream().filter(chartValueSeries::isChartPointValid)
-                    .reduce((first, second) -> second);
-
-            if (firstValid.isPresent() && lastValid.isPresent()) {
-                Path path = chartValueSeries.getPath();
-
-                int yCorner = topBorder + effectiveHeight;
-
-                path.lineTo(getX(lastValid.get().getTimeOrDistance()), yCorner);
-                path.lineTo(getX(firstValid.get().getTimeOrDistance()), yCorner);
-
-                double value = chartValueSeries.extractDataFromChartPoint(firstValid.get());
-                path.lineTo(getX(firstValid.get().getTimeOrDistance()), getY(chartValueSeries, value));
-            }
+    /**
+     * @return the index of the last chart point with an x value less than or equal to value (0 if none).
+     */
+    private int indexOfX(double value) {
+        int index = Arrays.binarySearch(xValues, 0, chartPointsSize, value);
+        if (index < 0) {
+            index = -index - 2;
         }
+        return Math.max(0, index);
     }
 
     /**
@@ -918,6 +982,9 @@ public class ChartView extends View {
      */
     private void updateDimensions() {
         maxX = xExtremityMonitor.hasData() ? xExtremityMonitor.getMax() : 1.0;
+        if (!Double.isNaN(provisionalX)) {
+            maxX = Math.max(maxX, provisionalX);
+        }
         for (ChartValueSeries chartValueSeries : seriesList) {
             chartValueSeries.updateDimension();
         }
@@ -1017,7 +1084,7 @@ public class ChartView extends View {
      * Returns true if the index is allowed when the chartData is empty.
      */
     private boolean allowIfEmpty(ChartValueSeries chartValueSeries) {
-        if (!chartPoints.isEmpty()) {
+        if (chartPointsSize > 0) {
             return false;
         }
 
@@ -20,6 +20,7 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.database.ContentObserver;
 import android.database.Cursor;
+import android.net.Uri;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.util.Log;
@@ -28,25 +29,25 @@ import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import de.dennisguse.opentracks.content.data.Marker;
-import de.dennisguse.opentracks.content.data.MarkerColumns;
 import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.data.TrackPoint;
-import de.dennisguse.opentracks.content.data.TrackPointsColumns;
-import de.dennisguse.opentracks.content.data.TracksColumns;
 import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
 import de.dennisguse.opentracks.content.provider.TrackPointIterator;
 import de.dennisguse.opentracks.services.TrackRecordingServiceStatus;
 import de.dennisguse.opentracks.services.TrackRecordingServiceConnection;
 import de.dennisguse.opentracks.services.TrackRecordingServiceInterface;
+import de.dennisguse.opentracks.util.PreferencesUtils;
 
 /**
  * Track data hub.
  * Receives data from {@link de.dennisguse.opentracks.content.provider.CustomContentProvider} and distributes it to {@link TrackDataListener} after some processing.
  * <p>
- * {@link TrackPoint}s are filtered/downsampled with a dynamic sampling frequency.
+ * {@link TrackPoint}s are downsampled incrementally by a {@link TrackPointSampler} (preserving minima and maxima).
  *
  * @author Rodrigo Damazio
  */
@@ -59,10 +60,9 @@ public class TrackDataHub implements TrackRecordingServiceStatus.Listener {
     private static final int TARGET_DISPLAYED_TRACKPOINTS = 5000;
 
     /**
-     * Maximum number of markers to displayed in the diagrams.
+     * Number of markers loaded per query.
      */
-    @VisibleForTesting
-    private static final int MAX_DISPLAYED_MARKERS = 128;
+    private static final int MARKERS_PER_PAGE = 128;
 
     private static final String TAG = TrackDataHub.class.getSimpleName();
 
@@ -83,9 +83,14 @@ public class TrackDataHub implements TrackRecordingServiceStatus.Listener {
     private boolean recordingTrackPaused;
 
     // Track points sampling state
-    private int numLoadedPoints;
-    private TrackPoint.Id firstSeenTrackPointId;
+    private TrackPointSampler trackPointSampler;
     private TrackPoint.Id lastSeenTrackPointId;
+    private TrackSeries trackSeries;
+
+    // Markers sent to the listeners; their changes are sent as diffs.
+    private final Set<Marker.Id> loadedMarkerIds = new HashSet<>();
+    // Markers changed since the last update; null if all markers need to be reloaded.
+    private Set<Marker.Id> changedMarkerIds = new HashSet<>();
 
     // Registered listeners
     private ContentObserver tracksTableObserver;
@@ -123,30 +128,31 @@ public class TrackDataHub implements TrackRecordingServiceStatus.Listener {
         handler = new Handler(handlerThread.getLooper());
 
         //register listeners
-        ContentResolver contentResolver = context.getContentResolver();
-        tracksTableObserver = new ContentObserver(handler) {
+        tracksTableObserver = new CoalescingContentObserver(() -> notifyTracksTableUpdate(trackDataManager.getListenerTracks()));
+        markersTableObserver = new CoalescingContentObserver(this::notifyMarkersChanged) {
             @Override
-            public void onChange(boolean selfChange) {
-                notifyTracksTableUpdate(trackDataManager.getListenerTracks());
+            public void onChange(boolean selfChange, Uri uri) {
+                Marker.Id markerId = ContentProviderUtils.parseMarkerIdFromChange(uri);
+                if (markerId == null) {
+                    changedMarkerIds = null;
+                } else if (changedMarkerIds != null) {
+                    changedMarkerIds.add(markerId);
+                }
+                super.onChange(selfChange, uri);
             }
         };
-        contentResolver.registerContentObserver(TracksColumns.CONTENT_URI, false, tracksTableObserver);
-
-        markersTableObserver = new ContentObserver(handler) {
+        trackPointsTableObserver = new CoalescingContentObserver(() -> notifyTrackPointsTableUpdate(true, trackDataManager.getListenerTrackPoints_SampledIn(), trackDataManager.getListenerTrackPoints_SampledOut())) {
             @Override
-            public void onChange(boolean selfChange) {
-                notifyMarkersTableUpdate(trackDataManager.getListenerMarkers());
-            }
-        };
-        contentResolver.registerContentObserver(MarkerColumns.CONTENT_URI, false, markersTableObserver);
-
-        trackPointsTableObserver = new ContentObserver(handler) {
-            @Override
-            public void onChange(boolean selfChange) {
-                notifyTrackPointsTableUpdate(true, trackDataManager.getListenerTrackPoints_SampledIn(), trackDataManager.getListenerTrackPoints_SampledOut());
+            public void onChange(boolean selfChange, Uri uri) {
+                TrackPoint.Id lastTrackPointId = ContentProviderUtils.parseLastTrackPointIdFromChange(uri);
+                if (lastTrackPointId != null && lastSeenTrackPointId != null && lastTrackPointId.getId() <= lastSeenTrackPointId.getId()) {
+                    // Already loaded
+                    return;
+                }
+                super.onChange(selfChange, uri);
             }
         };
-        contentResolver.registerContentObserver(TrackPointsColumns.CONTENT_URI_BY_ID, false, trackPointsTableObserver);
+        registerContentObservers();
 
         trackRecordingServiceConnection = new TrackRecordingServiceConnection(bindCallback);
         trackRecordingServiceConnection.bind(context);
@@ -167,10 +173,7 @@ public class TrackDataHub implements TrackRecordingServiceStatus.Listener {
         started = false;
 
         //Unregister listeners
-        ContentResolver contentResolver = context.getContentResolver();
-        contentResolver.unregisterContentObserver(tracksTableObserver);
-        contentResolver.unregisterContentObserver(markersTableObserver);
-        contentResolver.unregisterContentObserver(trackPointsTableObserver);
+        unregisterContentObservers();
 
         if (handlerThread != null) {
             handlerThread.getLooper().quit();
@@ -188,6 +191,7 @@ public class TrackDataHub implements TrackRecordingServiceStatus.Listener {
                 return;
             }
             selectedTrackId = trackId;
+            registerContentObservers();
             loadDataForAll();
         });
     }
@@ -229,6 +233,28 @@ public class TrackDataHub implements TrackRecordingServiceStatus.Listener {
         return selectedTrackId != null && selectedTrackId.equals(recordingTrackId) && recordingTrackPaused;
     }
 
+    /**
+     * Observes only the changes of the selected track; other tracks (e.g., a recording while viewing another track) do not cause updates.
+     */
+    private void registerContentObservers() {
+        unregisterContentObservers();
+        if (selectedTrackId == null) {
+            return;
+        }
+
+        ContentResolver contentResolver = context.getContentResolver();
+        contentResolver.registerContentObserver(ContentProviderUtils.getTrackUri(selectedTrackId), false, tracksTableObserver);
+        contentResolver.registerContentObserver(ContentProviderUtils.getMarkersUri(selectedTrackId), false, markersTableObserver);
+        contentResolver.registerContentObserver(ContentProviderUtils.getTrackPointsUri(selectedTrackId), false, trackPointsTableObserver);
+    }
+
+    private void unregisterContentObservers() {
+        ContentResolver contentResolver = context.getContentResolver();
+        contentResolver.unregisterContentObserver(tracksTableObserver);
+        contentResolver.unregisterContentObserver(markersTableObserver);
+        contentResolver.unregisterContentObserver(trackPointsTableObserver);
+    }
+
     /**
      * Loads data for all listeners. To be run in the {@link #handler} thread.
      */
@@ -244,6 +270,9 @@ public class TrackDataHub implements TrackRecordingServiceStatus.Listener {
             listener.clearTrackPoints();
         }
         notifyTrackPointsTableUpdate(true, trackDataManager.getListenerTrackPoints_SampledIn(), trackDataManager.getListenerTrackPoints_SampledOut());
+
+        loadedMarkerIds.clear();
+        changedMarkerIds = new HashSet<>();
         notifyMarkersTableUpdate(trackDataManager.getListenerMarkers());
     }
 
@@ -262,11 +291,11 @@ public class TrackDataHub implements TrackRecordingServiceStatus.Listener {
         boolean hasSampledIn = trackDataManager.listensForTrackPoints_SampledIn(trackDataListener);
         boolean hasSampledOut = trackDataManager.listensForTrackPoints_SampledOut(trackDataListener);
         if (hasSampledIn || hasSampledOut) {
-            trackDataListener.clearTrackPoints();
             boolean isOnlyListener = trackDataManager.getNumberOfListeners() == 1;
             if (isOnlyListener) {
                 resetSamplingState();
             }
+            trackDataListener.clearTrackPoints();
             Set<TrackDataListener> sampledOutListeners = hasSampledOut ? trackDataListeners : Collections.emptySet();
             notifyTrackPointsTableUpdate(isOnlyListener, trackDataListeners, sampledOutListeners);
         }
@@ -293,7 +322,8 @@ public class TrackDataHub implements TrackRecordingServiceStatus.Listener {
 
     /**
      * Notifies marker table update.
-     * Currently, reloads all the markers up to {@link #MAX_DISPLAYED_MARKERS}. To be run in the {@link #handler} thread.
+     * Reloads all the markers in pages of {@link #MARKERS_PER_PAGE}; the listeners are notified after the first page (so the first markers are shown early) and after the last page.
+     * To be run in the {@link #handler} thread.
      *
      * @param trackDataListeners the track data listeners to notify
      */
@@ -306,14 +336,69 @@ public class TrackDataHub implements TrackRecordingServiceStatus.Listener {
             trackDataListener.clearMarkers();
         }
 
-        try (Cursor cursor = contentProviderUtils.getMarkerCursor(selectedTrackId, null, MAX_DISPLAYED_MARKERS)) {
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    Marker marker = contentProviderUtils.createMarker(cursor);
+        Marker.Id minMarkerId = null;
+        boolean firstPage = true;
+        int count;
+        do {
+            count = 0;
+            try (Cursor cursor = contentProviderUtils.getMarkerCursor(selectedTrackId, minMarkerId, MARKERS_PER_PAGE)) {
+                if (cursor != null && cursor.moveToFirst()) {
+                    do {
+                        Marker marker = contentProviderUtils.createMarker(cursor);
+                        loadedMarkerIds.add(marker.getId());
+                        for (TrackDataListener trackDataListener : trackDataListeners) {
+                            trackDataListener.onNewMarker(marker);
+                        }
+                        minMarkerId = new Marker.Id(marker.getId().getId() + 1);
+                        count++;
+                    } while (cursor.moveToNext());
+                }
+            }
+
+            if (firstPage || count < MARKERS_PER_PAGE) {
+                for (TrackDataListener trackDataListener : trackDataListeners) {
+                    trackDataListener.onNewMarkersDone();
+                }
+            }
+            firstPage = false;
+        } while (count == MARKERS_PER_PAGE);
+    }
+
+    /**
+     * Notifies the changed markers as diffs (added, updated, deleted); reloads all markers if the changed markers are unknown.
+     * To be run in the {@link #handler} thread.
+     */
+    private void notifyMarkersChanged() {
+        Set<Marker.Id> markerIds = changedMarkerIds;
+        changedMarkerIds = new HashSet<>();
+
+        Set<TrackDataListener> trackDataListeners = trackDataManager.getListenerMarkers();
+        if (markerIds == null) {
+            loadedMarkerIds.clear();
+            notifyMarkersTableUpdate(trackDataListeners);
+            return;
+        }
+        if (trackDataListeners.isEmpty() || markerIds.isEmpty()) {
+            return;
+        }
+
+        for (Marker.Id markerId : markerIds) {
+            Marker marker = contentProviderUtils.getMarker(markerId);
+            if (marker == null || !marker.getTrackId().equals(selectedTrackId)) {
+                if (loadedMarkerIds.remove(markerId)) {
                     for (TrackDataListener trackDataListener : trackDataListeners) {
-                        trackDataListener.onNewMarker(marker);
+                        trackDataListener.onMarkerDeleted(markerId);
                     }
-                } while (cursor.moveToNext());
+                }
+            } else if (loadedMarkerIds.contains(markerId)) {
+                for (TrackDataListener trackDataListener : trackDataListeners) {
+                    trackDataListener.onMarkerUpdated(marker);
+                }
+            } else {
+                loadedMarkerIds.add(markerId);
+                for (TrackDataListener trackDataListener : trackDataListeners) {
+                    trackDataListener.onNewMarker(marker);
+                }
             }
         }
 
@@ -324,6 +409,7 @@ public class TrackDataHub implements TrackRecordingServiceStatus.Listener {
 
     /**
      * Notifies track points table update; to be run in the {@link #handler} thread.
+     * Only the new TrackPoints are loaded and sampled; if the sampling state is not updated, the sampling of the already loaded TrackPoints is replayed.
      *
      * @param updateSamplingState true to update the sampling state
      * @param sampledInListeners  the sampled-in listeners
@@ -334,95 +420,143 @@ public class TrackDataHub implements TrackRecordingServiceStatus.Listener {
             return;
         }
 
-        if (updateSamplingState && numLoadedPoints >= targetNumPoints) {
-            // Reload and resample the track at a lower frequency.
-            Log.i(TAG, "Resampling track after " + numLoadedPoints + " points.");
-            resetSamplingState();
-            for (TrackDataListener listener : sampledInListeners) {
-                listener.clearTrackPoints();
-            }
-        }
-
-        int localNumLoadedTrackPoints = updateSamplingState ? numLoadedPoints : 0;
-        TrackPoint.Id localFirstSeenTrackPointId = updateSamplingState ? firstSeenTrackPointId : null;
-        TrackPoint.Id localLastSeenTrackPointIdId = updateSamplingState ? lastSeenTrackPointId : null;
-        TrackPoint.Id maxPointId = updateSamplingState ? null : lastSeenTrackPointId;
-
         if (selectedTrackId == null) {
             Log.w(TAG, "This should not happen, but it does"); //TODO
             return;
         }
 
-        TrackPoint.Id lastTrackPointId = contentProviderUtils.getLastTrackPointId(selectedTrackId);
-        int samplingFrequency = -1;
+        // New TrackPoints are added to the trackSeries (see loadTrackPoints()) and committed once before notifying the listeners.
+        Consumer<TrackPoint> sampledIn = trackPoint -> {
+            if (updateSamplingState) {
+                trackSeries.commit(trackPoint, true);
+            }
+            for (TrackDataListener trackDataListener : sampledInListeners) {
+                trackDataListener.onSampledInTrackPoint(trackPoint);
+            }
+        };
+        Consumer<TrackPoint> sampledOut = trackPoint -> {
+            if (updateSamplingState) {
+                trackSeries.commit(trackPoint, false);
+            }
+            for (TrackDataListener trackDataListener : sampledOutListeners) {
+                trackDataListener.onSampledOutTrackPoint(trackPoint);
+            }
+        };
+
+        TrackPoint trackPoint = updateSamplingState ? loadTrackPoints(sampledIn, sampledOut) : replayTrackPoints(sampledIn, sampledOut);
 
+        if (trackPoint != null) {
+            for (TrackDataListener listener : sampledInListeners) {
+                listener.onNewTrackPointsDone(trackPoint);
+            }
+        }
+    }
 
+    /**
+     * Loads and samples the TrackPoints after {@link #lastSeenTrackPointId}.
+     * While the selected track is recorded, the TrackPoints of the last (not full) bucket are not sampled yet; the listeners get the last TrackPoint via {@link TrackDataListener#onNewTrackPointsDone(TrackPoint)} and its values via {@link TrackSeries#getProvisionalIndex()}.
+     *
+     * @return the last loaded TrackPoint (null if there is none)
+     */
+    private TrackPoint loadTrackPoints(Consumer<TrackPoint> sampledIn, Consumer<TrackPoint> sampledOut) {
         TrackPoint.Id next = null;
-        if (localLastSeenTrackPointIdId != null) {
-            next = new TrackPoint.Id(localLastSeenTrackPointIdId.getId() + 1); //TODO startTrackPointId + 1 is an assumption assumption; should be derived from the DB.
+        if (lastSeenTrackPointId != null) {
+            next = new TrackPoint.Id(lastSeenTrackPointId.getId() + 1); //TODO startTrackPointId + 1 is an assumption assumption; should be derived from the DB.
         }
 
         TrackPoint trackPoint = null;
         try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(selectedTrackId, next)) {
-
             while (trackPointIterator.hasNext()) {
                 trackPoint = trackPointIterator.next();
-                TrackPoint.Id trackPointId = trackPoint.getId();
-
-                // Stop if past the last wanted point
-                if (maxPointId != null && trackPointId.getId() > maxPointId.getId()) {
-                    break;
-                }
-
-                if (localFirstSeenTrackPointId == null) {
-                    localFirstSeenTrackPointId = trackPointId;
-                }
-
-                if (samplingFrequency == -1) {
-                    long numTotalPoints = Math.max(0L, lastTrackPointId.getId() - localFirstSeenTrackPointId.getId()); //TODO That is an assumption; should be derived from the DB.
-                    samplingFrequency = 1 + (int) (numTotalPoints / targetNumPoints);
-                }
-
 
-                // Also include the last point if the selected track is not recording.
-                if ((localNumLoadedTrackPoints % samplingFrequency == 0) || (trackPointId == lastTrackPointId && !isSelectedTrackRecording())) {
-                    for (TrackDataListener trackDataListener : sampledInListeners) {
-                        trackDataListener.onSampledInTrackPoint(trackPoint);
-                    }
-                } else {
-                    for (TrackDataListener trackDataListener : sampledOutListeners) {
-                        trackDataListener.onSampledOutTrackPoint(trackPoint);
-                    }
+                if (trackPointSampler == null) {
+                    TrackPoint.Id lastTrackPointId = contentProviderUtils.getLastTrackPointId(selectedTrackId);
+                    long numTotalPoints = Math.max(0L, lastTrackPointId.getId() - trackPoint.getId().getId()); //TODO That is an assumption; should be derived from the DB.
+                    trackPointSampler = new TrackPointSampler(targetNumPoints, numTotalPoints);
                 }
 
-                localNumLoadedTrackPoints++;
+                trackSeries.addPending(trackPoint);
+                trackPointSampler.add(trackPoint, sampledIn, sampledOut);
             }
         }
 
         if (trackPoint != null) {
-            localLastSeenTrackPointIdId = trackPoint.getId();
+            lastSeenTrackPointId = trackPoint.getId();
         }
 
-        if (updateSamplingState) {
-            numLoadedPoints = localNumLoadedTrackPoints;
-            firstSeenTrackPointId = localFirstSeenTrackPointId;
-            lastSeenTrackPointId = localLastSeenTrackPointIdId;
+        // No more TrackPoints are expected: also sample the last points (not a full bucket).
+        if (trackPointSampler != null && !isSelectedTrackRecording()) {
+            TrackPoint lastFlushed = trackPointSampler.flush(sampledIn, sampledOut);
+            if (trackPoint == null) {
+                trackPoint = lastFlushed;
+            }
         }
 
-        if (trackPoint != null) {
-            for (TrackDataListener listener : sampledInListeners) {
-                listener.onNewTrackPointsDone(trackPoint);
+        return trackPoint;
+    }
+
+    /**
+     * Replays the sampling of the already sampled TrackPoints (e.g., for a new listener); does not change the sampling state.
+     *
+     * @return the last replayed TrackPoint (null if there is none)
+     */
+    private TrackPoint replayTrackPoints(Consumer<TrackPoint> sampledIn, Consumer<TrackPoint> sampledOut) {
+        if (trackPointSampler == null) {
+            return null;
+        }
+
+        TrackPointSampler.Replay replay = trackPointSampler.replay();
+        TrackPoint trackPoint = null;
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(selectedTrackId, null)) {
+            while (!replay.isDone() && trackPointIterator.hasNext()) {
+                trackPoint = trackPointIterator.next();
+                replay.add(trackPoint, sampledIn, sampledOut);
             }
         }
+        return trackPoint;
     }
 
     /**
      * Resets the track points sampling states.
      */
     private void resetSamplingState() {
-        numLoadedPoints = 0;
-        firstSeenTrackPointId = null;
+        trackPointSampler = null;
         lastSeenTrackPointId = null;
+        trackSeries = new TrackSeries(PreferencesUtils.getRecordingDistanceInterval(PreferencesUtils.getSharedPreferences(context), context));
+    }
+
+    /**
+     * Values derived from the TrackPoints of the selected track; to be used in the {@link TrackDataListener} callbacks.
+     * Replaced by a new instance if the TrackPoints are reloaded, i.e., to be requested in {@link TrackDataListener#clearTrackPoints()}.
+     */
+    public TrackSeries getTrackSeries() {
+        return trackSeries;
+    }
+
+    /**
+     * Runs the update once for a burst of changes (e.g., while importing): changes notified before the update started are handled by it.
+     */
+    private class CoalescingContentObserver extends ContentObserver {
+
+        private final Runnable update;
+        private boolean updatePending = false;
+
+        CoalescingContentObserver(Runnable update) {
+            super(handler);
+            this.update = update;
+        }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            if (updatePending || !started) {
+                return;
+            }
+            updatePending = true;
+            handler.post(() -> {
+                updatePending = false;
+                update.run();
+            });
+        }
     }
 
     @Override
@@ -432,6 +566,17 @@ public class TrackDataHub implements TrackRecordingServiceStatus.Listener {
 
     @Override
     public void onTrackRecordingId(Track.Id trackId) {
+        boolean selectedTrackStopped = isSelectedTrackRecording() && !selectedTrackId.equals(trackId);
         recordingTrackId = trackId;
+
+        Handler handler = this.handler;
+        if (selectedTrackStopped && handler != null) {
+            // Samples the last TrackPoints that were kept back while recording.
+            handler.post(() -> {
+                if (started) {
+                    notifyTrackPointsTableUpdate(true, trackDataManager.getListenerTrackPoints_SampledIn(), trackDataManager.getListenerTrackPoints_SampledOut());
+                }
+            });
+        }
     }
 }
\ No newline at end of file
@@ -74,9 +74,23 @@ public interface TrackDataListener {
      */
     void onNewMarker(Marker marker);
 
+    /**
+     * Called when a previously sent marker was updated.
+     *
+     * @param marker the marker
+     */
+    void onMarkerUpdated(Marker marker);
+
+    /**
+     * Called when a previously sent marker was deleted.
+     *
+     * @param markerId the id of the deleted marker
+     */
+    void onMarkerDeleted(Marker.Id markerId);
+
     /**
      * Called when finish sending new markers.
-     * This gets called after every batch of calls to {@link #clearMarkers()} and {@link #onNewMarker(Marker)}.
+     * This gets called after every batch of calls to {@link #clearMarkers()}, {@link #onNewMarker(Marker)}, {@link #onMarkerUpdated(Marker)}, and {@link #onMarkerDeleted(Marker.Id)}.
      */
     void onNewMarkersDone();
 }
@@ -0,0 +1,183 @@
+package de.dennisguse.opentracks.content;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+import de.dennisguse.opentracks.content.data.TrackPoint;
+
+/**
+ * Downsamples {@link TrackPoint}s for the diagrams while preserving peaks.
+ * The TrackPoints are grouped into buckets of consecutive TrackPoints.
+ * Of every bucket, the first TrackPoint, the TrackPoints with the minimum and maximum of every value (altitude, speed, heart rate, cadence, power), and all segment starts/ends are sampled in.
+ * <p>
+ * Works incrementally: new TrackPoints are added to the last bucket, which is sampled when it is full or flushed.
+ * While a track is recorded, the last bucket is kept open (only full buckets are sampled); it is only flushed once no more TrackPoints are expected.
+ * Otherwise, almost every new TrackPoint would be sampled in.
+ * To limit the number of sampled in TrackPoints, the bucket size is doubled (for new buckets) whenever another targetNumPoints TrackPoints were sampled in.
+ */
+class TrackPointSampler {
+
+    // Estimated number of sampled in TrackPoints per bucket.
+    private static final int SAMPLED_IN_PER_BUCKET = 4;
+
+    private final int targetNumPoints;
+
+    private int bucketSize;
+    private int numSampledIn = 0;
+    private int maxSampledIn;
+
+    // The last, not yet sampled bucket.
+    private final List<TrackPoint> bucket = new ArrayList<>();
+
+    // Id of the last TrackPoint of every sampled bucket; allows to replay the sampling.
+    private final List<Long> bucketEndIds = new ArrayList<>();
+    // Buckets that were sampled before being full (see flush()).
+    private final BitSet flushedBuckets = new BitSet();
+
+    /**
+     * @param targetNumPoints the target number of sampled in TrackPoints
+     * @param numTotalPoints  the (estimated) number of TrackPoints available
+     */
+    TrackPointSampler(int targetNumPoints, long numTotalPoints) {
+        this.targetNumPoints = targetNumPoints;
+        this.bucketSize = numTotalPoints <= targetNumPoints ? 1 : (int) Math.ceil((double) numTotalPoints * SAMPLED_IN_PER_BUCKET / targetNumPoints);
+        this.maxSampledIn = 2 * targetNumPoints;
+    }
+
+    /**
+     * Adds the next TrackPoint; if the bucket is full, its TrackPoints are sampled.
+     */
+    void add(@NonNull TrackPoint trackPoint, Consumer<TrackPoint> sampledIn, Consumer<TrackPoint> sampledOut) {
+        bucket.add(trackPoint);
+        if (bucket.size() >= bucketSize) {
+            sampleBucket(false, sampledIn, sampledOut);
+        }
+    }
+
+    /**
+     * Samples the last bucket although it is not full; its last TrackPoint is sampled in.
+     * New TrackPoints are added to a new bucket.
+     *
+     * @return the last TrackPoint of the bucket (null if it was empty)
+     */
+    TrackPoint flush(Consumer<TrackPoint> sampledIn, Consumer<TrackPoint> sampledOut) {
+        if (bucket.isEmpty()) {
+            return null;
+        }
+        TrackPoint last = bucket.get(bucket.size() - 1);
+        sampleBucket(true, sampledIn, sampledOut);
+        return last;
+    }
+
+    /**
+     * Replays the sampling of all sampled buckets (e.g., for a new listener).
+     */
+    Replay replay() {
+        return new Replay();
+    }
+
+    @VisibleForTesting
+    int getBucketSize() {
+        return bucketSize;
+    }
+
+    private void sampleBucket(boolean includeLast, Consumer<TrackPoint> sampledIn, Consumer<TrackPoint> sampledOut) {
+        numSampledIn += sample(bucket, includeLast, sampledIn, sampledOut);
+        flushedBuckets.set(bucketEndIds.size(), includeLast);
+        bucketEndIds.add(bucket.get(bucket.size() - 1).getIdLong());
+        bucket.clear();
+
+        if (numSampledIn >= maxSampledIn) {
+            bucketSize *= 2;
+            maxSampledIn += targetNumPoints;
+        }
+    }
+
+    /**
+     * @return the number of sampled in TrackPoints
+     */
+    private static int sample(List<TrackPoint> bucket, boolean includeLast, Consumer<TrackPoint> sampledIn, Consumer<TrackPoint> sampledOut) {
+        boolean[] selected = new boolean[bucket.size()];
+        selected[0] = true;
+        selected[bucket.size() - 1] |= includeLast;
+        for (int i = 0; i < bucket.size(); i++) {
+            selected[i] |= bucket.get(i).getType() != TrackPoint.Type.TRACKPOINT;
+        }
+
+        selectMinMax(bucket, selected, TrackPoint::hasAltitude, TrackPoint::getAltitude);
+        selectMinMax(bucket, selected, TrackPoint::hasSpeed, TrackPoint::getSpeed);
+        selectMinMax(bucket, selected, TrackPoint::hasHeartRate, TrackPoint::getHeartRate_bpm);
+        selectMinMax(bucket, selected, TrackPoint::hasCyclingCadence, TrackPoint::getCyclingCadence_rpm);
+        selectMinMax(bucket, selected, TrackPoint::hasPower, TrackPoint::getPower);
+
+        int numSampledIn = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            if (selected[i]) {
+                sampledIn.accept(bucket.get(i));
+                numSampledIn++;
+            } else {
+                sampledOut.accept(bucket.get(i));
+            }
+        }
+        return numSampledIn;
+    }
+
+    private static void selectMinMax(List<TrackPoint> bucket, boolean[] selected, Predicate<TrackPoint> hasValue, ToDoubleFunction<TrackPoint> value) {
+        int minIndex = -1;
+        int maxIndex = -1;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < bucket.size(); i++) {
+            TrackPoint trackPoint = bucket.get(i);
+            if (!hasValue.test(trackPoint)) {
+                continue;
+            }
+            double v = value.applyAsDouble(trackPoint);
+            if (v < min) {
+                min = v;
+                minIndex = i;
+            }
+            if (v > max) {
+                max = v;
+                maxIndex = i;
+            }
+        }
+
+        if (minIndex >= 0) {
+            selected[minIndex] = true;
+            selected[maxIndex] = true;
+        }
+    }
+
+    /**
+     * Repeats the sampling of the sampled buckets; the TrackPoints must be added in the same order starting with the first one.
+     */
+    class Replay {
+
+        private final List<TrackPoint> replayBucket = new ArrayList<>();
+        private int bucketIndex = 0;
+
+        /**
+         * @return true if all sampled buckets were replayed; the remaining TrackPoints are not yet sampled.
+         */
+        boolean isDone() {
+            return bucketIndex >= bucketEndIds.size();
+        }
+
+        void add(@NonNull TrackPoint trackPoint, Consumer<TrackPoint> sampledIn, Consumer<TrackPoint> sampledOut) {
+            replayBucket.add(trackPoint);
+            if (trackPoint.getIdLong() == bucketEndIds.get(bucketIndex)) {
+                sample(replayBucket, flushedBuckets.get(bucketIndex), sampledIn, sampledOut);
+                replayBucket.clear();
+                bucketIndex++;
+            }
+        }
+    }
+}
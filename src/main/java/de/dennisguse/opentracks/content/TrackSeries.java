@@ -0,0 +1,204 @@
+package de.dennisguse.opentracks.content;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.stats.TrackStatistics;
+import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
+
+/**
+ * Values derived from the {@link TrackPoint}s of a track for the sampled in TrackPoints (e.g., for the diagrams).
+ * Computed once by the {@link TrackDataHub} and shared by all its listeners; appended while recording.
+ * <p>
+ * The TrackPoints that are not yet sampled (the {@link TrackPointSampler}'s open bucket) are pending: their values are computed when they are added, but only kept once they are sampled in.
+ * The last pending TrackPoint is available as provisional last value (see {@link #getProvisionalIndex()}), so the diagrams of a recording track do not lag behind by up to a bucket.
+ * <p>
+ * Not thread-safe: to be used from the {@link TrackDataHub}'s thread (i.e., in {@link TrackDataListener} callbacks).
+ */
+public class TrackSeries {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final TrackStatisticsUpdater trackStatisticsUpdater = new TrackStatisticsUpdater();
+    private final int recordingDistanceInterval;
+
+    private int size = 0;
+    // Pending TrackPoints are stored in [pendingStart, end); pendingStart >= size.
+    private int pendingStart = 0;
+    private int end = 0;
+    private long[] trackPointIds = new long[INITIAL_CAPACITY];
+    private double[] totalDistance_m = new double[INITIAL_CAPACITY];
+    private long[] totalTime_ms = new long[INITIAL_CAPACITY];
+    private double[] smoothedAltitude_m = new double[INITIAL_CAPACITY];
+    private double[] smoothedSpeed_mps = new double[INITIAL_CAPACITY];
+    // NaN if not available
+    private float[] heartRate_bpm = new float[INITIAL_CAPACITY];
+    private float[] cadence_rpm = new float[INITIAL_CAPACITY];
+    private float[] power_w = new float[INITIAL_CAPACITY];
+
+    public TrackSeries(int recordingDistanceInterval) {
+        this.recordingDistanceInterval = recordingDistanceInterval;
+    }
+
+    /**
+     * Adds the next TrackPoint of the track; only the values of sampled in TrackPoints are stored.
+     *
+     * @param trackPoint the trackPoint (needs an id if sampled in)
+     * @param sampledIn  true if the trackPoint was sampled in
+     */
+    public void add(@NonNull TrackPoint trackPoint, boolean sampledIn) {
+        addPending(trackPoint);
+        commit(trackPoint, sampledIn);
+    }
+
+    /**
+     * Adds the next TrackPoint of the track before it is sampled; see {@link #commit(TrackPoint, boolean)}.
+     *
+     * @param trackPoint the trackPoint (needs an id)
+     */
+    public void addPending(@NonNull TrackPoint trackPoint) {
+        trackStatisticsUpdater.addTrackPoint(trackPoint, recordingDistanceInterval);
+
+        if (end == trackPointIds.length) {
+            if (pendingStart > size) {
+                compact();
+            } else {
+                grow();
+            }
+        }
+
+        TrackStatistics trackStatistics = trackStatisticsUpdater.getTrackStatistics();
+        trackPointIds[end] = trackPoint.getIdLong();
+        totalDistance_m[end] = trackStatistics.getTotalDistance();
+        totalTime_ms[end] = trackStatistics.getTotalTime().toMillis();
+        smoothedAltitude_m[end] = trackStatisticsUpdater.getSmoothedAltitude();
+        smoothedSpeed_mps[end] = trackStatisticsUpdater.getSmoothedSpeed();
+        heartRate_bpm[end] = trackPoint.hasHeartRate() ? trackPoint.getHeartRate_bpm() : Float.NaN;
+        cadence_rpm[end] = trackPoint.hasCyclingCadence() ? trackPoint.getCyclingCadence_rpm() : Float.NaN;
+        power_w[end] = trackPoint.hasPower() ? trackPoint.getPower() : Float.NaN;
+        end++;
+    }
+
+    /**
+     * Keeps the values of the first pending TrackPoint if it was sampled in; the pending TrackPoints are committed in the order they were added.
+     *
+     * @param trackPoint the first pending trackPoint
+     * @param sampledIn  true if the trackPoint was sampled in
+     */
+    public void commit(@NonNull TrackPoint trackPoint, boolean sampledIn) {
+        if (pendingStart == end || trackPointIds[pendingStart] != trackPoint.getIdLong()) {
+            throw new IllegalStateException("TrackPoint " + trackPoint.getIdLong() + " is not the first pending TrackPoint.");
+        }
+
+        if (sampledIn) {
+            if (pendingStart != size) {
+                trackPointIds[size] = trackPointIds[pendingStart];
+                totalDistance_m[size] = totalDistance_m[pendingStart];
+                totalTime_ms[size] = totalTime_ms[pendingStart];
+                smoothedAltitude_m[size] = smoothedAltitude_m[pendingStart];
+                smoothedSpeed_mps[size] = smoothedSpeed_mps[pendingStart];
+                heartRate_bpm[size] = heartRate_bpm[pendingStart];
+                cadence_rpm[size] = cadence_rpm[pendingStart];
+                power_w[size] = power_w[pendingStart];
+            }
+            size++;
+        }
+        pendingStart++;
+
+        if (pendingStart == end) {
+            // Reuse the space of the sampled out TrackPoints.
+            pendingStart = size;
+            end = size;
+        }
+    }
+
+    /**
+     * Moves the pending TrackPoints directly behind the stored ones (i.e., drops the sampled out ones).
+     */
+    private void compact() {
+        int pending = end - pendingStart;
+        System.arraycopy(trackPointIds, pendingStart, trackPointIds, size, pending);
+        System.arraycopy(totalDistance_m, pendingStart, totalDistance_m, size, pending);
+        System.arraycopy(totalTime_ms, pendingStart, totalTime_ms, size, pending);
+        System.arraycopy(smoothedAltitude_m, pendingStart, smoothedAltitude_m, size, pending);
+        System.arraycopy(smoothedSpeed_mps, pendingStart, smoothedSpeed_mps, size, pending);
+        System.arraycopy(heartRate_bpm, pendingStart, heartRate_bpm, size, pending);
+        System.arraycopy(cadence_rpm, pendingStart, cadence_rpm, size, pending);
+        System.arraycopy(power_w, pendingStart, power_w, size, pending);
+        pendingStart = size;
+        end = size + pending;
+    }
+
+    private void grow() {
+        int capacity = trackPointIds.length * 2;
+        trackPointIds = Arrays.copyOf(trackPointIds, capacity);
+        totalDistance_m = Arrays.copyOf(totalDistance_m, capacity);
+        totalTime_ms = Arrays.copyOf(totalTime_ms, capacity);
+        smoothedAltitude_m = Arrays.copyOf(smoothedAltitude_m, capacity);
+        smoothedSpeed_mps = Arrays.copyOf(smoothedSpeed_mps, capacity);
+        heartRate_bpm = Arrays.copyOf(heartRate_bpm, capacity);
+        cadence_rpm = Arrays.copyOf(cadence_rpm, capacity);
+        power_w = Arrays.copyOf(power_w, capacity);
+    }
+
+    /**
+     * @return the number of stored (sampled in) TrackPoints
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the index of the last pending TrackPoint (not sampled yet; to be used like a sampled in one) or -1 if there is none.
+     */
+    public int getProvisionalIndex() {
+        return end > pendingStart ? end - 1 : -1;
+    }
+
+    /**
+     * @return the index of a sampled in TrackPoint or -1 if not available.
+     */
+    public int indexOf(@Nullable TrackPoint.Id trackPointId) {
+        if (trackPointId == null || size == 0) {
+            return -1;
+        }
+
+        // Usually the last added TrackPoint.
+        if (trackPointIds[size - 1] == trackPointId.getId()) {
+            return size - 1;
+        }
+        int index = Arrays.binarySearch(trackPointIds, 0, size, trackPointId.getId());
+        return index >= 0 ? index : -1;
+    }
+
+    public double getTotalDistance(int index) {
+        return totalDistance_m[index];
+    }
+
+    public long getTotalTime_ms(int index) {
+        return totalTime_ms[index];
+    }
+
+    public double getSmoothedAltitude(int index) {
+        return smoothedAltitude_m[index];
+    }
+
+    public double getSmoothedSpeed(int index) {
+        return smoothedSpeed_mps[index];
+    }
+
+    public float getHeartRate_bpm(int index) {
+        return heartRate_bpm[index];
+    }
+
+    public float getCadence_rpm(int index) {
+        return cadence_rpm[index];
+    }
+
+    public float getPower(int index) {
+        return power_w[index];
+    }
+}
@@ -38,6 +38,9 @@ import java.util.Objects;
  * * GPS-provided timestamp might be more precise (but also have GPS week rollover)
  * * System clock might be changed (and thus non-monotonic)
  * TODO: if these might be a problem, we need to store both timestamps.
+ * <p>
+ * NOTE: values are stored as primitives (not boxed); a bitmask stores which values are present.
+ * The getters of values that are not present return 0.
  *
  * @author Sandor Dornbush
  */
@@ -48,16 +51,35 @@ public class TrackPoint {
     // Anything faster than that (in meters per second) will be considered moving.
     private static final double MAX_NO_MOVEMENT_SPEED = 0.224;
 
-    private TrackPoint.Id id;
-
-    private Instant time;
-    private Double latitude;
-    private Double longitude;
-    private Float accuracy;
-    private Double altitude_m;
-    private Float speed_mps;
-    private Float bearing;
-    private Float sensorDistance_m;
+    private static final int HAS_ID = 1;
+    private static final int HAS_TIME = 1 << 1;
+    private static final int HAS_LATITUDE = 1 << 2;
+    private static final int HAS_LONGITUDE = 1 << 3;
+    private static final int HAS_ACCURACY = 1 << 4;
+    private static final int HAS_ALTITUDE = 1 << 5;
+    private static final int HAS_SPEED = 1 << 6;
+    private static final int HAS_BEARING = 1 << 7;
+    private static final int HAS_SENSOR_DISTANCE = 1 << 8;
+    private static final int HAS_HEART_RATE = 1 << 9;
+    private static final int HAS_CYCLING_CADENCE = 1 << 10;
+    private static final int HAS_POWER = 1 << 11;
+    private static final int HAS_ALTITUDE_GAIN = 1 << 12;
+    private static final int HAS_ALTITUDE_LOSS = 1 << 13;
+
+    // Which values are present (HAS_*)
+    private int present;
+
+    private long id;
+
+    private long timeEpochSecond;
+    private int timeNano;
+    private double latitude;
+    private double longitude;
+    private float accuracy;
+    private double altitude_m;
+    private float speed_mps;
+    private float bearing;
+    private float sensorDistance_m;
 
     public enum Type {
         SEGMENT_START_MANUAL(-2), //Start of a segment due to user interaction (start, resume)
@@ -90,11 +112,11 @@ public class TrackPoint {
     @NonNull
     private Type type;
 
-    private Float heartRate_bpm = null;
-    private Float cyclingCadence_rpm = null;
-    private Float power = null;
-    private Float altitudeGain_m = null;
-    private Float altitudeLoss_m = null;
+    private float heartRate_bpm;
+    private float cyclingCadence_rpm;
+    private float power;
+    private float altitudeGain_m;
+    private float altitudeLoss_m;
 
     public TrackPoint(@NonNull Type type) {
         this.type = type;
@@ -103,26 +125,28 @@ public class TrackPoint {
     public TrackPoint(@NonNull Location location) {
         this(Type.TRACKPOINT);
 
-        this.latitude = location.getLatitude();
-        this.longitude = location.getLongitude();
-        this.altitude_m = location.getAltitude();
-        this.speed_mps = location.getSpeed();
-        this.accuracy = location.getAccuracy();
+        setLatitude(location.getLatitude());
+        setLongitude(location.getLongitude());
+        setAltitude(location.getAltitude());
+        setSpeed(location.getSpeed());
+        setAccuracy(location.getAccuracy());
 
         setTime(Instant.now());
     }
 
     public TrackPoint(@NonNull Type type, Instant time) {
         this(type);
-        this.time = time;
+        setTime(time);
     }
 
     public TrackPoint(double latitude, double longitude, Double altitude, Instant time) {
         this(Type.TRACKPOINT);
-        this.latitude = latitude;
-        this.longitude = longitude;
-        this.altitude_m = altitude;
-        this.time = time;
+        setLatitude(latitude);
+        setLongitude(longitude);
+        if (altitude != null) {
+            setAltitude(altitude);
+        }
+        setTime(time);
     }
 
     @Deprecated //See #316
@@ -151,6 +175,26 @@ public class TrackPoint {
         return new TrackPoint(Type.SEGMENT_END_MANUAL, time);
     }
 
+    /**
+     * Removes all values and sets the type; allows to reuse this instance (e.g., {@link de.dennisguse.opentracks.content.provider.TrackPointIterator#next(TrackPoint)}).
+     */
+    public void reset(@NonNull Type type) {
+        this.type = type;
+        present = 0;
+    }
+
+    private boolean has(int value) {
+        return (present & value) != 0;
+    }
+
+    private void setPresent(int value, boolean isPresent) {
+        if (isPresent) {
+            present |= value;
+        } else {
+            present &= ~value;
+        }
+    }
+
     @NonNull
     public Type getType() {
         return type;
@@ -173,15 +217,25 @@ public class TrackPoint {
      */
     @Nullable
     public TrackPoint.Id getId() {
+        return has(HAS_ID) ? new TrackPoint.Id(id) : null;
+    }
+
+    /**
+     * The id without creating a {@link TrackPoint.Id}; only valid if the TrackPoint has an id (see {@link #getId()}).
+     */
+    public long getIdLong() {
         return id;
     }
 
     public void setId(TrackPoint.Id id) {
-        this.id = id;
+        setPresent(HAS_ID, id != null);
+        if (id != null) {
+            this.id = id.getId();
+        }
     }
 
     public boolean hasLocation() {
-        return latitude != null && longitude != null;
+        return has(HAS_LATITUDE) && has(HAS_LONGITUDE);
     }
 
     public double getLatitude() {
@@ -190,6 +244,7 @@ public class TrackPoint {
 
     public void setLatitude(double latitude) {
         this.latitude = latitude;
+        setPresent(HAS_LATITUDE, true);
     }
 
     public double getLongitude() {
@@ -198,12 +253,13 @@ public class TrackPoint {
 
     public void setLongitude(double longitude) {
         this.longitude = longitude;
+        setPresent(HAS_LONGITUDE, true);
     }
 
     @NonNull
     public Location getLocation() {
         Location location = new Location("");
-        location.setTime(time.toEpochMilli());
+        location.setTime(timeEpochSecond * 1000 + timeNano / 1000000);
         if (hasLocation()) {
             location.setLatitude(latitude);
             location.setLongitude(longitude);
@@ -222,45 +278,81 @@ public class TrackPoint {
     }
 
     public boolean hasAltitudeGain() {
-        return altitudeGain_m != null;
+        return has(HAS_ALTITUDE_GAIN);
     }
 
     public float getAltitudeGain() {
         return altitudeGain_m;
     }
 
-    public void setAltitudeGain(Float altitudeGain_m) {
+    public void setAltitudeGain(float altitudeGain_m) {
         this.altitudeGain_m = altitudeGain_m;
+        setPresent(HAS_ALTITUDE_GAIN, true);
+    }
+
+    public void setAltitudeGain(Float altitudeGain_m) {
+        setPresent(HAS_ALTITUDE_GAIN, altitudeGain_m != null);
+        if (altitudeGain_m != null) {
+            this.altitudeGain_m = altitudeGain_m;
+        }
     }
 
     public boolean hasAltitudeLoss() {
-        return altitudeLoss_m != null;
+        return has(HAS_ALTITUDE_LOSS);
     }
 
     public float getAltitudeLoss() {
         return altitudeLoss_m;
     }
 
-    public void setAltitudeLoss(Float altitudeLoss_m) {
+    public void setAltitudeLoss(float altitudeLoss_m) {
         this.altitudeLoss_m = altitudeLoss_m;
+        setPresent(HAS_ALTITUDE_LOSS, true);
+    }
+
+    public void setAltitudeLoss(Float altitudeLoss_m) {
+        setPresent(HAS_ALTITUDE_LOSS, altitudeLoss_m != null);
+        if (altitudeLoss_m != null) {
+            this.altitudeLoss_m = altitudeLoss_m;
+        }
     }
 
     public Instant getTime() {
-        return time;
+        return has(HAS_TIME) ? Instant.ofEpochSecond(timeEpochSecond, timeNano) : null;
+    }
+
+    /**
+     * The time without creating an {@link Instant}; only valid if the TrackPoint has a time (see {@link #getTime()}).
+     */
+    public long getTimeEpochMillis() {
+        return timeEpochSecond * 1000 + timeNano / 1000000;
     }
 
     public void setTime(Instant time) {
-        this.time = time;
+        setPresent(HAS_TIME, time != null);
+        if (time != null) {
+            this.timeEpochSecond = time.getEpochSecond();
+            this.timeNano = time.getNano();
+        }
+    }
+
+    /**
+     * Sets the time without creating an {@link Instant}.
+     */
+    public void setTime_ms(long time_ms) {
+        this.timeEpochSecond = Math.floorDiv(time_ms, 1000);
+        this.timeNano = (int) Math.floorMod(time_ms, 1000) * 1000000;
+        setPresent(HAS_TIME, true);
     }
 
     public boolean isRecent() {
         return Instant.now()
-                .isBefore(time.plus(MAX_LOCATION_AGE));
+                .isBefore(getTime().plus(MAX_LOCATION_AGE));
     }
 
 
     public boolean hasAltitude() {
-        return altitude_m != null;
+        return has(HAS_ALTITUDE);
     }
 
     public double getAltitude() {
@@ -269,18 +361,27 @@ public class TrackPoint {
 
     public void setAltitude(double altitude) {
         this.altitude_m = altitude;
+        setPresent(HAS_ALTITUDE, true);
     }
 
     public boolean hasSpeed() {
-        return speed_mps != null;
+        return has(HAS_SPEED);
     }
 
     public float getSpeed() {
         return speed_mps;
     }
 
-    public void setSpeed(Float speed) {
+    public void setSpeed(float speed) {
         this.speed_mps = speed;
+        setPresent(HAS_SPEED, true);
+    }
+
+    public void setSpeed(Float speed) {
+        setPresent(HAS_SPEED, speed != null);
+        if (speed != null) {
+            this.speed_mps = speed;
+        }
     }
 
     public boolean isMoving() {
@@ -288,19 +389,27 @@ public class TrackPoint {
     }
 
     public boolean hasBearing() {
-        return bearing != null;
+        return has(HAS_BEARING);
     }
 
     public float getBearing() {
         return bearing;
     }
 
-    public void setBearing(Float bearing) {
+    public void setBearing(float bearing) {
         this.bearing = bearing;
+        setPresent(HAS_BEARING, true);
+    }
+
+    public void setBearing(Float bearing) {
+        setPresent(HAS_BEARING, bearing != null);
+        if (bearing != null) {
+            this.bearing = bearing;
+        }
     }
 
     public boolean hasAccuracy() {
-        return accuracy != null;
+        return has(HAS_ACCURACY);
     }
 
     public float getAccuracy() {
@@ -309,6 +418,7 @@ public class TrackPoint {
 
     public void setAccuracy(float horizontalAccuracy) {
         this.accuracy = horizontalAccuracy;
+        setPresent(HAS_ACCURACY, true);
     }
 
     public float distanceToPrevious(@NonNull TrackPoint previous) {
@@ -333,15 +443,23 @@ public class TrackPoint {
 
     // Sensor data
     public boolean hasSensorDistance() {
-        return sensorDistance_m != null;
+        return has(HAS_SENSOR_DISTANCE);
     }
 
-    public Float getSensorDistance() {
+    public float getSensorDistance() {
         return sensorDistance_m;
     }
 
-    public void setSensorDistance(Float distance_m) {
+    public void setSensorDistance(float distance_m) {
         this.sensorDistance_m = distance_m;
+        setPresent(HAS_SENSOR_DISTANCE, true);
+    }
+
+    public void setSensorDistance(Float distance_m) {
+        setPresent(HAS_SENSOR_DISTANCE, distance_m != null);
+        if (distance_m != null) {
+            this.sensorDistance_m = distance_m;
+        }
     }
 
     public boolean hasSensorData() {
@@ -349,39 +467,63 @@ public class TrackPoint {
     }
 
     public boolean hasHeartRate() {
-        return heartRate_bpm != null && heartRate_bpm > 0;
+        return has(HAS_HEART_RATE) && heartRate_bpm > 0;
     }
 
     public float getHeartRate_bpm() {
         return heartRate_bpm;
     }
 
-    public void setHeartRate_bpm(Float heartRate_bpm) {
+    public void setHeartRate_bpm(float heartRate_bpm) {
         this.heartRate_bpm = heartRate_bpm;
+        setPresent(HAS_HEART_RATE, true);
+    }
+
+    public void setHeartRate_bpm(Float heartRate_bpm) {
+        setPresent(HAS_HEART_RATE, heartRate_bpm != null);
+        if (heartRate_bpm != null) {
+            this.heartRate_bpm = heartRate_bpm;
+        }
     }
 
     public boolean hasCyclingCadence() {
-        return cyclingCadence_rpm != null;
+        return has(HAS_CYCLING_CADENCE);
     }
 
     public float getCyclingCadence_rpm() {
         return cyclingCadence_rpm;
     }
 
-    public void setCyclingCadence_rpm(Float cyclingCadence_rpm) {
+    public void setCyclingCadence_rpm(float cyclingCadence_rpm) {
         this.cyclingCadence_rpm = cyclingCadence_rpm;
+        setPresent(HAS_CYCLING_CADENCE, true);
+    }
+
+    public void setCyclingCadence_rpm(Float cyclingCadence_rpm) {
+        setPresent(HAS_CYCLING_CADENCE, cyclingCadence_rpm != null);
+        if (cyclingCadence_rpm != null) {
+            this.cyclingCadence_rpm = cyclingCadence_rpm;
+        }
     }
 
     public boolean hasPower() {
-        return power != null;
+        return has(HAS_POWER);
     }
 
     public float getPower() {
         return power;
     }
 
-    public void setPower(Float power) {
+    public void setPower(float power) {
         this.power = power;
+        setPresent(HAS_POWER, true);
+    }
+
+    public void setPower(Float power) {
+        setPresent(HAS_POWER, power != null);
+        if (power != null) {
+            this.power = power;
+        }
     }
 
     @NonNull
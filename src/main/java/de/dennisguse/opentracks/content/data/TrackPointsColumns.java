@@ -82,5 +82,10 @@ public interface TrackPointsColumns extends BaseColumns {
             + "FOREIGN KEY (" + TRACKID + ") REFERENCES " + TracksColumns.TABLE_NAME + "(" + TracksColumns._ID + ") ON UPDATE CASCADE ON DELETE CASCADE"
             + ")";
 
-    String CREATE_TABLE_INDEX = "CREATE INDEX " + TABLE_NAME + "_" + TRACKID + "_index ON " + TABLE_NAME + "(" + TRACKID + ")";
+    // Reading a track (ordered by id) and MAX(_id) of a track
+    String CREATE_TABLE_INDEX = "CREATE INDEX " + TABLE_NAME + "_" + TRACKID + "_id_index ON " + TABLE_NAME + "(" + TRACKID + ", " + _ID + ")";
+    // Last TrackPoint of a track with a certain type (e.g., last valid TrackPoint)
+    String CREATE_TABLE_INDEX_TYPE = "CREATE INDEX " + TABLE_NAME + "_" + TRACKID + "_" + TYPE + "_id_index ON " + TABLE_NAME + "(" + TRACKID + ", " + TYPE + ", " + _ID + ")";
+    // TrackPoint of a track by time (e.g., for a location)
+    String CREATE_TABLE_INDEX_TIME = "CREATE INDEX " + TABLE_NAME + "_" + TRACKID + "_" + TIME + "_index ON " + TABLE_NAME + "(" + TRACKID + ", " + TIME + ")";
 }
@@ -58,6 +58,14 @@ public interface TracksColumns extends BaseColumns {
     String ALTITUDE_LOSS = "elevationloss"; // altitude loss //TODO RENAME column
     String ICON = "icon"; // track activity type icon
 
+    String SENSOR_MAX_HEARTRATE = "sensor_max_heartrate"; // maximum heart rate
+    String SENSOR_AVG_HEARTRATE = "sensor_avg_heartrate"; // average heart rate (duration-based)
+    String SENSOR_MAX_CADENCE = "sensor_max_cadence"; // maximum cadence
+    String SENSOR_AVG_CADENCE = "sensor_avg_cadence"; // average cadence (duration-based)
+    String SENSOR_AVG_POWER = "sensor_avg_power"; // average power (duration-based)
+
+    String IMPORTING = "importing"; // not null while the track is being imported (hidden from queries)
+
     String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " ("
             + _ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
             + NAME + " TEXT, "
@@ -77,7 +85,13 @@ public interface TracksColumns extends BaseColumns {
             + ALTITUDE_GAIN + " FLOAT, "
             + ICON + " TEXT, "
             + UUID + " BLOB, "
-            + ALTITUDE_LOSS + " FLOAT)";
+            + ALTITUDE_LOSS + " FLOAT, "
+            + SENSOR_MAX_HEARTRATE + " FLOAT, "
+            + SENSOR_AVG_HEARTRATE + " FLOAT, "
+            + SENSOR_MAX_CADENCE + " FLOAT, "
+            + SENSOR_AVG_CADENCE + " FLOAT, "
+            + SENSOR_AVG_POWER + " FLOAT, "
+            + IMPORTING + " INTEGER)";
 
     String CREATE_TABLE_INDEX = "CREATE UNIQUE INDEX " + TABLE_NAME + "_" + UUID + "_index ON " + TABLE_NAME + "(" + UUID + ")";
 
@@ -0,0 +1,90 @@
+package de.dennisguse.opentracks.content.provider;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.dennisguse.opentracks.content.data.MarkerColumns;
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPointsColumns;
+import de.dennisguse.opentracks.content.data.TracksColumns;
+
+/**
+ * Collects the changes of write operations and notifies them merged: one notification per URI and for inserted TrackPoints one notification per track containing the id range.
+ */
+class ContentChanges {
+
+    private final Set<Uri> uris = new LinkedHashSet<>();
+
+    // Track id -> [first, last] id of the inserted TrackPoints
+    private final Map<Long, long[]> trackPointRanges = new LinkedHashMap<>();
+
+    void add(@NonNull Uri uri) {
+        uris.add(uri);
+    }
+
+    void addTrackPoints(long trackId, long firstTrackPointId, long lastTrackPointId) {
+        long[] range = trackPointRanges.get(trackId);
+        if (range == null) {
+            trackPointRanges.put(trackId, new long[]{firstTrackPointId, lastTrackPointId});
+        } else {
+            range[0] = Math.min(range[0], firstTrackPointId);
+            range[1] = Math.max(range[1], lastTrackPointId);
+        }
+    }
+
+    void addAll(@NonNull ContentChanges changes) {
+        uris.addAll(changes.uris);
+        for (Map.Entry<Long, long[]> entry : changes.trackPointRanges.entrySet()) {
+            addTrackPoints(entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+        }
+    }
+
+    /**
+     * @return the ids of the changed tracks (incl. their TrackPoints and markers); null if the changes may affect any track (e.g., changes of all tracks).
+     */
+    @Nullable
+    Set<Long> getTrackIds() {
+        Set<Long> trackIds = new HashSet<>(trackPointRanges.keySet());
+        for (Uri uri : uris) {
+            if (!isTrackUri(uri, TracksColumns.CONTENT_URI) && !isTrackUri(uri, TrackPointsColumns.CONTENT_URI_BY_TRACKID) && !isTrackUri(uri, MarkerColumns.CONTENT_URI_BY_TRACKID)) {
+                return null;
+            }
+            try {
+                for (String trackId : ContentProviderUtils.parseTrackIdsFromUri(uri)) {
+                    trackIds.add(Long.parseLong(trackId));
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return trackIds;
+    }
+
+    /**
+     * @return true if the uri is baseUri followed by track ids.
+     */
+    private static boolean isTrackUri(@NonNull Uri uri, @NonNull Uri baseUri) {
+        List<String> pathSegments = uri.getPathSegments();
+        List<String> basePathSegments = baseUri.getPathSegments();
+        return pathSegments.size() == basePathSegments.size() + 1 && pathSegments.subList(0, basePathSegments.size()).equals(basePathSegments);
+    }
+
+    void notifyChange(@NonNull ContentResolver contentResolver) {
+        for (Uri uri : uris) {
+            contentResolver.notifyChange(uri, null, false);
+        }
+        for (Map.Entry<Long, long[]> entry : trackPointRanges.entrySet()) {
+            contentResolver.notifyChange(ContentProviderUtils.getTrackPointsUri(new Track.Id(entry.getKey()), entry.getValue()[0], entry.getValue()[1]), null, false);
+        }
+    }
+}
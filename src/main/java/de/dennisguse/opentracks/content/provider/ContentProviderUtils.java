@@ -16,13 +16,20 @@
 
 package de.dennisguse.opentracks.content.provider;
 
+import android.content.ContentProvider;
+import android.content.ContentProviderClient;
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
 import android.location.Location;
 import android.net.Uri;
+import android.os.Build;
+import android.os.RemoteException;
 import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
@@ -46,6 +53,7 @@ import de.dennisguse.opentracks.content.data.TrackPoint;
 import de.dennisguse.opentracks.content.data.TrackPointsColumns;
 import de.dennisguse.opentracks.content.data.TracksColumns;
 import de.dennisguse.opentracks.stats.SensorStatistics;
+import de.dennisguse.opentracks.stats.SensorStatisticsUpdater;
 import de.dennisguse.opentracks.stats.TrackStatistics;
 import de.dennisguse.opentracks.util.FileUtils;
 import de.dennisguse.opentracks.util.UUIDUtils;
@@ -69,6 +77,28 @@ public class ContentProviderUtils {
 
     private static final String ID_SEPARATOR = ",";
 
+    // Query parameters of TrackPoints change notifications: the id range of the inserted TrackPoints.
+    private static final String CHANGE_FIRST_ID = "first";
+    private static final String CHANGE_LAST_ID = "last";
+    // Query parameter of markers change notifications: the id of the changed marker.
+    private static final String CHANGE_MARKER_ID = "marker";
+
+    // Window functions (e.g., LEAD()) are available since SQLite 3.25 (Android API 30).
+    @VisibleForTesting
+    static final boolean SQLITE_SUPPORTS_WINDOW_FUNCTIONS = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+
+    // Selections of the frequently used trackpoint queries; each is supported by an index (see TrackPointsColumns).
+    @VisibleForTesting
+    static final String SELECTION_TRACKPOINTS_BY_TRACKID = TrackPointsColumns.TRACKID + "=?";
+    @VisibleForTesting
+    static final String SELECTION_TRACKPOINTS_BY_TRACKID_FROM_ID = TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns._ID + ">=?";
+    @VisibleForTesting
+    static final String SELECTION_LAST_TRACKPOINT = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") from " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=?)";
+    @VisibleForTesting
+    static final String SELECTION_LAST_TRACKPOINT_BY_TIME = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns.TIME + "=?)";
+    @VisibleForTesting
+    static final String SELECTION_LAST_VALID_TRACKPOINT = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns.TYPE + " IN (" + TrackPoint.Type.SEGMENT_START_AUTOMATIC.type_db + "," + TrackPoint.Type.TRACKPOINT.type_db + "))";
+
     private final ContentResolver contentResolver;
 
     public ContentProviderUtils(Context context) {
@@ -102,6 +132,11 @@ public class ContentProviderUtils {
         int altitudeGainIndex = cursor.getColumnIndexOrThrow(TracksColumns.ALTITUDE_GAIN);
         int altitudeLossIndex = cursor.getColumnIndexOrThrow(TracksColumns.ALTITUDE_LOSS);
         int iconIndex = cursor.getColumnIndexOrThrow(TracksColumns.ICON);
+        int maxHeartRateIndex = cursor.getColumnIndexOrThrow(TracksColumns.SENSOR_MAX_HEARTRATE);
+        int avgHeartRateIndex = cursor.getColumnIndexOrThrow(TracksColumns.SENSOR_AVG_HEARTRATE);
+        int maxCadenceIndex = cursor.getColumnIndexOrThrow(TracksColumns.SENSOR_MAX_CADENCE);
+        int avgCadenceIndex = cursor.getColumnIndexOrThrow(TracksColumns.SENSOR_AVG_CADENCE);
+        int avgPowerIndex = cursor.getColumnIndexOrThrow(TracksColumns.SENSOR_AVG_POWER);
 
         Track track = new Track();
         TrackStatistics trackStatistics = track.getTrackStatistics();
@@ -153,6 +188,13 @@ public class ContentProviderUtils {
         if (!cursor.isNull(iconIndex)) {
             track.setIcon(cursor.getString(iconIndex));
         }
+        trackStatistics.setSensorStatistics(new SensorStatistics(
+                !cursor.isNull(maxHeartRateIndex) ? cursor.getFloat(maxHeartRateIndex) : null,
+                !cursor.isNull(avgHeartRateIndex) ? cursor.getFloat(avgHeartRateIndex) : null,
+                !cursor.isNull(maxCadenceIndex) ? cursor.getFloat(maxCadenceIndex) : null,
+                !cursor.isNull(avgCadenceIndex) ? cursor.getFloat(avgCadenceIndex) : null,
+                !cursor.isNull(avgPowerIndex) ? cursor.getFloat(avgPowerIndex) : null
+        ));
         return track;
     }
 
@@ -165,12 +207,14 @@ public class ContentProviderUtils {
 
         File dir = FileUtils.getPhotoDir(context);
         FileUtils.deleteDirectoryRecurse(dir);
+        FileUtils.deleteDirectoryRecurse(FileUtils.getSensorSampleDir(context));
     }
 
     public void deleteTracks(Context context, @NonNull List<Track.Id> trackIds) {
         // Delete track folder resources.
         for (Track.Id trackId : trackIds) {
             FileUtils.deleteDirectoryRecurse(FileUtils.getPhotoDir(context, trackId));
+            FileUtils.deleteDirectoryRecurse(FileUtils.getSensorSampleFile(context, trackId));
         }
 
         // Delete track last since it triggers a database vacuum call
@@ -181,6 +225,7 @@ public class ContentProviderUtils {
     public void deleteTrack(Context context, @NonNull Track.Id trackId) {
         // Delete track folder resources.
         FileUtils.deleteDirectoryRecurse(FileUtils.getPhotoDir(context, trackId));
+        FileUtils.deleteDirectoryRecurse(FileUtils.getSensorSampleFile(context, trackId));
 
         // Delete track last since it triggers a database vacuum call
         contentResolver.delete(TracksColumns.CONTENT_URI, TracksColumns._ID + "=?", new String[]{Long.toString(trackId.getId())});
@@ -251,6 +296,20 @@ public class ContentProviderUtils {
         return contentResolver.insert(TracksColumns.CONTENT_URI, createContentValues(track));
     }
 
+    /**
+     * Inserts a track that is hidden from queries until {@link #updateTrack(Track)} is called.
+     * Such tracks are deleted on the next start if not updated (e.g., the import was interrupted).
+     * NOTE: This doesn't insert any trackPoints.
+     *
+     * @param track the track
+     * @return the content provider URI of the inserted track.
+     */
+    public Uri insertImportingTrack(Track track) {
+        ContentValues values = createContentValues(track);
+        values.put(TracksColumns.IMPORTING, 1);
+        return contentResolver.insert(TracksColumns.CONTENT_URI, values);
+    }
+
     /**
      * Updates a track.
      * NOTE: This doesn't update any trackPoints.
@@ -258,12 +317,24 @@ public class ContentProviderUtils {
      * @param track the track
      */
     public void updateTrack(Track track) {
-        contentResolver.update(TracksColumns.CONTENT_URI, createContentValues(track), TracksColumns._ID + "=?", new String[]{Long.toString(track.getId().getId())});
+        contentResolver.update(getTrackUri(track.getId()), createContentValues(track), null, null);
+    }
+
+    /**
+     * Updates only the statistics of a track.
+     * In contrast to {@link #updateTrack(Track)} other data (e.g., name or category) is not overwritten.
+     *
+     * @param trackId         the track id
+     * @param trackStatistics the trackStatistics
+     */
+    public void updateTrackStatistics(@NonNull Track.Id trackId, @NonNull TrackStatistics trackStatistics) {
+        ContentValues values = new ContentValues();
+        putTrackStatistics(values, trackStatistics);
+        contentResolver.update(getTrackUri(trackId), values, null, null);
     }
 
     private ContentValues createContentValues(Track track) {
         ContentValues values = new ContentValues();
-        TrackStatistics trackStatistics = track.getTrackStatistics();
 
         if (track.getId() != null) {
             values.put(TracksColumns._ID, track.getId().getId());
@@ -272,6 +343,14 @@ public class ContentProviderUtils {
         values.put(TracksColumns.NAME, track.getName());
         values.put(TracksColumns.DESCRIPTION, track.getDescription());
         values.put(TracksColumns.CATEGORY, track.getCategory());
+        putTrackStatistics(values, track.getTrackStatistics());
+        values.put(TracksColumns.ICON, track.getIcon());
+        values.putNull(TracksColumns.IMPORTING);
+
+        return values;
+    }
+
+    private static void putTrackStatistics(ContentValues values, TrackStatistics trackStatistics) {
         if (trackStatistics.getStartTime() != null) {
             values.put(TracksColumns.STARTTIME, trackStatistics.getStartTime().toEpochMilli());
         }
@@ -288,9 +367,16 @@ public class ContentProviderUtils {
         values.put(TracksColumns.MAX_ALTITUDE, trackStatistics.getMaxAltitude());
         values.put(TracksColumns.ALTITUDE_GAIN, trackStatistics.getTotalAltitudeGain());
         values.put(TracksColumns.ALTITUDE_LOSS, trackStatistics.getTotalAltitudeLoss());
-        values.put(TracksColumns.ICON, track.getIcon());
 
-        return values;
+        SensorStatistics sensorStatistics = trackStatistics.getSensorStatistics();
+        boolean hasHeartRate = sensorStatistics != null && sensorStatistics.hasHeartRate();
+        boolean hasCadence = sensorStatistics != null && sensorStatistics.hasCadence();
+        boolean hasPower = sensorStatistics != null && sensorStatistics.hasPower();
+        values.put(TracksColumns.SENSOR_MAX_HEARTRATE, hasHeartRate ? sensorStatistics.getMaxHeartRate() : null);
+        values.put(TracksColumns.SENSOR_AVG_HEARTRATE, hasHeartRate ? sensorStatistics.getAvgHeartRate() : null);
+        values.put(TracksColumns.SENSOR_MAX_CADENCE, hasCadence ? sensorStatistics.getMaxCadence() : null);
+        values.put(TracksColumns.SENSOR_AVG_CADENCE, hasCadence ? sensorStatistics.getAvgCadence() : null);
+        values.put(TracksColumns.SENSOR_AVG_POWER, hasPower ? sensorStatistics.getAvgPower() : null);
     }
 
     public Marker createMarker(Cursor cursor) {
@@ -358,7 +444,7 @@ public class ContentProviderUtils {
     public void deleteMarker(Context context, Marker.Id markerId) {
         final Marker marker = getMarker(markerId);
         deleteMarkerPhoto(context, marker);
-        contentResolver.delete(MarkerColumns.CONTENT_URI, MarkerColumns._ID + "=?", new String[]{Long.toString(markerId.getId())});
+        contentResolver.delete(ContentUris.withAppendedId(MarkerColumns.CONTENT_URI, markerId.getId()), null, null);
     }
 
     /**
@@ -465,7 +551,7 @@ public class ContentProviderUtils {
         if (!updateMarker.hasPhoto()) {
             deleteMarkerPhoto(context, savedMarker);
         }
-        int rows = contentResolver.update(MarkerColumns.CONTENT_URI, createContentValues(updateMarker), MarkerColumns._ID + "=?", new String[]{Long.toString(updateMarker.getId().getId())});
+        int rows = contentResolver.update(ContentUris.withAppendedId(MarkerColumns.CONTENT_URI, updateMarker.getId().getId()), createContentValues(updateMarker), null, null);
         return rows == 1;
     }
 
@@ -524,7 +610,14 @@ public class ContentProviderUtils {
      * @param indexes the cached trackPoints indexes
      */
     static TrackPoint fillTrackPoint(Cursor cursor, CachedTrackPointsIndexes indexes) {
-        TrackPoint trackPoint = new TrackPoint(TrackPoint.Type.getById(cursor.getInt(indexes.typeIndex)));
+        return fillTrackPoint(cursor, indexes, new TrackPoint(TrackPoint.Type.TRACKPOINT));
+    }
+
+    /**
+     * Fills the given trackPoint with the values of the cursor's current row (existing values are removed).
+     */
+    static TrackPoint fillTrackPoint(Cursor cursor, CachedTrackPointsIndexes indexes, @NonNull TrackPoint trackPoint) {
+        trackPoint.reset(TrackPoint.Type.getById(cursor.getInt(indexes.typeIndex)));
         trackPoint.setId(new TrackPoint.Id(cursor.getInt(indexes.idIndex)));
 
         if (!cursor.isNull(indexes.longitudeIndex)) {
@@ -534,7 +627,7 @@ public class ContentProviderUtils {
             trackPoint.setLatitude(((double) cursor.getInt(indexes.latitudeIndex)) / 1E6);
         }
         if (!cursor.isNull(indexes.timeIndex)) {
-            trackPoint.setTime(Instant.ofEpochMilli(cursor.getLong(indexes.timeIndex)));
+            trackPoint.setTime_ms(cursor.getLong(indexes.timeIndex));
         }
         if (!cursor.isNull(indexes.altitudeIndex)) {
             trackPoint.setAltitude(cursor.getFloat(indexes.altitudeIndex));
@@ -574,6 +667,15 @@ public class ContentProviderUtils {
 
     //TODO Only used for file import; might be better to replace it.
     public int bulkInsertTrackPoint(List<TrackPoint> trackPoints, Track.Id trackId) {
+        Integer inserted = insertTrackPointsDirectly(trackPoints, trackId, null);
+        if (inserted != null) {
+            return inserted;
+        }
+        return bulkInsertTrackPointWithContentValues(trackPoints, trackId);
+    }
+
+    @VisibleForTesting
+    int bulkInsertTrackPointWithContentValues(List<TrackPoint> trackPoints, Track.Id trackId) {
         ContentValues[] values = new ContentValues[trackPoints.size()];
         for (int i = 0; i < trackPoints.size(); i++) {
             values[i] = createContentValues(trackPoints.get(i), trackId);
@@ -589,9 +691,8 @@ public class ContentProviderUtils {
      */
     @Deprecated
     public TrackPoint.Id getLastTrackPointId(@NonNull Track.Id trackId) {
-        String selection = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") from " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=?)";
         String[] selectionArgs = new String[]{Long.toString(trackId.getId())};
-        try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, selection, selectionArgs, TrackPointsColumns._ID)) {
+        try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, SELECTION_LAST_TRACKPOINT, selectionArgs, TrackPointsColumns._ID)) {
             if (cursor != null && cursor.moveToFirst()) {
                 return new TrackPoint.Id(cursor.getLong(cursor.getColumnIndexOrThrow(TrackPointsColumns._ID)));
             }
@@ -607,9 +708,8 @@ public class ContentProviderUtils {
      * @return trackPoint id if the location is in the track. -1L otherwise.
      */
     public TrackPoint.Id getTrackPointId(Track.Id trackId, Location location) {
-        String selection = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns.TIME + "=?)";
         String[] selectionArgs = new String[]{Long.toString(trackId.getId()), Long.toString(location.getTime())};
-        try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, selection, selectionArgs, TrackPointsColumns._ID)) {
+        try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, SELECTION_LAST_TRACKPOINT_BY_TIME, selectionArgs, TrackPointsColumns._ID)) {
             if (cursor != null && cursor.moveToFirst()) {
                 return new TrackPoint.Id(cursor.getLong(cursor.getColumnIndexOrThrow(TrackPointsColumns._ID)));
             }
@@ -637,10 +737,10 @@ public class ContentProviderUtils {
         String selection;
         String[] selectionArgs;
         if (startTrackPointId != null) {
-            selection = TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns._ID + ">=?";
+            selection = SELECTION_TRACKPOINTS_BY_TRACKID_FROM_ID;
             selectionArgs = new String[]{Long.toString(trackId.getId()), Long.toString(startTrackPointId.getId())};
         } else {
-            selection = TrackPointsColumns.TRACKID + "=?";
+            selection = SELECTION_TRACKPOINTS_BY_TRACKID;
             selectionArgs = new String[]{Long.toString(trackId.getId())};
         }
 
@@ -655,9 +755,8 @@ public class ContentProviderUtils {
      */
     @Deprecated
     public TrackPoint getLastValidTrackPoint(Track.Id trackId) {
-        String selection = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns.TYPE + " IN (" + TrackPoint.Type.SEGMENT_START_AUTOMATIC.type_db + "," + TrackPoint.Type.TRACKPOINT.type_db + "))";
         String[] selectionArgs = new String[]{Long.toString(trackId.getId())};
-        return findTrackPointBy(selection, selectionArgs);
+        return findTrackPointBy(SELECTION_LAST_VALID_TRACKPOINT, selectionArgs);
     }
 
     /**
@@ -671,6 +770,72 @@ public class ContentProviderUtils {
         return contentResolver.insert(TrackPointsColumns.CONTENT_URI_BY_ID, createContentValues(trackPoint, trackId));
     }
 
+    /**
+     * Inserts trackPoints and updates the statistics of the track in one database transaction.
+     * Either all changes are stored or none.
+     *
+     * @param trackPoints     the trackPoints
+     * @param trackId         the track id
+     * @param trackStatistics the trackStatistics (including the trackPoints)
+     * @throws SQLiteException if the changes could not be stored
+     */
+    public void insertTrackPoints(@NonNull List<TrackPoint> trackPoints, @NonNull Track.Id trackId, @NonNull TrackStatistics trackStatistics) {
+        if (insertTrackPointsDirectly(trackPoints, trackId, trackStatistics) != null) {
+            return;
+        }
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(trackPoints.size() + 1);
+        for (TrackPoint trackPoint : trackPoints) {
+            operations.add(ContentProviderOperation.newInsert(TrackPointsColumns.CONTENT_URI_BY_ID)
+                    .withValues(createContentValues(trackPoint, trackId))
+                    .build());
+        }
+
+        ContentValues trackStatisticsValues = new ContentValues();
+        putTrackStatistics(trackStatisticsValues, trackStatistics);
+        operations.add(ContentProviderOperation.newUpdate(getTrackUri(trackId))
+                .withValues(trackStatisticsValues)
+                .build());
+
+        try {
+            contentResolver.applyBatch(AUTHORITY_PACKAGE, operations);
+        } catch (RemoteException | OperationApplicationException e) {
+            throw new SQLiteException("Could not insert trackPoints for track " + trackId.getId(), e);
+        }
+    }
+
+    /**
+     * Inserts trackPoints via {@link CustomContentProvider#insertTrackPoints(List, Track.Id, ContentValues)} if it runs in this process.
+     * This avoids creating {@link ContentValues} for every trackPoint; the ContentResolver is only used for other ContentProviders (e.g., in tests).
+     *
+     * @param trackStatistics the trackStatistics to be stored as well; null to ignore
+     * @return the number of inserted trackPoints or null if the ContentProvider is not available in this process
+     * @throws SQLiteException if the changes could not be stored
+     */
+    @Nullable
+    private Integer insertTrackPointsDirectly(@NonNull List<TrackPoint> trackPoints, @NonNull Track.Id trackId, @Nullable TrackStatistics trackStatistics) {
+        ContentProviderClient contentProviderClient = contentResolver.acquireContentProviderClient(AUTHORITY_PACKAGE);
+        if (contentProviderClient == null) {
+            return null;
+        }
+
+        try {
+            ContentProvider contentProvider = contentProviderClient.getLocalContentProvider();
+            if (!(contentProvider instanceof CustomContentProvider)) {
+                return null;
+            }
+
+            ContentValues trackValues = null;
+            if (trackStatistics != null) {
+                trackValues = new ContentValues();
+                putTrackStatistics(trackValues, trackStatistics);
+            }
+            return ((CustomContentProvider) contentProvider).insertTrackPoints(trackPoints, trackId, trackValues);
+        } finally {
+            contentProviderClient.release();
+        }
+    }
+
     /**
      * Creates the {@link ContentValues} for a {@link TrackPoint}.
      *
@@ -788,7 +953,104 @@ public class ContentProviderUtils {
         return TextUtils.split(url.getLastPathSegment(), ID_SEPARATOR);
     }
 
+    /**
+     * URI notified if the track was changed (changes of all tracks are notified via {@link TracksColumns#CONTENT_URI}).
+     */
+    public static Uri getTrackUri(@NonNull Track.Id trackId) {
+        return ContentUris.withAppendedId(TracksColumns.CONTENT_URI, trackId.getId());
+    }
+
+    /**
+     * URI notified if TrackPoints of the track were inserted; see {@link #getTrackPointsUri(Track.Id, long, long)}.
+     */
+    public static Uri getTrackPointsUri(@NonNull Track.Id trackId) {
+        return ContentUris.withAppendedId(TrackPointsColumns.CONTENT_URI_BY_TRACKID, trackId.getId());
+    }
+
+    /**
+     * URI notified if TrackPoints of the track were inserted; contains the range of the inserted TrackPoint ids as query parameters.
+     */
+    static Uri getTrackPointsUri(@NonNull Track.Id trackId, long firstTrackPointId, long lastTrackPointId) {
+        return getTrackPointsUri(trackId).buildUpon()
+                .appendQueryParameter(CHANGE_FIRST_ID, Long.toString(firstTrackPointId))
+                .appendQueryParameter(CHANGE_LAST_ID, Long.toString(lastTrackPointId))
+                .build();
+    }
+
+    /**
+     * @return the id of the last inserted TrackPoint of a TrackPoints change notification; null if unknown (e.g., TrackPoints were deleted).
+     */
+    @Nullable
+    public static TrackPoint.Id parseLastTrackPointIdFromChange(@Nullable Uri uri) {
+        String lastId = uri != null ? uri.getQueryParameter(CHANGE_LAST_ID) : null;
+        if (lastId == null) {
+            return null;
+        }
+        try {
+            return new TrackPoint.Id(Long.parseLong(lastId));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * URI notified if markers of the track were inserted, updated, or deleted; see {@link #getMarkersUri(Track.Id, Marker.Id)}.
+     * Changes of several markers (e.g., deleting all) are notified via {@link MarkerColumns#CONTENT_URI}.
+     */
+    public static Uri getMarkersUri(@NonNull Track.Id trackId) {
+        return ContentUris.withAppendedId(MarkerColumns.CONTENT_URI_BY_TRACKID, trackId.getId());
+    }
+
+    /**
+     * URI notified if a marker of the track was inserted, updated, or deleted; contains the marker id as query parameter.
+     */
+    static Uri getMarkersUri(@NonNull Track.Id trackId, @NonNull Marker.Id markerId) {
+        return getMarkersUri(trackId).buildUpon()
+                .appendQueryParameter(CHANGE_MARKER_ID, Long.toString(markerId.getId()))
+                .build();
+    }
+
+    /**
+     * @return the id of the changed marker of a markers change notification; null if unknown (e.g., several markers were changed).
+     */
+    @Nullable
+    public static Marker.Id parseMarkerIdFromChange(@Nullable Uri uri) {
+        String markerId = uri != null ? uri.getQueryParameter(CHANGE_MARKER_ID) : null;
+        if (markerId == null) {
+            return null;
+        }
+        try {
+            return new Marker.Id(Long.parseLong(markerId));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Computes the {@link SensorStatistics} of a track from its {@link TrackPoint}s.
+     * The stored statistics are available via {@link TrackStatistics#getSensorStatistics()}.
+     * Uses the window function query of {@link CustomContentProvider} if supported by the device's SQLite; otherwise computes them while iterating over all {@link TrackPoint}s.
+     */
     public SensorStatistics getSensorStats(@NonNull Track.Id trackId) {
+        if (SQLITE_SUPPORTS_WINDOW_FUNCTIONS) {
+            return querySensorStats(trackId);
+        }
+        return computeSensorStats(trackId);
+    }
+
+    @VisibleForTesting
+    SensorStatistics computeSensorStats(@NonNull Track.Id trackId) {
+        SensorStatisticsUpdater sensorStatisticsUpdater = new SensorStatisticsUpdater();
+        try (TrackPointIterator trackPointIterator = getTrackPointLocationIterator(trackId, null)) {
+            while (trackPointIterator.hasNext()) {
+                sensorStatisticsUpdater.addTrackPoint(trackPointIterator.next());
+            }
+        }
+        return sensorStatisticsUpdater.getSensorStatistics();
+    }
+
+    @VisibleForTesting
+    SensorStatistics querySensorStats(@NonNull Track.Id trackId) {
         SensorStatistics sensorStatistics = null;
         try (Cursor cursor = contentResolver.query(ContentUris.withAppendedId(TracksColumns.CONTENT_URI_SENSOR_STATS, trackId.getId()), null, null, null, null)) {
             if (cursor != null && cursor.moveToFirst()) {
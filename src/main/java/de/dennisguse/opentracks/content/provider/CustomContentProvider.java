@@ -17,25 +17,34 @@
 package de.dennisguse.opentracks.content.provider;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
 import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
+import de.dennisguse.opentracks.content.data.Marker;
 import de.dennisguse.opentracks.content.data.MarkerColumns;
+import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.data.TrackPoint;
 import de.dennisguse.opentracks.content.data.TrackPointsColumns;
 import de.dennisguse.opentracks.content.data.TracksColumns;
@@ -57,37 +66,59 @@ public class CustomContentProvider extends ContentProvider {
 
     private SQLiteDatabase db;
 
+    // Changes of the running applyBatch() of this thread; notified after its transaction.
+    private final ThreadLocal<ContentChanges> batchChanges = new ThreadLocal<>();
+
     /**
      * The string representing the query that compute sensor stats from trackpoints table.
      * It computes the average for heart rate, cadence, and power (duration-based average) and the maximum for heart rate and cadence.
      * Finally, it ignores manual pause (SEGMENT_START_MANUAL).
+     * <p>
+     * The duration of a trackpoint is taken from the next trackpoint using LEAD(), so the trackpoints are read only once.
+     * Requires window functions (SQLite 3.25, i.e., Android API 30); see {@link ContentProviderUtils#getSensorStats(de.dennisguse.opentracks.content.data.Track.Id)} for older devices.
      */
-    private final String SENSOR_STATS_QUERY =
-            "WITH time_select as " +
-                "(SELECT t1." + TrackPointsColumns.TIME + " * (t1." + TrackPointsColumns.TYPE + " NOT IN (" + TrackPoint.Type.SEGMENT_START_MANUAL.type_db + ")) time_value " +
-                "FROM " + TrackPointsColumns.TABLE_NAME + " t1 " +
-                "WHERE t1." + TrackPointsColumns._ID + " > t." + TrackPointsColumns._ID + " AND t1." + TrackPointsColumns.TRACKID + " = ? ORDER BY _id LIMIT 1) " +
-
+    @VisibleForTesting
+    static final String SENSOR_STATS_QUERY =
             "SELECT " +
-                "SUM(t." + TrackPointsColumns.SENSOR_HEARTRATE + " * (COALESCE(MAX(t." + TrackPointsColumns.TIME + ", (SELECT time_value FROM time_select)), t." + TrackPointsColumns.TIME + ") - t." + TrackPointsColumns.TIME + ")) " +
-                "/ " +
-                "SUM(COALESCE(MAX(t." + TrackPointsColumns.TIME + ", (SELECT time_value FROM time_select)), t." + TrackPointsColumns.TIME + ") - t." + TrackPointsColumns.TIME + ") " + TrackPointsColumns.ALIAS_AVG_HR + ", " +
-
-                "MAX(t." + TrackPointsColumns.SENSOR_HEARTRATE + ") " + TrackPointsColumns.ALIAS_MAX_HR + ", " +
-
-                "SUM(t." + TrackPointsColumns.SENSOR_CADENCE + " * (COALESCE(MAX(t." + TrackPointsColumns.TIME + ", (SELECT time_value FROM time_select)), t." + TrackPointsColumns.TIME + ") - t." + TrackPointsColumns.TIME + ")) " +
-                "/ " +
-                "SUM(COALESCE(MAX(t." + TrackPointsColumns.TIME + ", (SELECT time_value FROM time_select)), t." + TrackPointsColumns.TIME + ") - t." + TrackPointsColumns.TIME + ") " + TrackPointsColumns.ALIAS_AVG_CADENCE + ", " +
-
-                "MAX(t." + TrackPointsColumns.SENSOR_CADENCE + ") " + TrackPointsColumns.ALIAS_MAX_CADENCE + ", " +
-
-                "SUM(t." + TrackPointsColumns.SENSOR_POWER + " * (COALESCE(MAX(t." + TrackPointsColumns.TIME + ", (SELECT time_value FROM time_select)), t." + TrackPointsColumns.TIME + ") - t." + TrackPointsColumns.TIME + ")) " +
-                "/ " +
-                "SUM(COALESCE(MAX(t." + TrackPointsColumns.TIME + ", (SELECT time_value FROM time_select)), t." + TrackPointsColumns.TIME + ") - t." + TrackPointsColumns.TIME + ") " + TrackPointsColumns.ALIAS_AVG_POWER + " " +
-
-            "FROM " + TrackPointsColumns.TABLE_NAME + " t " +
-            "WHERE t." + TrackPointsColumns.TRACKID + " = ? " +
-            "AND t." + TrackPointsColumns.TYPE + " NOT IN (" + TrackPoint.Type.SEGMENT_START_MANUAL.type_db + ")";
+                "SUM(" + TrackPointsColumns.SENSOR_HEARTRATE + " * duration) / SUM(duration) " + TrackPointsColumns.ALIAS_AVG_HR + ", " +
+                "MAX(" + TrackPointsColumns.SENSOR_HEARTRATE + ") " + TrackPointsColumns.ALIAS_MAX_HR + ", " +
+                "SUM(" + TrackPointsColumns.SENSOR_CADENCE + " * duration) / SUM(duration) " + TrackPointsColumns.ALIAS_AVG_CADENCE + ", " +
+                "MAX(" + TrackPointsColumns.SENSOR_CADENCE + ") " + TrackPointsColumns.ALIAS_MAX_CADENCE + ", " +
+                "SUM(" + TrackPointsColumns.SENSOR_POWER + " * duration) / SUM(duration) " + TrackPointsColumns.ALIAS_AVG_POWER + " " +
+
+            "FROM (" +
+                "SELECT " +
+                    TrackPointsColumns.SENSOR_HEARTRATE + ", " + TrackPointsColumns.SENSOR_CADENCE + ", " + TrackPointsColumns.SENSOR_POWER + ", " +
+                    "COALESCE(MAX(" + TrackPointsColumns.TIME + ", next_time_value), " + TrackPointsColumns.TIME + ") - " + TrackPointsColumns.TIME + " duration " +
+                "FROM (" +
+                    "SELECT " +
+                        TrackPointsColumns.SENSOR_HEARTRATE + ", " + TrackPointsColumns.SENSOR_CADENCE + ", " + TrackPointsColumns.SENSOR_POWER + ", " + TrackPointsColumns.TIME + ", " +
+                        "LEAD(" + TrackPointsColumns.TIME + " * (" + TrackPointsColumns.TYPE + " NOT IN (" + TrackPoint.Type.SEGMENT_START_MANUAL.type_db + "))) OVER (ORDER BY " + TrackPointsColumns._ID + ") next_time_value, " +
+                        TrackPointsColumns.TYPE + " IN (" + TrackPoint.Type.SEGMENT_START_MANUAL.type_db + ") is_manual_start " +
+                    "FROM " + TrackPointsColumns.TABLE_NAME + " " +
+                    "WHERE " + TrackPointsColumns.TRACKID + " = ?" +
+                ") " +
+                "WHERE NOT is_manual_start" +
+            ")";
+
+    private static final String INSERT_TRACKPOINT =
+            "INSERT INTO " + TrackPointsColumns.TABLE_NAME + " (" +
+                TrackPointsColumns.TRACKID + ", " +
+                TrackPointsColumns.TYPE + ", " +
+                TrackPointsColumns.LONGITUDE + ", " +
+                TrackPointsColumns.LATITUDE + ", " +
+                TrackPointsColumns.TIME + ", " +
+                TrackPointsColumns.ALTITUDE + ", " +
+                TrackPointsColumns.ACCURACY + ", " +
+                TrackPointsColumns.SPEED + ", " +
+                TrackPointsColumns.BEARING + ", " +
+                TrackPointsColumns.SENSOR_HEARTRATE + ", " +
+                TrackPointsColumns.SENSOR_CADENCE + ", " +
+                TrackPointsColumns.SENSOR_DISTANCE + ", " +
+                TrackPointsColumns.SENSOR_POWER + ", " +
+                TrackPointsColumns.ALTITUDE_GAIN + ", " +
+                TrackPointsColumns.ALTITUDE_LOSS +
+            ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
     public CustomContentProvider() {
         uriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
@@ -122,6 +153,8 @@ public class CustomContentProvider extends ContentProvider {
             db = databaseHelper.getWritableDatabase();
             // Necessary to enable cascade deletion from Track to TrackPoints and Markers
             db.setForeignKeyConstraintsEnabled(true);
+            // Imports that did not complete (e.g., process was killed); cascades to TrackPoints and Markers
+            db.delete(TracksColumns.TABLE_NAME, TracksColumns.IMPORTING + " IS NOT NULL", null);
         } catch (SQLiteException e) {
             Log.e(TAG, "Unable to open database for writing.", e);
         }
@@ -131,8 +164,10 @@ public class CustomContentProvider extends ContentProvider {
     @Override
     public int delete(@NonNull Uri url, String where, String[] selectionArgs) {
         String table;
+        String whereClause = where;
         boolean shouldVacuum = false;
-        switch (getUrlType(url)) {
+        UrlType urlType = getUrlType(url);
+        switch (urlType) {
             case TRACKPOINTS:
                 table = TrackPointsColumns.TABLE_NAME;
                 break;
@@ -143,20 +178,29 @@ public class CustomContentProvider extends ContentProvider {
             case MARKERS:
                 table = MarkerColumns.TABLE_NAME;
                 break;
+            case MARKERS_BY_ID:
+                table = MarkerColumns.TABLE_NAME;
+                whereClause = MarkerColumns._ID + "=" + ContentUris.parseId(url);
+                if (!TextUtils.isEmpty(where)) {
+                    whereClause += " AND (" + where + ")";
+                }
+                break;
             default:
                 throw new IllegalArgumentException("Unknown URL " + url);
         }
 
         Log.w(TAG, "Deleting table " + table);
         int count;
+        Uri changeUri;
         try {
             db.beginTransaction();
-            count = db.delete(table, where, selectionArgs);
+            changeUri = urlType == UrlType.MARKERS_BY_ID ? getMarkerChangeUri(url) : url;
+            count = db.delete(table, whereClause, selectionArgs);
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
+        notifyChange(changeUri);
 
         if (shouldVacuum) {
             // If a potentially large amount of data was deleted, reclaim its space.
@@ -194,20 +238,22 @@ public class CustomContentProvider extends ContentProvider {
             initialValues = new ContentValues();
         }
         Uri result;
+        ContentChanges changes = new ContentChanges();
         try {
             db.beginTransaction();
-            result = insertContentValues(url, getUrlType(url), initialValues);
+            result = insertContentValues(url, getUrlType(url), initialValues, changes);
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
+        notifyChanges(changes);
         return result;
     }
 
     @Override
     public int bulkInsert(@NonNull Uri url, @NonNull ContentValues[] valuesBulk) {
         int numInserted;
+        ContentChanges changes = new ContentChanges();
         try {
             // Use a transaction in order to make the insertions run as a single batch
             db.beginTransaction();
@@ -218,16 +264,127 @@ public class CustomContentProvider extends ContentProvider {
                 if (contentValues == null) {
                     contentValues = new ContentValues();
                 }
-                insertContentValues(url, urlType, contentValues);
+                insertContentValues(url, urlType, contentValues, changes);
             }
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
+        notifyChanges(changes);
         return numInserted;
     }
 
+    /**
+     * Applies all operations in one transaction: either all operations are applied or none.
+     * The changes are notified merged after the transaction.
+     */
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations) throws OperationApplicationException {
+        ContentProviderResult[] results;
+        ContentChanges changes = new ContentChanges();
+        batchChanges.set(changes);
+        try {
+            db.beginTransaction();
+            results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            batchChanges.remove();
+        }
+        notifyChanges(changes);
+        return results;
+    }
+
+    /**
+     * Inserts trackPoints (and updates the track) in one transaction: either all changes are stored or none.
+     * Binds the TrackPoints directly to a compiled statement, i.e., no {@link ContentValues} are created per TrackPoint.
+     * Only usable from within this process; see {@link ContentProviderUtils#insertTrackPoints}.
+     *
+     * @param trackPoints the trackPoints
+     * @param trackId     the track id
+     * @param trackValues the values to update the track with; null to ignore
+     * @return the number of inserted trackPoints
+     * @throws SQLiteException if the changes could not be stored
+     */
+    int insertTrackPoints(@NonNull List<TrackPoint> trackPoints, @NonNull Track.Id trackId, @Nullable ContentValues trackValues) {
+        ContentChanges changes = new ContentChanges();
+        try {
+            db.beginTransaction();
+            try (SQLiteStatement statement = db.compileStatement(INSERT_TRACKPOINT)) {
+                for (TrackPoint trackPoint : trackPoints) {
+                    bindTrackPoint(statement, trackPoint, trackId);
+                    long rowId = statement.executeInsert();
+                    if (rowId < 0) {
+                        throw new SQLiteException("Failed to insert a track point for track " + trackId.getId());
+                    }
+                    changes.addTrackPoints(trackId.getId(), rowId, rowId);
+                }
+            }
+            if (trackValues != null) {
+                db.update(TracksColumns.TABLE_NAME, trackValues, TracksColumns._ID + "=?", new String[]{Long.toString(trackId.getId())});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        if (trackValues != null) {
+            changes.add(ContentProviderUtils.getTrackUri(trackId));
+        }
+        notifyChanges(changes);
+        return trackPoints.size();
+    }
+
+    /**
+     * Binds a TrackPoint to {@link #INSERT_TRACKPOINT}; same values as {@link ContentProviderUtils}'s ContentValues for a TrackPoint.
+     */
+    private static void bindTrackPoint(SQLiteStatement statement, TrackPoint trackPoint, Track.Id trackId) {
+        // Missing values are NULL
+        statement.clearBindings();
+
+        statement.bindLong(1, trackId.getId());
+        statement.bindLong(2, trackPoint.getType().type_db);
+
+        if (trackPoint.hasLocation()) {
+            statement.bindLong(3, (int) (trackPoint.getLongitude() * 1E6));
+            statement.bindLong(4, (int) (trackPoint.getLatitude() * 1E6));
+        }
+        statement.bindLong(5, trackPoint.getTimeEpochMillis());
+        if (trackPoint.hasAltitude()) {
+            statement.bindDouble(6, trackPoint.getAltitude());
+        }
+        if (trackPoint.hasAccuracy()) {
+            statement.bindDouble(7, trackPoint.getAccuracy());
+        }
+        if (trackPoint.hasSpeed()) {
+            statement.bindDouble(8, trackPoint.getSpeed());
+        }
+        if (trackPoint.hasBearing()) {
+            statement.bindDouble(9, trackPoint.getBearing());
+        }
+
+        if (trackPoint.hasHeartRate()) {
+            statement.bindDouble(10, trackPoint.getHeartRate_bpm());
+        }
+        if (trackPoint.hasCyclingCadence()) {
+            statement.bindDouble(11, trackPoint.getCyclingCadence_rpm());
+        }
+        if (trackPoint.hasSensorDistance()) {
+            statement.bindDouble(12, trackPoint.getSensorDistance());
+        }
+        if (trackPoint.hasPower()) {
+            statement.bindDouble(13, trackPoint.getPower());
+        }
+
+        if (trackPoint.hasAltitudeGain()) {
+            statement.bindDouble(14, trackPoint.getAltitudeGain());
+        }
+        if (trackPoint.hasAltitudeLoss()) {
+            statement.bindDouble(15, trackPoint.getAltitudeLoss());
+        }
+    }
+
     @Override
     public Cursor query(@NonNull Uri url, String[] projection, String selection, String[] selectionArgs, String sort) {
         SQLiteQueryBuilder queryBuilder = new SQLiteQueryBuilder();
@@ -251,15 +408,17 @@ public class CustomContentProvider extends ContentProvider {
                 } else {
                     queryBuilder.setTables(TracksColumns.TABLE_NAME);
                 }
+                queryBuilder.appendWhere(TracksColumns.TABLE_NAME + "." + TracksColumns.IMPORTING + " IS NULL");
                 sortOrder = sort != null ? sort : TracksColumns.DEFAULT_SORT_ORDER;
                 break;
             case TRACKS_BY_ID:
                 queryBuilder.setTables(TracksColumns.TABLE_NAME);
                 queryBuilder.appendWhere(TracksColumns._ID + " IN (" + TextUtils.join(SQL_LIST_DELIMITER, ContentProviderUtils.parseTrackIdsFromUri(url)) + ")");
+                queryBuilder.appendWhere(" AND " + TracksColumns.IMPORTING + " IS NULL");
                 break;
             case TRACKS_SENSOR_STATS:
                 long trackId = ContentUris.parseId(url);
-                return db.rawQuery(SENSOR_STATS_QUERY, new String[]{String.valueOf(trackId), String.valueOf(trackId)});
+                return db.rawQuery(SENSOR_STATS_QUERY, new String[]{String.valueOf(trackId)});
             case MARKERS:
                 queryBuilder.setTables(MarkerColumns.TABLE_NAME);
                 sortOrder = sort != null ? sort : MarkerColumns.DEFAULT_SORT_ORDER;
@@ -276,7 +435,7 @@ public class CustomContentProvider extends ContentProvider {
                 throw new IllegalArgumentException("Unknown url " + url);
         }
         Cursor cursor = queryBuilder.query(db, projection, selection, selectionArgs, null, null, sortOrder);
-        cursor.setNotificationUri(getContext().getContentResolver(), url);
+        cursor.setNotificationUri(getContext().getContentResolver(), getNotificationUri(url));
         return cursor;
     }
 
@@ -323,17 +482,37 @@ public class CustomContentProvider extends ContentProvider {
                 throw new IllegalArgumentException("Unknown url " + url);
         }
         int count;
+        Uri changeUri;
         try {
             db.beginTransaction();
             count = db.update(table, values, whereClause, selectionArgs);
+            changeUri = getUrlType(url) == UrlType.MARKERS_BY_ID ? getMarkerChangeUri(url) : url;
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
+        notifyChange(changeUri);
         return count;
     }
 
+    /**
+     * Changes are notified per track: a cursor on several tracks (e.g., {@link TrackPointsColumns#CONTENT_URI_BY_TRACKID}/1,2) observes the changes of all tracks.
+     */
+    private Uri getNotificationUri(Uri url) {
+        switch (getUrlType(url)) {
+            case TRACKPOINTS_BY_TRACKID:
+            case TRACKS_BY_ID:
+            case MARKERS_BY_TRACKID:
+                if (ContentProviderUtils.parseTrackIdsFromUri(url).length > 1) {
+                    List<String> pathSegments = url.getPathSegments();
+                    return url.buildUpon().path(TextUtils.join("/", pathSegments.subList(0, pathSegments.size() - 1))).build();
+                }
+                return url;
+            default:
+                return url;
+        }
+    }
+
     @NonNull
     private UrlType getUrlType(Uri url) {
         UrlType[] urlTypes = UrlType.values();
@@ -351,20 +530,70 @@ public class CustomContentProvider extends ContentProvider {
      * @param url           the content url
      * @param urlType       the url type
      * @param contentValues the content values
+     * @param changes       collects the change to be notified
      */
-    private Uri insertContentValues(Uri url, UrlType urlType, ContentValues contentValues) {
+    private Uri insertContentValues(Uri url, UrlType urlType, ContentValues contentValues, ContentChanges changes) {
+        Uri result;
         switch (urlType) {
             case TRACKPOINTS:
-                return insertTrackPoint(url, contentValues);
+                result = insertTrackPoint(url, contentValues);
+                long trackPointId = ContentUris.parseId(result);
+                changes.addTrackPoints(contentValues.getAsLong(TrackPointsColumns.TRACKID), trackPointId, trackPointId);
+                return result;
             case TRACKS:
-                return insertTrack(url, contentValues);
+                result = insertTrack(url, contentValues);
+                changes.add(result);
+                return result;
             case MARKERS:
-                return insertMarker(url, contentValues);
+                result = insertMarker(url, contentValues);
+                changes.add(ContentProviderUtils.getMarkersUri(new Track.Id(contentValues.getAsLong(MarkerColumns.TRACKID)), new Marker.Id(ContentUris.parseId(result))));
+                return result;
             default:
                 throw new IllegalArgumentException("Unknown url " + url);
         }
     }
 
+    /**
+     * Changes of a marker are notified for its track (including the marker id); to be called within the transaction.
+     *
+     * @param url the marker's url ({@link UrlType#MARKERS_BY_ID})
+     * @return the url itself if the marker does not exist
+     */
+    private Uri getMarkerChangeUri(Uri url) {
+        long markerId = ContentUris.parseId(url);
+        try (Cursor cursor = db.query(MarkerColumns.TABLE_NAME, new String[]{MarkerColumns.TRACKID}, MarkerColumns._ID + "=?", new String[]{Long.toString(markerId)}, null, null, null)) {
+            if (cursor.moveToFirst()) {
+                return ContentProviderUtils.getMarkersUri(new Track.Id(cursor.getLong(0)), new Marker.Id(markerId));
+            }
+        }
+        return url;
+    }
+
+    private void notifyChange(Uri url) {
+        ContentChanges changes = new ContentChanges();
+        changes.add(url);
+        notifyChanges(changes);
+    }
+
+    /**
+     * Notifies the changes; if called within {@link #applyBatch(ArrayList)}, the changes are notified after the transaction.
+     */
+    private void notifyChanges(ContentChanges changes) {
+        ContentChanges batch = batchChanges.get();
+        if (batch != null) {
+            batch.addAll(changes);
+            return;
+        }
+        onChanges(changes);
+        changes.notifyChange(getContext().getContentResolver());
+    }
+
+    /**
+     * Called after data was changed (i.e., after the transaction) and before the changes are notified.
+     */
+    void onChanges(@NonNull ContentChanges changes) {
+    }
+
     private Uri insertTrackPoint(Uri url, ContentValues values) {
         boolean hasTime = values.containsKey(TrackPointsColumns.TIME);
         if (!hasTime) {
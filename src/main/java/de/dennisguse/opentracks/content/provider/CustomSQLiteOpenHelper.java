@@ -25,7 +25,7 @@ public class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
 
     private static final String TAG = CustomSQLiteOpenHelper.class.getSimpleName();
 
-    private static final int DATABASE_VERSION = 31;
+    private static final int DATABASE_VERSION = 34;
 
     @VisibleForTesting
     public static final String DATABASE_NAME = "database.db";
@@ -48,6 +48,8 @@ public class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(TrackPointsColumns.CREATE_TABLE);
         db.execSQL(TrackPointsColumns.CREATE_TABLE_INDEX);
+        db.execSQL(TrackPointsColumns.CREATE_TABLE_INDEX_TYPE);
+        db.execSQL(TrackPointsColumns.CREATE_TABLE_INDEX_TIME);
 
         db.execSQL(TracksColumns.CREATE_TABLE);
         db.execSQL(TracksColumns.CREATE_TABLE_INDEX);
@@ -85,6 +87,15 @@ public class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
                 case 31:
                     upgradeFrom30to31(db);
                     break;
+                case 32:
+                    upgradeFrom31to32(db);
+                    break;
+                case 33:
+                    upgradeFrom32to33(db);
+                    break;
+                case 34:
+                    upgradeFrom33to34(db);
+                    break;
 
                 default:
                     throw new RuntimeException("Not implemented: upgrade to " + toVersion);
@@ -121,6 +132,15 @@ public class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
                 case 30:
                     downgradeFrom31to30(db);
                     break;
+                case 31:
+                    downgradeFrom32to31(db);
+                    break;
+                case 32:
+                    downgradeFrom33to32(db);
+                    break;
+                case 33:
+                    downgradeFrom34to33(db);
+                    break;
                 default:
                     throw new RuntimeException("Not implemented: downgrade to " + toVersion);
             }
@@ -427,4 +447,219 @@ public class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
         db.setTransactionSuccessful();
         db.endTransaction();
     }
+
+    /**
+     * Add sensor statistics to tracks; computed from the trackpoints for existing tracks.
+     */
+    private void upgradeFrom31to32(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        // Tracks
+        db.execSQL("ALTER TABLE tracks ADD COLUMN sensor_max_heartrate FLOAT");
+        db.execSQL("ALTER TABLE tracks ADD COLUMN sensor_avg_heartrate FLOAT");
+        db.execSQL("ALTER TABLE tracks ADD COLUMN sensor_max_cadence FLOAT");
+        db.execSQL("ALTER TABLE tracks ADD COLUMN sensor_avg_cadence FLOAT");
+        db.execSQL("ALTER TABLE tracks ADD COLUMN sensor_avg_power FLOAT");
+
+        // One pass over all trackpoints (ordered by track); the computation must not change with the current classes.
+        try (Cursor cursor = db.query("trackpoints", new String[]{"trackid", "type", "time", "sensor_heartrate", "sensor_cadence", "sensor_power"}, null, null, null, null, "trackid, _id")) {
+            SensorStatisticsVersion32 sensorStatistics = null;
+            while (cursor.moveToNext()) {
+                long trackId = cursor.getLong(0);
+                if (sensorStatistics == null || sensorStatistics.trackId != trackId) {
+                    if (sensorStatistics != null) {
+                        sensorStatistics.update(db);
+                    }
+                    sensorStatistics = new SensorStatisticsVersion32(trackId);
+                }
+                sensorStatistics.add(cursor.getInt(1), cursor.getLong(2),
+                        cursor.isNull(3) ? null : cursor.getFloat(3),
+                        cursor.isNull(4) ? null : cursor.getFloat(4),
+                        cursor.isNull(5) ? null : cursor.getFloat(5));
+            }
+            if (sensorStatistics != null) {
+                sensorStatistics.update(db);
+            }
+        }
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Sensor statistics of a track as computed in version 32 (duration-based averages; manual pauses (SEGMENT_START_MANUAL) are ignored and end the duration of the previous trackpoint; heart rates <= 0 are no heart rate).
+     * Same semantics as {@link de.dennisguse.opentracks.stats.SensorStatisticsUpdater} in version 32.
+     */
+    private static class SensorStatisticsVersion32 {
+        // trackpoints.type of SEGMENT_START_MANUAL in version 32
+        private static final int TYPE_SEGMENT_START_MANUAL = -2;
+
+        private final long trackId;
+
+        // Last trackpoint that is not a manual pause; its duration is not yet known.
+        private boolean hasLast = false;
+        private long lastTime;
+        private Float lastHeartRate;
+        private Float lastCadence;
+        private Float lastPower;
+
+        private long totalDuration = 0;
+        private double heartRateSum = 0;
+        private double cadenceSum = 0;
+        private double powerSum = 0;
+        private Float maxHeartRate;
+        private Float maxCadence;
+        private boolean hasPower = false;
+
+        private SensorStatisticsVersion32(long trackId) {
+            this.trackId = trackId;
+        }
+
+        private void add(int type, long time, Float heartRate, Float cadence, Float power) {
+            boolean isManualPause = type == TYPE_SEGMENT_START_MANUAL;
+            if (heartRate != null && heartRate <= 0) {
+                heartRate = null;
+            }
+
+            if (hasLast) {
+                long duration = isManualPause ? 0 : Math.max(0, time - lastTime);
+                totalDuration += duration;
+                if (lastHeartRate != null) {
+                    heartRateSum += (double) lastHeartRate * duration;
+                }
+                if (lastCadence != null) {
+                    cadenceSum += (double) lastCadence * duration;
+                }
+                if (lastPower != null) {
+                    powerSum += (double) lastPower * duration;
+                }
+                hasLast = false;
+            }
+
+            if (isManualPause) {
+                return;
+            }
+
+            if (heartRate != null) {
+                maxHeartRate = maxHeartRate == null ? heartRate : Math.max(maxHeartRate, heartRate);
+            }
+            if (cadence != null) {
+                maxCadence = maxCadence == null ? cadence : Math.max(maxCadence, cadence);
+            }
+            if (power != null) {
+                hasPower = true;
+            }
+            hasLast = true;
+            lastTime = time;
+            lastHeartRate = heartRate;
+            lastCadence = cadence;
+            lastPower = power;
+        }
+
+        private void update(SQLiteDatabase db) {
+            // Without duration, there are only maxima (no averages).
+            boolean hasDuration = totalDuration > 0;
+
+            ContentValues cv = new ContentValues();
+            if (maxHeartRate != null) {
+                cv.put("sensor_max_heartrate", maxHeartRate);
+                if (hasDuration) {
+                    cv.put("sensor_avg_heartrate", (float) (heartRateSum / totalDuration));
+                }
+            }
+            if (maxCadence != null) {
+                cv.put("sensor_max_cadence", maxCadence);
+                if (hasDuration) {
+                    cv.put("sensor_avg_cadence", (float) (cadenceSum / totalDuration));
+                }
+            }
+            if (hasPower && hasDuration) {
+                cv.put("sensor_avg_power", (float) (powerSum / totalDuration));
+            }
+            if (cv.size() > 0) {
+                db.update("tracks", cv, "_id = ?", new String[]{String.valueOf(trackId)});
+            }
+        }
+    }
+
+    private void downgradeFrom32to31(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        // Tracks
+        db.execSQL("DROP INDEX tracks_uuid_index");
+
+        db.execSQL("ALTER TABLE tracks RENAME TO tracks_old");
+        db.execSQL("CREATE TABLE tracks (_id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, description TEXT, category TEXT, starttime INTEGER, stoptime INTEGER, numpoints INTEGER, totaldistance FLOAT, totaltime INTEGER, movingtime INTEGER, avgspeed FLOAT, avgmovingspeed FLOAT, maxspeed FLOAT, minelevation FLOAT, maxelevation FLOAT, elevationgain FLOAT, icon TEXT, uuid BLOB, elevationloss FLOAT)");
+        db.execSQL("INSERT INTO tracks SELECT _id, name, description, category, starttime, stoptime, numpoints, totaldistance, totaltime, movingtime, avgspeed, avgmovingspeed, maxspeed, minelevation, maxelevation, elevationgain, icon, uuid, elevationloss FROM tracks_old");
+        db.execSQL("DROP TABLE tracks_old");
+
+        db.execSQL("CREATE UNIQUE INDEX tracks_uuid_index ON tracks(uuid)");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Replace trackpoints index on trackid by composite indices matching the queries.
+     */
+    private void upgradeFrom32to33(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        // TrackPoints
+        db.execSQL("DROP INDEX trackpoints_trackid_index");
+        db.execSQL("CREATE INDEX trackpoints_trackid_id_index ON trackpoints(trackid, _id)");
+        db.execSQL("CREATE INDEX trackpoints_trackid_type_id_index ON trackpoints(trackid, type, _id)");
+        db.execSQL("CREATE INDEX trackpoints_trackid_time_index ON trackpoints(trackid, time)");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom33to32(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        // TrackPoints
+        db.execSQL("DROP INDEX trackpoints_trackid_id_index");
+        db.execSQL("DROP INDEX trackpoints_trackid_type_id_index");
+        db.execSQL("DROP INDEX trackpoints_trackid_time_index");
+        db.execSQL("CREATE INDEX trackpoints_trackid_index ON trackpoints(trackid)");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Mark tracks that are still being imported; these are hidden and removed if the import did not complete.
+     */
+    private void upgradeFrom33to34(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        // Tracks
+        db.execSQL("ALTER TABLE tracks ADD COLUMN importing INTEGER");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom34to33(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        // Incomplete imports would be visible in version 33.
+        db.execSQL("DELETE FROM trackpoints WHERE trackid IN (SELECT _id FROM tracks WHERE importing IS NOT NULL)");
+        db.execSQL("DELETE FROM markers WHERE trackid IN (SELECT _id FROM tracks WHERE importing IS NOT NULL)");
+        db.execSQL("DELETE FROM tracks WHERE importing IS NOT NULL");
+
+        // Tracks
+        db.execSQL("DROP INDEX tracks_uuid_index");
+
+        db.execSQL("ALTER TABLE tracks RENAME TO tracks_old");
+        db.execSQL("CREATE TABLE tracks (_id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, description TEXT, category TEXT, starttime INTEGER, stoptime INTEGER, numpoints INTEGER, totaldistance FLOAT, totaltime INTEGER, movingtime INTEGER, avgspeed FLOAT, avgmovingspeed FLOAT, maxspeed FLOAT, minelevation FLOAT, maxelevation FLOAT, elevationgain FLOAT, icon TEXT, uuid BLOB, elevationloss FLOAT, sensor_max_heartrate FLOAT, sensor_avg_heartrate FLOAT, sensor_max_cadence FLOAT, sensor_avg_cadence FLOAT, sensor_avg_power FLOAT)");
+        db.execSQL("INSERT INTO tracks SELECT _id, name, description, category, starttime, stoptime, numpoints, totaldistance, totaltime, movingtime, avgspeed, avgmovingspeed, maxspeed, minelevation, maxelevation, elevationgain, icon, uuid, elevationloss, sensor_max_heartrate, sensor_avg_heartrate, sensor_max_cadence, sensor_avg_cadence, sensor_avg_power FROM tracks_old");
+        db.execSQL("DROP TABLE tracks_old");
+
+        db.execSQL("CREATE UNIQUE INDEX tracks_uuid_index ON tracks(uuid)");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
 }
@@ -15,6 +15,7 @@ import android.util.Pair;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -33,6 +34,7 @@ import de.dennisguse.opentracks.io.file.exporter.TrackExporter;
 /**
  * A content provider that mimics the behavior of {@link androidx.core.content.FileProvider}, which shares virtual (non-existing) KML-files.
  * The actual content of the virtual files is generated by using the functionality defined in {@link CustomContentProvider}.
+ * The generated files are streamed and cached (see {@link ShareFileCache}): the size is unknown until a file was generated once and opening it again does not generate it again.
  * <p>
  * Moreover, it manages access to OpenTrack's database via {@link CustomContentProvider}.
  * <p>
@@ -61,6 +63,8 @@ public class ShareContentProvider extends CustomContentProvider {
     private static final UriMatcher uriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
     private static final String TRACKID_DELIMITER = "_";
 
+    private ShareFileCache shareFileCache;
+
     static {
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TracksColumns.TABLE_NAME + "/" + TrackFileFormat.GPX.getName() + "/*/*", URI_GPX);
 
@@ -115,6 +119,19 @@ public class ShareContentProvider extends CustomContentProvider {
         return trackIds;
     }
 
+    @Override
+    public boolean onCreate() {
+        shareFileCache = new ShareFileCache(getContext());
+        return super.onCreate();
+    }
+
+    @Override
+    void onChanges(@NonNull ContentChanges changes) {
+        if (shareFileCache != null) {
+            shareFileCache.invalidate(changes);
+        }
+    }
+
     /**
      * Do not allow to be exported via AndroidManifest.
      * Check that caller has permissions to access {@link CustomContentProvider}.
@@ -184,7 +201,7 @@ public class ShareContentProvider extends CustomContentProvider {
                 values[i++] = uri.getLastPathSegment();
             } else if (OpenableColumns.SIZE.equals(col)) {
                 cols[i] = OpenableColumns.SIZE;
-                values[i++] = -1;
+                values[i++] = getSize(uri);
             }
         }
 
@@ -207,25 +224,26 @@ public class ShareContentProvider extends CustomContentProvider {
         return super.getType(uri);
     }
 
+    /**
+     * Returns the cached export if it is up to date; otherwise the export is rendered into a pipe on a background thread (and cached).
+     */
     @Nullable
     @Override
     public ParcelFileDescriptor openFile(@NonNull Uri uri, @NonNull String mode) throws FileNotFoundException {
         Set<Track.Id> trackIds = parseURI(uri);
-        final ArrayList<Track> tracks = new ArrayList<>();
-        String[] trackIdsString = trackIds.stream().map(Track.Id::toString).toArray(String[]::new);
-        String whereClause = String.format(TracksColumns._ID + " IN (%s)", TextUtils.join(",", Collections.nCopies(trackIds.size(), "?")));
+        TrackFileFormat trackFileFormat = getTrackFileFormat(uri);
 
-        try (Cursor cursor = super.query(TracksColumns.CONTENT_URI, null, whereClause, trackIdsString, TracksColumns._ID)) {
-            while (cursor.moveToNext()) {
-                tracks.add(ContentProviderUtils.createTrack(cursor));
-            }
+        File file = shareFileCache.get(trackIds, trackFileFormat);
+        if (file != null) {
+            return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
         }
 
-        final TrackExporter trackExporter = getTrackFileFormat(uri).createTrackExporter(getContext());
-
         PipeDataWriter<String> pipeDataWriter = (output, uri1, mimeType, opts, args) -> {
             try (FileOutputStream fileOutputStream = new FileOutputStream(output.getFileDescriptor())) {
-                trackExporter.writeTrack(tracks.toArray(new Track[0]), fileOutputStream);
+                shareFileCache.write(trackIds, trackFileFormat, fileOutputStream, outputStream -> {
+                    TrackExporter trackExporter = trackFileFormat.createTrackExporter(getContext());
+                    return trackExporter.writeTrack(loadTracks(trackIds), outputStream);
+                });
             } catch (IOException e) {
                 Log.w(TAG, "there occurred an error while sharing a file: " + e);
             }
@@ -233,4 +251,28 @@ public class ShareContentProvider extends CustomContentProvider {
 
         return openPipeHelper(uri, getType(uri), null, null, pipeDataWriter);
     }
+
+    /**
+     * Does not render the export: query() is called on the receiving app's thread (often its UI thread).
+     *
+     * @return the size of the export in bytes; null if unknown (i.e., not yet rendered).
+     */
+    @Nullable
+    private Long getSize(@NonNull Uri uri) {
+        File file = shareFileCache.get(parseURI(uri), getTrackFileFormat(uri));
+        return file != null ? file.length() : null;
+    }
+
+    private Track[] loadTracks(@NonNull Set<Track.Id> trackIds) {
+        final ArrayList<Track> tracks = new ArrayList<>();
+        String[] trackIdsString = trackIds.stream().map(Track.Id::toString).toArray(String[]::new);
+        String whereClause = String.format(TracksColumns._ID + " IN (%s)", TextUtils.join(",", Collections.nCopies(trackIds.size(), "?")));
+
+        try (Cursor cursor = super.query(TracksColumns.CONTENT_URI, null, whereClause, trackIdsString, TracksColumns._ID)) {
+            while (cursor.moveToNext()) {
+                tracks.add(ContentProviderUtils.createTrack(cursor));
+            }
+        }
+        return tracks.toArray(new Track[0]);
+    }
 }
@@ -0,0 +1,322 @@
+package de.dennisguse.opentracks.content.provider;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.io.file.TrackFileFormat;
+
+/**
+ * Caches the exports shared by {@link ShareContentProvider} as files: receiving apps often query the size and open a shared file several times.
+ * Exports are only rendered while being streamed to a receiving app; the copy is used for following requests.
+ * <p>
+ * An export is identified by its tracks and {@link TrackFileFormat}.
+ * It is rendered again after one of its tracks (incl. TrackPoints and markers) was changed; changes not limited to known tracks (e.g., of all tracks) invalidate all exports.
+ */
+class ShareFileCache {
+
+    private static final String TAG = ShareFileCache.class.getSimpleName();
+
+    private static final String DIRECTORY = "share";
+
+    // The least recently used export is deleted.
+    @VisibleForTesting
+    static final int MAX_EXPORTS = 4;
+
+    interface ExportWriter {
+        /**
+         * @return true if the export was written successfully
+         */
+        boolean write(@NonNull OutputStream outputStream);
+    }
+
+    private final Context context;
+
+    // Versions of the data; guarded by versionLock (invalidate() is called for every database change and must not wait for the cache).
+    private final Object versionLock = new Object();
+    private long allTracksVersion = 0;
+    private final Map<Long, Long> trackVersions = new HashMap<>();
+
+    // Export name -> cached export (access order)
+    private final LinkedHashMap<String, CachedExport> exports = new LinkedHashMap<String, CachedExport>(MAX_EXPORTS + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedExport> eldest) {
+            if (size() > MAX_EXPORTS) {
+                delete(eldest.getValue().file);
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private File directory;
+
+    ShareFileCache(@NonNull Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Invalidates the exports of the changed tracks.
+     */
+    void invalidate(@NonNull ContentChanges changes) {
+        Set<Long> trackIds = changes.getTrackIds();
+        synchronized (versionLock) {
+            if (trackIds == null) {
+                allTracksVersion++;
+                return;
+            }
+            for (long trackId : trackIds) {
+                Long version = trackVersions.get(trackId);
+                trackVersions.put(trackId, version == null ? 1 : version + 1);
+            }
+        }
+    }
+
+    /**
+     * Returns the file containing the export if it is cached and up to date; does not render the export.
+     * The file is replaced (not overwritten) if rendered again, so it can be read while being opened.
+     *
+     * @param trackIds        the tracks
+     * @param trackFileFormat the format
+     * @return the file or null if the export needs to be rendered (see {@link #write(Set, TrackFileFormat, OutputStream, ExportWriter)})
+     */
+    @Nullable
+    File get(@NonNull Set<Track.Id> trackIds, @NonNull TrackFileFormat trackFileFormat) {
+        List<Long> sortedTrackIds = sort(trackIds);
+        String name = getName(sortedTrackIds, trackFileFormat);
+        String version = getVersion(sortedTrackIds);
+
+        synchronized (this) {
+            CachedExport cachedExport = exports.get(name);
+            if (cachedExport != null && cachedExport.version.equals(version) && cachedExport.file.exists()) {
+                return cachedExport.file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Renders the export into outputStream and stores a copy in the cache.
+     * The export is rendered without holding the cache's lock, so lookups (e.g., the size of a shared file) do not wait for it.
+     * If the data changes while rendering, the copy is outdated and the export is rendered again on the next request.
+     * <p>
+     * The copy is rendered completely even if outputStream fails (e.g., the receiving app closed it); it is only cached if it was written without errors.
+     *
+     * @param trackIds        the tracks
+     * @param trackFileFormat the format
+     * @param outputStream    receives the export while it is being rendered
+     * @param exportWriter    renders the export
+     * @throws IOException if the export could not be rendered or delivered to outputStream
+     */
+    void write(@NonNull Set<Track.Id> trackIds, @NonNull TrackFileFormat trackFileFormat, @NonNull OutputStream outputStream, @NonNull ExportWriter exportWriter) throws IOException {
+        List<Long> sortedTrackIds = sort(trackIds);
+        String name = getName(sortedTrackIds, trackFileFormat);
+        // Determined before rendering.
+        String version = getVersion(sortedTrackIds);
+
+        File directory = getDirectory();
+        File temporaryFile = File.createTempFile(name, null, directory);
+        boolean success;
+        TeeOutputStream teeOutputStream;
+        try (FileOutputStream fileOutputStream = new FileOutputStream(temporaryFile)) {
+            teeOutputStream = new TeeOutputStream(fileOutputStream, outputStream);
+            // Exporters write through a PrintWriter, which does not report IOExceptions: the TeeOutputStream records them.
+            success = exportWriter.write(teeOutputStream);
+            teeOutputStream.flush();
+        } catch (IOException e) {
+            delete(temporaryFile);
+            throw e;
+        }
+        if (!success) {
+            delete(temporaryFile);
+            throw new IOException("Could not render export " + name);
+        }
+
+        IOException fileException = teeOutputStream.getException1();
+        if (fileException != null) {
+            // The export may have been delivered, but the copy is incomplete.
+            Log.w(TAG, "Could not cache export " + name + ": " + fileException);
+            delete(temporaryFile);
+        } else {
+            commit(directory, name, version, temporaryFile);
+        }
+
+        IOException outputException = teeOutputStream.getException2();
+        if (outputException != null) {
+            throw outputException;
+        }
+    }
+
+    private synchronized void commit(File directory, String name, String version, File temporaryFile) {
+        File file = new File(directory, name);
+        if (!temporaryFile.renameTo(file)) {
+            // The export was delivered; only the copy is missing.
+            Log.w(TAG, "Could not cache export " + name);
+            delete(temporaryFile);
+            return;
+        }
+        exports.put(name, new CachedExport(file, version));
+    }
+
+    private static List<Long> sort(Set<Track.Id> trackIds) {
+        List<Long> sortedTrackIds = new ArrayList<>();
+        for (Track.Id trackId : trackIds) {
+            sortedTrackIds.add(trackId.getId());
+        }
+        Collections.sort(sortedTrackIds);
+        return sortedTrackIds;
+    }
+
+    private static String getName(List<Long> sortedTrackIds, TrackFileFormat trackFileFormat) {
+        return trackFileFormat.getName() + "_" + TextUtils.join("_", sortedTrackIds) + "." + trackFileFormat.getExtension();
+    }
+
+    private String getVersion(List<Long> sortedTrackIds) {
+        StringBuilder version = new StringBuilder();
+        synchronized (versionLock) {
+            version.append(allTracksVersion);
+            for (long trackId : sortedTrackIds) {
+                Long trackVersion = trackVersions.get(trackId);
+                version.append('_').append(trackVersion == null ? 0 : trackVersion);
+            }
+        }
+        return version.toString();
+    }
+
+    /**
+     * The directory is emptied on first use: the versions of the exports of a previous process are unknown.
+     */
+    private synchronized File getDirectory() throws IOException {
+        if (directory == null) {
+            File cacheDirectory = new File(context.getCacheDir(), DIRECTORY);
+            File[] files = cacheDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    delete(file);
+                }
+            }
+            if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+                throw new IOException("Could not create directory " + cacheDirectory);
+            }
+            directory = cacheDirectory;
+        }
+        return directory;
+    }
+
+    private static void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete " + file);
+        }
+    }
+
+    /**
+     * Writes to two OutputStreams; the first one is written first.
+     * An IOException of one OutputStream is recorded and only that OutputStream is not written anymore; it is only thrown if both failed.
+     */
+    private static class TeeOutputStream extends OutputStream {
+        private final OutputStream outputStream1;
+        private final OutputStream outputStream2;
+
+        private IOException exception1;
+        private IOException exception2;
+
+        TeeOutputStream(OutputStream outputStream1, OutputStream outputStream2) {
+            this.outputStream1 = outputStream1;
+            this.outputStream2 = outputStream2;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) throws IOException {
+            if (exception1 == null) {
+                try {
+                    outputStream1.write(b, off, len);
+                } catch (IOException e) {
+                    exception1 = e;
+                }
+            }
+            if (exception2 == null) {
+                try {
+                    outputStream2.write(b, off, len);
+                } catch (IOException e) {
+                    exception2 = e;
+                }
+            }
+            throwIfBothFailed();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (exception1 == null) {
+                try {
+                    outputStream1.flush();
+                } catch (IOException e) {
+                    exception1 = e;
+                }
+            }
+            if (exception2 == null) {
+                try {
+                    outputStream2.flush();
+                } catch (IOException e) {
+                    exception2 = e;
+                }
+            }
+            throwIfBothFailed();
+        }
+
+        /**
+         * Does not close the OutputStreams: they are owned by the caller.
+         */
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+        private void throwIfBothFailed() throws IOException {
+            if (exception1 != null && exception2 != null) {
+                throw exception2;
+            }
+        }
+
+        @Nullable
+        IOException getException1() {
+            return exception1;
+        }
+
+        @Nullable
+        IOException getException2() {
+            return exception2;
+        }
+    }
+
+    private static class CachedExport {
+        private final File file;
+        private final String version;
+
+        CachedExport(File file, String version) {
+            this.file = file;
+            this.version = version;
+        }
+    }
+}
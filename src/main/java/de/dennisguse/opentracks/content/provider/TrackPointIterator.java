@@ -52,6 +52,21 @@ public class TrackPointIterator implements Iterator<TrackPoint>, AutoCloseable {
         return ContentProviderUtils.fillTrackPoint(cursor, indexes);
     }
 
+    /**
+     * Like {@link #next()}, but reads the next TrackPoint into the given instance (a flyweight) instead of creating a new one.
+     * Only to be used if the previously returned TrackPoint is not used anymore (i.e., it is not kept by the caller).
+     *
+     * @param trackPoint the TrackPoint to be overwritten
+     * @return trackPoint
+     */
+    @NonNull
+    public TrackPoint next(@NonNull TrackPoint trackPoint) {
+        if (cursor == null || !cursor.moveToNext()) {
+            throw new NoSuchElementException();
+        }
+        return ContentProviderUtils.fillTrackPoint(cursor, indexes, trackPoint);
+    }
+
     @VisibleForTesting
     public int getCount() {
         return cursor.getCount();
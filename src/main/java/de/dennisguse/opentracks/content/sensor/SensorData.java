@@ -2,7 +2,6 @@ package de.dennisguse.opentracks.content.sensor;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.annotation.VisibleForTesting;
 
 import java.time.Instant;
 
@@ -25,7 +24,6 @@ public abstract class SensorData<T> {
         this(sensorAddress, sensorName, Instant.now());
     }
 
-    @VisibleForTesting
     SensorData(String sensorAddress, String sensorName, Instant time) {
         this.sensorAddress = sensorAddress;
         this.sensorName = sensorName;
@@ -54,10 +52,18 @@ public abstract class SensorData<T> {
         return value;
     }
 
+    @NonNull
+    public Instant getTime() {
+        return time;
+    }
+
     /**
      * Reset long term aggregated values (more than derived from previous SensorData). e.g. overall distance.
+     * SensorData is not modified once it is part of a published {@link SensorDataSet}: a copy is returned if something needs to be reset.
      */
-    public void reset() {
+    @NonNull
+    public SensorData<T> reset() {
+        return this;
     }
 
     /**
@@ -4,7 +4,6 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.core.util.Pair;
 
 import de.dennisguse.opentracks.util.UintUtils;
 import de.dennisguse.opentracks.util.UnitConversions;
@@ -58,6 +57,7 @@ public final class SensorDataCycling {
         }
 
         public void compute(Cadence previous) {
+            value = null;
             if (hasData() && previous != null && previous.hasData()) {
                 float timeDiff_ms = UintUtils.diff(crankRevolutionsTime, previous.crankRevolutionsTime, UintUtils.UINT16_MAX) / 1024f * UnitConversions.S_TO_MS;
                 if (timeDiff_ms <= 0) {
@@ -107,6 +107,13 @@ public final class SensorDataCycling {
             this.wheelRevolutionsTime = wheelRevolutionsTime;
         }
 
+        private DistanceSpeed(@NonNull DistanceSpeed other, Data value) {
+            super(other.getSensorAddress(), other.getSensorName(), other.getTime());
+            this.wheelRevolutionsCount = other.wheelRevolutionsCount;
+            this.wheelRevolutionsTime = other.wheelRevolutionsTime;
+            this.value = value;
+        }
+
         public boolean hasData() {
             return wheelRevolutionsCount != null && wheelRevolutionsTime != null;
         }
@@ -120,6 +127,7 @@ public final class SensorDataCycling {
         }
 
         public void compute(DistanceSpeed previous, int wheel_circumference_mm) {
+            value = null;
             if (hasData() && previous != null && previous.hasData()) {
                 float timeDiff_ms = UintUtils.diff(wheelRevolutionsTime, previous.wheelRevolutionsTime, UintUtils.UINT16_MAX) / 1024f * UnitConversions.S_TO_MS;
                 if (timeDiff_ms <= 0) {
@@ -141,11 +149,13 @@ public final class SensorDataCycling {
             }
         }
 
+        @NonNull
         @Override
-        public void reset() {
-            if (value != null) {
-                value = new Data(value.distance_m, 0, value.speed_mps);
+        public DistanceSpeed reset() {
+            if (value == null) {
+                return this;
             }
+            return new DistanceSpeed(this, new Data(value.distance_m, 0, value.speed_mps));
         }
 
         @NonNull
@@ -187,21 +197,4 @@ public final class SensorDataCycling {
             }
         }
     }
-
-    public static class CadenceAndSpeed extends SensorData<Pair<Cadence, DistanceSpeed>> {
-
-        public CadenceAndSpeed(String sensorAddress, String sensorName, @Nullable Cadence cadence, @Nullable DistanceSpeed distanceSpeed) {
-            super(sensorAddress, sensorName);
-            this.value = new Pair<>(cadence, distanceSpeed);
-        }
-
-        public Cadence getCadence() {
-            return this.value != null ? this.value.first : null;
-        }
-
-        public DistanceSpeed getDistanceSpeed() {
-            return this.value != null ? this.value.second : null;
-        }
-    }
 }
-
@@ -4,17 +4,31 @@ import androidx.annotation.NonNull;
 
 import de.dennisguse.opentracks.content.data.TrackPoint;
 
+/**
+ * The latest {@link SensorData} of each sensor type.
+ * <p>
+ * {@link de.dennisguse.opentracks.services.sensors.BluetoothRemoteSensorManager} publishes a new SensorDataSet on every change (copy-on-write; see {@link Builder}):
+ * a SensorDataSet (and its SensorData) is not modified, so readers get a consistent snapshot without locking.
+ */
 public final class SensorDataSet {
 
-    private SensorDataHeartRate heartRate;
+    private final SensorDataHeartRate heartRate;
 
-    private SensorDataCycling.Cadence cyclingCadence;
+    private final SensorDataCycling.Cadence cyclingCadence;
 
-    private SensorDataCycling.DistanceSpeed cyclingDistanceSpeed;
+    private final SensorDataCycling.DistanceSpeed cyclingDistanceSpeed;
 
-    private SensorDataCyclingPower cyclingPower;
+    private final SensorDataCyclingPower cyclingPower;
 
     public SensorDataSet() {
+        this(new Builder());
+    }
+
+    private SensorDataSet(@NonNull Builder builder) {
+        this.heartRate = builder.heartRate;
+        this.cyclingCadence = builder.cyclingCadence;
+        this.cyclingDistanceSpeed = builder.cyclingDistanceSpeed;
+        this.cyclingPower = builder.cyclingPower;
     }
 
     public SensorDataHeartRate getHeartRate() {
@@ -33,21 +47,6 @@ public final class SensorDataSet {
         return cyclingPower;
     }
 
-    public void set(SensorData<?> data) {
-        set(data, data);
-    }
-
-    public void remove(SensorData<?> type) {
-        set(type, null);
-    }
-
-    public void clear() {
-        this.heartRate = null;
-        this.cyclingCadence = null;
-        this.cyclingDistanceSpeed = null;
-        this.cyclingPower = null;
-    }
-
     public void fillTrackPoint(TrackPoint trackPoint) {
         if (heartRate != null) {
             trackPoint.setHeartRate_bpm(heartRate.getValue());
@@ -67,13 +66,6 @@ public final class SensorDataSet {
         }
     }
 
-    public void reset() {
-        if (heartRate != null) heartRate.reset();
-        if (cyclingCadence != null) cyclingCadence.reset();
-        if (cyclingDistanceSpeed != null) cyclingDistanceSpeed.reset();
-        if (cyclingPower != null) cyclingPower.reset();
-    }
-
     @NonNull
     @Override
     public String toString() {
@@ -83,26 +75,73 @@ public final class SensorDataSet {
                 + (getCyclingPower() != null ? " " + getCyclingPower() : "");
     }
 
-    private void set(@NonNull SensorData<?> type, SensorData<?> data) {
-        if (type instanceof SensorDataHeartRate) {
-            this.heartRate = (SensorDataHeartRate) data;
-            return;
+    /**
+     * Creates the next SensorDataSet to be published.
+     */
+    public static final class Builder {
+
+        private SensorDataHeartRate heartRate;
+
+        private SensorDataCycling.Cadence cyclingCadence;
+
+        private SensorDataCycling.DistanceSpeed cyclingDistanceSpeed;
+
+        private SensorDataCyclingPower cyclingPower;
+
+        public Builder() {
+        }
+
+        public Builder(@NonNull SensorDataSet toCopy) {
+            this.heartRate = toCopy.heartRate;
+            this.cyclingCadence = toCopy.cyclingCadence;
+            this.cyclingDistanceSpeed = toCopy.cyclingDistanceSpeed;
+            this.cyclingPower = toCopy.cyclingPower;
         }
 
-        if (type instanceof SensorDataCycling.Cadence) {
-            this.cyclingCadence = (SensorDataCycling.Cadence) data;
-            return;
+        public Builder set(@NonNull SensorData<?> data) {
+            return set(data, data);
         }
-        if (type instanceof SensorDataCycling.DistanceSpeed) {
-            this.cyclingDistanceSpeed = (SensorDataCycling.DistanceSpeed) data;
-            return;
+
+        public Builder remove(@NonNull SensorData<?> type) {
+            return set(type, null);
         }
 
-        if (type instanceof SensorDataCyclingPower) {
-            this.cyclingPower = (SensorDataCyclingPower) data;
-            return;
+        /**
+         * Replaces the SensorData by their reset copies (see {@link SensorData#reset()}); the SensorData itself is not modified.
+         */
+        public Builder reset() {
+            if (heartRate != null) heartRate = (SensorDataHeartRate) heartRate.reset();
+            if (cyclingCadence != null) cyclingCadence = (SensorDataCycling.Cadence) cyclingCadence.reset();
+            if (cyclingDistanceSpeed != null) cyclingDistanceSpeed = cyclingDistanceSpeed.reset();
+            if (cyclingPower != null) cyclingPower = (SensorDataCyclingPower) cyclingPower.reset();
+            return this;
         }
 
-        throw new UnsupportedOperationException(type.getClass().getCanonicalName());
+        public SensorDataSet build() {
+            return new SensorDataSet(this);
+        }
+
+        private Builder set(@NonNull SensorData<?> type, SensorData<?> data) {
+            if (type instanceof SensorDataHeartRate) {
+                this.heartRate = (SensorDataHeartRate) data;
+                return this;
+            }
+
+            if (type instanceof SensorDataCycling.Cadence) {
+                this.cyclingCadence = (SensorDataCycling.Cadence) data;
+                return this;
+            }
+            if (type instanceof SensorDataCycling.DistanceSpeed) {
+                this.cyclingDistanceSpeed = (SensorDataCycling.DistanceSpeed) data;
+                return this;
+            }
+
+            if (type instanceof SensorDataCyclingPower) {
+                this.cyclingPower = (SensorDataCyclingPower) data;
+                return this;
+            }
+
+            throw new UnsupportedOperationException(type.getClass().getCanonicalName());
+        }
     }
 }
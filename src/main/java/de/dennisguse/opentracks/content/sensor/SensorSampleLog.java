@@ -0,0 +1,255 @@
+package de.dennisguse.opentracks.content.sensor;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+
+/**
+ * Append-only file of a track's {@link SensorSamples}.
+ * <p>
+ * The file is a sequence of batches; each batch is written with one write and is self-contained:
+ * <pre>
+ * batch  := varint(length of payload) payload
+ * payload := varint(number of samples) sample*
+ * sample := byte(type) zigzag-varint(time - previous time) zigzag-varint(value - previous value of this type)
+ * </pre>
+ * Within a batch, the first time and the first value of each type are encoded relative to 0.
+ * Samples typically arrive every second with slowly changing values: most samples need 4 bytes.
+ * <p>
+ * An incomplete last batch (e.g., the app was killed while writing) is ignored when reading.
+ * A batch that could not be written completely is removed again, so the following batches can be read; an incomplete last batch left by a killed app is removed by {@link #truncateIncomplete(File)} before appending.
+ */
+public class SensorSampleLog {
+
+    private static final String TAG = SensorSampleLog.class.getSimpleName();
+
+    private static final int MAX_TYPE = 0xFF;
+
+    private SensorSampleLog() {
+    }
+
+    /**
+     * Appends the samples as one batch to the file; the file is created if it does not exist.
+     */
+    public static void append(@NonNull File file, @NonNull SensorSamples sensorSamples) throws IOException {
+        if (sensorSamples.isEmpty()) {
+            return;
+        }
+
+        byte[] batch = encode(sensorSamples);
+        try (FileOutputStream outputStream = new FileOutputStream(file, true)) {
+            FileChannel channel = outputStream.getChannel();
+            long length = channel.size();
+            try {
+                outputStream.write(batch);
+            } catch (IOException e) {
+                truncate(channel, length);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Removes an incomplete or corrupt last batch (e.g., the app was killed while writing); otherwise, appended batches could not be read.
+     *
+     * @return true if the file was truncated
+     */
+    public static boolean truncateIncomplete(@NonNull File file) throws IOException {
+        byte[] data;
+        try (InputStream inputStream = new FileInputStream(file)) {
+            data = readFully(inputStream, (int) file.length());
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+
+        int length = decode(data, new SensorSamples());
+        if (length == data.length) {
+            return false;
+        }
+
+        try (FileOutputStream outputStream = new FileOutputStream(file, true)) {
+            truncate(outputStream.getChannel(), length);
+        }
+        return true;
+    }
+
+    private static void truncate(FileChannel channel, long length) {
+        try {
+            channel.truncate(length);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not remove incomplete batch.", e);
+        }
+    }
+
+    /**
+     * Reads all samples of the file.
+     *
+     * @return no samples if the file does not exist
+     */
+    @NonNull
+    public static SensorSamples read(@NonNull File file) throws IOException {
+        SensorSamples sensorSamples = new SensorSamples();
+        byte[] data;
+        try (InputStream inputStream = new FileInputStream(file)) {
+            data = readFully(inputStream, (int) file.length());
+        } catch (FileNotFoundException e) {
+            return sensorSamples;
+        }
+
+        decode(data, sensorSamples);
+        return sensorSamples;
+    }
+
+    static byte[] encode(@NonNull SensorSamples sensorSamples) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(4 * sensorSamples.size() + 8);
+        writeVarLong(payload, sensorSamples.size());
+
+        int[] previousValues = new int[MAX_TYPE + 1];
+        long previousTime_ms = 0;
+        for (int i = 0; i < sensorSamples.size(); i++) {
+            int type = sensorSamples.getType(i);
+            long time_ms = sensorSamples.getTime_ms(i);
+            int value = sensorSamples.getValue(i);
+
+            payload.write(type);
+            writeVarLong(payload, zigzag(time_ms - previousTime_ms));
+            writeVarLong(payload, zigzag((long) value - previousValues[type]));
+
+            previousTime_ms = time_ms;
+            previousValues[type] = value;
+        }
+
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(payload.size() + 5);
+        writeVarLong(batch, payload.size());
+        batch.write(payload.toByteArray(), 0, payload.size());
+        return batch.toByteArray();
+    }
+
+    /**
+     * Decodes all complete batches of data.
+     *
+     * @return the length of the complete batches
+     */
+    static int decode(@NonNull byte[] data, @NonNull SensorSamples sensorSamples) {
+        Reader reader = new Reader(data, 0, data.length);
+        while (reader.position < data.length) {
+            int start = reader.position;
+            long length = reader.readVarLong();
+            if (reader.failed || length < 0 || length > data.length - reader.position) {
+                Log.w(TAG, "Ignoring incomplete batch at " + start);
+                return start;
+            }
+
+            Reader batchReader = new Reader(data, reader.position, reader.position + (int) length);
+            reader.position += (int) length;
+            SensorSamples batch = new SensorSamples();
+            if (!decodeBatch(batchReader, batch)) {
+                Log.w(TAG, "Ignoring corrupt batch at " + start);
+                return start;
+            }
+            sensorSamples.addAll(batch);
+        }
+        return data.length;
+    }
+
+    private static boolean decodeBatch(Reader reader, SensorSamples sensorSamples) {
+        long count = reader.readVarLong();
+        if (reader.failed || count < 0) {
+            return false;
+        }
+
+        int[] previousValues = new int[MAX_TYPE + 1];
+        long previousTime_ms = 0;
+        for (long i = 0; i < count; i++) {
+            int type = reader.readByte();
+            long timeDelta = reader.readVarLong();
+            long valueDelta = reader.readVarLong();
+            if (reader.failed) {
+                return false;
+            }
+
+            previousTime_ms += unzigzag(timeDelta);
+            previousValues[type] += (int) unzigzag(valueDelta);
+            sensorSamples.add(type, previousTime_ms, previousValues[type]);
+        }
+        return true;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream outputStream, long value) {
+        while ((value & ~0x7FL) != 0) {
+            outputStream.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        outputStream.write((int) value);
+    }
+
+    private static byte[] readFully(InputStream inputStream, int expectedLength) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream(Math.max(32, expectedLength));
+        byte[] buffer = new byte[4096];
+        int byteCount;
+        while ((byteCount = inputStream.read(buffer)) != -1) {
+            data.write(buffer, 0, byteCount);
+        }
+        return data.toByteArray();
+    }
+
+    private static class Reader {
+        private final byte[] data;
+        private final int end;
+        private int position;
+        private boolean failed = false;
+
+        Reader(byte[] data, int start, int end) {
+            this.data = data;
+            this.position = start;
+            this.end = end;
+        }
+
+        /**
+         * Sets failed if there is no byte left.
+         */
+        int readByte() {
+            if (position >= end) {
+                failed = true;
+                return 0;
+            }
+            return data[position++] & 0xFF;
+        }
+
+        /**
+         * Sets failed if the varint is incomplete or too long.
+         */
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                if (failed) {
+                    return 0;
+                }
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            failed = true;
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package de.dennisguse.opentracks.content.sensor;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * High-rate sensor samples (e.g., every heart rate and power measurement) stored in primitive arrays.
+ * In contrast to {@link de.dennisguse.opentracks.content.data.TrackPoint}s (only the latest {@link SensorData}), every sample is kept.
+ * <p>
+ * Values are stored as int: heart rate (bpm) and power (W) are transmitted as integers by Bluetooth LE sensors.
+ * <p>
+ * Not thread-safe.
+ */
+public class SensorSamples {
+
+    public static final int TYPE_HEART_RATE = 1;
+    public static final int TYPE_POWER = 2;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int size = 0;
+    private byte[] types;
+    private long[] times_ms;
+    private int[] values;
+
+    public SensorSamples() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public SensorSamples(int capacity) {
+        capacity = Math.max(1, capacity);
+        types = new byte[capacity];
+        times_ms = new long[capacity];
+        values = new int[capacity];
+    }
+
+    public void add(int type, long time_ms, int value) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            times_ms = Arrays.copyOf(times_ms, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        types[size] = (byte) type;
+        times_ms[size] = time_ms;
+        values[size] = value;
+        size++;
+    }
+
+    public void addAll(@NonNull SensorSamples sensorSamples) {
+        for (int i = 0; i < sensorSamples.size(); i++) {
+            add(sensorSamples.getType(i), sensorSamples.getTime_ms(i), sensorSamples.getValue(i));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getType(int index) {
+        checkIndex(index);
+        return types[index];
+    }
+
+    public long getTime_ms(int index) {
+        checkIndex(index);
+        return times_ms[index];
+    }
+
+    public int getValue(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+}
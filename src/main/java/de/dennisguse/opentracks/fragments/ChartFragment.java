@@ -37,17 +37,16 @@ import de.dennisguse.opentracks.chart.ChartPoint;
 import de.dennisguse.opentracks.chart.ChartView;
 import de.dennisguse.opentracks.content.TrackDataHub;
 import de.dennisguse.opentracks.content.TrackDataListener;
+import de.dennisguse.opentracks.content.TrackSeries;
 import de.dennisguse.opentracks.content.data.Marker;
 import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.data.TrackPoint;
 import de.dennisguse.opentracks.databinding.ChartBinding;
-import de.dennisguse.opentracks.stats.TrackStatistics;
-import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
 import de.dennisguse.opentracks.util.PreferencesUtils;
 
 /**
  * A fragment to display track chart to the user.
- * ChartFragment uses a {@link TrackStatisticsUpdater} internally and recomputes the {@link TrackStatistics} from the beginning.
+ * ChartFragment uses the {@link TrackSeries} of the {@link TrackDataHub}, i.e., the values are derived once for all ChartFragments.
  *
  * @author Sandor Dornbush
  * @author Rodrigo Damazio
@@ -66,12 +65,11 @@ public class ChartFragment extends Fragment implements TrackDataListener {
     }
 
     private SharedPreferences sharedPreferences;
-    private int recordingDistanceInterval;
 
     private TrackDataHub trackDataHub;
 
-    // Stats gathered from the received data
-    private TrackStatisticsUpdater trackStatisticsUpdater = new TrackStatisticsUpdater();
+    // Values derived from the received data; shared with the other listeners of the trackDataHub
+    private TrackSeries trackSeries;
     private final List<ChartPoint> pendingPoints = new ArrayList<>();
     private String category = "";
 
@@ -109,10 +107,6 @@ public class ChartFragment extends Fragment implements TrackDataListener {
                     });
                 }
             }
-
-            if (PreferencesUtils.isKey(getContext(), R.string.recording_distance_interval_key, key)) {
-                recordingDistanceInterval = PreferencesUtils.getRecordingDistanceInterval(sharedPreferences, getContext());
-            }
         }
     };
 
@@ -138,8 +132,6 @@ public class ChartFragment extends Fragment implements TrackDataListener {
 
         chartByDistance = getArguments().getBoolean(KEY_CHART_VIEW_BY_DISTANCE_KEY, true);
 
-        recordingDistanceInterval = PreferencesUtils.getRecordingDistanceIntervalDefault(getContext());
-
         // Create a chartView here to store data thus won't need to reload all the data on every onStart or onResume.
         chartView = new ChartView(getContext(), chartByDistance);
     }
@@ -216,7 +208,7 @@ public class ChartFragment extends Fragment implements TrackDataListener {
     @Override
     public void clearTrackPoints() {
         if (isResumed()) {
-            trackStatisticsUpdater = new TrackStatisticsUpdater();
+            trackSeries = getTrackSeries();
             pendingPoints.clear();
             chartView.reset();
             runOnUiThread(() -> {
@@ -230,22 +222,22 @@ public class ChartFragment extends Fragment implements TrackDataListener {
     @Override
     public void onSampledInTrackPoint(@NonNull TrackPoint trackPoint) {
         if (isResumed()) {
-            pendingPoints.add(createPendingPoint(trackPoint));
+            ChartPoint chartPoint = createPendingPoint(trackPoint);
+            if (chartPoint != null) {
+                pendingPoints.add(chartPoint);
+            }
         }
     }
 
     @Override
     public void onSampledOutTrackPoint(@NonNull TrackPoint trackPoint) {
-        if (isResumed()) {
-            if (trackStatisticsUpdater != null) {
-                trackStatisticsUpdater.addTrackPoint(trackPoint, recordingDistanceInterval);
-            }
-        }
+        // Not registered: sampled out trackPoints are already included in the trackSeries.
     }
 
     @Override
     public void onNewTrackPointsDone(@NonNull TrackPoint unused) {
         if (isResumed()) {
+            chartView.setProvisionalChartPoint(createProvisionalPoint());
             chartView.addChartPoints(pendingPoints);
             pendingPoints.clear();
             runOnUiThread(updateChart);
@@ -266,6 +258,20 @@ public class ChartFragment extends Fragment implements TrackDataListener {
         }
     }
 
+    @Override
+    public void onMarkerUpdated(Marker marker) {
+        if (isResumed() && marker != null) {
+            chartView.updateMarker(marker);
+        }
+    }
+
+    @Override
+    public void onMarkerDeleted(Marker.Id markerId) {
+        if (isResumed()) {
+            chartView.removeMarker(markerId);
+        }
+    }
+
     @Override
     public void onNewMarkersDone() {
         if (isResumed()) {
@@ -289,7 +295,7 @@ public class ChartFragment extends Fragment implements TrackDataListener {
      */
     private synchronized void resumeTrackDataHub() {
         trackDataHub = ((TrackActivityDataHubInterface) getActivity()).getTrackDataHub();
-        trackDataHub.registerTrackDataListener(this, true, true, true, true);
+        trackDataHub.registerTrackDataListener(this, true, true, true, false);
     }
 
     /**
@@ -301,6 +307,14 @@ public class ChartFragment extends Fragment implements TrackDataListener {
         trackDataHub = null;
     }
 
+    /**
+     * Returns the trackSeries of the trackDataHub.
+     * Needs to be synchronized because trackDataHub can be accessed by multiple threads.
+     */
+    private synchronized TrackSeries getTrackSeries() {
+        return trackDataHub != null ? trackDataHub.getTrackSeries() : null;
+    }
+
     /**
      * Returns true if the selected track is recording.
      * Needs to be synchronized because trackDataHub can be accessed by multiple threads.
@@ -321,10 +335,33 @@ public class ChartFragment extends Fragment implements TrackDataListener {
         }
     }
 
+    /**
+     * @return null if the trackPoint is not part of the trackSeries.
+     */
     @VisibleForTesting
     ChartPoint createPendingPoint(@NonNull TrackPoint trackPoint) {
-        trackStatisticsUpdater.addTrackPoint(trackPoint, recordingDistanceInterval);
-        return new ChartPoint(trackStatisticsUpdater, trackPoint, chartByDistance, chartView.getMetricUnits());
+        int index = trackSeries != null ? trackSeries.indexOf(trackPoint.getId()) : -1;
+        if (index < 0) {
+            return null;
+        }
+        return new ChartPoint(trackSeries, index, chartByDistance, chartView.getMetricUnits());
+    }
+
+    /**
+     * @return the last TrackPoint that is not sampled yet (see {@link TrackSeries#getProvisionalIndex()}); null if there is none.
+     */
+    @VisibleForTesting
+    ChartPoint createProvisionalPoint() {
+        int index = trackSeries != null ? trackSeries.getProvisionalIndex() : -1;
+        if (index < 0) {
+            return null;
+        }
+        return new ChartPoint(trackSeries, index, chartByDistance, chartView.getMetricUnits());
+    }
+
+    @VisibleForTesting
+    void setTrackSeries(TrackSeries trackSeries) {
+        this.trackSeries = trackSeries;
     }
 
     @VisibleForTesting
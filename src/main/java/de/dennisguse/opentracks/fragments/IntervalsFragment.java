@@ -233,6 +233,16 @@ public class IntervalsFragment extends Fragment implements TrackDataListener {
         // We don't care.
     }
 
+    @Override
+    public void onMarkerUpdated(Marker marker) {
+        // We don't care.
+    }
+
+    @Override
+    public void onMarkerDeleted(Marker.Id markerId) {
+        // We don't care.
+    }
+
     @Override
     public void onNewMarkersDone() {
         // We don't care.
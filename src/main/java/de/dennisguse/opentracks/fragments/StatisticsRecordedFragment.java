@@ -153,7 +153,7 @@ public class StatisticsRecordedFragment extends Fragment {
                 if (isResumed()) {
                     Track track = contentProviderUtils.getTrack(trackId);
                     trackStatistics = track.getTrackStatistics();
-                    sensorStatistics = contentProviderUtils.getSensorStats(trackId);
+                    sensorStatistics = trackStatistics.getSensorStatistics();
 
                     String newCategory = track.getCategory();
                     if (!category.equals(newCategory)) {
@@ -256,6 +256,16 @@ public class StatisticsRecordingFragment extends Fragment implements TrackDataLi
         // We don't care.
     }
 
+    @Override
+    public void onMarkerUpdated(Marker marker) {
+        // We don't care.
+    }
+
+    @Override
+    public void onMarkerDeleted(Marker.Id markerId) {
+        // We don't care.
+    }
+
     @Override
     public void onNewMarkersDone() {
         // We don't care.
@@ -20,6 +20,8 @@ import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.View;
 import android.widget.Toast;
 
@@ -29,8 +31,12 @@ import androidx.documentfile.provider.DocumentFile;
 import androidx.fragment.app.FragmentActivity;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Collectors;
 
 import de.dennisguse.opentracks.R;
 import de.dennisguse.opentracks.content.data.Track;
@@ -62,11 +68,15 @@ public class ExportActivity extends FragmentActivity implements ExportServiceRes
     private static final String BUNDLE_TOTAL_COUNT = "track_export_total_count";
     private static final String BUNDLE_DIRECTORY_FILES = "track_directory_files";
     private static final String BUNDLE_TRACK_ERRORS = "track_errors";
+    private static final String BUNDLE_COMPLETED_TRACK_IDS = "track_export_completed_track_ids";
 
     private static final int CONFLICT_NONE = 0;
     private static final int CONFLICT_OVERWRITE = 1;
     private static final int CONFLICT_SKIP = 2;
 
+    // Enough tracks to keep all export threads busy; more tracks are only enqueued after some are finished (a restart exports at most these again).
+    private static final int TRACKS_IN_EXPORT = 2 * ExportService.PARALLEL_EXPORTS;
+
     private TrackFileFormat trackFileFormat;
     private Uri directoryUri;
 
@@ -93,6 +103,16 @@ public class ExportActivity extends FragmentActivity implements ExportServiceRes
     // List of tracks to be exported.
     private final ArrayList<Track> tracks = new ArrayList<>();
 
+    // Tracks without conflict that are not yet enqueued.
+    private final ArrayList<Track> tracksToExport = new ArrayList<>();
+    // Tracks that are enqueued and not yet completed.
+    private final Set<Track.Id> trackIdsInExport = new HashSet<>();
+    // Tracks that are exported, skipped or failed; these are not exported again if the activity is restarted.
+    private ArrayList<Track.Id> completedTrackIds = new ArrayList<>();
+
+    private long exportStartTime_ms;
+    private long exportedBytes = 0;
+
     private final LinkedBlockingQueue<PendingConflict> conflictsQueue = new LinkedBlockingQueue<>();
     private final Handler conflictsHandler = new Handler();
 
@@ -147,13 +167,14 @@ public class ExportActivity extends FragmentActivity implements ExportServiceRes
         viewBinding.toolbar.toolbar.setTitle(getString(R.string.export_progress_message, directoryDisplayName));
 
         resultReceiver = new ExportServiceResultReceiver(new Handler(), this);
+        exportStartTime_ms = SystemClock.elapsedRealtime();
 
         if (savedInstanceState == null) {
             autoConflict = CONFLICT_NONE;
             setProgress();
             new Thread(() -> {
                 directoryFiles = ExportUtils.getAllFiles(ExportActivity.this, documentFile.getUri());
-                runOnUiThread(() -> initExport(0));
+                runOnUiThread(this::initExport);
             }).start();
         } else {
             autoConflict = savedInstanceState.getInt(BUNDLE_AUTO_CONFLICT);
@@ -164,9 +185,10 @@ public class ExportActivity extends FragmentActivity implements ExportServiceRes
             trackExportTotalCount = savedInstanceState.getInt(BUNDLE_TOTAL_COUNT);
             directoryFiles = savedInstanceState.getStringArrayList(BUNDLE_DIRECTORY_FILES);
             trackErrors = savedInstanceState.getStringArrayList(BUNDLE_TRACK_ERRORS);
+            completedTrackIds = savedInstanceState.getParcelableArrayList(BUNDLE_COMPLETED_TRACK_IDS);
 
             setProgress();
-            initExport(getTotalDone());
+            initExport();
         }
     }
 
@@ -181,6 +203,7 @@ public class ExportActivity extends FragmentActivity implements ExportServiceRes
         outState.putInt(BUNDLE_TOTAL_COUNT, trackExportTotalCount);
         outState.putStringArrayList(BUNDLE_DIRECTORY_FILES, (ArrayList<String>) directoryFiles);
         outState.putStringArrayList(BUNDLE_TRACK_ERRORS, trackErrors);
+        outState.putParcelableArrayList(BUNDLE_COMPLETED_TRACK_IDS, completedTrackIds);
     }
 
     @Override
@@ -188,6 +211,7 @@ public class ExportActivity extends FragmentActivity implements ExportServiceRes
         super.onDestroy();
         conflictsQueue.clear();
         tracks.clear();
+        tracksToExport.clear();
     }
 
     @Override
@@ -203,26 +227,34 @@ public class ExportActivity extends FragmentActivity implements ExportServiceRes
         new Handler().postDelayed(() -> doubleBackToCancel=false, 2000);
     }
 
-    private void initExport(int from) {
+    private void initExport() {
         try (Cursor cursor = contentProviderUtils.getTrackCursor(null, null, TracksColumns._ID)) {
             if (cursor == null) {
                 onExportEnded();
                 return;
             }
 
+            // Tracks might have been added or deleted since the activity was restarted; only completed tracks are skipped.
+            Set<Track.Id> completed = new HashSet<>(completedTrackIds);
             trackExportTotalCount = cursor.getCount();
             viewBinding.exportProgressTotal.setText("" + trackExportTotalCount);
-            for (int i = from; i < trackExportTotalCount; i++) {
-                cursor.moveToPosition(i);
+            while (cursor.moveToNext()) {
                 Track track = ContentProviderUtils.createTrack(cursor);
-                tracks.add(track);
+                if (!completed.contains(track.getId())) {
+                    tracks.add(track);
+                }
             }
 
-            if (!tracks.isEmpty()) {
-                export(tracks.get(0));
-            } else {
+            if (tracks.isEmpty()) {
                 onExportEnded();
+                return;
             }
+
+            // Conflicts are resolved by the user while the other tracks are exported.
+            for (Track track : new ArrayList<>(tracks)) {
+                export(track);
+            }
+            exportNextTracks();
         }
     }
 
@@ -241,7 +273,7 @@ public class ExportActivity extends FragmentActivity implements ExportServiceRes
             trackExportSkippedCount++;
             onExportCompleted(track);
         } else {
-            ExportService.enqueue(this, resultReceiver, track.getId(), trackFileFormat, directoryUri);
+            tracksToExport.add(track);
         }
     }
 
@@ -249,6 +281,22 @@ public class ExportActivity extends FragmentActivity implements ExportServiceRes
         export(track, autoConflict);
     }
 
+    /**
+     * Enqueues the next tracks to be exported in parallel as soon as previous ones are done.
+     */
+    private void exportNextTracks() {
+        int count = Math.min(TRACKS_IN_EXPORT - trackIdsInExport.size(), tracksToExport.size());
+        if (count <= 0) {
+            return;
+        }
+
+        List<Track> nextTracks = tracksToExport.subList(0, count);
+        ArrayList<Track.Id> trackIds = nextTracks.stream().map(Track::getId).collect(Collectors.toCollection(ArrayList::new));
+        trackIdsInExport.addAll(trackIds);
+        ExportService.enqueue(this, resultReceiver, trackIds, trackFileFormat, directoryUri);
+        nextTracks.clear();
+    }
+
     private void setConflictVisibility(int visibility) {
         viewBinding.exportProgressAlertIcon.setVisibility(visibility);
         viewBinding.exportProgressAlertMsg.setVisibility(visibility);
@@ -280,16 +328,20 @@ public class ExportActivity extends FragmentActivity implements ExportServiceRes
 
     private void onExportCompleted(Track track) {
         tracks.remove(track);
+        completedTrackIds.add(track.getId());
 
         setProgress();
         if (tracks.isEmpty()) {
             onExportEnded();
-            return;
         }
-        export(tracks.get(0));
     }
 
     private void onExportEnded() {
+        double duration_s = Math.max(SystemClock.elapsedRealtime() - exportStartTime_ms, 1) / 1000d;
+        Log.i(TAG, String.format(Locale.US, "Exported %d tracks (%.2f MB) in %.1fs: %.2f tracks/s, %.2f MB/s",
+                trackExportSuccessCount + trackExportOverwrittenCount, exportedBytes / 1E6, duration_s,
+                (trackExportSuccessCount + trackExportOverwrittenCount) / duration_s, exportedBytes / 1E6 / duration_s));
+
         viewBinding.exportProgressRightButton.setVisibility(View.VISIBLE);
         viewBinding.exportProgressRightButton.setText(getString(R.string.generic_ok));
         viewBinding.exportProgressRightButton.setOnClickListener((view) -> finish());
@@ -318,6 +370,10 @@ public class ExportActivity extends FragmentActivity implements ExportServiceRes
         }
 
         Track.Id trackId = resultData.getParcelable(ExportServiceResultReceiver.RESULT_EXTRA_TRACK_ID);
+        if (!trackIdsInExport.remove(trackId)) {
+            Log.w(TAG, "Ignoring result of a track that is not in export: " + trackId);
+            return;
+        }
         Track track = contentProviderUtils.getTrack(trackId);
 
         switch (resultCode) {
@@ -326,6 +382,7 @@ public class ExportActivity extends FragmentActivity implements ExportServiceRes
                 trackErrors.add(track.getName());
                 break;
             case ExportServiceResultReceiver.RESULT_CODE_SUCCESS:
+                exportedBytes += resultData.getLong(ExportServiceResultReceiver.RESULT_EXTRA_BYTES);
                 if (ExportUtils.isExportFileExists(track.getUuid(), trackFileFormat.getExtension(), directoryFiles)) {
                     trackExportOverwrittenCount++;
                 } else {
@@ -337,6 +394,7 @@ public class ExportActivity extends FragmentActivity implements ExportServiceRes
         }
 
         onExportCompleted(track);
+        exportNextTracks();
     }
 
     private void conflict(Track track) {
@@ -373,6 +431,7 @@ public class ExportActivity extends FragmentActivity implements ExportServiceRes
             }
 
             export(track);
+            exportNextTracks();
             return true;
         }
 
@@ -381,6 +440,7 @@ public class ExportActivity extends FragmentActivity implements ExportServiceRes
          */
         public void overwrite() {
             export(track, CONFLICT_OVERWRITE);
+            exportNextTracks();
 
             if (viewBinding.exportProgressApplyToAll.isChecked()) {
                 autoConflict = CONFLICT_OVERWRITE;
@@ -6,29 +6,71 @@ import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.ResultReceiver;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.core.app.JobIntentService;
 import androidx.documentfile.provider.DocumentFile;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
 import de.dennisguse.opentracks.io.file.TrackFileFormat;
 import de.dennisguse.opentracks.util.ExportUtils;
 
+/**
+ * Exports tracks in parallel; a result is sent for every track as soon as it was exported.
+ * <p>
+ * The tracks of all work are exported by one pool, so the tracks of the next work are started while the previous ones are still being exported.
+ * As the work is done one after another, a work is finished after all exports are done or as soon as the next work is enqueued (which then waits for the exports); so the job (and its wake lock) is kept until all tracks are exported.
+ */
 public class ExportService extends JobIntentService {
 
+    private static final String TAG = ExportService.class.getSimpleName();
+
     private static final int JOB_ID = 1;
 
+    /**
+     * Number of tracks that are exported at the same time (also limits the parallel writes to the directory).
+     */
+    static final int PARALLEL_EXPORTS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private static final ThreadPoolExecutor EXPORT_EXECUTOR = new ThreadPoolExecutor(PARALLEL_EXPORTS, PARALLEL_EXPORTS, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+
+    static {
+        EXPORT_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    // Guards pendingExports and pendingWork.
+    private static final Object EXPORTS_LOCK = new Object();
+    // Tracks that are submitted to EXPORT_EXECUTOR and not yet exported.
+    private static int pendingExports = 0;
+    // Work that is enqueued and not yet started.
+    private static int pendingWork = 0;
+
     private static final String EXTRA_RECEIVER = "extra_receiver";
-    private static final String EXTRA_TRACK_ID = "extra_track_id";
+    private static final String EXTRA_TRACK_IDS = "extra_track_ids";
     private static final String EXTRA_TRACK_FILE_FORMAT = "extra_track_file_format";
     private static final String EXTRA_DIRECTORY_URI = "extra_directory_uri";
 
     public static void enqueue(Context context, ExportServiceResultReceiver receiver, Track.Id trackId, TrackFileFormat trackFileFormat, Uri directoryUri) {
+        enqueue(context, receiver, new ArrayList<>(Collections.singletonList(trackId)), trackFileFormat, directoryUri);
+    }
+
+    public static void enqueue(Context context, ExportServiceResultReceiver receiver, ArrayList<Track.Id> trackIds, TrackFileFormat trackFileFormat, Uri directoryUri) {
+        synchronized (EXPORTS_LOCK) {
+            pendingWork++;
+            EXPORTS_LOCK.notifyAll();
+        }
+
         Intent intent = new Intent(context, JobService.class);
         intent.putExtra(EXTRA_RECEIVER, receiver);
-        intent.putExtra(EXTRA_TRACK_ID, trackId);
+        intent.putParcelableArrayListExtra(EXTRA_TRACK_IDS, trackIds);
         intent.putExtra(EXTRA_TRACK_FILE_FORMAT, trackFileFormat);
         intent.putExtra(EXTRA_DIRECTORY_URI, directoryUri);
         enqueueWork(context, ExportService.class, JOB_ID, intent);
@@ -38,7 +80,7 @@ public class ExportService extends JobIntentService {
     protected void onHandleWork(@NonNull Intent intent) {
         // Get all data.
         ResultReceiver resultReceiver = intent.getParcelableExtra(EXTRA_RECEIVER);
-        Track.Id trackId = intent.getParcelableExtra(EXTRA_TRACK_ID);
+        ArrayList<Track.Id> trackIds = intent.getParcelableArrayListExtra(EXTRA_TRACK_IDS);
         TrackFileFormat trackFileFormat = (TrackFileFormat) intent.getSerializableExtra(EXTRA_TRACK_FILE_FORMAT);
         Uri directoryUri = intent.getParcelableExtra(EXTRA_DIRECTORY_URI);
 
@@ -47,15 +89,48 @@ public class ExportService extends JobIntentService {
 
         // Export.
         ContentProviderUtils contentProviderUtils = new ContentProviderUtils(this);
+        synchronized (EXPORTS_LOCK) {
+            // Not counted if the work was redelivered after a restart of the process.
+            pendingWork = Math.max(0, pendingWork - 1);
+            pendingExports += trackIds.size();
+        }
+        for (Track.Id trackId : trackIds) {
+            EXPORT_EXECUTOR.execute(() -> {
+                try {
+                    exportTrack(contentProviderUtils, resultReceiver, trackId, trackFileFormat, directoryFile);
+                } finally {
+                    synchronized (EXPORTS_LOCK) {
+                        pendingExports--;
+                        EXPORTS_LOCK.notifyAll();
+                    }
+                }
+            });
+        }
+
+        // Work is finished after all tracks were exported or if the next work waits for them.
+        synchronized (EXPORTS_LOCK) {
+            try {
+                while (pendingExports > 0 && pendingWork == 0) {
+                    EXPORTS_LOCK.wait();
+                }
+            } catch (InterruptedException e) {
+                Log.w(TAG, "Export interrupted.");
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void exportTrack(ContentProviderUtils contentProviderUtils, ResultReceiver resultReceiver, Track.Id trackId, TrackFileFormat trackFileFormat, DocumentFile directoryFile) {
         Track track = contentProviderUtils.getTrack(trackId);
-        boolean success = ExportUtils.exportTrack(this, trackFileFormat, directoryFile, track);
+        long bytes = ExportUtils.exportTrack(this, trackFileFormat, directoryFile, track);
 
         // Prepare resultCode and bundle to send to the receiver.
         Bundle bundle = new Bundle();
         bundle.putParcelable(ExportServiceResultReceiver.RESULT_EXTRA_TRACK_ID, trackId);
+        bundle.putLong(ExportServiceResultReceiver.RESULT_EXTRA_BYTES, Math.max(bytes, 0));
 
         // Send result to the receiver.
-        int resultCode = success ? ExportServiceResultReceiver.RESULT_CODE_SUCCESS : ExportServiceResultReceiver.RESULT_CODE_ERROR;
+        int resultCode = bytes >= 0 ? ExportServiceResultReceiver.RESULT_CODE_SUCCESS : ExportServiceResultReceiver.RESULT_CODE_ERROR;
         resultReceiver.send(resultCode, bundle);
     }
 }
@@ -16,6 +16,7 @@ public class ExportServiceResultReceiver extends ResultReceiver {
     public static final int RESULT_CODE_ERROR = 0;
 
     public static final String RESULT_EXTRA_TRACK_ID = "result_extra_track_id";
+    public static final String RESULT_EXTRA_BYTES = "result_extra_bytes";
 
     private final Receiver receiver;
 
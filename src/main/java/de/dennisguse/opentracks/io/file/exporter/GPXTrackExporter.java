@@ -23,8 +23,6 @@ import androidx.annotation.NonNull;
 
 import java.io.OutputStream;
 import java.io.PrintWriter;
-import java.text.NumberFormat;
-import java.util.Locale;
 
 import de.dennisguse.opentracks.content.data.Marker;
 import de.dennisguse.opentracks.content.data.Track;
@@ -46,43 +44,24 @@ public class GPXTrackExporter implements TrackExporter {
 
     private static final String TAG = GPXTrackExporter.class.getSimpleName();
 
-    private static final NumberFormat ALTITUDE_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat COORDINATE_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat SPEED_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat DISTANCE_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat HEARTRATE_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat CADENCE_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat POWER_FORMAT = NumberFormat.getInstance(Locale.US);
-
-    static {
-        /*
-         * GPX readers expect to see fractional numbers with US-style punctuation.
-         * That is, they want periods for decimal points, rather than commas.
-         */
-        ALTITUDE_FORMAT.setMaximumFractionDigits(1);
-        ALTITUDE_FORMAT.setGroupingUsed(false);
-
-        COORDINATE_FORMAT.setMaximumFractionDigits(6);
-        COORDINATE_FORMAT.setMaximumIntegerDigits(3);
-        COORDINATE_FORMAT.setGroupingUsed(false);
-
-        SPEED_FORMAT.setMaximumFractionDigits(2);
-        SPEED_FORMAT.setGroupingUsed(false);
-
-        HEARTRATE_FORMAT.setMaximumFractionDigits(0);
-        HEARTRATE_FORMAT.setGroupingUsed(false);
-
-        CADENCE_FORMAT.setMaximumFractionDigits(0);
-        CADENCE_FORMAT.setGroupingUsed(false);
-
-        POWER_FORMAT.setMaximumFractionDigits(0);
-        POWER_FORMAT.setGroupingUsed(false);
-    }
+    /*
+     * GPX readers expect to see fractional numbers with US-style punctuation.
+     * That is, they want periods for decimal points, rather than commas.
+     * Written by the {@link LineWriter}.
+     */
+    private static final int ALTITUDE_FRACTION_DIGITS = 1;
+    private static final int COORDINATE_FRACTION_DIGITS = 6;
+    private static final int SPEED_FRACTION_DIGITS = 2;
+    private static final int DISTANCE_FRACTION_DIGITS = 3;
+    private static final int HEARTRATE_FRACTION_DIGITS = 0;
+    private static final int CADENCE_FRACTION_DIGITS = 0;
+    private static final int POWER_FRACTION_DIGITS = 0;
 
     private final ContentProviderUtils contentProviderUtils;
 
     private final String creator;
     private PrintWriter printWriter;
+    private LineWriter lineWriter;
 
     public GPXTrackExporter(ContentProviderUtils contentProviderUtils, String creator) {
         this.contentProviderUtils = contentProviderUtils;
@@ -122,11 +101,13 @@ public class GPXTrackExporter implements TrackExporter {
         boolean wroteTrack = false;
         boolean wroteSegment = false;
 
+        // TrackPoints are written immediately: one instance is reused.
+        TrackPoint trackPoint = new TrackPoint(TrackPoint.Type.TRACKPOINT);
         try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(track.getId(), null)) {
             while (trackPointIterator.hasNext()) {
                 if (Thread.interrupted()) throw new InterruptedException();
 
-                TrackPoint trackPoint = trackPointIterator.next();
+                trackPointIterator.next(trackPoint);
 
                 if (!wroteTrack) {
                     writeBeginTrack(track);
@@ -179,12 +160,14 @@ public class GPXTrackExporter implements TrackExporter {
 
     public void prepare(OutputStream outputStream) {
         this.printWriter = new PrintWriter(outputStream);
+        this.lineWriter = new LineWriter(printWriter);
     }
 
     public void close() {
         if (printWriter != null) {
             printWriter.flush();
             printWriter = null;
+            lineWriter = null;
         }
     }
 
@@ -235,9 +218,11 @@ public class GPXTrackExporter implements TrackExporter {
 
     public void writeMarker(Marker marker) {
         if (printWriter != null) {
-            printWriter.println("<wpt " + formatLocation(marker.getLatitude(), marker.getLongitude()) + ">");
+            lineWriter.append("<wpt ");
+            appendLocation(marker.getLatitude(), marker.getLongitude());
+            lineWriter.append('>').println();
             if (marker.hasAltitude()) {
-                printWriter.println("<ele>" + ALTITUDE_FORMAT.format(marker.getAltitude()) + "</ele>");
+                lineWriter.append("<ele>").append(marker.getAltitude(), ALTITUDE_FRACTION_DIGITS).append("</ele>").println();
             }
             printWriter.println("<time>" + StringUtils.formatDateTimeIso8601(marker.getTime()) + "</time>");
             printWriter.println("<name>" + StringUtils.formatCData(marker.getName()) + "</name>");
@@ -278,43 +263,45 @@ public class GPXTrackExporter implements TrackExporter {
     public void writeTrackPoint(TrackPoint trackPoint) {
         if (printWriter != null) {
 
-            printWriter.println("<trkpt " + formatLocation(trackPoint.getLatitude(), trackPoint.getLongitude()) + ">");
+            lineWriter.append("<trkpt ");
+            appendLocation(trackPoint.getLatitude(), trackPoint.getLongitude());
+            lineWriter.append('>').println();
 
             if (trackPoint.hasAltitude()) {
-                printWriter.println("<ele>" + ALTITUDE_FORMAT.format(trackPoint.getAltitude()) + "</ele>");
+                lineWriter.append("<ele>").append(trackPoint.getAltitude(), ALTITUDE_FRACTION_DIGITS).append("</ele>").println();
             }
 
-            printWriter.println("<time>" + StringUtils.formatDateTimeIso8601(trackPoint.getTime()) + "</time>");
+            lineWriter.append("<time>").appendTime(trackPoint.getTimeEpochMillis()).append("</time>").println();
 
             if (trackPoint.hasSpeed() || trackPoint.hasHeartRate() || trackPoint.hasCyclingCadence() || trackPoint.hasAltitudeGain() || trackPoint.hasAltitudeLoss()) {
                 printWriter.println("<extensions><gpxtpx:TrackPointExtension>");
 
                 if (trackPoint.hasSpeed()) {
-                    printWriter.println("<gpxtpx:speed>" + SPEED_FORMAT.format(trackPoint.getSpeed()) + "</gpxtpx:speed>");
+                    lineWriter.append("<gpxtpx:speed>").append(trackPoint.getSpeed(), SPEED_FRACTION_DIGITS).append("</gpxtpx:speed>").println();
                 }
 
                 if (trackPoint.hasHeartRate()) {
-                    printWriter.println("<gpxtpx:hr>" + HEARTRATE_FORMAT.format(trackPoint.getHeartRate_bpm()) + "</gpxtpx:hr>");
+                    lineWriter.append("<gpxtpx:hr>").append(trackPoint.getHeartRate_bpm(), HEARTRATE_FRACTION_DIGITS).append("</gpxtpx:hr>").println();
                 }
 
                 if (trackPoint.hasCyclingCadence()) {
-                    printWriter.println("<gpxtpx:cad>" + CADENCE_FORMAT.format(trackPoint.getCyclingCadence_rpm()) + "</gpxtpx:cad>");
+                    lineWriter.append("<gpxtpx:cad>").append(trackPoint.getCyclingCadence_rpm(), CADENCE_FRACTION_DIGITS).append("</gpxtpx:cad>").println();
                 }
 
                 if (trackPoint.hasPower()) {
-                    printWriter.println("<pwr:PowerInWatts>" + POWER_FORMAT.format(trackPoint.getPower()) + "</pwr:PowerInWatts>");
+                    lineWriter.append("<pwr:PowerInWatts>").append(trackPoint.getPower(), POWER_FRACTION_DIGITS).append("</pwr:PowerInWatts>").println();
                 }
 
                 if (trackPoint.hasAltitudeGain()) {
-                    printWriter.println("<opentracks:gain>" + ALTITUDE_FORMAT.format(trackPoint.getAltitudeGain()) + "</opentracks:gain>");
+                    lineWriter.append("<opentracks:gain>").append(trackPoint.getAltitudeGain(), ALTITUDE_FRACTION_DIGITS).append("</opentracks:gain>").println();
                 }
 
                 if (trackPoint.hasAltitudeLoss()) {
-                    printWriter.println("<opentracks:loss>" + ALTITUDE_FORMAT.format(trackPoint.getAltitudeLoss()) + "</opentracks:loss>");
+                    lineWriter.append("<opentracks:loss>").append(trackPoint.getAltitudeLoss(), ALTITUDE_FRACTION_DIGITS).append("</opentracks:loss>").println();
                 }
 
                 if (trackPoint.hasSensorDistance()) {
-                    printWriter.println("<opentracks:distance>" + DISTANCE_FORMAT.format(trackPoint.getAltitudeLoss()) + "</opentracks:distance>");
+                    lineWriter.append("<opentracks:distance>").append(trackPoint.getSensorDistance(), DISTANCE_FRACTION_DIGITS).append("</opentracks:distance>").println();
                 }
 
                 printWriter.println("</gpxtpx:TrackPointExtension></extensions>");
@@ -324,7 +311,7 @@ public class GPXTrackExporter implements TrackExporter {
         }
     }
 
-    private String formatLocation(double latitude, double longitude) {
-        return "lat=\"" + COORDINATE_FORMAT.format(latitude) + "\" lon=\"" + COORDINATE_FORMAT.format(longitude) + "\"";
+    private void appendLocation(double latitude, double longitude) {
+        lineWriter.append("lat=\"").append(latitude, COORDINATE_FRACTION_DIGITS).append("\" lon=\"").append(longitude, COORDINATE_FRACTION_DIGITS).append('"');
     }
 }
@@ -28,9 +28,8 @@ import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.util.Arrays;
+import java.util.BitSet;
 
 import de.dennisguse.opentracks.R;
 import de.dennisguse.opentracks.content.data.Marker;
@@ -74,13 +73,15 @@ public class KMLTrackExporter implements TrackExporter {
     private final ContentProviderUtils contentProviderUtils;
 
     private PrintWriter printWriter;
-    private final List<Float> speedList = new ArrayList<>();
-    private final List<Float> distanceList = new ArrayList<>();
-    private final List<Float> powerList = new ArrayList<>();
-    private final List<Float> cadenceList = new ArrayList<>();
-    private final List<Float> heartRateList = new ArrayList<>();
-    private final List<Float> altitudeGainList = new ArrayList<>();
-    private final List<Float> altitudeLossList = new ArrayList<>();
+    private LineWriter lineWriter;
+    // Values of the current segment; reused for all segments.
+    private final FloatArrayData speedData = new FloatArrayData();
+    private final FloatArrayData distanceData = new FloatArrayData();
+    private final FloatArrayData powerData = new FloatArrayData();
+    private final FloatArrayData cadenceData = new FloatArrayData();
+    private final FloatArrayData heartRateData = new FloatArrayData();
+    private final FloatArrayData altitudeGainData = new FloatArrayData();
+    private final FloatArrayData altitudeLossData = new FloatArrayData();
 
     @Deprecated // Figure out a better way to do this! (if needed)
     private TrackPoint startTrackPoint;
@@ -215,6 +216,7 @@ public class KMLTrackExporter implements TrackExporter {
     @VisibleForTesting
     void prepare(OutputStream outputStream) {
         this.printWriter = new PrintWriter(outputStream);
+        this.lineWriter = new LineWriter(printWriter);
     }
 
     @VisibleForTesting
@@ -222,6 +224,7 @@ public class KMLTrackExporter implements TrackExporter {
         if (printWriter != null) {
             printWriter.flush();
             printWriter = null;
+            lineWriter = null;
         }
     }
 
@@ -339,13 +342,13 @@ public class KMLTrackExporter implements TrackExporter {
     void writeOpenSegment() {
         if (printWriter != null) {
             printWriter.println("<gx:Track>");
-            speedList.clear();
-            distanceList.clear();
-            powerList.clear();
-            cadenceList.clear();
-            heartRateList.clear();
-            altitudeGainList.clear();
-            altitudeLossList.clear();
+            speedData.clear();
+            distanceData.clear();
+            powerData.clear();
+            cadenceData.clear();
+            heartRateData.clear();
+            altitudeGainData.clear();
+            altitudeLossData.clear();
         }
     }
 
@@ -354,27 +357,27 @@ public class KMLTrackExporter implements TrackExporter {
         if (printWriter != null) {
             printWriter.println("<ExtendedData>");
             printWriter.println("<SchemaData schemaUrl=\"#" + SCHEMA_ID + "\">");
-            if (speedList.stream().anyMatch(Objects::nonNull)) {
-                writeSimpleArrayData(speedList, EXTENDED_DATA_TYPE_SPEED);
+            if (speedData.hasValues()) {
+                writeSimpleArrayData(speedData, EXTENDED_DATA_TYPE_SPEED);
             }
             if (exportSensorData) {
-                if (distanceList.stream().anyMatch(Objects::nonNull)) {
-                    writeSimpleArrayData(distanceList, EXTENDED_DATA_TYPE_DISTANCE);
+                if (distanceData.hasValues()) {
+                    writeSimpleArrayData(distanceData, EXTENDED_DATA_TYPE_DISTANCE);
                 }
-                if (powerList.stream().anyMatch(Objects::nonNull)) {
-                    writeSimpleArrayData(powerList, EXTENDED_DATA_TYPE_POWER);
+                if (powerData.hasValues()) {
+                    writeSimpleArrayData(powerData, EXTENDED_DATA_TYPE_POWER);
                 }
-                if (cadenceList.stream().anyMatch(Objects::nonNull)) {
-                    writeSimpleArrayData(cadenceList, EXTENDED_DATA_TYPE_CADENCE);
+                if (cadenceData.hasValues()) {
+                    writeSimpleArrayData(cadenceData, EXTENDED_DATA_TYPE_CADENCE);
                 }
-                if (heartRateList.stream().anyMatch(Objects::nonNull)) {
-                    writeSimpleArrayData(heartRateList, EXTENDED_DATA_TYPE_HEART_RATE);
+                if (heartRateData.hasValues()) {
+                    writeSimpleArrayData(heartRateData, EXTENDED_DATA_TYPE_HEART_RATE);
                 }
-                if (altitudeGainList.stream().anyMatch(Objects::nonNull)) {
-                    writeSimpleArrayData(altitudeGainList, EXTENDED_DATA_TYPE_ALTITUDE_GAIN);
+                if (altitudeGainData.hasValues()) {
+                    writeSimpleArrayData(altitudeGainData, EXTENDED_DATA_TYPE_ALTITUDE_GAIN);
                 }
-                if (altitudeLossList.stream().anyMatch(Objects::nonNull)) {
-                    writeSimpleArrayData(altitudeLossList, EXTENDED_DATA_TYPE_ALTITUDE_LOSS);
+                if (altitudeLossData.hasValues()) {
+                    writeSimpleArrayData(altitudeLossData, EXTENDED_DATA_TYPE_ALTITUDE_LOSS);
                 }
             }
             printWriter.println("</SchemaData>");
@@ -387,24 +390,54 @@ public class KMLTrackExporter implements TrackExporter {
     void writeTrackPoint(TrackPoint trackPoint) {
         if (printWriter != null) {
             if (exportTrackDetail) {
-                printWriter.println("<when>" + getTime(trackPoint.getLocation()) + "</when>");
+                lineWriter.append("<when>").appendTime(getTime_ms(trackPoint.getTimeEpochMillis())).append("</when>").println();
             }
 
             if (trackPoint.hasLocation()) {
-                printWriter.println("<gx:coord>" + (trackPoint.hasLocation() ? getCoordinates(trackPoint.getLocation(), " ") : "") + "</gx:coord>");
+                lineWriter.append("<gx:coord>");
+                appendCoordinates(trackPoint, ' ');
+                lineWriter.append("</gx:coord>").println();
             } else {
                 printWriter.println("<gx:coord/>");
             }
-            speedList.add(trackPoint.hasSpeed() ? trackPoint.getSpeed() : null);
+            if (trackPoint.hasSpeed()) {
+                speedData.add(trackPoint.getSpeed());
+            } else {
+                speedData.addEmpty();
+            }
 
             if (exportSensorData) {
-                distanceList.add(trackPoint.hasSensorDistance() ? trackPoint.getSensorDistance() : null);
-                heartRateList.add(trackPoint.hasHeartRate() ? trackPoint.getHeartRate_bpm() : null);
-                cadenceList.add(trackPoint.hasCyclingCadence() ? trackPoint.getCyclingCadence_rpm() : null);
-                powerList.add(trackPoint.hasPower() ? trackPoint.getPower() : null);
+                if (trackPoint.hasSensorDistance()) {
+                    distanceData.add(trackPoint.getSensorDistance());
+                } else {
+                    distanceData.addEmpty();
+                }
+                if (trackPoint.hasHeartRate()) {
+                    heartRateData.add(trackPoint.getHeartRate_bpm());
+                } else {
+                    heartRateData.addEmpty();
+                }
+                if (trackPoint.hasCyclingCadence()) {
+                    cadenceData.add(trackPoint.getCyclingCadence_rpm());
+                } else {
+                    cadenceData.addEmpty();
+                }
+                if (trackPoint.hasPower()) {
+                    powerData.add(trackPoint.getPower());
+                } else {
+                    powerData.addEmpty();
+                }
 
-                altitudeGainList.add(trackPoint.hasAltitudeGain() ? trackPoint.getAltitudeGain() : null);
-                altitudeLossList.add(trackPoint.hasAltitudeLoss() ? trackPoint.getAltitudeLoss() : null);
+                if (trackPoint.hasAltitudeGain()) {
+                    altitudeGainData.add(trackPoint.getAltitudeGain());
+                } else {
+                    altitudeGainData.addEmpty();
+                }
+                if (trackPoint.hasAltitudeLoss()) {
+                    altitudeLossData.add(trackPoint.getAltitudeLoss());
+                } else {
+                    altitudeLossData.addEmpty();
+                }
             }
         }
     }
@@ -412,17 +445,16 @@ public class KMLTrackExporter implements TrackExporter {
     /**
      * Writes the simple array data.
      *
-     * @param list a list of simple array data
+     * @param data the simple array data
      * @param name the name of the simple array data
      */
-    private void writeSimpleArrayData(List<Float> list, String name) {
+    private void writeSimpleArrayData(FloatArrayData data, String name) {
         printWriter.println("<gx:SimpleArrayData name=\"" + name + "\">");
-        for (int i = 0; i < list.size(); i++) {
-            Float value = list.get(i);
-            if (value == null) {
+        for (int i = 0; i < data.size(); i++) {
+            if (!data.hasValue(i)) {
                 printWriter.println("<gx:value />");
             } else {
-                printWriter.println("<gx:value>" + list.get(i) + "</gx:value>");
+                lineWriter.append("<gx:value>").append(Float.toString(data.getValue(i))).append("</gx:value>").println();
             }
         }
         printWriter.println("</gx:SimpleArrayData>");
@@ -492,10 +524,19 @@ public class KMLTrackExporter implements TrackExporter {
      * @param location the location
      */
     private String getTime(Location location) {
+        return StringUtils.formatDateTimeIso8601(Instant.ofEpochMilli(getTime_ms(location.getTime())));
+    }
+
+    /**
+     * Returns the time to be exported; either absolute or relative depending exportTrackDetail.
+     *
+     * @param time_ms the time in milliseconds since epoch
+     */
+    private long getTime_ms(long time_ms) {
         if (exportTrackDetail) {
-            return StringUtils.formatDateTimeIso8601(Instant.ofEpochMilli(location.getTime()));
+            return time_ms;
         } else {
-            return StringUtils.formatDateTimeIso8601(Instant.ofEpochMilli(location.getTime() - startTrackPoint.getTime().toEpochMilli()));
+            return time_ms - startTrackPoint.getTimeEpochMillis();
         }
     }
 
@@ -518,6 +559,17 @@ public class KMLTrackExporter implements TrackExporter {
         return location.getBearing();
     }
 
+    /**
+     * Like {@link #getCoordinates(Location, String)}, but appends the trackPoint's coordinates to the lineWriter.
+     * Same as for the other numbers of KML, Double.toString() is used (allocates a String per value).
+     */
+    private void appendCoordinates(TrackPoint trackPoint, char separator) {
+        lineWriter.append(Double.toString(trackPoint.getLongitude())).append(separator).append(Double.toString(trackPoint.getLatitude()));
+        if (trackPoint.hasAltitude()) {
+            lineWriter.append(separator).append(Double.toString(trackPoint.getAltitude()));
+        }
+    }
+
     private String getCoordinates(Location location, String separator) {
         StringBuilder builder = new StringBuilder();
         builder.append(location.getLongitude()).append(separator).append(location.getLatitude());
@@ -594,4 +646,59 @@ public class KMLTrackExporter implements TrackExporter {
             trackPoint.setTime(trackPoint.getTime().minus(offset));
         }
     }
+
+    /**
+     * Growable float array for the values of a gx:SimpleArrayData (without boxing); values may be empty.
+     */
+    private static class FloatArrayData {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private float[] values = new float[INITIAL_CAPACITY];
+        private final BitSet hasValue = new BitSet(INITIAL_CAPACITY);
+        private int size = 0;
+        private boolean hasValues = false;
+
+        void add(float value) {
+            ensureCapacity();
+            values[size] = value;
+            hasValue.set(size);
+            hasValues = true;
+            size++;
+        }
+
+        void addEmpty() {
+            ensureCapacity();
+            hasValue.clear(size);
+            size++;
+        }
+
+        private void ensureCapacity() {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+        }
+
+        void clear() {
+            size = 0;
+            hasValues = false;
+            hasValue.clear();
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean hasValues() {
+            return hasValues;
+        }
+
+        boolean hasValue(int index) {
+            return hasValue.get(index);
+        }
+
+        float getValue(int index) {
+            return values[index];
+        }
+    }
 }
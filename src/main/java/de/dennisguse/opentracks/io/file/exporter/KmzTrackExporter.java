@@ -28,16 +28,31 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import de.dennisguse.opentracks.content.data.Marker;
+import de.dennisguse.opentracks.content.data.MarkerColumns;
 import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
 import de.dennisguse.opentracks.util.FileUtils;
 
 /**
  * KMZ track exporter.
+ * <p>
+ * Images are already compressed (JPEG): they are stored without compression (STORED).
+ * The images are read (and their CRC computed) in parallel ahead of writing by a pool shared by all exports; the zip file itself is written sequentially.
  *
  * @author Jimmy Shih
  */
@@ -49,6 +64,22 @@ public class KmzTrackExporter implements TrackExporter {
     private static final String TAG = KmzTrackExporter.class.getSimpleName();
     private static final int BUFFER_SIZE = 4096;
 
+    /**
+     * Number of images that are read in parallel by all exports; several tracks may be exported at the same time (see {@link ExportService}).
+     */
+    private static final int PARALLEL_IMAGE_READS = Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Number of images that are read ahead of writing (per export); limits the memory used for images.
+     */
+    private static final int PREFETCHED_IMAGES = 2 * PARALLEL_IMAGE_READS;
+
+    private static final ThreadPoolExecutor IMAGE_READER = new ThreadPoolExecutor(PARALLEL_IMAGE_READS, PARALLEL_IMAGE_READS, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+
+    static {
+        IMAGE_READER.allowCoreThreadTimeOut(true);
+    }
+
     private final ContentProviderUtils contentProviderUtils;
     private final KMLTrackExporter fileTrackExporter;
 
@@ -91,59 +122,165 @@ public class KmzTrackExporter implements TrackExporter {
     }
 
     private void addImages(Context context, Track[] tracks, ZipOutputStream zipOutputStream) throws InterruptedException, IOException {
+        List<Image> images = getImages(context, tracks);
+        if (images.isEmpty()) {
+            return;
+        }
+
+        Deque<Future<ImageData>> readImages = new ArrayDeque<>();
+        try {
+            int nextImage = 0;
+            while (nextImage < images.size() || !readImages.isEmpty()) {
+                while (nextImage < images.size() && readImages.size() < PREFETCHED_IMAGES) {
+                    Image image = images.get(nextImage++);
+                    readImages.add(IMAGE_READER.submit(() -> readImage(context, image)));
+                }
+
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                ImageData imageData;
+                try {
+                    imageData = readImages.remove().get();
+                } catch (ExecutionException e) {
+                    throw new IOException("Unable to read image", e.getCause());
+                }
+                if (imageData != null) {
+                    addImage(zipOutputStream, imageData);
+                }
+            }
+        } finally {
+            for (Future<ImageData> readImage : readImages) {
+                readImage.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Gets the images of the tracks' markers (in the order of the markers); reads only the necessary columns instead of creating {@link Marker}s.
+     */
+    private List<Image> getImages(Context context, Track[] tracks) throws InterruptedException {
+        List<Image> images = new ArrayList<>();
         for (Track track : tracks) {
             try (Cursor cursor = contentProviderUtils.getMarkerCursor(track.getId(), null, -1)) {
-                if (cursor != null && cursor.moveToFirst()) {
-                    for (int i = 0; i < cursor.getCount(); i++) {
-                        if (Thread.interrupted()) {
-                            throw new InterruptedException();
-                        }
-                        Marker marker = contentProviderUtils.createMarker(cursor);
-                        if (marker.hasPhoto()) {
-                            Uri uriPhoto = marker.getPhotoURI();
-                            boolean existsPhoto = FileUtils.buildInternalPhotoFile(context, track.getId(), uriPhoto) != null;
-                            if (existsPhoto) {
-                                addImage(context, zipOutputStream, uriPhoto, marker);
-                            }
-                        }
-
-                        cursor.moveToNext();
+                if (cursor == null) {
+                    continue;
+                }
+                int idIndex = cursor.getColumnIndexOrThrow(MarkerColumns._ID);
+                int photoUrlIndex = cursor.getColumnIndexOrThrow(MarkerColumns.PHOTOURL);
+                while (cursor.moveToNext()) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    String photoUrl = cursor.getString(photoUrlIndex);
+                    if (photoUrl == null || "".equals(photoUrl)) {
+                        continue;
+                    }
+
+                    Uri uriPhoto = Uri.parse(photoUrl);
+                    File photoFile = FileUtils.buildInternalPhotoFile(context, track.getId(), uriPhoto);
+                    if (photoFile != null) {
+                        images.add(new Image(uriPhoto, photoFile, buildKmzImageFilePath(new Marker.Id(cursor.getLong(idIndex)), photoUrl)));
                     }
                 }
             }
         }
+        return images;
     }
 
-    private void addImage(Context context, ZipOutputStream zipOutputStream, Uri uri, Marker marker) throws IOException {
-        try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
-            ZipEntry zipEntry = new ZipEntry(buildKmzImageFilePath(marker));
-            zipOutputStream.putNextEntry(zipEntry);
-
+    /**
+     * Reads an image and computes its CRC; runs in parallel.
+     * The buffer is sized by the image's file, so it is allocated once (and only grown if the file was changed meanwhile).
+     *
+     * @return null if the image does not exist
+     */
+    private static ImageData readImage(Context context, Image image) throws IOException {
+        try (InputStream inputStream = context.getContentResolver().openInputStream(image.uri)) {
             if (inputStream == null) throw new FileNotFoundException();
 
-            readToOutputStream(inputStream, zipOutputStream);
-            zipOutputStream.closeEntry();
+            long length = image.file.length();
+            if (length > Integer.MAX_VALUE - BUFFER_SIZE) {
+                throw new IOException("Image too large: " + image.file);
+            }
+
+            byte[] data = new byte[(int) length];
+            int size = 0;
+            while (true) {
+                if (size == data.length) {
+                    int next = inputStream.read();
+                    if (next == -1) {
+                        break;
+                    }
+                    data = Arrays.copyOf(data, data.length + Math.max(data.length, BUFFER_SIZE));
+                    data[size++] = (byte) next;
+                }
+                int byteCount = inputStream.read(data, size, data.length - size);
+                if (byteCount == -1) {
+                    break;
+                }
+                size += byteCount;
+            }
 
-            Log.i(TAG, "added an image to zip");
+            CRC32 crc32 = new CRC32();
+            crc32.update(data, 0, size);
+            return new ImageData(image.path, data, size, crc32.getValue());
         } catch (FileNotFoundException e) {
-            Log.e(TAG, "could not get image via FileProvider via uri " + uri);
+            Log.e(TAG, "could not get image via FileProvider via uri " + image.uri);
+            return null;
         }
     }
 
-    private void readToOutputStream(InputStream inputStream, OutputStream outputStream) throws IOException {
-        byte[] buffer = new byte[BUFFER_SIZE];
-        int byteCount;
-        while ((byteCount = inputStream.read(buffer)) != -1) {
-            outputStream.write(buffer, 0, byteCount);
-        }
+    private static void addImage(ZipOutputStream zipOutputStream, ImageData imageData) throws IOException {
+        ZipEntry zipEntry = new ZipEntry(imageData.path);
+        zipEntry.setMethod(ZipEntry.STORED);
+        zipEntry.setSize(imageData.size);
+        zipEntry.setCompressedSize(imageData.size);
+        zipEntry.setCrc(imageData.crc);
+        zipOutputStream.putNextEntry(zipEntry);
+
+        zipOutputStream.write(imageData.data, 0, imageData.size);
+        zipOutputStream.closeEntry();
+
+        Log.i(TAG, "added an image to zip");
     }
 
     /**
      * Builds and returns the path for the image that will be saved inside KMZ_IMAGES_DIR for the marker.
      */
     public static String buildKmzImageFilePath(Marker marker) {
-        String ext = FileUtils.getExtension(marker.getPhotoUrl());
+        return buildKmzImageFilePath(marker.getId(), marker.getPhotoUrl());
+    }
+
+    private static String buildKmzImageFilePath(Marker.Id markerId, String photoUrl) {
+        String ext = FileUtils.getExtension(photoUrl);
         ext = ext == null ? "" : "." + ext;
-        return KMZ_IMAGES_DIR + File.separatorChar + FileUtils.sanitizeFileName(marker.getId().getId() + ext);
+        return KMZ_IMAGES_DIR + File.separatorChar + FileUtils.sanitizeFileName(markerId.getId() + ext);
+    }
+
+    private static class Image {
+        private final Uri uri;
+        private final File file;
+        private final String path;
+
+        Image(Uri uri, File file, String path) {
+            this.uri = uri;
+            this.file = file;
+            this.path = path;
+        }
+    }
+
+    private static class ImageData {
+        private final String path;
+        private final byte[] data;
+        private final int size;
+        private final long crc;
+
+        ImageData(String path, byte[] data, int size, long crc) {
+            this.path = path;
+            this.data = data;
+            this.size = size;
+            this.crc = crc;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,207 @@
+package de.dennisguse.opentracks.io.file.exporter;
+
+import androidx.annotation.NonNull;
+
+import java.io.PrintWriter;
+import java.text.NumberFormat;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+
+import de.dennisguse.opentracks.util.Iso8601Utils;
+
+/**
+ * Writes the lines of an export to a {@link PrintWriter} using a reusable char buffer.
+ * Text, decimal numbers, and timestamps (ISO 8601; see {@link Iso8601Utils}) are appended without allocations.
+ * <p>
+ * Decimals are written like {@link NumberFormat#getInstance(Locale)} for {@link Locale#US} without grouping and a maximum number of fraction digits:
+ * the shortest representation of the double is rounded HALF_EVEN and trailing zeros are omitted.
+ * <p>
+ * Not thread-safe: to be used by one export at a time (in contrast to shared {@link NumberFormat}s, every exporter has its own).
+ */
+class LineWriter {
+
+    private static final int MAX_FRACTION_DIGITS = 15;
+
+    private static final double[] POWERS_OF_TEN = new double[MAX_FRACTION_DIGITS + 2];
+    private static final long[] LONG_POWERS_OF_TEN = new long[MAX_FRACTION_DIGITS + 2];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        LONG_POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+            LONG_POWERS_OF_TEN[i] = LONG_POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    // Values are only written directly if value * 10^(fraction digits + 1) is below; the spacing of doubles is then small enough for the rounding (see roundHalfEven()).
+    private static final double MAX_SCALED_VALUE = 0x1p50;
+
+    // 2^27 + 1: splits a double into two halves of 26 bits (Dekker)
+    private static final double SPLITTER = 134217729.0;
+
+    private final PrintWriter printWriter;
+
+    private char[] buffer = new char[256];
+    private int length = 0;
+
+    LineWriter(@NonNull PrintWriter printWriter) {
+        this.printWriter = printWriter;
+    }
+
+    LineWriter append(char c) {
+        ensureCapacity(1);
+        buffer[length++] = c;
+        return this;
+    }
+
+    LineWriter append(String string) {
+        ensureCapacity(string.length());
+        string.getChars(0, string.length(), buffer, length);
+        length += string.length();
+        return this;
+    }
+
+    /**
+     * Appends a decimal number; like {@link NumberFormat#format(double)} (see class description).
+     *
+     * @param value                 the value
+     * @param maximumFractionDigits the maximum number of fraction digits
+     */
+    LineWriter append(double value, int maximumFractionDigits) {
+        double absolute = Math.abs(value);
+        if (Double.isNaN(value) || maximumFractionDigits > MAX_FRACTION_DIGITS || !(absolute * POWERS_OF_TEN[maximumFractionDigits + 1] < MAX_SCALED_VALUE)) {
+            // Not expected for the exported data
+            return append(createNumberFormat(maximumFractionDigits).format(value));
+        }
+
+        if (Double.doubleToRawLongBits(value) < 0) {
+            // Including -0 (as NumberFormat)
+            append('-');
+        }
+
+        long scaled = roundHalfEven(absolute, maximumFractionDigits);
+        appendDigits(scaled / LONG_POWERS_OF_TEN[maximumFractionDigits], 1);
+
+        long fraction = scaled % LONG_POWERS_OF_TEN[maximumFractionDigits];
+        if (fraction != 0) {
+            int fractionDigits = maximumFractionDigits;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                fractionDigits--;
+            }
+            append('.');
+            appendDigits(fraction, fractionDigits);
+        }
+        return this;
+    }
+
+    /**
+     * Appends a timestamp; like {@link Instant#toString()}.
+     *
+     * @param epochMilli the milliseconds since 1970-01-01T00:00:00Z
+     */
+    LineWriter appendTime(long epochMilli) {
+        return appendTime(Math.floorDiv(epochMilli, 1000), (int) Math.floorMod(epochMilli, 1000) * 1000000);
+    }
+
+    private LineWriter appendTime(long epochSecond, int nano) {
+        ensureCapacity(Iso8601Utils.MAX_LENGTH);
+        int timeLength = Iso8601Utils.format(epochSecond, nano, buffer, length);
+        if (timeLength < 0) {
+            // Not expected for the exported data
+            return append(Instant.ofEpochSecond(epochSecond, nano).toString());
+        }
+        length += timeLength;
+        return this;
+    }
+
+    /**
+     * Writes the buffer and a line separator.
+     */
+    void println() {
+        print();
+        printWriter.println();
+    }
+
+    /**
+     * Writes the buffer.
+     */
+    void print() {
+        printWriter.write(buffer, 0, length);
+        length = 0;
+    }
+
+    /**
+     * Appends a non-negative value with at least minDigits digits (leading zeros).
+     */
+    private void appendDigits(long value, int minDigits) {
+        int digits = 1;
+        while (digits < LONG_POWERS_OF_TEN.length && value >= LONG_POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+
+        ensureCapacity(digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void ensureCapacity(int additionalLength) {
+        if (length + additionalLength > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + additionalLength));
+        }
+    }
+
+    /**
+     * Rounds value * 10^fractionDigits HALF_EVEN based on the shortest representation of value (as NumberFormat does).
+     * Both only differ if the shortest representation is a tie (i.e., has fractionDigits + 1 fraction digits ending with 5); otherwise the exact value is rounded.
+     *
+     * @param value          non-negative value; value * 10^(fractionDigits + 1) < MAX_SCALED_VALUE
+     * @param fractionDigits the number of fraction digits
+     */
+    static long roundHalfEven(double value, int fractionDigits) {
+        // Is the shortest representation tie? As the spacing of doubles is less than 10^-(fractionDigits + 1) / 4, the candidate is unique.
+        long tie = (long) Math.rint(value * POWERS_OF_TEN[fractionDigits + 1]);
+        if (tie % 10 == 5 && tie / POWERS_OF_TEN[fractionDigits + 1] == value) {
+            long rounded = tie / 10;
+            return rounded % 2 == 0 ? rounded : rounded + 1;
+        }
+
+        // Round the exact value: product + error is the exact value of value * 10^fractionDigits.
+        double product = value * POWERS_OF_TEN[fractionDigits];
+        double error = productError(value, POWERS_OF_TEN[fractionDigits], product);
+        long rounded = (long) Math.rint(product);
+        if (Math.abs(product - rounded) == 0.5 && error != 0) {
+            rounded = (long) (error > 0 ? Math.ceil(product) : Math.floor(product));
+        }
+        return rounded;
+    }
+
+    /**
+     * @return the rounding error of product = a * b (Dekker's two product).
+     */
+    private static double productError(double a, double b, double product) {
+        double aHigh = split(a);
+        double aLow = a - aHigh;
+        double bHigh = split(b);
+        double bLow = b - bHigh;
+        return ((aHigh * bHigh - product) + aHigh * bLow + aLow * bHigh) + aLow * bLow;
+    }
+
+    private static double split(double a) {
+        double c = SPLITTER * a;
+        return c - (c - a);
+    }
+
+    private static NumberFormat createNumberFormat(int maximumFractionDigits) {
+        NumberFormat numberFormat = NumberFormat.getInstance(Locale.US);
+        numberFormat.setMaximumFractionDigits(maximumFractionDigits);
+        numberFormat.setGroupingUsed(false);
+        return numberFormat;
+    }
+}
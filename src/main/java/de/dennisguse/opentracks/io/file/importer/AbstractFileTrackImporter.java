@@ -23,6 +23,7 @@ import android.net.Uri;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
@@ -33,10 +34,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
@@ -63,9 +71,30 @@ abstract class AbstractFileTrackImporter extends DefaultHandler implements Track
 
     private static final String TAG = AbstractFileTrackImporter.class.getSimpleName();
 
+    /**
+     * Maximal number of TrackPoints kept in memory; more are written to the database.
+     */
+    @VisibleForTesting
+    static final int TRACKPOINT_CHUNK_SIZE = 1000;
+
+    /**
+     * Maximal number of flushed chunks waiting for the database writer; limits the memory if parsing is faster than writing.
+     */
+    private static final int MAX_PENDING_FLUSHES = 2;
+
+    /**
+     * Executes the database changes of all imports one after another; parsing of parallel imports is not blocked by each other's database transactions.
+     */
+    private static final ThreadPoolExecutor DATABASE_WRITER = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+
+    static {
+        DATABASE_WRITER.allowCoreThreadTimeOut(true);
+    }
+
     private final Context context;
     private final ContentProviderUtils contentProviderUtils;
     private final int recordingDistanceInterval;
+    private int trackPointChunkSize = TRACKPOINT_CHUNK_SIZE;
 
     private final List<Track.Id> trackIds = new ArrayList<>();
     private final List<Marker> markers = new ArrayList<>();
@@ -108,6 +137,11 @@ abstract class AbstractFileTrackImporter extends DefaultHandler implements Track
         this.recordingDistanceInterval = PreferencesUtils.getRecordingDistanceInterval(sharedPreferences, context);
     }
 
+    @VisibleForTesting
+    void setTrackPointChunkSize(int trackPointChunkSize) {
+        this.trackPointChunkSize = trackPointChunkSize;
+    }
+
     @Override
     public void setDocumentLocator(Locator locator) {
         this.locator = locator;
@@ -132,35 +166,57 @@ abstract class AbstractFileTrackImporter extends DefaultHandler implements Track
             return trackIds;
         } catch (IOException | SAXException | ParserConfigurationException | ParsingException e) {
             Log.e(TAG, "Unable to import file", e);
-            if (trackIds.size() > 0) {
-                cleanImport();
-            }
+            cleanImport();
             throw new ImportParserException(e);
         } catch (SQLiteConstraintException e) {
             Log.e(TAG, "Unable to import file", e);
+            cleanImport();
             throw new ImportAlreadyExistsException(e);
+        } catch (ImportParserException | ImportAlreadyExistsException e) {
+            // TrackPoints might have been written already.
+            cleanImport();
+            throw e;
         }
     }
 
     protected void onFileEnd() {
-        // Add markers to the last imported track
-        int size = trackIds.size();
-        if (size == 0) {
+        runOnDatabaseWriter(this::completeImport);
+    }
+
+    /**
+     * Adds the markers and the track details; afterwards the imported track becomes visible.
+     * Check for an existing track and update in one task: parallel imports might contain the same track.
+     */
+    private void completeImport() {
+        if (trackData == null || trackData.track.getId() == null) {
             return;
         }
-        Track.Id trackId = trackIds.get(size - 1);
-        Track track = contentProviderUtils.getTrack(trackId);
-        if (track == null) {
-            return;
+
+        Track track = contentProviderUtils.getTrack(trackData.track.getUuid());
+        if (track != null) {
+            if (PreferencesUtils.getPreventReimportTracks(sharedPreferences, context)) {
+                throw new ImportAlreadyExistsException(context.getString(R.string.import_prevent_reimport));
+            }
+
+            //TODO This is a workaround until we have proper UI.
+            trackData.track.setUuid(UUID.randomUUID());
         }
 
+        insertMarkers(trackData.track.getId());
+        contentProviderUtils.updateTrack(trackData.track);
+    }
+
+    /**
+     * Adds markers to the imported track.
+     */
+    private void insertMarkers(Track.Id trackId) {
         int markerPosition = -1;
         Marker marker = null;
         TrackPoint trackPoint = null;
         TrackStatisticsUpdater trackStatisticsUpdater = new TrackStatisticsUpdater();
 
         // TODO We are doing in memory processing for trackpoints; so we can do this in memory as well.
-        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(track.getId(), null)) {
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, null)) {
 
             while (true) {
                 if (marker == null) {
@@ -206,7 +262,7 @@ abstract class AbstractFileTrackImporter extends DefaultHandler implements Track
                         long duration = trackStatisticsUpdater.getTrackStatistics().getTotalTime().toMillis();
 
                         // Insert marker
-                        Marker newMarker = new Marker(marker.getName(), markerDescription, marker.getCategory(), icon, track.getId(), length, duration, trackPoint, marker.getPhotoUrl());
+                        Marker newMarker = new Marker(marker.getName(), markerDescription, marker.getCategory(), icon, trackId, length, duration, trackPoint, marker.getPhotoUrl());
                         contentProviderUtils.insertMarker(newMarker);
                     }
 
@@ -228,6 +284,13 @@ abstract class AbstractFileTrackImporter extends DefaultHandler implements Track
      * On track end.
      */
     protected void onTrackEnd() {
+        flushTrackPoints(trackData.bufferedTrackPoints.size());
+        awaitPendingFlushes(0);
+        if (!trackData.trackStatisticsUpdater.isTrackInitialized()) {
+            throw new ImportParserException("Track did not contain any locations.");
+        }
+        trackData.track.setTrackStatistics(trackData.trackStatisticsUpdater.getTrackStatistics());
+
         if (name != null) {
             trackData.track.setName(name);
         }
@@ -251,38 +314,6 @@ abstract class AbstractFileTrackImporter extends DefaultHandler implements Track
         if (icon != null) {
             trackData.track.setIcon(icon);
         }
-
-        TrackStatisticsUpdater statistics = new TrackStatisticsUpdater();
-        //TODO I guess, we should not filter by recordingDistanceInterval on import; the data is already recorded, so we should not change it.
-        for (TrackPoint trackPoint : trackData.bufferedTrackPoints) {
-            statistics.addTrackPoint(trackPoint, recordingDistanceInterval);
-        }
-        if (!statistics.isTrackInitialized()) {
-            throw new ImportParserException("Track did not contain any locations.");
-        }
-        trackData.track.setTrackStatistics(statistics.getTrackStatistics());
-
-        Track track = contentProviderUtils.getTrack(trackData.track.getUuid());
-        if (track != null) {
-            if (PreferencesUtils.getPreventReimportTracks(sharedPreferences, context)) {
-                throw new ImportAlreadyExistsException(context.getString(R.string.import_prevent_reimport));
-            }
-
-            //TODO This is a workaround until we have proper UI.
-            trackData.track.setUuid(UUID.randomUUID());
-        }
-
-        if (trackIds.size() > 0) {
-            // TODO Multi track is not supported yet.
-            cleanImport();
-            throw new ImportParserException("Multi track not supported");
-        }
-        Uri uri = contentProviderUtils.insertTrack(trackData.track);
-        Track.Id trackId = new Track.Id(Long.parseLong(uri.getLastPathSegment()));
-        trackIds.add(trackId);
-        trackData.track.setId(trackId);
-
-        flushTrackPoints();
     }
 
     protected void onTrackSegmentStart() {
@@ -521,6 +552,10 @@ abstract class AbstractFileTrackImporter extends DefaultHandler implements Track
      */
     protected void insertTrackPoint(TrackPoint trackPoint) {
         trackData.bufferedTrackPoints.add(trackPoint);
+        if (trackData.bufferedTrackPoints.size() > trackPointChunkSize) {
+            // The last TrackPoint is kept as its type may still be changed on segment end.
+            flushTrackPoints(trackData.bufferedTrackPoints.size() - 1);
+        }
     }
 
     protected boolean isFirstTrackPointInSegment() {
@@ -528,20 +563,105 @@ abstract class AbstractFileTrackImporter extends DefaultHandler implements Track
     }
 
     /**
-     * Flushes the TrackPoints to the database.
+     * Flushes the first buffered TrackPoints to the database and adds them to the track statistics.
+     * The track is inserted on the first flush; its details and statistics are updated on file end.
+     *
+     * @param count the number of TrackPoints to flush
      */
-    private void flushTrackPoints() {
-        if (trackData.bufferedTrackPoints.size() > 0) {
-            contentProviderUtils.bulkInsertTrackPoint(trackData.bufferedTrackPoints, trackData.track.getId());
-            trackData.bufferedTrackPoints.clear();
+    private void flushTrackPoints(int count) {
+        if (count == 0) {
+            return;
+        }
+
+        List<TrackPoint> bufferedTrackPoints = trackData.bufferedTrackPoints.subList(0, count);
+        List<TrackPoint> trackPoints = new ArrayList<>(bufferedTrackPoints);
+        bufferedTrackPoints.clear();
+        //TODO I guess, we should not filter by recordingDistanceInterval on import; the data is already recorded, so we should not change it.
+        for (TrackPoint trackPoint : trackPoints) {
+            trackData.trackStatisticsUpdater.addTrackPoint(trackPoint, recordingDistanceInterval);
+        }
+
+        // Parsing continues while the chunk is written; failures are re-thrown on track end.
+        awaitPendingFlushes(MAX_PENDING_FLUSHES - 1);
+        trackData.pendingFlushes.add(DATABASE_WRITER.submit(() -> insertTrackPoints(trackPoints)));
+    }
+
+    /**
+     * Waits until at most maxPending flushes of the current track are not yet written.
+     * Exceptions of the flushes are re-thrown.
+     */
+    private void awaitPendingFlushes(int maxPending) {
+        while (trackData.pendingFlushes.size() > maxPending) {
+            await(trackData.pendingFlushes.removeFirst());
+        }
+    }
+
+    private void insertTrackPoints(List<TrackPoint> trackPoints) {
+        if (trackData.track.getId() == null) {
+            if (trackIds.size() > 0) {
+                // TODO Multi track is not supported yet.
+                throw new ImportParserException("Multi track not supported");
+            }
+            // Temporary UUID: the final one is checked for duplicates on file end.
+            // The track stays hidden until then; if the import does not complete, it is removed on the next start.
+            trackData.track.setUuid(UUID.randomUUID());
+            Uri uri = contentProviderUtils.insertImportingTrack(trackData.track);
+            Track.Id trackId = new Track.Id(Long.parseLong(uri.getLastPathSegment()));
+            trackIds.add(trackId);
+            trackData.track.setId(trackId);
         }
+
+        contentProviderUtils.bulkInsertTrackPoint(trackPoints, trackData.track.getId());
     }
 
     /**
      * Cleans up import.
      */
     private void cleanImport() {
-        contentProviderUtils.deleteTracks(context, trackIds);
+        if (trackData != null) {
+            // The track id is only known after the flushes were written.
+            while (!trackData.pendingFlushes.isEmpty()) {
+                try {
+                    await(trackData.pendingFlushes.removeFirst());
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Unable to write TrackPoints of failed import.", e);
+                }
+            }
+        }
+        if (trackIds.size() > 0) {
+            runOnDatabaseWriter(() -> contentProviderUtils.deleteTracks(context, trackIds));
+            trackIds.clear();
+        }
+    }
+
+    /**
+     * Executes a task on the database writer and waits for its completion.
+     * Exceptions of the task are re-thrown.
+     */
+    private static void runOnDatabaseWriter(Runnable task) {
+        await(DATABASE_WRITER.submit(task));
+    }
+
+    /**
+     * Waits for the completion of a task on the database writer.
+     * Exceptions of the task are re-thrown.
+     */
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ImportParserException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImportParserException(e);
+        }
     }
 
     /**
@@ -560,8 +680,14 @@ abstract class AbstractFileTrackImporter extends DefaultHandler implements Track
         // The last location in the current segment; Null if the current segment doesn't have a last location
         TrackPoint lastLocationInCurrentSegment;
 
-        // The buffered locations
+        // The buffered locations; at most trackPointChunkSize + 1
         final List<TrackPoint> bufferedTrackPoints = new ArrayList<>();
+
+        // The statistics of the flushed locations
+        final TrackStatisticsUpdater trackStatisticsUpdater = new TrackStatisticsUpdater();
+
+        // The flushes submitted to the database writer that might not be written yet (oldest first)
+        final Deque<Future<?>> pendingFlushes = new ArrayDeque<>();
     }
 
     public static class ParsingException extends RuntimeException {
@@ -15,12 +15,30 @@ import androidx.documentfile.provider.DocumentFile;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import de.dennisguse.opentracks.R;
 import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.io.file.TrackFileFormat;
 import de.dennisguse.opentracks.util.FileUtils;
 
+/**
+ * Imports files in parallel: the files are parsed concurrently while the database changes are done one after another (see {@link AbstractFileTrackImporter}).
+ * A result is sent for every file as soon as it was imported; the next file is started as soon as one is finished.
+ * An import is enqueued as works of at most {@link #URIS_PER_WORK} files (the Intents must stay small); its last work is done after all files of the import were imported (the job keeps the wake lock until then).
+ * If the import is cancelled (see {@link #cancel(long)}), the files that were not started yet are skipped.
+ */
 public class ImportService extends JobIntentService {
 
     private static final String TAG = ImportService.class.getSimpleName();
@@ -28,25 +46,130 @@ public class ImportService extends JobIntentService {
     private static final int JOB_ID = 2;
 
     private static final String EXTRA_RECEIVER = "extra_receiver";
-    private static final String EXTRA_URI = "extra_uri";
+    private static final String EXTRA_URIS = "extra_uris";
+    private static final String EXTRA_IMPORT_ID = "extra_import_id";
+    private static final String EXTRA_LAST_WORK = "extra_last_work";
+
+    /**
+     * Number of files per work: an Intent with thousands of document URIs could exceed the binder transaction limit.
+     */
+    static final int URIS_PER_WORK = 200;
+
+    /**
+     * Number of files that are imported at the same time.
+     */
+    static final int PARALLEL_IMPORTS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Imports the files of all work; a file is only submitted if one of the {@link #IMPORT_SLOTS} is free.
+     */
+    private static final ThreadPoolExecutor IMPORT_EXECUTOR = new ThreadPoolExecutor(PARALLEL_IMPORTS, PARALLEL_IMPORTS, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    private static final Semaphore IMPORT_SLOTS = new Semaphore(PARALLEL_IMPORTS);
+
+    static {
+        IMPORT_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
 
-    private ResultReceiver resultReceiver;
+    /**
+     * Enqueued and running imports by id.
+     */
+    private static final Map<Long, Import> IMPORTS = new ConcurrentHashMap<>();
+    private static final AtomicLong NEXT_IMPORT_ID = new AtomicLong();
+
+    /**
+     * @return the id of the import (see {@link #cancel(long)}).
+     */
+    public static long enqueue(Context context, ImportServiceResultReceiver receiver, ArrayList<Uri> uris) {
+        long importId = NEXT_IMPORT_ID.incrementAndGet();
+        IMPORTS.put(importId, new Import());
+
+        for (int start = 0; start < uris.size(); start += URIS_PER_WORK) {
+            int end = Math.min(start + URIS_PER_WORK, uris.size());
+            Intent intent = new Intent(context, JobService.class);
+            intent.putExtra(EXTRA_RECEIVER, receiver);
+            intent.putParcelableArrayListExtra(EXTRA_URIS, new ArrayList<>(uris.subList(start, end)));
+            intent.putExtra(EXTRA_IMPORT_ID, importId);
+            intent.putExtra(EXTRA_LAST_WORK, end == uris.size());
+            enqueueWork(context, ImportService.class, JOB_ID, intent);
+        }
+        return importId;
+    }
 
-    public static void enqueue(Context context, ImportServiceResultReceiver receiver, Uri uri) {
-        Intent intent = new Intent(context, JobService.class);
-        intent.putExtra(EXTRA_RECEIVER, receiver);
-        intent.putExtra(EXTRA_URI, uri);
-        enqueueWork(context, ImportService.class, JOB_ID, intent);
+    /**
+     * Files of the import that were not started yet are not imported anymore (and no result is sent for them).
+     */
+    public static void cancel(long importId) {
+        Import anImport = IMPORTS.get(importId);
+        if (anImport != null) {
+            anImport.cancelled.set(true);
+        }
     }
 
     @Override
     protected void onHandleWork(@NonNull Intent intent) {
-        resultReceiver = intent.getParcelableExtra(EXTRA_RECEIVER);
-        Uri uri = intent.getParcelableExtra(EXTRA_URI);
-        importFile(DocumentFile.fromSingleUri(this, uri));
+        ResultReceiver resultReceiver = intent.getParcelableExtra(EXTRA_RECEIVER);
+        ArrayList<Uri> uris = intent.getParcelableArrayListExtra(EXTRA_URIS);
+        long importId = intent.getLongExtra(EXTRA_IMPORT_ID, 0);
+        boolean lastWork = intent.getBooleanExtra(EXTRA_LAST_WORK, true);
+        // Not known if the process was restarted: the import was not cancelled.
+        Import anImport = IMPORTS.computeIfAbsent(importId, id -> new Import());
+        AtomicBoolean cancelled = anImport.cancelled;
+
+        try {
+            for (int i = 0; i < uris.size(); i++) {
+                try {
+                    IMPORT_SLOTS.acquire();
+                } catch (InterruptedException e) {
+                    Log.w(TAG, "Import interrupted.");
+                    // Every file needs a result; otherwise the import never finishes.
+                    for (Uri uri : uris.subList(i, uris.size())) {
+                        sendResult(resultReceiver, ImportServiceResultReceiver.RESULT_CODE_ERROR, null, DocumentFile.fromSingleUri(this, uri), getString(R.string.import_thread_interrupted));
+                    }
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                if (cancelled.get()) {
+                    Log.i(TAG, "Import cancelled; skipping " + (uris.size() - i) + " files.");
+                    IMPORT_SLOTS.release();
+                    break;
+                }
+
+                DocumentFile file = DocumentFile.fromSingleUri(this, uris.get(i));
+                anImport.imports.add(IMPORT_EXECUTOR.submit(() -> {
+                    try {
+                        importFile(resultReceiver, file);
+                    } finally {
+                        IMPORT_SLOTS.release();
+                    }
+                }));
+            }
+
+            if (!lastWork) {
+                // The next work of the import starts its files while these are imported.
+                return;
+            }
+
+            // The import is finished after all started files (of all its works) were imported.
+            for (Future<?> future : anImport.imports) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Log.e(TAG, "Unable to import file", e);
+                } catch (InterruptedException e) {
+                    Log.w(TAG, "Import interrupted.");
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } finally {
+            if (lastWork) {
+                IMPORTS.remove(importId);
+            }
+        }
     }
 
-    private void importFile(DocumentFile file) {
+    private void importFile(ResultReceiver resultReceiver, DocumentFile file) {
         TrackImporter trackImporter;
         String fileExtension = FileUtils.getExtension(file);
 
@@ -58,7 +181,7 @@ public class ImportService extends JobIntentService {
             trackImporter = new KmzTrackImporter(this, file.getUri());
         } else {
             Log.d(TAG, "Unsupported file format.");
-            sendResult(ImportServiceResultReceiver.RESULT_CODE_ERROR, null, file, getString(R.string.import_unsupported_format));
+            sendResult(resultReceiver, ImportServiceResultReceiver.RESULT_CODE_ERROR, null, file, getString(R.string.import_unsupported_format));
             return;
         }
 
@@ -66,23 +189,29 @@ public class ImportService extends JobIntentService {
             ArrayList<Track.Id> trackIds = new ArrayList<>(trackImporter.importFile(inputStream));
 
             if (!trackIds.isEmpty()) {
-                sendResult(ImportServiceResultReceiver.RESULT_CODE_IMPORTED, trackIds, file, getString(R.string.import_file_imported, file.getName()));
+                sendResult(resultReceiver, ImportServiceResultReceiver.RESULT_CODE_IMPORTED, trackIds, file, getString(R.string.import_file_imported, file.getName()));
             } else {
-                sendResult(ImportServiceResultReceiver.RESULT_CODE_ERROR, trackIds, file, getString(R.string.import_unable_to_import_file, file.getName()));
+                sendResult(resultReceiver, ImportServiceResultReceiver.RESULT_CODE_ERROR, trackIds, file, getString(R.string.import_unable_to_import_file, file.getName()));
             }
         } catch (IOException e) {
             Log.d(TAG, "Unable to import file", e);
-            sendResult(ImportServiceResultReceiver.RESULT_CODE_ERROR, null, file, getString(R.string.import_unable_to_import_file, e.getMessage()));
+            sendResult(resultReceiver, ImportServiceResultReceiver.RESULT_CODE_ERROR, null, file, getString(R.string.import_unable_to_import_file, e.getMessage()));
         } catch (ImportParserException e) {
             Log.d(TAG, "Parser error: " + e.getMessage(), e);
-            sendResult(ImportServiceResultReceiver.RESULT_CODE_ERROR, null, file, getString(R.string.import_parser_error, e.getMessage()));
+            sendResult(resultReceiver, ImportServiceResultReceiver.RESULT_CODE_ERROR, null, file, getString(R.string.import_parser_error, e.getMessage()));
         } catch (ImportAlreadyExistsException e) {
             Log.d(TAG, "Track already exists: " + e.getMessage(), e);
-            sendResult(ImportServiceResultReceiver.RESULT_CODE_ALREADY_EXISTS, null, file, e.getMessage());
+            sendResult(resultReceiver, ImportServiceResultReceiver.RESULT_CODE_ALREADY_EXISTS, null, file, e.getMessage());
         }
     }
 
-    private void sendResult(int resultCode, ArrayList<Track.Id> trackId, DocumentFile file, String message) {
+    private static class Import {
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        // Started files of all works.
+        private final Queue<Future<?>> imports = new ConcurrentLinkedQueue<>();
+    }
+
+    private void sendResult(ResultReceiver resultReceiver, int resultCode, ArrayList<Track.Id> trackId, DocumentFile file, String message) {
         Bundle bundle = new Bundle();
         bundle.putParcelableArrayList(ImportServiceResultReceiver.RESULT_EXTRA_LIST_TRACK_ID, trackId);
         bundle.putString(ImportServiceResultReceiver.RESULT_EXTRA_FILENAME, file.getName());
@@ -1,6 +1,7 @@
 package de.dennisguse.opentracks.io.file.importer;
 
 import android.app.Application;
+import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 
@@ -27,7 +28,7 @@ public class ImportViewModel extends AndroidViewModel implements ImportServiceRe
     private final ImportServiceResultReceiver resultReceiver;
     private final Summary summary;
     private boolean cancel = false;
-    private final List<DocumentFile> filesToImport = new ArrayList<>();
+    private Long importId;
 
     public ImportViewModel(@NonNull Application application) {
         super(application);
@@ -45,21 +46,20 @@ public class ImportViewModel extends AndroidViewModel implements ImportServiceRe
 
     void cancel() {
         cancel = true;
+        if (importId != null) {
+            ImportService.cancel(importId);
+        }
     }
 
     private void loadData(List<DocumentFile> documentFiles) {
         List<DocumentFile> fileList = documentFiles.stream().map(FileUtils::getFiles).flatMap(Collection::stream).collect(Collectors.toList());
         summary.totalCount = fileList.size();
-        filesToImport.addAll(fileList);
-        importNextFile();
-    }
-
-    private void importNextFile() {
-        if (cancel || filesToImport.isEmpty()) {
+        if (cancel || fileList.isEmpty()) {
             return;
         }
-        ImportService.enqueue(getApplication(), resultReceiver, filesToImport.get(0).getUri());
-        filesToImport.remove(0);
+        // ImportService starts the next file as soon as one is finished.
+        ArrayList<Uri> uris = fileList.stream().map(DocumentFile::getUri).collect(Collectors.toCollection(ArrayList::new));
+        importId = ImportService.enqueue(getApplication(), resultReceiver, uris);
     }
 
     @Override
@@ -89,7 +89,6 @@ public class ImportViewModel extends AndroidViewModel implements ImportServiceRe
         }
 
         importData.postValue(summary);
-        importNextFile();
     }
 
     static class Summary {
@@ -0,0 +1,192 @@
+package de.dennisguse.opentracks.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.sensor.SensorSampleLog;
+import de.dennisguse.opentracks.content.sensor.SensorSamples;
+import de.dennisguse.opentracks.util.FileUtils;
+
+/**
+ * Stores recorded {@link SensorSamples} in batches (write-behind) to the track's {@link SensorSampleLog}.
+ * <p>
+ * A batch is written in the background as soon as {@link #MAX_BATCH_SIZE} samples are buffered or {@link #MAX_BATCH_DELAY} passed since the first sample was buffered.
+ * {@link #flush()} writes all buffered samples immediately (e.g., on pause or stop).
+ * <p>
+ * Same as {@link TrackPointWriter}: if the app is killed, only the buffered samples are lost.
+ * A batch that could not be stored is dropped (and counted; see {@link #getFailedSampleCount()}): the samples are only a more detailed copy of the TrackPoints' sensor data.
+ */
+class SensorSampleWriter {
+
+    private static final String TAG = SensorSampleWriter.class.getSimpleName();
+
+    @VisibleForTesting
+    static final int MAX_BATCH_SIZE = 300;
+
+    @VisibleForTesting
+    static final Duration MAX_BATCH_DELAY = Duration.ofSeconds(30);
+
+    private final Context context;
+    private final int maxBatchSize;
+    private final Duration maxBatchDelay;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    // Buffer; guarded by this.
+    private Track.Id trackId;
+    private SensorSamples sensorSamples = new SensorSamples();
+    private ScheduledFuture<?> scheduledWrite;
+
+    // Serializes the writes and guards the counters.
+    private final Object writeLock = new Object();
+    private int batchCount = 0;
+    private int writtenSampleCount = 0;
+    private int failedSampleCount = 0;
+    // The track whose file was checked for an incomplete last batch (e.g., the app was killed while recording).
+    private Track.Id checkedTrackId;
+
+    SensorSampleWriter(@NonNull Context context) {
+        this(context, MAX_BATCH_SIZE, MAX_BATCH_DELAY);
+    }
+
+    @VisibleForTesting
+    SensorSampleWriter(@NonNull Context context, int maxBatchSize, @NonNull Duration maxBatchDelay) {
+        this.context = context;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelay = maxBatchDelay;
+    }
+
+    /**
+     * Buffers a sample; called from the sensor's thread.
+     *
+     * @param trackId the track id
+     * @param type    the type (e.g., {@link SensorSamples#TYPE_HEART_RATE})
+     * @param time_ms the time of the sample
+     * @param value   the value
+     */
+    void add(@NonNull Track.Id trackId, int type, long time_ms, int value) {
+        boolean isOtherTrack;
+        synchronized (this) {
+            isOtherTrack = this.trackId != null && !this.trackId.equals(trackId) && !sensorSamples.isEmpty();
+        }
+        if (isOtherTrack) {
+            flush();
+        }
+
+        synchronized (this) {
+            this.trackId = trackId;
+            sensorSamples.add(type, time_ms, value);
+
+            if (sensorSamples.size() >= maxBatchSize) {
+                cancelScheduledWrite();
+                executor.execute(this::write);
+            } else if (scheduledWrite == null) {
+                scheduledWrite = executor.schedule(this::write, maxBatchDelay.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Stores all buffered samples; blocks until they are stored.
+     */
+    void flush() {
+        write();
+    }
+
+    /**
+     * Stores all buffered samples and stops the background thread.
+     */
+    void shutdown() {
+        flush();
+        executor.shutdown();
+
+        synchronized (writeLock) {
+            Log.i(TAG, "Stored " + writtenSampleCount + " sensor samples in " + batchCount + " batches.");
+            if (failedSampleCount > 0) {
+                Log.e(TAG, "Could not store " + failedSampleCount + " sensor samples.");
+            }
+        }
+    }
+
+    private void write() {
+        synchronized (writeLock) {
+            Track.Id batchTrackId;
+            SensorSamples batch;
+            synchronized (this) {
+                cancelScheduledWrite();
+                if (sensorSamples.isEmpty()) {
+                    return;
+                }
+                batchTrackId = trackId;
+                batch = sensorSamples;
+
+                sensorSamples = new SensorSamples(batch.size());
+            }
+
+            try {
+                File file = FileUtils.getSensorSampleFile(context, batchTrackId);
+                if (!batchTrackId.equals(checkedTrackId)) {
+                    if (SensorSampleLog.truncateIncomplete(file)) {
+                        Log.w(TAG, "Removed incomplete batch of track " + batchTrackId.getId());
+                    }
+                    checkedTrackId = batchTrackId;
+                }
+                SensorSampleLog.append(file, batch);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not store " + batch.size() + " sensor samples.", e);
+                failedSampleCount += batch.size();
+                return;
+            }
+
+            batchCount++;
+            writtenSampleCount += batch.size();
+        }
+    }
+
+    private void cancelScheduledWrite() {
+        if (scheduledWrite != null) {
+            scheduledWrite.cancel(false);
+            scheduledWrite = null;
+        }
+    }
+
+    /**
+     * @return number of samples that are not yet stored.
+     */
+    synchronized int getBufferedSampleCount() {
+        return sensorSamples.size();
+    }
+
+    int getBatchCount() {
+        synchronized (writeLock) {
+            return batchCount;
+        }
+    }
+
+    int getWrittenSampleCount() {
+        synchronized (writeLock) {
+            return writtenSampleCount;
+        }
+    }
+
+    /**
+     * @return number of samples that could not be stored.
+     */
+    int getFailedSampleCount() {
+        synchronized (writeLock) {
+            return failedSampleCount;
+        }
+    }
+}
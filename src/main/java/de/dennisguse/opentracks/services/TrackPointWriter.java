@@ -0,0 +1,330 @@
+package de.dennisguse.opentracks.services;
+
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
+import de.dennisguse.opentracks.stats.TrackStatistics;
+
+/**
+ * Stores recorded {@link TrackPoint}s in batches (write-behind).
+ * All buffered TrackPoints and the latest {@link TrackStatistics} are stored in one database transaction (see {@link ContentProviderUtils#insertTrackPoints(List, Track.Id, TrackStatistics)}).
+ * <p>
+ * A batch is written in the background as soon as {@link #MAX_BATCH_SIZE} TrackPoints are buffered or {@link #MAX_BATCH_DELAY} passed since the first TrackPoint was buffered.
+ * {@link #flush()} writes all buffered TrackPoints immediately in the background (e.g., on pause or before inserting a marker); {@link #flushAndWait()} also waits until they are stored (e.g., before the stored TrackPoints are read).
+ * <p>
+ * Crash safety: a batch is stored atomically (TrackPoints and TrackStatistics) or not at all.
+ * If the app is killed, only the buffered TrackPoints (at most {@link #MAX_BATCH_SIZE} or {@link #MAX_BATCH_DELAY} of recording) are lost; the stored statistics always match the stored TrackPoints.
+ * <p>
+ * If a batch cannot be stored (e.g., SQLITE_BUSY), it is kept and stored again before the next batches; retries are scheduled with an exponential backoff (from {@link #MIN_RETRY_DELAY} to {@link #MAX_RETRY_DELAY}).
+ * Only batches violating a constraint (e.g., the track was deleted) and batches that could still not be stored on {@link #shutdown()} are dropped (see {@link #getDroppedTrackPointCount()}).
+ */
+class TrackPointWriter {
+
+    private static final String TAG = TrackPointWriter.class.getSimpleName();
+
+    @VisibleForTesting
+    static final int MAX_BATCH_SIZE = 20;
+
+    @VisibleForTesting
+    static final Duration MAX_BATCH_DELAY = Duration.ofSeconds(10);
+
+    private static final Duration MIN_RETRY_DELAY = Duration.ofSeconds(1);
+
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(1);
+
+    private final ContentProviderUtils contentProviderUtils;
+    private final int maxBatchSize;
+    private final Duration maxBatchDelay;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    // Buffer; guarded by this.
+    private Track.Id trackId;
+    private List<TrackPoint> trackPoints = new ArrayList<>();
+    private TrackStatistics trackStatistics;
+    private ScheduledFuture<?> scheduledWrite;
+    // Buffers of previous tracks that were not taken over by the background thread yet.
+    private final List<Batch> otherTrackBatches = new ArrayList<>();
+
+    // Serializes the writes and guards the counters and the batches that were not stored yet.
+    private final Object writeLock = new Object();
+    private final Deque<Batch> pendingBatches = new ArrayDeque<>();
+    private volatile int pendingTrackPointCount = 0;
+    private Duration retryDelay = MIN_RETRY_DELAY;
+    private int failedWriteCount = 0;
+    private int droppedTrackPointCount = 0;
+    private int batchCount = 0;
+    private int writtenTrackPointCount = 0;
+    private int largestBatchSize = 0;
+    private Duration totalWriteDuration = Duration.ZERO;
+    private Duration maxWriteDuration = Duration.ZERO;
+
+    TrackPointWriter(@NonNull ContentProviderUtils contentProviderUtils) {
+        this(contentProviderUtils, MAX_BATCH_SIZE, MAX_BATCH_DELAY);
+    }
+
+    @VisibleForTesting
+    TrackPointWriter(@NonNull ContentProviderUtils contentProviderUtils, int maxBatchSize, @NonNull Duration maxBatchDelay) {
+        this.contentProviderUtils = contentProviderUtils;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelay = maxBatchDelay;
+    }
+
+    /**
+     * Buffers a {@link TrackPoint}; does not block (also not if the track changes).
+     *
+     * @param trackId         the track id
+     * @param trackPoint      the trackPoint
+     * @param trackStatistics the track's statistics including trackPoint; replaces the previously buffered statistics
+     */
+    synchronized void add(@NonNull Track.Id trackId, @NonNull TrackPoint trackPoint, @NonNull TrackStatistics trackStatistics) {
+        if (this.trackId != null && !this.trackId.equals(trackId) && !trackPoints.isEmpty()) {
+            // Moves the buffered TrackPoints into their own batch before the buffer is used for the other track.
+            otherTrackBatches.add(new Batch(this.trackId, trackPoints, this.trackStatistics));
+            trackPoints = new ArrayList<>();
+            cancelScheduledWrite();
+            executor.execute(this::write);
+        }
+
+        this.trackId = trackId;
+        this.trackPoints.add(trackPoint);
+        this.trackStatistics = trackStatistics;
+
+        if (trackPoints.size() >= maxBatchSize) {
+            cancelScheduledWrite();
+            executor.execute(this::write);
+        } else if (scheduledWrite == null) {
+            scheduledWrite = executor.schedule(this::write, maxBatchDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stores all buffered {@link TrackPoint}s in the background; does not block.
+     *
+     * @return completes when the TrackPoints were stored (or could not be stored).
+     */
+    Future<?> flush() {
+        return executor.submit(this::write);
+    }
+
+    /**
+     * Stores all buffered {@link TrackPoint}s; blocks until they are stored.
+     * Only needed if the stored TrackPoints are read afterwards.
+     */
+    void flushAndWait() {
+        try {
+            flush().get();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Could not store TrackPoints.", e);
+        } catch (InterruptedException e) {
+            Log.w(TAG, "Interrupted while storing TrackPoints.", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stores all buffered {@link TrackPoint}s and stops the background thread.
+     * TrackPoints that could still not be stored are dropped.
+     */
+    void shutdown() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        flushAndWait();
+        synchronized (this) {
+            cancelScheduledWrite();
+        }
+        executor.shutdown();
+
+        synchronized (writeLock) {
+            if (pendingTrackPointCount > 0) {
+                Log.e(TAG, "Dropping " + pendingTrackPointCount + " TrackPoints that could not be stored.");
+                droppedTrackPointCount += pendingTrackPointCount;
+                pendingBatches.clear();
+                pendingTrackPointCount = 0;
+            }
+            Log.i(TAG, "Stored " + writtenTrackPointCount + " TrackPoints in " + batchCount + " batches (largest: " + largestBatchSize + "); average write: " + getAverageWriteDuration().toMillis() + "ms, max write: " + maxWriteDuration.toMillis() + "ms; failed writes: " + failedWriteCount + "; dropped TrackPoints: " + droppedTrackPointCount + ".");
+        }
+    }
+
+    private void write() {
+        synchronized (writeLock) {
+            synchronized (this) {
+                cancelScheduledWrite();
+                for (Batch batch : otherTrackBatches) {
+                    addPending(batch);
+                }
+                otherTrackBatches.clear();
+                if (!trackPoints.isEmpty()) {
+                    addPending(new Batch(trackId, trackPoints, trackStatistics));
+                    trackPoints = new ArrayList<>();
+                }
+            }
+
+            // Stored in order: the batches of a track must not overtake each other.
+            while (!pendingBatches.isEmpty()) {
+                Batch batch = pendingBatches.peekFirst();
+                if (!write(batch)) {
+                    scheduleRetry();
+                    return;
+                }
+                pendingBatches.removeFirst();
+                pendingTrackPointCount -= batch.trackPoints.size();
+            }
+            retryDelay = MIN_RETRY_DELAY;
+        }
+    }
+
+    private void addPending(Batch batch) {
+        Batch last = pendingBatches.peekLast();
+        if (last != null && last.trackId.equals(batch.trackId)) {
+            // Not stored yet: the latest statistics include all TrackPoints of the track.
+            last.trackPoints.addAll(batch.trackPoints);
+            last.trackStatistics = batch.trackStatistics;
+        } else {
+            pendingBatches.addLast(batch);
+        }
+        pendingTrackPointCount += batch.trackPoints.size();
+    }
+
+    /**
+     * @return false if the batch should be stored again later.
+     */
+    private boolean write(Batch batch) {
+        long startTime = System.nanoTime();
+        try {
+            contentProviderUtils.insertTrackPoints(batch.trackPoints, batch.trackId, batch.trackStatistics);
+        } catch (SQLiteConstraintException e) {
+            // Will never succeed (e.g., the track was deleted while recording).
+            Log.e(TAG, "Dropping " + batch.trackPoints.size() + " TrackPoints of track " + batch.trackId.getId() + ".", e);
+            failedWriteCount++;
+            droppedTrackPointCount += batch.trackPoints.size();
+            return true;
+        } catch (SQLiteException e) {
+            /*
+             * Insert failed, most likely because of SqlLite error code 5 (SQLite_BUSY).
+             * The batch was rolled back completely.
+             */
+            Log.w(TAG, "Could not store " + batch.trackPoints.size() + " TrackPoints; retrying in " + retryDelay.toMillis() + "ms.", e);
+            failedWriteCount++;
+            return false;
+        }
+        Duration writeDuration = Duration.ofNanos(System.nanoTime() - startTime);
+
+        batchCount++;
+        writtenTrackPointCount += batch.trackPoints.size();
+        largestBatchSize = Math.max(largestBatchSize, batch.trackPoints.size());
+        totalWriteDuration = totalWriteDuration.plus(writeDuration);
+        if (writeDuration.compareTo(maxWriteDuration) > 0) {
+            maxWriteDuration = writeDuration;
+        }
+        Log.d(TAG, "Stored " + batch.trackPoints.size() + " TrackPoints in " + writeDuration.toMillis() + "ms.");
+        return true;
+    }
+
+    private void scheduleRetry() {
+        synchronized (this) {
+            if (scheduledWrite == null && !executor.isShutdown()) {
+                scheduledWrite = executor.schedule(this::write, retryDelay.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+        retryDelay = retryDelay.multipliedBy(2);
+        if (retryDelay.compareTo(MAX_RETRY_DELAY) > 0) {
+            retryDelay = MAX_RETRY_DELAY;
+        }
+    }
+
+    private void cancelScheduledWrite() {
+        if (scheduledWrite != null) {
+            scheduledWrite.cancel(false);
+            scheduledWrite = null;
+        }
+    }
+
+    /**
+     * @return number of TrackPoints that are not yet stored (including the ones that could not be stored yet).
+     */
+    synchronized int getBufferedTrackPointCount() {
+        int count = trackPoints.size() + pendingTrackPointCount;
+        for (Batch batch : otherTrackBatches) {
+            count += batch.trackPoints.size();
+        }
+        return count;
+    }
+
+    int getFailedWriteCount() {
+        synchronized (writeLock) {
+            return failedWriteCount;
+        }
+    }
+
+    int getDroppedTrackPointCount() {
+        synchronized (writeLock) {
+            return droppedTrackPointCount;
+        }
+    }
+
+    int getBatchCount() {
+        synchronized (writeLock) {
+            return batchCount;
+        }
+    }
+
+    int getWrittenTrackPointCount() {
+        synchronized (writeLock) {
+            return writtenTrackPointCount;
+        }
+    }
+
+    int getLargestBatchSize() {
+        synchronized (writeLock) {
+            return largestBatchSize;
+        }
+    }
+
+    Duration getAverageWriteDuration() {
+        synchronized (writeLock) {
+            if (batchCount == 0) {
+                return Duration.ZERO;
+            }
+            return totalWriteDuration.dividedBy(batchCount);
+        }
+    }
+
+    Duration getMaxWriteDuration() {
+        synchronized (writeLock) {
+            return maxWriteDuration;
+        }
+    }
+
+    private static class Batch {
+        private final Track.Id trackId;
+        private final List<TrackPoint> trackPoints;
+        private TrackStatistics trackStatistics;
+
+        private Batch(Track.Id trackId, List<TrackPoint> trackPoints, TrackStatistics trackStatistics) {
+            this.trackId = trackId;
+            this.trackPoints = trackPoints;
+            this.trackStatistics = trackStatistics;
+        }
+    }
+}
@@ -23,11 +23,11 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
-import android.database.sqlite.SQLiteException;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.os.PowerManager.WakeLock;
 import android.util.Log;
 
@@ -35,8 +35,14 @@ import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 import androidx.core.app.TaskStackBuilder;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import de.dennisguse.opentracks.R;
 import de.dennisguse.opentracks.TrackListActivity;
@@ -46,7 +52,10 @@ import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.data.TrackPoint;
 import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
 import de.dennisguse.opentracks.content.provider.CustomContentProvider;
+import de.dennisguse.opentracks.content.provider.TrackPointIterator;
 import de.dennisguse.opentracks.content.sensor.SensorDataSet;
+import de.dennisguse.opentracks.content.sensor.SensorSampleLog;
+import de.dennisguse.opentracks.content.sensor.SensorSamples;
 import de.dennisguse.opentracks.io.file.exporter.ExportServiceResultReceiver;
 import de.dennisguse.opentracks.services.handlers.GpsStatusValue;
 import de.dennisguse.opentracks.services.handlers.HandlerServer;
@@ -55,14 +64,19 @@ import de.dennisguse.opentracks.services.sensors.BluetoothRemoteSensorManager;
 import de.dennisguse.opentracks.services.tasks.AnnouncementPeriodicTaskFactory;
 import de.dennisguse.opentracks.services.tasks.PeriodicTaskExecutor;
 import de.dennisguse.opentracks.settings.SettingsActivity;
+import de.dennisguse.opentracks.stats.SensorSampleWindow;
+import de.dennisguse.opentracks.stats.SensorStatisticsUpdater;
 import de.dennisguse.opentracks.stats.TrackStatistics;
 import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
 import de.dennisguse.opentracks.util.ExportUtils;
+import de.dennisguse.opentracks.util.FileUtils;
 import de.dennisguse.opentracks.util.IntentUtils;
 import de.dennisguse.opentracks.util.PreferencesUtils;
 import de.dennisguse.opentracks.util.SystemUtils;
 import de.dennisguse.opentracks.util.TrackIconUtils;
 import de.dennisguse.opentracks.util.TrackNameUtils;
+import de.dennisguse.opentracks.util.UnitConversions;
+import de.dennisguse.opentracks.viewmodels.IntervalStatistics;
 
 /**
  * A background service that registers a location listener and records track points.
@@ -76,6 +90,8 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
 
     // The following variables are set in onCreate:
     private ContentProviderUtils contentProviderUtils;
+    private TrackPointWriter trackPointWriter;
+    private SensorSampleWriter sensorSampleWriter;
     private PeriodicTaskExecutor voiceExecutor;
     private TrackRecordingServiceNotificationManager notificationManager;
 
@@ -91,6 +107,9 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
                 boolean metricUnits = PreferencesUtils.isMetricUnits(sharedPreferences, context);
                 voiceExecutor.setMetricUnits(metricUnits);
                 notificationManager.setMetricUnits(metricUnits);
+                if (isRecording() && intervalStatistics != null) {
+                    intervalStatistics = intervalStatistics.withDistanceInterval(getDistanceInterval_m());
+                }
             }
             if (PreferencesUtils.isKey(context, R.string.voice_frequency_key, key)) {
                 voiceExecutor.setTaskFrequency(PreferencesUtils.getVoiceFrequency(sharedPreferences, context));
@@ -112,13 +131,22 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
     private AltitudeSumManager altitudeSumManager;
 
     private TrackStatisticsUpdater trackStatisticsUpdater;
+    private IntervalStatistics intervalStatistics;
+    // The TrackPoints inserted while the stored TrackPoints of the resumed track are read; null if not reading.
+    private List<TrackPoint> intervalStatisticsPendingTrackPoints;
     private TrackPoint lastTrackPoint;
+    // The last stored TrackPoint with a location (i.e., TRACKPOINT or SEGMENT_START_AUTOMATIC); kept in memory to avoid querying the database for every new TrackPoint.
+    private TrackPoint lastValidTrackPoint;
     private boolean isIdle;
 
     private TrackRecordingServiceBinder binder = new TrackRecordingServiceBinder(this);
 
     private HandlerServer handlerServer;
 
+    // Reads the stored TrackPoints of a resumed track; the result is handed to the main thread.
+    private ExecutorService intervalStatisticsExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
     private final TrackRecordingServiceStatus serviceStatus = new TrackRecordingServiceStatus();
 
     @Override
@@ -128,6 +156,9 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
         handlerServer = new HandlerServer(this);
 
         contentProviderUtils = new ContentProviderUtils(this);
+        trackPointWriter = new TrackPointWriter(contentProviderUtils);
+        sensorSampleWriter = new SensorSampleWriter(this);
+        intervalStatisticsExecutor = Executors.newSingleThreadExecutor();
         voiceExecutor = new PeriodicTaskExecutor(this, new AnnouncementPeriodicTaskFactory());
 
         notificationManager = new TrackRecordingServiceNotificationManager(this);
@@ -176,6 +207,22 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
             voiceExecutor = null;
         }
 
+        // Stop reading before the writers are shut down.
+        intervalStatisticsPendingTrackPoints = null;
+        intervalStatisticsExecutor.shutdownNow();
+        try {
+            intervalStatisticsExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        intervalStatisticsExecutor = null;
+
+        trackPointWriter.shutdown();
+        trackPointWriter = null;
+
+        sensorSampleWriter.shutdown();
+        sensorSampleWriter = null;
+
         contentProviderUtils = null;
 
         binder.detachFromService();
@@ -202,6 +249,13 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
         return trackStatisticsUpdater.getTrackStatistics();
     }
 
+    /**
+     * @return the intervals (1km or 1mi) of the recording track; updated with every inserted {@link TrackPoint}.
+     */
+    public IntervalStatistics getIntervalStatistics() {
+        return intervalStatistics;
+    }
+
     //TODO Throw exception, when not recording.
     public Duration getTotalTime() {
         if (trackStatisticsUpdater == null) {
@@ -229,12 +283,15 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
             name = getString(R.string.marker_name_format, nextMarkerNumber + 1);
         }
 
-        TrackPoint trackPoint = getLastValidTrackPointInCurrentSegment(serviceStatus.getRecordingTrackId());
+        TrackPoint trackPoint = getLastValidTrackPointInCurrentSegment();
         if (trackPoint == null) {
             Log.i(TAG, "Could not create a marker as trackPoint is unknown.");
             return null;
         }
 
+        // Stores the TrackPoints in the background, so the marker is not shown before its TrackPoint; no need to wait: the marker keeps a copy of the trackPoint.
+        trackPointWriter.flush();
+
         category = category != null ? category : "";
         description = description != null ? description : "";
         String icon = getString(R.string.marker_icon_url);
@@ -274,7 +331,9 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
 
         TrackPoint segmentStartTrackPoint = TrackPoint.createSegmentStartManual();
         trackStatisticsUpdater = new TrackStatisticsUpdater();
-        insertTrackPoint(track, segmentStartTrackPoint);
+        intervalStatistics = new IntervalStatistics(getDistanceInterval_m());
+        intervalStatisticsPendingTrackPoints = null;
+        insertSegmentTrackPoint(trackId, segmentStartTrackPoint);
 
         //TODO Pass TrackPoint
         track.setName(TrackNameUtils.getTrackName(this, trackId, segmentStartTrackPoint.getTime()));
@@ -304,9 +363,11 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
 
         // Sync the real time setting the stop time with current time.
         track.getTrackStatistics().setStopTime(Instant.now());
-        trackStatisticsUpdater = new TrackStatisticsUpdater(track.getTrackStatistics());
+        trackStatisticsUpdater = new TrackStatisticsUpdater(track.getTrackStatistics(), new SensorStatisticsUpdater());
 
-        insertTrackPoint(track, TrackPoint.createSegmentStartManual());
+        TrackPoint segmentStartTrackPoint = TrackPoint.createSegmentStartManual();
+        loadIntervalStatistics(trackId, segmentStartTrackPoint.getTimeEpochMillis());
+        insertSegmentTrackPoint(trackId, segmentStartTrackPoint);
 
         // Set recording status
         serviceStatus.onChange(trackId, false);
@@ -324,10 +385,7 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
         serviceStatus.onChange(false);
 
         // Update database
-        Track track = contentProviderUtils.getTrack(serviceStatus.getRecordingTrackId());
-        if (track != null) {
-            insertTrackPoint(track, TrackPoint.createSegmentStartManual());
-        }
+        insertSegmentTrackPoint(serviceStatus.getRecordingTrackId(), TrackPoint.createSegmentStartManual());
 
         startRecording();
     }
@@ -336,14 +394,24 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
      * Common code for starting a new track, resuming a track, or restarting after phone reboot.
      */
     private void startRecording() {
+        trackPointWriter.flush();
+
         // Update instance variables
         remoteSensorManager = new BluetoothRemoteSensorManager(this);
+        Track.Id trackId = serviceStatus.getRecordingTrackId();
+        TrackStatisticsUpdater sampleStatisticsUpdater = trackStatisticsUpdater;
+        SensorSampleWriter sampleWriter = sensorSampleWriter;
+        remoteSensorManager.setSensorSampleObserver((type, time_ms, value) -> {
+            sampleWriter.add(trackId, type, time_ms, value);
+            sampleStatisticsUpdater.addSensorSample(type, value);
+        });
         remoteSensorManager.start();
 
         altitudeSumManager = new AltitudeSumManager();
         altitudeSumManager.start(this);
 
         lastTrackPoint = null;
+        lastValidTrackPoint = null;
         isIdle = false;
 
         startGps();
@@ -379,20 +447,21 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
 
         if (!wasPause) {
             // Update database
-            Track track = contentProviderUtils.getTrack(trackId);
-            if (track != null) {
-                if (lastTrackPoint != null) {
-                    insertTrackPointIfNewer(track, lastTrackPoint);
-                }
-
-                insertTrackPoint(track, TrackPoint.createSegmentEnd());
+            if (lastTrackPoint != null) {
+                insertTrackPointIfNewer(trackId, lastTrackPoint);
             }
+
+            insertSegmentTrackPoint(trackId, TrackPoint.createSegmentEnd());
         }
 
+        // The export reads the stored TrackPoints.
+        trackPointWriter.flushAndWait();
+
         Track track = contentProviderUtils.getTrack(trackId);
         ExportUtils.postWorkoutExport(this, track, new ExportServiceResultReceiver(new Handler(), this));
 
         endRecording(true);
+        intervalStatisticsPendingTrackPoints = null;
 
         return trackId;
     }
@@ -407,13 +476,12 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
         serviceStatus.onChange(true);
 
         // Update database
-        Track track = contentProviderUtils.getTrack(serviceStatus.getRecordingTrackId());
-        if (track != null) {
-            if (lastTrackPoint != null) {
-                insertTrackPointIfNewer(track, lastTrackPoint);
-            }
-            insertTrackPoint(track, TrackPoint.createSegmentEnd());
+        Track.Id trackId = serviceStatus.getRecordingTrackId();
+        if (lastTrackPoint != null) {
+            insertTrackPointIfNewer(trackId, lastTrackPoint);
         }
+        insertSegmentTrackPoint(trackId, TrackPoint.createSegmentEnd());
+        trackPointWriter.flush();
 
         endRecording(false);
 
@@ -431,15 +499,18 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
 
         // Update instance variables
         if (remoteSensorManager != null) {
+            remoteSensorManager.setSensorSampleObserver(null);
             remoteSensorManager.stop();
             remoteSensorManager = null;
         }
+        sensorSampleWriter.flush();
         if (altitudeSumManager != null) {
             altitudeSumManager.stop(this);
             altitudeSumManager = null;
         }
 
         lastTrackPoint = null;
+        lastValidTrackPoint = null;
 
         handlerServer.stop(this);
 
@@ -465,14 +536,13 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
     /**
      * Gets the last valid track point in the current segment.
      *
-     * @param trackId the track id
      * @return the location or null
      */
-    private TrackPoint getLastValidTrackPointInCurrentSegment(Track.Id trackId) {
+    private TrackPoint getLastValidTrackPointInCurrentSegment() {
         if (!currentSegmentHasTrackPoint()) {
             return null;
         }
-        return contentProviderUtils.getLastValidTrackPoint(trackId);
+        return lastValidTrackPoint;
     }
 
     private boolean currentSegmentHasTrackPoint() {
@@ -486,34 +556,30 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
             return;
         }
 
-        Track track = contentProviderUtils.getTrack(serviceStatus.getRecordingTrackId());
-        if (track == null) {
-            Log.w(TAG, "Ignore newTrackPoint. No track.");
-            return;
-        }
+        Track.Id trackId = serviceStatus.getRecordingTrackId();
 
-        fillWithSensorDataSet(trackPoint);
+        // One snapshot per location: decides whether the trackPoint is stored and provides its stored values.
+        fillWithSensorDataSetAndReset(trackPoint);
 
-        notificationManager.updateTrackPoint(this, track.getTrackStatistics(), trackPoint, recordingGpsAccuracy);
+        notificationManager.updateTrackPoint(this, trackStatisticsUpdater.getTrackStatistics(), trackPoint, recordingGpsAccuracy);
 
-        //TODO Figure out how to avoid loading the lastValidTrackPoint from the database
-        TrackPoint lastValidTrackPoint = getLastValidTrackPointInCurrentSegment(track.getId());
+        TrackPoint lastValidTrackPoint = getLastValidTrackPointInCurrentSegment();
 
         //Storing trackPoint
 
         // Always insert the first segment location
         if (!currentSegmentHasTrackPoint()) {
-            insertTrackPoint(track, trackPoint);
+            insertTrackPoint(trackId, trackPoint);
             lastTrackPoint = trackPoint;
             return;
         }
 
         double distanceToLastTrackLocation = trackPoint.distanceToPrevious(lastValidTrackPoint);
         if (distanceToLastTrackLocation > maxRecordingDistance) {
-            insertTrackPointIfNewer(track, lastTrackPoint);
+            insertTrackPointIfNewer(trackId, lastTrackPoint);
 
             trackPoint.setType(TrackPoint.Type.SEGMENT_START_AUTOMATIC);
-            insertTrackPoint(track, trackPoint);
+            insertTrackPoint(trackId, trackPoint);
 
             isIdle = false;
             lastTrackPoint = trackPoint;
@@ -521,9 +587,9 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
         }
 
         if (trackPoint.hasSensorData() || distanceToLastTrackLocation >= recordingDistanceInterval) {
-            insertTrackPointIfNewer(track, lastTrackPoint);
+            insertTrackPointIfNewer(trackId, lastTrackPoint);
 
-            insertTrackPoint(track, trackPoint);
+            insertTrackPoint(trackId, trackPoint);
 
             isIdle = false;
 
@@ -532,9 +598,9 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
         }
 
         if (!isIdle && !trackPoint.isMoving()) {
-            insertTrackPointIfNewer(track, lastTrackPoint);
+            insertTrackPointIfNewer(trackId, lastTrackPoint);
 
-            insertTrackPoint(track, trackPoint);
+            insertTrackPoint(trackId, trackPoint);
 
             isIdle = true;
 
@@ -543,9 +609,9 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
         }
 
         if (isIdle && trackPoint.isMoving()) {
-            insertTrackPointIfNewer(track, lastTrackPoint);
+            insertTrackPointIfNewer(trackId, lastTrackPoint);
 
-            insertTrackPoint(track, trackPoint);
+            insertTrackPoint(trackId, trackPoint);
 
             isIdle = false;
 
@@ -554,6 +620,10 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
         }
 
         Log.d(TAG, "Not recording TrackPoint, idle");
+        if (lastTrackPoint != lastValidTrackPoint && lastTrackPoint.hasSensorDistance()) {
+            // lastTrackPoint is not stored: its sensor distance is part of the next stored TrackPoint.
+            trackPoint.setSensorDistance(lastTrackPoint.getSensorDistance() + (trackPoint.hasSensorDistance() ? trackPoint.getSensorDistance() : 0));
+        }
         lastTrackPoint = trackPoint;
     }
 
@@ -570,52 +640,134 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
     /**
      * Inserts a trackPoint if this trackPoint is different than lastValidTrackPoint.
      *
-     * @param track      the track
+     * @param trackId    the track id
      * @param trackPoint the trackPoint
      */
-    private void insertTrackPointIfNewer(@NonNull Track track, @NonNull TrackPoint trackPoint) {
-        TrackPoint lastValidTrackPoint = getLastValidTrackPointInCurrentSegment(track.getId());
+    private void insertTrackPointIfNewer(@NonNull Track.Id trackId, @NonNull TrackPoint trackPoint) {
+        TrackPoint lastValidTrackPoint = getLastValidTrackPointInCurrentSegment();
         if (lastValidTrackPoint != null && trackPoint.getTime().equals(lastValidTrackPoint.getTime())) {
             // Do not insert if inserted already
             Log.w(TAG, "Ignore insertTrackPoint. trackPoint time same as last valid track point time.");
             return;
         }
 
-        insertTrackPoint(track, trackPoint);
+        insertTrackPoint(trackId, trackPoint);
     }
 
     /**
-     * Inserts a trackPoint.
+     * Inserts a trackPoint (already filled with the sensor data).
+     * The trackPoint and the updated statistics are stored in the background by {@link TrackPointWriter}.
      *
-     * @param track      the track
+     * @param trackId    the track id
      * @param trackPoint the trackPoint
      */
-    private void insertTrackPoint(@NonNull Track track, @NonNull TrackPoint trackPoint) {
-        try {
-            if (altitudeSumManager != null) {
-                trackPoint.setAltitudeGain(altitudeSumManager.getAltitudeGain_m());
-                trackPoint.setAltitudeLoss(altitudeSumManager.getAltitudeLoss_m());
-                altitudeSumManager.reset();
-            }
-            if (remoteSensorManager != null) {
-                fillWithSensorDataSet(trackPoint);
-                remoteSensorManager.reset();
-            }
-            contentProviderUtils.insertTrackPoint(trackPoint, track.getId());
-            trackStatisticsUpdater.addTrackPoint(trackPoint, recordingDistanceInterval);
-
-            track.setTrackStatistics(trackStatisticsUpdater.getTrackStatistics());
-            contentProviderUtils.updateTrack(track);
-        } catch (SQLiteException e) {
-            /*
-             * Insert failed, most likely because of SqlLite error code 5 (SQLite_BUSY).
-             * This is expected to happen extremely rarely (if our listener gets invoked twice at about the same time).
-             */
-            Log.w(TAG, "SQLiteException", e);
+    private void insertTrackPoint(@NonNull Track.Id trackId, @NonNull TrackPoint trackPoint) {
+        if (altitudeSumManager != null) {
+            trackPoint.setAltitudeGain(altitudeSumManager.getAltitudeGain_m());
+            trackPoint.setAltitudeLoss(altitudeSumManager.getAltitudeLoss_m());
+            altitudeSumManager.reset();
+        }
+        if (trackPoint.getType() == TrackPoint.Type.TRACKPOINT || trackPoint.getType() == TrackPoint.Type.SEGMENT_START_AUTOMATIC) {
+            lastValidTrackPoint = trackPoint;
         }
+        trackStatisticsUpdater.addTrackPoint(trackPoint, recordingDistanceInterval);
+        intervalStatistics.addTrackPoint(trackPoint);
+        if (intervalStatisticsPendingTrackPoints != null) {
+            intervalStatisticsPendingTrackPoints.add(trackPoint);
+        }
+
+        trackPointWriter.add(trackId, trackPoint, trackStatisticsUpdater.getTrackStatistics());
+
         voiceExecutor.update();
     }
 
+    /**
+     * @return the meters of the intervals for announcements (1km or 1mi).
+     */
+    private float getDistanceInterval_m() {
+        boolean metricUnits = PreferencesUtils.isMetricUnits(sharedPreferences, this);
+        return (float) (metricUnits ? UnitConversions.KM_TO_M : UnitConversions.MI_TO_M);
+    }
+
+    /**
+     * Reads the stored {@link TrackPoint}s of a resumed track in the background (i.e., not on the main thread as this may take a while) into the {@link IntervalStatistics} for announcements and the sensor statistics.
+     * Until done, the {@link IntervalStatistics} only contain the new TrackPoints; afterwards, they are updated by {@link #insertTrackPoint(Track.Id, TrackPoint)}.
+     *
+     * @param trackId       the track id
+     * @param resumeTime_ms the time of the TrackPoint that resumes the track; it and all following TrackPoints are inserted while recording
+     */
+    private void loadIntervalStatistics(@NonNull Track.Id trackId, long resumeTime_ms) {
+        List<TrackPoint> pendingTrackPoints = new ArrayList<>();
+        intervalStatisticsPendingTrackPoints = pendingTrackPoints;
+        float distanceInterval_m = getDistanceInterval_m();
+        intervalStatistics = new IntervalStatistics(distanceInterval_m);
+
+        intervalStatisticsExecutor.execute(() -> {
+            IntervalStatistics storedIntervalStatistics = new IntervalStatistics(distanceInterval_m);
+            SensorStatisticsUpdater sensorStatisticsUpdater = new SensorStatisticsUpdater();
+            readTrackPoints(trackId, resumeTime_ms, storedIntervalStatistics, sensorStatisticsUpdater);
+
+            mainHandler.post(() -> {
+                if (intervalStatisticsPendingTrackPoints != pendingTrackPoints) {
+                    // Stopped, or resumed again.
+                    return;
+                }
+                intervalStatisticsPendingTrackPoints = null;
+
+                for (TrackPoint trackPoint : pendingTrackPoints) {
+                    storedIntervalStatistics.addTrackPoint(trackPoint);
+                }
+                float currentDistanceInterval_m = getDistanceInterval_m();
+                intervalStatistics = storedIntervalStatistics.getDistanceInterval_m() == currentDistanceInterval_m ? storedIntervalStatistics : storedIntervalStatistics.withDistanceInterval(currentDistanceInterval_m);
+                trackStatisticsUpdater.addPreviousSensorStatistics(sensorStatisticsUpdater);
+            });
+        });
+    }
+
+    /**
+     * Reads the stored {@link TrackPoint}s before resumeTime_ms in one pass; runs in the background.
+     *
+     * @param sensorStatisticsUpdater also receives the stored {@link TrackPoint}s with the stored sensor samples between them
+     */
+    private void readTrackPoints(@NonNull Track.Id trackId, long resumeTime_ms, @NonNull IntervalStatistics intervalStatistics, @NonNull SensorStatisticsUpdater sensorStatisticsUpdater) {
+        trackPointWriter.flushAndWait();
+        SensorSamples sensorSamples = readSensorSamples(trackId);
+        SensorSampleWindow sensorSampleWindow = new SensorSampleWindow();
+        int nextSensorSample = 0;
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, null)) {
+            while (trackPointIterator.hasNext() && !Thread.currentThread().isInterrupted()) {
+                TrackPoint trackPoint = trackPointIterator.next();
+                long time_ms = trackPoint.getTimeEpochMillis();
+                if (time_ms >= resumeTime_ms) {
+                    break;
+                }
+                intervalStatistics.addTrackPoint(trackPoint);
+
+                // Same window as while recording: the samples received until this trackPoint.
+                sensorSampleWindow.clear();
+                while (nextSensorSample < sensorSamples.size() && sensorSamples.getTime_ms(nextSensorSample) <= time_ms) {
+                    sensorSampleWindow.add(sensorSamples.getType(nextSensorSample), sensorSamples.getValue(nextSensorSample));
+                    nextSensorSample++;
+                }
+                sensorStatisticsUpdater.addTrackPoint(trackPoint, sensorSampleWindow);
+            }
+        }
+    }
+
+    /**
+     * @return the stored sensor samples of the track; none if they could not be read (the statistics use the TrackPoints' sensor data then).
+     */
+    @NonNull
+    private SensorSamples readSensorSamples(@NonNull Track.Id trackId) {
+        sensorSampleWriter.flush();
+        try {
+            return SensorSampleLog.read(FileUtils.getSensorSampleFile(this, trackId));
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read sensor samples of track " + trackId.getId(), e);
+            return new SensorSamples();
+        }
+    }
+
     SensorDataSet getSensorDataSet() {
         if (remoteSensorManager == null) {
             return null;
@@ -624,13 +776,23 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
         return remoteSensorManager.getSensorData();
     }
 
-    private void fillWithSensorDataSet(TrackPoint trackPoint) {
-        SensorDataSet sensorData = getSensorDataSet();
-        if (sensorData != null) {
-            sensorData.fillTrackPoint(trackPoint);
+    /**
+     * Fills the trackPoint from one snapshot of the sensor data and resets the aggregated values (e.g., the sensor distance) for the next TrackPoint.
+     */
+    private void fillWithSensorDataSetAndReset(TrackPoint trackPoint) {
+        if (remoteSensorManager != null) {
+            remoteSensorManager.getAndResetSensorData().fillTrackPoint(trackPoint);
         }
     }
 
+    /**
+     * Inserts a segment start or end; it is not a location, so it gets its own snapshot of the sensor data.
+     */
+    private void insertSegmentTrackPoint(@NonNull Track.Id trackId, @NonNull TrackPoint trackPoint) {
+        fillWithSensorDataSetAndReset(trackPoint);
+        insertTrackPoint(trackId, trackPoint);
+    }
+
     /**
      * Returns the relative altitude gain (since last trackpoint).
      */
@@ -27,9 +27,12 @@ import android.content.Context;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
+import de.dennisguse.opentracks.BuildConfig;
 import de.dennisguse.opentracks.content.sensor.SensorData;
 import de.dennisguse.opentracks.content.sensor.SensorDataCycling;
 import de.dennisguse.opentracks.content.sensor.SensorDataCyclingPower;
@@ -39,6 +42,9 @@ import de.dennisguse.opentracks.util.BluetoothUtils;
 /**
  * Manages connection to a Bluetooth LE sensor and subscribes for onChange-notifications.
  * Also parses the transferred data into {@link SensorDataObserver}.
+ * <p>
+ * Sensors notify several times per second for hours: notifications are decoded into a preallocated {@link BluetoothMeasurement}; only the resulting {@link SensorData} is created.
+ * Debug log messages are only formatted for debug builds.
  */
 public abstract class BluetoothConnectionManager {
 
@@ -50,6 +56,17 @@ public abstract class BluetoothConnectionManager {
     private final UUID measurementUUID;
     private BluetoothGatt bluetoothGatt;
 
+    // Cached as BluetoothDevice.getName() is an IPC call.
+    private volatile String sensorAddress;
+    private volatile String sensorName;
+
+    // Only used by the thread delivering the notifications.
+    private final BluetoothMeasurement measurement = new BluetoothMeasurement();
+
+    private final AtomicLong notificationCount = new AtomicLong();
+    private final AtomicLong invalidNotificationCount = new AtomicLong();
+    private final AtomicLong sensorDataCount = new AtomicLong();
+
     private final BluetoothGattCallback connectCallback = new BluetoothGattCallback() {
         @Override
         public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
@@ -74,6 +91,8 @@ public abstract class BluetoothConnectionManager {
 
         @Override
         public void onServicesDiscovered(@NonNull BluetoothGatt gatt, int status) {
+            sensorName = gatt.getDevice().getName();
+
             BluetoothGattService service = gatt.getService(serviceUUUID);
             if (service == null) {
                 Log.e(TAG, "Could not get service for address=" + gatt.getDevice().getAddress() + " serviceUUID=" + serviceUUUID);
@@ -101,13 +120,7 @@ public abstract class BluetoothConnectionManager {
 
         @Override
         public void onCharacteristicChanged(BluetoothGatt gatt, @NonNull BluetoothGattCharacteristic characteristic) {
-            Log.d(TAG, "Received data from " + gatt.getDevice().getAddress());
-
-            SensorData<?> sensorData = parsePayload(gatt.getDevice().getName(), gatt.getDevice().getAddress(), characteristic);
-            if (sensorData != null) {
-                Log.d(TAG, "Decoded data from " + gatt.getDevice().getAddress() + ": " + sensorData);
-                observer.onChanged(sensorData);
-            }
+            onNotification(sensorName, sensorAddress, characteristic.getValue());
         }
     };
 
@@ -124,6 +137,8 @@ public abstract class BluetoothConnectionManager {
 
         Log.d(TAG, "Connecting to: " + device);
 
+        sensorAddress = device.getAddress();
+        sensorName = device.getName();
         bluetoothGatt = device.connectGatt(context, true, connectCallback);
         SensorData<?> sensorData = createEmptySensorData(bluetoothGatt.getDevice().getAddress());
         observer.onChanged(sensorData);
@@ -136,6 +151,7 @@ public abstract class BluetoothConnectionManager {
         }
         bluetoothGatt.close();
         observer.onDisconnecting(createEmptySensorData(bluetoothGatt.getDevice().getAddress()));
+        Log.i(TAG, "Received " + getNotificationCount() + " notifications (invalid: " + getInvalidNotificationCount() + "); created " + getSensorDataCount() + " sensor data.");
 
         bluetoothGatt = null;
     }
@@ -148,12 +164,64 @@ public abstract class BluetoothConnectionManager {
         return address.equals(bluetoothGatt.getDevice().getAddress());
     }
 
+    /**
+     * Decodes a notification's value and passes the resulting {@link SensorData} to the observer.
+     */
+    @VisibleForTesting
+    void onNotification(String sensorName, String address, @NonNull byte[] value) {
+        notificationCount.incrementAndGet();
+        if (!decode(value, measurement)) {
+            invalidNotificationCount.incrementAndGet();
+            if (BuildConfig.DEBUG) {
+                Log.d(TAG, "Could not decode data from " + address);
+            }
+            return;
+        }
+
+        SensorData<?> sensorData = createSensorData(sensorName, address, measurement);
+        if (sensorData != null) {
+            sensorDataCount.incrementAndGet();
+            if (BuildConfig.DEBUG) {
+                Log.d(TAG, "Decoded data from " + address + ": " + sensorData);
+            }
+            observer.onChanged(sensorData);
+        }
+    }
+
+    /**
+     * @return number of received notifications.
+     */
+    long getNotificationCount() {
+        return notificationCount.get();
+    }
+
+    /**
+     * @return number of notifications that could not be decoded.
+     */
+    long getInvalidNotificationCount() {
+        return invalidNotificationCount.get();
+    }
+
+    /**
+     * @return number of {@link SensorData} created from notifications (the only allocation while decoding).
+     */
+    long getSensorDataCount() {
+        return sensorDataCount.get();
+    }
+
     protected abstract SensorData<?> createEmptySensorData(String address);
 
     /**
-     * @return null if data could not be parsed.
+     * Decodes the value into measurement (overwriting it).
+     *
+     * @return false if data could not be decoded.
      */
-    protected abstract SensorData<?> parsePayload(String sensorName, String address, BluetoothGattCharacteristic characteristic);
+    abstract boolean decode(@NonNull byte[] value, @NonNull BluetoothMeasurement measurement);
+
+    /**
+     * @return null if the measurement contains no data for this sensor.
+     */
+    abstract SensorData<?> createSensorData(String sensorName, String address, @NonNull BluetoothMeasurement measurement);
 
     public static class HeartRate extends BluetoothConnectionManager {
 
@@ -167,10 +235,13 @@ public abstract class BluetoothConnectionManager {
         }
 
         @Override
-        protected SensorDataHeartRate parsePayload(String sensorName, String address, BluetoothGattCharacteristic characteristic) {
-            Integer heartRate = BluetoothUtils.parseHeartRate(characteristic);
+        boolean decode(@NonNull byte[] value, @NonNull BluetoothMeasurement measurement) {
+            return measurement.decodeHeartRate(value);
+        }
 
-            return heartRate != null ? new SensorDataHeartRate(address, sensorName, heartRate) : null;
+        @Override
+        SensorDataHeartRate createSensorData(String sensorName, String address, @NonNull BluetoothMeasurement measurement) {
+            return new SensorDataHeartRate(address, sensorName, measurement.getHeartRate_bpm());
         }
     }
 
@@ -186,19 +257,19 @@ public abstract class BluetoothConnectionManager {
         }
 
         @Override
-        protected SensorDataCycling.Cadence parsePayload(String sensorName, String address, BluetoothGattCharacteristic characteristic) {
-            SensorDataCycling.CadenceAndSpeed cadenceAndSpeed = BluetoothUtils.parseCyclingCrankAndWheel(address, sensorName, characteristic);
-            if (cadenceAndSpeed == null) {
-                return null;
-            }
+        boolean decode(@NonNull byte[] value, @NonNull BluetoothMeasurement measurement) {
+            return measurement.decodeCyclingCrankAndWheel(value);
+        }
 
-            if (cadenceAndSpeed.getCadence() != null) {
-                return cadenceAndSpeed.getCadence();
+        @Override
+        SensorDataCycling.Cadence createSensorData(String sensorName, String address, @NonNull BluetoothMeasurement measurement) {
+            if (measurement.hasCrank()) {
+                return new SensorDataCycling.Cadence(address, sensorName, measurement.getCrankRevolutionsCount(), measurement.getCrankRevolutionsTime());
             }
 
             //Workaround for Wahoo CADENCE: this sensor reports speed (instead of cadence)
-            if (cadenceAndSpeed.getDistanceSpeed() != null) {
-                return new SensorDataCycling.Cadence(cadenceAndSpeed.getDistanceSpeed());
+            if (measurement.hasWheel()) {
+                return new SensorDataCycling.Cadence(address, sensorName, measurement.getWheelRevolutionsCount(), measurement.getWheelRevolutionsTime());
             }
 
             return null;
@@ -217,17 +288,21 @@ public abstract class BluetoothConnectionManager {
         }
 
         @Override
-        protected SensorDataCycling.DistanceSpeed parsePayload(String sensorName, String address, BluetoothGattCharacteristic characteristic) {
-            SensorDataCycling.CadenceAndSpeed cadenceAndSpeed = BluetoothUtils.parseCyclingCrankAndWheel(address, sensorName, characteristic);
-            if (cadenceAndSpeed != null) {
-                // Workaround for Garmin Speed Sensor 2: provides cadence instead of speed
-                SensorDataCycling.DistanceSpeed result = cadenceAndSpeed.getDistanceSpeed();
-                if (result == null && cadenceAndSpeed.getCadence() != null) {
-                    result = new SensorDataCycling.DistanceSpeed(cadenceAndSpeed.getSensorAddress(), cadenceAndSpeed.getSensorName(), (int) cadenceAndSpeed.getCadence().getCrankRevolutionsCount(), cadenceAndSpeed.getCadence().getCrankRevolutionsTime());
-                }
-
-                return result;
+        boolean decode(@NonNull byte[] value, @NonNull BluetoothMeasurement measurement) {
+            return measurement.decodeCyclingCrankAndWheel(value);
+        }
+
+        @Override
+        SensorDataCycling.DistanceSpeed createSensorData(String sensorName, String address, @NonNull BluetoothMeasurement measurement) {
+            if (measurement.hasWheel()) {
+                return new SensorDataCycling.DistanceSpeed(address, sensorName, measurement.getWheelRevolutionsCount(), measurement.getWheelRevolutionsTime());
             }
+
+            // Workaround for Garmin Speed Sensor 2: provides cadence instead of speed
+            if (measurement.hasCrank()) {
+                return new SensorDataCycling.DistanceSpeed(address, sensorName, (int) measurement.getCrankRevolutionsCount(), measurement.getCrankRevolutionsTime());
+            }
+
             return null;
         }
     }
@@ -244,10 +319,13 @@ public abstract class BluetoothConnectionManager {
         }
 
         @Override
-        protected SensorDataCyclingPower parsePayload(String sensorName, String address, BluetoothGattCharacteristic characteristic) {
-            Integer cyclingPower = BluetoothUtils.parseCyclingPower(characteristic);
+        boolean decode(@NonNull byte[] value, @NonNull BluetoothMeasurement measurement) {
+            return measurement.decodeCyclingPower(value);
+        }
 
-            return cyclingPower != null ? new SensorDataCyclingPower(address, sensorName, cyclingPower) : null;
+        @Override
+        SensorDataCyclingPower createSensorData(String sensorName, String address, @NonNull BluetoothMeasurement measurement) {
+            return new SensorDataCyclingPower(address, sensorName, measurement.getPower_w());
         }
     }
 
@@ -0,0 +1,134 @@
+package de.dennisguse.opentracks.services.sensors;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A measurement decoded from a Bluetooth LE notification (little endian).
+ * It is preallocated per connection and overwritten by every notification: decoding does not allocate.
+ * <p>
+ * Not thread-safe: the notifications of a connection are delivered sequentially.
+ */
+final class BluetoothMeasurement {
+
+    private int heartRate_bpm;
+
+    private int power_w;
+
+    private boolean hasCrank;
+    private long crankRevolutionsCount; // UINT32
+    private int crankRevolutionsTime; // UINT16; 1/1024s
+
+    private boolean hasWheel;
+    private int wheelRevolutionsCount; // UINT16
+    private int wheelRevolutionsTime; // UINT16; 1/1024s
+
+    /**
+     * https://www.bluetooth.com/wp-content/uploads/Sitecore-Media-Library/Gatt/Xml/Characteristics/org.bluetooth.characteristic.heart_rate_measurement.xml
+     *
+     * @return false if the value is invalid
+     */
+    boolean decodeHeartRate(@NonNull byte[] value) {
+        if (value.length == 0) {
+            return false;
+        }
+
+        boolean formatUINT16 = ((value[0] & 0x1) == 1);
+        if (formatUINT16 && value.length >= 3) {
+            heartRate_bpm = uint16(value, 1);
+            return true;
+        }
+        if (!formatUINT16 && value.length >= 2) {
+            heartRate_bpm = uint8(value, 1);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * https://www.bluetooth.com/wp-content/uploads/Sitecore-Media-Library/Gatt/Xml/Characteristics/org.bluetooth.characteristic.cycling_power_measurement.xml
+     *
+     * @return false if the value is invalid
+     */
+    boolean decodeCyclingPower(@NonNull byte[] value) {
+        if (value.length < 4) {
+            return false;
+        }
+
+        power_w = (short) uint16(value, 2);
+        return true;
+    }
+
+    /**
+     * https://www.bluetooth.com/wp-content/uploads/Sitecore-Media-Library/Gatt/Xml/Characteristics/org.bluetooth.characteristic.csc_measurement.xml
+     *
+     * @return false if the value is invalid
+     */
+    boolean decodeCyclingCrankAndWheel(@NonNull byte[] value) {
+        if (value.length == 0) {
+            return false;
+        }
+
+        int flags = value[0];
+        int index = 1;
+
+        hasCrank = (flags & 0x01) > 0 && value.length - index >= 6;
+        if (hasCrank) {
+            crankRevolutionsCount = uint32(value, index);
+            index += 4;
+            crankRevolutionsTime = uint16(value, index);
+            index += 2;
+        }
+
+        hasWheel = (flags & 0x02) > 0 && value.length - index >= 4;
+        if (hasWheel) {
+            wheelRevolutionsCount = uint16(value, index);
+            index += 2;
+            wheelRevolutionsTime = uint16(value, index);
+        }
+        return true;
+    }
+
+    int getHeartRate_bpm() {
+        return heartRate_bpm;
+    }
+
+    int getPower_w() {
+        return power_w;
+    }
+
+    boolean hasCrank() {
+        return hasCrank;
+    }
+
+    long getCrankRevolutionsCount() {
+        return crankRevolutionsCount;
+    }
+
+    int getCrankRevolutionsTime() {
+        return crankRevolutionsTime;
+    }
+
+    boolean hasWheel() {
+        return hasWheel;
+    }
+
+    int getWheelRevolutionsCount() {
+        return wheelRevolutionsCount;
+    }
+
+    int getWheelRevolutionsTime() {
+        return wheelRevolutionsTime;
+    }
+
+    private static int uint8(byte[] value, int offset) {
+        return value[offset] & 0xFF;
+    }
+
+    private static int uint16(byte[] value, int offset) {
+        return (value[offset] & 0xFF) | (value[offset + 1] & 0xFF) << 8;
+    }
+
+    private static long uint32(byte[] value, int offset) {
+        return (uint16(value, offset) | (long) uint16(value, offset + 2) << 16);
+    }
+}
@@ -23,11 +23,16 @@ import android.content.SharedPreferences;
 import android.util.Log;
 
 import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
 
+import de.dennisguse.opentracks.BuildConfig;
 import de.dennisguse.opentracks.R;
 import de.dennisguse.opentracks.content.sensor.SensorData;
 import de.dennisguse.opentracks.content.sensor.SensorDataCycling;
+import de.dennisguse.opentracks.content.sensor.SensorDataCyclingPower;
+import de.dennisguse.opentracks.content.sensor.SensorDataHeartRate;
 import de.dennisguse.opentracks.content.sensor.SensorDataSet;
+import de.dennisguse.opentracks.content.sensor.SensorSamples;
 import de.dennisguse.opentracks.util.BluetoothUtils;
 import de.dennisguse.opentracks.util.PreferencesUtils;
 
@@ -42,6 +47,8 @@ import de.dennisguse.opentracks.util.PreferencesUtils;
  * We establish two GATT separate GATT connections (as if two different sensors were used).
  * However, it is not clear if this is allowed.
  * Even if this works, it is not clear what happens if a user (while recording) changes one of the sensors in the settings as this will trigger a disconnect of one GATT.
+ * <p>
+ * The {@link SensorDataSet} is published copy-on-write with compare-and-set: the GATT callbacks (one thread per sensor) do not block each other or the recording thread; readers get a consistent snapshot.
  *
  * @author Sandor Dornbush
  */
@@ -64,7 +71,10 @@ public class BluetoothRemoteSensorManager implements BluetoothConnectionManager.
     private final BluetoothConnectionManager.CyclingDistanceSpeed cyclingSpeed = new BluetoothConnectionManager.CyclingDistanceSpeed(this);
     private final BluetoothConnectionManager.CyclingPower cyclingPower = new BluetoothConnectionManager.CyclingPower(this);
 
-    private final SensorDataSet sensorDataSet = new SensorDataSet();
+    // Published snapshot; never modified (see SensorDataSet).
+    private final AtomicReference<SensorDataSet> sensorDataSet = new AtomicReference<>(new SensorDataSet());
+
+    private volatile SensorSampleObserver sensorSampleObserver;
 
     private final SharedPreferences.OnSharedPreferenceChangeListener sharedPreferenceChangeListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
         @Override
@@ -119,7 +129,7 @@ public class BluetoothRemoteSensorManager implements BluetoothConnectionManager.
         cyclingSpeed.disconnect();
         cyclingPower.disconnect();
 
-        sensorDataSet.clear();
+        sensorDataSet.set(new SensorDataSet());
 
         sharedPreferences.unregisterOnSharedPreferenceChangeListener(sharedPreferenceChangeListener);
         started = false;
@@ -157,41 +167,102 @@ public class BluetoothRemoteSensorManager implements BluetoothConnectionManager.
         }
     }
 
+    /**
+     * @return a consistent snapshot of the latest sensor data; not modified.
+     */
     public SensorDataSet getSensorData() {
-        return sensorDataSet;
+        return sensorDataSet.get();
     }
 
-    public void reset() {
-        sensorDataSet.reset();
+    /**
+     * Returns the latest sensor data and resets the long term aggregated values (e.g., overall distance) in one step.
+     * The aggregated values of a sensor update that is published concurrently are either part of the returned snapshot or of the next one.
+     *
+     * @return a consistent snapshot of the latest sensor data (before the reset); not modified.
+     */
+    public SensorDataSet getAndResetSensorData() {
+        while (true) {
+            SensorDataSet current = sensorDataSet.get();
+            SensorDataSet next = new SensorDataSet.Builder(current).reset().build();
+            if (sensorDataSet.compareAndSet(current, next)) {
+                return current;
+            }
+        }
     }
 
+    /**
+     * @param sensorSampleObserver receives every heart rate and power sample; null to remove
+     */
+    public void setSensorSampleObserver(SensorSampleObserver sensorSampleObserver) {
+        this.sensorSampleObserver = sensorSampleObserver;
+    }
+
+    /**
+     * Publishes the sensorData; the values derived from the previous SensorData (e.g., cadence) are computed again if another update was published concurrently.
+     */
     @Override
-    public synchronized void onChanged(SensorData<?> sensorData) {
-        if (sensorData instanceof SensorDataCycling.Cadence) {
-            SensorDataCycling.Cadence previous = sensorDataSet.getCyclingCadence();
-            Log.d(TAG, "Previous: " + previous + "; current: " + sensorData);
+    public void onChanged(SensorData<?> sensorData) {
+        while (true) {
+            SensorDataSet current = sensorDataSet.get();
+            if (sensorData instanceof SensorDataCycling.Cadence) {
+                SensorDataCycling.Cadence previous = current.getCyclingCadence();
+                if (BuildConfig.DEBUG) {
+                    Log.d(TAG, "Previous: " + previous + "; current: " + sensorData);
+                }
+
+                if (sensorData.equals(previous)) {
+                    if (BuildConfig.DEBUG) {
+                        Log.d(TAG, "onChanged: cadence data repeated.");
+                    }
+                    return;
+                }
+                ((SensorDataCycling.Cadence) sensorData).compute(previous);
+            }
+            if (sensorData instanceof SensorDataCycling.DistanceSpeed) {
+                SensorDataCycling.DistanceSpeed previous = current.getCyclingDistanceSpeed();
+                if (BuildConfig.DEBUG) {
+                    Log.d(TAG, "Previous: " + previous + "; Current" + sensorData);
+                }
+                if (sensorData.equals(previous)) {
+                    if (BuildConfig.DEBUG) {
+                        Log.d(TAG, "onChanged: speed data repeated.");
+                    }
+                    return;
+                }
+                ((SensorDataCycling.DistanceSpeed) sensorData).compute(previous, preferenceWheelCircumference);
+            }
 
-            if (sensorData.equals(previous)) {
-                Log.d(TAG, "onChanged: cadence data repeated.");
-                return;
+            SensorDataSet next = new SensorDataSet.Builder(current).set(sensorData).build();
+            if (sensorDataSet.compareAndSet(current, next)) {
+                break;
             }
-            ((SensorDataCycling.Cadence) sensorData).compute(previous);
         }
-        if (sensorData instanceof SensorDataCycling.DistanceSpeed) {
-            SensorDataCycling.DistanceSpeed previous = sensorDataSet.getCyclingDistanceSpeed();
-            Log.d(TAG, "Previous: " + previous + "; Current" + sensorData);
-            if (sensorData.equals(previous)) {
-                Log.d(TAG, "onChanged: speed data repeated.");
-                return;
+
+        SensorSampleObserver sensorSampleObserver = this.sensorSampleObserver;
+        if (sensorSampleObserver != null && sensorData.hasValue()) {
+            if (sensorData instanceof SensorDataHeartRate) {
+                sensorSampleObserver.onSensorSample(SensorSamples.TYPE_HEART_RATE, sensorData.getTime().toEpochMilli(), Math.round(((SensorDataHeartRate) sensorData).getValue()));
+            } else if (sensorData instanceof SensorDataCyclingPower) {
+                sensorSampleObserver.onSensorSample(SensorSamples.TYPE_POWER, sensorData.getTime().toEpochMilli(), Math.round(((SensorDataCyclingPower) sensorData).getValue()));
             }
-            ((SensorDataCycling.DistanceSpeed) sensorData).compute(previous, preferenceWheelCircumference);
         }
-
-        sensorDataSet.set(sensorData);
     }
 
     @Override
     public void onDisconnecting(SensorData<?> sensorData) {
-        sensorDataSet.remove(sensorData);
+        while (true) {
+            SensorDataSet current = sensorDataSet.get();
+            SensorDataSet next = new SensorDataSet.Builder(current).remove(sensorData).build();
+            if (sensorDataSet.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Receives every sensor sample (see {@link SensorSamples}); called from the sensor's thread.
+     */
+    public interface SensorSampleObserver {
+        void onSensorSample(int type, long time_ms, int value);
     }
 }
@@ -23,19 +23,15 @@ import android.speech.tts.TextToSpeech;
 import android.speech.tts.UtteranceProgressListener;
 import android.util.Log;
 
-import java.util.ArrayList;
 import java.util.Locale;
 
 import de.dennisguse.opentracks.content.data.Track;
-import de.dennisguse.opentracks.content.data.TrackPoint;
 import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
-import de.dennisguse.opentracks.content.provider.TrackPointIterator;
 import de.dennisguse.opentracks.services.TrackRecordingService;
 import de.dennisguse.opentracks.services.TrackRecordingServiceStatus;
 import de.dennisguse.opentracks.stats.TrackStatistics;
 import de.dennisguse.opentracks.util.AnnouncementUtils;
 import de.dennisguse.opentracks.util.PreferencesUtils;
-import de.dennisguse.opentracks.util.UnitConversions;
 import de.dennisguse.opentracks.viewmodels.IntervalStatistics;
 
 /**
@@ -148,15 +144,16 @@ public class AnnouncementPeriodicTask implements PeriodicTask {
                 recordingTrackId = trackId;
             }
         });
-        announce(trackRecordingService.getTrackStatistics());
+        announce(trackRecordingService.getTrackStatistics(), trackRecordingService.getIntervalStatistics());
     }
 
     /**
      * Runs this task.
      *
-     * @param trackStatistics the track statistics
+     * @param trackStatistics    the track statistics
+     * @param intervalStatistics the interval statistics of the recording track; may be null
      */
-    private void announce(TrackStatistics trackStatistics) {
+    private void announce(TrackStatistics trackStatistics, IntervalStatistics intervalStatistics) {
         if (trackStatistics == null) {
             Log.e(TAG, "TrackStatistics is null.");
             return;
@@ -183,18 +180,10 @@ public class AnnouncementPeriodicTask implements PeriodicTask {
         Track track = contentProviderUtils.getTrack(recordingTrackId);
         String category = track != null ? track.getCategory() : "";
 
-        //TODO Querying all TrackPoints all the time is inefficient; use TrackDataHub or something else.
-        TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(track.getId(), null);
-        ArrayList<TrackPoint> trackPoints = new ArrayList<>();
-        while (trackPointIterator.hasNext()) {
-            trackPoints.add(trackPointIterator.next());
-        }
-
         boolean isMetricUnits = PreferencesUtils.isMetricUnits(sharedPreferences, context);
         boolean isReportSpeed = PreferencesUtils.isReportSpeed(sharedPreferences, context, category);
 
-        IntervalStatistics intervalStatistics = new IntervalStatistics(trackPoints, (float) (isMetricUnits ? 1d * UnitConversions.KM_TO_M : 1d * UnitConversions.MI_TO_M));
-        IntervalStatistics.Interval lastInterval = intervalStatistics.getLastInterval();
+        IntervalStatistics.Interval lastInterval = intervalStatistics != null ? intervalStatistics.getLastInterval() : null;
 
         String announcement = AnnouncementUtils.getAnnouncement(context, trackStatistics, isMetricUnits, isReportSpeed, lastInterval);
         speakAnnouncement(announcement);
@@ -0,0 +1,94 @@
+package de.dennisguse.opentracks.stats;
+
+import androidx.annotation.NonNull;
+
+import de.dennisguse.opentracks.content.sensor.SensorSamples;
+
+/**
+ * Mean and max of the sensor samples (see {@link SensorSamples}) of one TrackPoint window, i.e., received since the previous TrackPoint.
+ * The mean is per sample (sensors send their samples in regular intervals).
+ * <p>
+ * Not thread-safe.
+ */
+public class SensorSampleWindow {
+
+    private int heartRateCount = 0;
+    private long heartRateSum = 0;
+    private int maxHeartRate_bpm = Integer.MIN_VALUE;
+
+    private int powerCount = 0;
+    private long powerSum = 0;
+    private int maxPower_w = Integer.MIN_VALUE;
+
+    public void add(int type, int value) {
+        switch (type) {
+            case SensorSamples.TYPE_HEART_RATE:
+                heartRateCount++;
+                heartRateSum += value;
+                maxHeartRate_bpm = Math.max(maxHeartRate_bpm, value);
+                break;
+            case SensorSamples.TYPE_POWER:
+                powerCount++;
+                powerSum += value;
+                maxPower_w = Math.max(maxPower_w, value);
+                break;
+            default:
+                break;
+        }
+    }
+
+    public void add(@NonNull SensorSamples sensorSamples) {
+        for (int i = 0; i < sensorSamples.size(); i++) {
+            add(sensorSamples.getType(i), sensorSamples.getValue(i));
+        }
+    }
+
+    public void clear() {
+        heartRateCount = 0;
+        heartRateSum = 0;
+        maxHeartRate_bpm = Integer.MIN_VALUE;
+
+        powerCount = 0;
+        powerSum = 0;
+        maxPower_w = Integer.MIN_VALUE;
+    }
+
+    public boolean hasHeartRate() {
+        return heartRateCount > 0;
+    }
+
+    public int getHeartRateCount() {
+        return heartRateCount;
+    }
+
+    public float getAvgHeartRate_bpm() {
+        return (float) heartRateSum / heartRateCount;
+    }
+
+    public int getMaxHeartRate_bpm() {
+        return maxHeartRate_bpm;
+    }
+
+    public boolean hasPower() {
+        return powerCount > 0;
+    }
+
+    public int getPowerCount() {
+        return powerCount;
+    }
+
+    public float getAvgPower_w() {
+        return (float) powerSum / powerCount;
+    }
+
+    public int getMaxPower_w() {
+        return maxPower_w;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "SensorSampleWindow { HR samples: " + heartRateCount + (hasHeartRate() ? "; Avg HR: " + getAvgHeartRate_bpm() + "; Max HR: " + maxHeartRate_bpm : "")
+                + "; Power samples: " + powerCount + (hasPower() ? "; Avg Power: " + getAvgPower_w() + "; Max Power: " + maxPower_w : "") + "}";
+    }
+}
@@ -1,5 +1,7 @@
 package de.dennisguse.opentracks.stats;
 
+import androidx.annotation.NonNull;
+
 public class SensorStatistics {
     private final Float maxHr;
     private final Float avgHr;
@@ -46,4 +48,12 @@ public class SensorStatistics {
     public float getAvgPower() {
         return avgPower;
     }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "SensorStatistics { Max HR: " + maxHr + "; Avg HR: " + avgHr
+                + "; Max Cadence: " + maxCadence + "; Avg Cadence: " + avgCadence
+                + "; Avg Power: " + avgPower + "}";
+    }
 }
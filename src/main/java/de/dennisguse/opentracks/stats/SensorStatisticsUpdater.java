@@ -0,0 +1,138 @@
+package de.dennisguse.opentracks.stats;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.time.Duration;
+
+import de.dennisguse.opentracks.content.data.TrackPoint;
+
+/**
+ * Computes {@link SensorStatistics} in one pass over {@link TrackPoint}s (ordered by id).
+ * The averages are duration-based: the sensor data of a TrackPoint is valid until the next TrackPoint.
+ * Manual pauses (SEGMENT_START_MANUAL) are ignored and end the duration of the previous TrackPoint.
+ * <p>
+ * If the sensor samples received between two TrackPoints are known (see {@link SensorSampleWindow}), their mean is used for that duration instead of the previous TrackPoint's value and their max for the max.
+ * <p>
+ * Without sensor samples: same semantics as {@link de.dennisguse.opentracks.content.provider.CustomContentProvider}'s sensor statistics query.
+ */
+public class SensorStatisticsUpdater {
+
+    // Last TrackPoint that is not a manual pause; its duration is not yet known.
+    private TrackPoint lastTrackPoint;
+
+    private long totalDuration_ms = 0;
+
+    private double heartRateSum = 0;
+    private Float maxHeartRate_bpm;
+
+    private double cadenceSum = 0;
+    private Float maxCadence_rpm;
+
+    private double powerSum = 0;
+    private boolean hasPower = false;
+
+    public void addTrackPoint(@NonNull TrackPoint trackPoint) {
+        addTrackPoint(trackPoint, null);
+    }
+
+    /**
+     * @param trackPoint         the trackPoint
+     * @param sensorSampleWindow the sensor samples received since the previous trackPoint; null if unknown
+     */
+    public void addTrackPoint(@NonNull TrackPoint trackPoint, @Nullable SensorSampleWindow sensorSampleWindow) {
+        boolean isManualPause = trackPoint.getType() == TrackPoint.Type.SEGMENT_START_MANUAL;
+
+        if (lastTrackPoint != null) {
+            long duration_ms = 0;
+            if (!isManualPause) {
+                duration_ms = Math.max(0, Duration.between(lastTrackPoint.getTime(), trackPoint.getTime()).toMillis());
+            }
+            totalDuration_ms += duration_ms;
+
+            if (sensorSampleWindow != null && sensorSampleWindow.hasHeartRate()) {
+                heartRateSum += (double) sensorSampleWindow.getAvgHeartRate_bpm() * duration_ms;
+            } else if (lastTrackPoint.hasHeartRate()) {
+                heartRateSum += (double) lastTrackPoint.getHeartRate_bpm() * duration_ms;
+            }
+            if (lastTrackPoint.hasCyclingCadence()) {
+                cadenceSum += (double) lastTrackPoint.getCyclingCadence_rpm() * duration_ms;
+            }
+            if (sensorSampleWindow != null && sensorSampleWindow.hasPower()) {
+                powerSum += (double) sensorSampleWindow.getAvgPower_w() * duration_ms;
+            } else if (lastTrackPoint.hasPower()) {
+                powerSum += (double) lastTrackPoint.getPower() * duration_ms;
+            }
+            lastTrackPoint = null;
+        }
+
+        if (isManualPause) {
+            return;
+        }
+
+        if (trackPoint.hasHeartRate()) {
+            maxHeartRate_bpm = maxHeartRate_bpm == null ? trackPoint.getHeartRate_bpm() : Math.max(maxHeartRate_bpm, trackPoint.getHeartRate_bpm());
+        }
+        if (trackPoint.hasCyclingCadence()) {
+            maxCadence_rpm = maxCadence_rpm == null ? trackPoint.getCyclingCadence_rpm() : Math.max(maxCadence_rpm, trackPoint.getCyclingCadence_rpm());
+        }
+        if (trackPoint.hasPower()) {
+            hasPower = true;
+        }
+        if (sensorSampleWindow != null) {
+            if (sensorSampleWindow.hasHeartRate()) {
+                float windowMaxHeartRate_bpm = sensorSampleWindow.getMaxHeartRate_bpm();
+                maxHeartRate_bpm = maxHeartRate_bpm == null ? windowMaxHeartRate_bpm : Math.max(maxHeartRate_bpm, windowMaxHeartRate_bpm);
+            }
+            if (sensorSampleWindow.hasPower()) {
+                hasPower = true;
+            }
+        }
+        lastTrackPoint = trackPoint;
+    }
+
+    /**
+     * Adds the statistics of the {@link TrackPoint}s before this one's; they must be separated by a manual pause (SEGMENT_START_MANUAL).
+     * So, the durations of both do not overlap (e.g., if the previous TrackPoints of a resumed track were read in the background).
+     */
+    public void addPrevious(@NonNull SensorStatisticsUpdater previous) {
+        totalDuration_ms += previous.totalDuration_ms;
+
+        heartRateSum += previous.heartRateSum;
+        maxHeartRate_bpm = max(maxHeartRate_bpm, previous.maxHeartRate_bpm);
+
+        cadenceSum += previous.cadenceSum;
+        maxCadence_rpm = max(maxCadence_rpm, previous.maxCadence_rpm);
+
+        powerSum += previous.powerSum;
+        hasPower |= previous.hasPower;
+    }
+
+    private static Float max(Float value1, Float value2) {
+        if (value1 == null) {
+            return value2;
+        }
+        if (value2 == null) {
+            return value1;
+        }
+        return Math.max(value1, value2);
+    }
+
+    @NonNull
+    public SensorStatistics getSensorStatistics() {
+        return new SensorStatistics(
+                maxHeartRate_bpm,
+                maxHeartRate_bpm != null ? average(heartRateSum) : null,
+                maxCadence_rpm,
+                maxCadence_rpm != null ? average(cadenceSum) : null,
+                hasPower ? average(powerSum) : null
+        );
+    }
+
+    private Float average(double sum) {
+        if (totalDuration_ms == 0) {
+            return null;
+        }
+        return (float) (sum / totalDuration_ms);
+    }
+}
@@ -49,6 +49,8 @@ public class TrackStatistics {
     private double maxSpeed_mps;
     private Float totalAltitudeGain_m = null;
     private Float totalAltitudeLoss_m = null;
+    // Set by TrackStatisticsUpdater; not merged as the averages are duration-based.
+    private SensorStatistics sensorStatistics = null;
 
     public TrackStatistics() {
         reset();
@@ -69,11 +71,13 @@ public class TrackStatistics {
         altitudeExtremities.set(other.altitudeExtremities.getMin(), other.altitudeExtremities.getMax());
         totalAltitudeGain_m = other.totalAltitudeGain_m;
         totalAltitudeLoss_m = other.totalAltitudeLoss_m;
+        sensorStatistics = other.sensorStatistics;
     }
 
     /**
      * Combines these statistics with those from another object.
      * This assumes that the time periods covered by each do not intersect.
+     * The {@link SensorStatistics} are not merged.
      *
      * @param other another statistics data object
      */
@@ -127,6 +131,7 @@ public class TrackStatistics {
         setMaxSpeed(0);
         setTotalAltitudeGain(null);
         setTotalAltitudeLoss(null);
+        setSensorStatistics(null);
     }
 
     public void reset(Instant startTime) {
@@ -298,6 +303,15 @@ public class TrackStatistics {
         totalAltitudeLoss_m += loss_m;
     }
 
+    @Nullable
+    public SensorStatistics getSensorStatistics() {
+        return sensorStatistics;
+    }
+
+    public void setSensorStatistics(SensorStatistics sensorStatistics) {
+        this.sensorStatistics = sensorStatistics;
+    }
+
     @NonNull
     @Override
     public String toString() {
@@ -306,6 +320,7 @@ public class TrackStatistics {
                 + "; Moving Time: " + getMovingTime() + "; Max Speed: " + getMaxSpeed()
                 + "; Min Altitude: " + getMinAltitude() + "; Max Altitude: " + getMaxAltitude()
                 + "; Altitude Gain: " + getTotalAltitudeGain()
-                + "; Altitude Loss: " + getTotalAltitudeLoss() + "}";
+                + "; Altitude Loss: " + getTotalAltitudeLoss()
+                + "; Sensor Statistics: " + getSensorStatistics() + "}";
     }
 }
\ No newline at end of file
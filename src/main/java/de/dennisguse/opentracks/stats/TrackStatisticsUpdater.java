@@ -22,7 +22,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
 import java.time.Duration;
+import java.time.Instant;
 
+import de.dennisguse.opentracks.BuildConfig;
 import de.dennisguse.opentracks.content.data.TrackPoint;
 import de.dennisguse.opentracks.content.provider.TrackPointIterator;
 
@@ -62,6 +64,8 @@ public class TrackStatisticsUpdater {
 
     private final TrackStatistics trackStatistics;
 
+    private final SensorStatisticsUpdater sensorStatisticsUpdater;
+
     private final DoubleRingBuffer altitudeBuffer_m = new DoubleRingBuffer(ALTITUDE_SMOOTHING_FACTOR);
     private final DoubleRingBuffer speedBuffer_mps = new DoubleRingBuffer(SPEED_SMOOTHING_FACTOR);
 
@@ -72,17 +76,26 @@ public class TrackStatisticsUpdater {
     // Current segment's last moving trackPoint
     private TrackPoint lastMovingTrackPoint;
 
+    // Sensor samples since the last trackPoint (added from the sensor's thread); guarded by sensorSampleLock.
+    private final Object sensorSampleLock = new Object();
+    private SensorSampleWindow sensorSampleWindow = new SensorSampleWindow();
+    // Sensor samples between the last two trackPoints; swapped with sensorSampleWindow (no allocation per trackPoint).
+    private SensorSampleWindow lastSensorSampleWindow = new SensorSampleWindow();
+
     public TrackStatisticsUpdater() {
         trackStatistics = new TrackStatistics();
+        sensorStatisticsUpdater = new SensorStatisticsUpdater();
     }
 
     /**
      * Creates a new{@link TrackStatisticsUpdater} with a {@link TrackStatisticsUpdater} already existed.
      *
-     * @param trackStatistics a {@link TrackStatisticsUpdater}
+     * @param trackStatistics         a {@link TrackStatisticsUpdater}
+     * @param sensorStatisticsUpdater a {@link SensorStatisticsUpdater} that processed all existing {@link TrackPoint}s
      */
-    public TrackStatisticsUpdater(TrackStatistics trackStatistics) {
+    public TrackStatisticsUpdater(TrackStatistics trackStatistics, SensorStatisticsUpdater sensorStatisticsUpdater) {
         this.trackStatistics = trackStatistics;
+        this.sensorStatisticsUpdater = sensorStatisticsUpdater;
         trackInitialized = true;
     }
 
@@ -90,9 +103,17 @@ public class TrackStatisticsUpdater {
         // Take a snapshot - we don't want anyone messing with our trackStatistics
         TrackStatistics stats = new TrackStatistics(trackStatistics);
         stats.merge(currentSegment);
+        stats.setSensorStatistics(sensorStatisticsUpdater.getSensorStatistics());
         return stats;
     }
 
+    /**
+     * @param previous a {@link SensorStatisticsUpdater} that processed the existing {@link TrackPoint}s (before the manual pause that started this updater)
+     */
+    public void addPreviousSensorStatistics(@NonNull SensorStatisticsUpdater previous) {
+        sensorStatisticsUpdater.addPrevious(previous);
+    }
+
     public boolean isTrackInitialized() {
         return trackInitialized;
     }
@@ -104,23 +125,34 @@ public class TrackStatisticsUpdater {
      * @param minGPSDistance the min recording distance
      */
     public void addTrackPoint(TrackPoint trackPoint, int minGPSDistance) {
+        synchronized (sensorSampleLock) {
+            SensorSampleWindow window = lastSensorSampleWindow;
+            lastSensorSampleWindow = sensorSampleWindow;
+            sensorSampleWindow = window;
+            sensorSampleWindow.clear();
+        }
+        sensorStatisticsUpdater.addTrackPoint(trackPoint, lastSensorSampleWindow);
         internalAddTrackPoint(trackPoint, minGPSDistance);
-        Log.d(TAG, this.toString());
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, this.toString());
+        }
     }
 
     private void internalAddTrackPoint(TrackPoint trackPoint, int minGPSDistance) {
+        // Called for every TrackPoint: create the Instant once.
+        Instant time = trackPoint.getTime();
         if (!trackInitialized) {
-            trackStatistics.setStartTime(trackPoint.getTime());
+            trackStatistics.setStartTime(time);
             trackInitialized = true;
         }
         if (!segmentInitialized) {
-            currentSegment.setStartTime(trackPoint.getTime());
+            currentSegment.setStartTime(time);
             segmentInitialized = true;
         }
 
         // Always update time
-        currentSegment.setStopTime(trackPoint.getTime());
-        currentSegment.setTotalTime(Duration.between(currentSegment.getStartTime(), trackPoint.getTime()));
+        currentSegment.setStopTime(time);
+        currentSegment.setTotalTime(Duration.between(currentSegment.getStartTime(), time));
 
         if (trackPoint.isSegmentStart()) {
             reset(trackPoint);
@@ -168,14 +200,14 @@ public class TrackStatisticsUpdater {
             currentSegment.addTotalDistance(movingDistance);
         }
 
-        Duration movingTime = Duration.between(lastTrackPoint.getTime(), trackPoint.getTime());
-        if (movingTime.isNegative()) {
+        long movingTime_ms = trackPoint.getTimeEpochMillis() - lastTrackPoint.getTimeEpochMillis();
+        if (movingTime_ms < 0) {
             lastTrackPoint = trackPoint;
             return;
         }
 
         // Update moving time
-        currentSegment.addMovingTime(movingTime);
+        currentSegment.addMovingTime(Duration.ofMillis(movingTime_ms));
 
         // Update max speed
         if (trackPoint.hasSpeed() && lastTrackPoint.hasSpeed()) {
@@ -196,6 +228,19 @@ public class TrackStatisticsUpdater {
         speedBuffer_mps.reset();
     }
 
+    /**
+     * Adds a sensor sample (see {@link de.dennisguse.opentracks.content.sensor.SensorSamples}) to the window of the next trackPoint.
+     * May be called from any thread.
+     *
+     * @param type  the type of the sample
+     * @param value the value of the sample
+     */
+    public void addSensorSample(int type, int value) {
+        synchronized (sensorSampleLock) {
+            sensorSampleWindow.add(type, value);
+        }
+    }
+
     public void addTrackPoint(TrackPointIterator iterator, int minRecordingDistance) {
         while (iterator.hasNext()) {
             TrackPoint location = iterator.next();
@@ -253,9 +298,9 @@ public class TrackStatisticsUpdater {
         }
 
         // See if the speed seems physically likely. Ignore any speeds that imply acceleration greater than 2g.
-        Duration timeDifference = Duration.between(lastTrackPoint.getTime(), trackPoint.getTime());
+        long timeDifference_ms = trackPoint.getTimeEpochMillis() - lastTrackPoint.getTimeEpochMillis();
         double speedDifference = Math.abs(lastTrackPoint.getSpeed() - trackPoint.getSpeed());
-        if (speedDifference > MAX_ACCELERATION * timeDifference.toMillis()) {
+        if (speedDifference > MAX_ACCELERATION * timeDifference_ms) {
             return false;
         }
 
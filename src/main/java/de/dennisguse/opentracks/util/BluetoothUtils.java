@@ -16,19 +16,15 @@
 package de.dennisguse.opentracks.util;
 
 import android.bluetooth.BluetoothAdapter;
-import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothManager;
 import android.content.Context;
 import android.util.Log;
 
-import androidx.annotation.NonNull;
-
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
-import de.dennisguse.opentracks.content.sensor.SensorDataCycling;
 
 /**
  * Utilities for dealing with bluetooth devices.
@@ -72,68 +68,4 @@ public class BluetoothUtils {
     public static boolean hasBluetooth(Context context) {
         return BluetoothUtils.getAdapter(context) != null;
     }
-
-    public static Integer parseHeartRate(BluetoothGattCharacteristic characteristic) {
-        //DOCUMENTATION https://www.bluetooth.com/wp-content/uploads/Sitecore-Media-Library/Gatt/Xml/Characteristics/org.bluetooth.characteristic.heart_rate_measurement.xml
-        byte[] raw = characteristic.getValue();
-        if (raw.length == 0) {
-            return null;
-        }
-
-        boolean formatUINT16 = ((raw[0] & 0x1) == 1);
-        if (formatUINT16 && raw.length >= 3) {
-            return characteristic.getIntValue(BluetoothGattCharacteristic.FORMAT_UINT16, 1);
-        }
-        if (!formatUINT16 && raw.length >= 2) {
-            return characteristic.getIntValue(BluetoothGattCharacteristic.FORMAT_UINT8, 1);
-        }
-
-        return null;
-    }
-
-    public static Integer parseCyclingPower(BluetoothGattCharacteristic characteristic) {
-        // DOCUMENTATION https://www.bluetooth.com/wp-content/uploads/Sitecore-Media-Library/Gatt/Xml/Characteristics/org.bluetooth.characteristic.cycling_power_measurement.xml
-        int valueLength = characteristic.getValue().length;
-        if (valueLength < 4) {
-            return null;
-        }
-
-        return characteristic.getIntValue(BluetoothGattCharacteristic.FORMAT_SINT16, 2);
-    }
-
-    /**
-     * Documentation: https://www.bluetooth.org/docman/handlers/downloaddoc.ashx?doc_id=261449
-     */
-    public static SensorDataCycling.CadenceAndSpeed parseCyclingCrankAndWheel(String address, String sensorName, @NonNull BluetoothGattCharacteristic characteristic) {
-        // DOCUMENTATION https://www.bluetooth.com/wp-content/uploads/Sitecore-Media-Library/Gatt/Xml/Characteristics/org.bluetooth.characteristic.csc_measurement.xml
-        int valueLength = characteristic.getValue().length;
-        if (valueLength == 0) {
-            return null;
-        }
-
-        int flags = characteristic.getValue()[0];
-        boolean hasCrank = (flags & 0x01) > 0;
-        boolean hasWheel = (flags & 0x02) > 0;
-
-        SensorDataCycling.Cadence cadence = null;
-        int index = 1;
-        if (hasCrank && valueLength - index >= 6) {
-            long crankCount = characteristic.getIntValue(BluetoothGattCharacteristic.FORMAT_UINT32, index);
-            index += 4;
-
-            int crankTime = characteristic.getIntValue(BluetoothGattCharacteristic.FORMAT_UINT16, index); // 1/1024s
-            index += 2;
-            cadence = new SensorDataCycling.Cadence(address, sensorName, crankCount, crankTime);
-        }
-
-        SensorDataCycling.DistanceSpeed speed = null;
-        if (hasWheel && valueLength - index >= 4) {
-            int wheelCount = characteristic.getIntValue(BluetoothGattCharacteristic.FORMAT_UINT16, index);
-            index += 2;
-            int wheelTime = characteristic.getIntValue(BluetoothGattCharacteristic.FORMAT_UINT16, index); // 1/1024s
-            speed = new SensorDataCycling.DistanceSpeed(address, sensorName, wheelCount, wheelTime);
-        }
-
-        return new SensorDataCycling.CadenceAndSpeed(address, sensorName, cadence, speed);
-    }
 }
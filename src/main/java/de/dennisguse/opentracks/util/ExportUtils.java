@@ -11,6 +11,7 @@ import android.util.Log;
 import androidx.documentfile.provider.DocumentFile;
 
 import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -38,31 +39,36 @@ public class ExportUtils {
         }
     }
 
-    public static boolean exportTrack(Context context, TrackFileFormat trackFileFormat, DocumentFile directory, Track track) {
+    /**
+     * Exports a track into the directory.
+     *
+     * @return the number of written bytes or -1 if the export failed
+     */
+    public static long exportTrack(Context context, TrackFileFormat trackFileFormat, DocumentFile directory, Track track) {
         TrackExporter trackExporter = trackFileFormat.createTrackExporter(context);
 
         Uri exportDocumentFileUri = getExportDocumentFileUri(context, track, trackFileFormat, directory);
         if (exportDocumentFileUri == null) {
             Log.e(TAG, "Couldn't create document file for export");
-            return false;
+            return -1;
         }
 
-        try (OutputStream outputStream = context.getContentResolver().openOutputStream(exportDocumentFileUri)) {
+        try (CountingOutputStream outputStream = new CountingOutputStream(context.getContentResolver().openOutputStream(exportDocumentFileUri))) {
             if (trackExporter.writeTrack(track, outputStream)) {
-                return true;
+                return outputStream.count;
             } else {
                 if (!DocumentFile.fromSingleUri(context, exportDocumentFileUri).delete()) {
                     Log.e(TAG, "Unable to delete exportDocumentFile");
                 }
                 Log.e(TAG, "Unable to export track");
-                return false;
+                return -1;
             }
         } catch (FileNotFoundException e) {
             Log.e(TAG, "Unable to open exportDocumentFile " + exportDocumentFileUri, e);
-            return false;
+            return -1;
         } catch (IOException e) {
             Log.e(TAG, "Unable to close exportDocumentFile output stream", e);
-            return false;
+            return -1;
         }
     }
 
@@ -123,4 +129,28 @@ public class ExportUtils {
 
         return null;
     }
+
+    /**
+     * Counts the written bytes.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count = 0;
+
+        CountingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
 }
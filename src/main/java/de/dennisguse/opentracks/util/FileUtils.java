@@ -71,6 +71,19 @@ public class FileUtils {
         return photoDirectory;
     }
 
+    public static File getSensorSampleDir(Context context) {
+        return new File(context.getFilesDir(), "sensorsamples");
+    }
+
+    /**
+     * The {@link de.dennisguse.opentracks.content.sensor.SensorSampleLog} of the track.
+     */
+    public static File getSensorSampleFile(Context context, Track.Id trackId) {
+        File sensorSampleDirectory = getSensorSampleDir(context);
+        sensorSampleDirectory.mkdirs();
+        return new File(sensorSampleDirectory, "" + trackId.getId());
+    }
+
 
     public static String getPath(DocumentFile file) {
         if (file == null) {
@@ -0,0 +1,244 @@
+package de.dennisguse.opentracks.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formats and parses ISO 8601 timestamps (UTC) directly from / into char buffers; no intermediate objects are created.
+ * <p>
+ * Only the common cases (years 0000 to 9999, seconds present, offsets like Z or +hh:mm) are handled here;
+ * callers must fall back to {@link java.time} if a method signals that it did not handle the input.
+ */
+public class Iso8601Utils {
+
+    /**
+     * The maximum length of a formatted timestamp (e.g., 2020-02-02T02:02:02.123456789Z).
+     */
+    public static final int MAX_LENGTH = 30;
+
+    private static final int SECONDS_PER_DAY = 86400;
+
+    // Days from 0000-01-01 to 1970-01-01 (proleptic Gregorian calendar)
+    private static final long DAYS_0000_TO_1970 = 719528;
+
+    // The days of a 400 year cycle
+    private static final long DAYS_PER_CYCLE = 146097;
+
+    private static final long MIN_EPOCH_SECOND = -62167219200L; // 0000-01-01T00:00:00Z
+    private static final long MAX_EPOCH_SECOND = 253402300799L; // 9999-12-31T23:59:59Z
+
+    private static final int MAX_OFFSET_HOURS = 18;
+
+    private Iso8601Utils() {
+    }
+
+    /**
+     * Formats a timestamp like {@link Instant#toString()}; fraction digits are written in groups of three (if any).
+     *
+     * @param epochSecond the seconds since 1970-01-01T00:00:00Z
+     * @param nano        the nanoseconds of the second [0, 999999999]
+     * @param buffer      the buffer; must have at least {@link #MAX_LENGTH} chars after offset
+     * @param offset      the start in the buffer
+     * @return the number of written chars or -1 if the year is not in [0, 9999] (nothing was written)
+     */
+    public static int format(long epochSecond, int nano, @NonNull char[] buffer, int offset) {
+        if (epochSecond < MIN_EPOCH_SECOND || epochSecond > MAX_EPOCH_SECOND) {
+            return -1;
+        }
+
+        long epochDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+
+        // Civil date from days (as in java.time.LocalDate.ofEpochDay()): years starting in March, so the leap day is at the end.
+        long zeroDay = epochDay + DAYS_0000_TO_1970 - 60;
+        long adjust = 0;
+        if (zeroDay < 0) {
+            long adjustCycles = (zeroDay + 1) / DAYS_PER_CYCLE - 1;
+            adjust = adjustCycles * 400;
+            zeroDay -= adjustCycles * DAYS_PER_CYCLE;
+        }
+        long year = (400 * zeroDay + 591) / DAYS_PER_CYCLE;
+        long dayOfYear = zeroDay - (365 * year + year / 4 - year / 100 + year / 400);
+        if (dayOfYear < 0) {
+            year--;
+            dayOfYear = zeroDay - (365 * year + year / 4 - year / 100 + year / 400);
+        }
+        year += adjust;
+        int marchMonth0 = (int) (dayOfYear * 5 + 2) / 153;
+        int month = (marchMonth0 + 2) % 12 + 1;
+        int day = (int) dayOfYear - (marchMonth0 * 306 + 5) / 10 + 1;
+        year += marchMonth0 / 10;
+
+        int i = offset;
+        i = writeDigits((int) year, 4, buffer, i);
+        buffer[i++] = '-';
+        i = writeDigits(month, 2, buffer, i);
+        buffer[i++] = '-';
+        i = writeDigits(day, 2, buffer, i);
+        buffer[i++] = 'T';
+        i = writeDigits(secondOfDay / 3600, 2, buffer, i);
+        buffer[i++] = ':';
+        i = writeDigits(secondOfDay / 60 % 60, 2, buffer, i);
+        buffer[i++] = ':';
+        i = writeDigits(secondOfDay % 60, 2, buffer, i);
+        if (nano > 0) {
+            buffer[i++] = '.';
+            if (nano % 1000000 == 0) {
+                i = writeDigits(nano / 1000000, 3, buffer, i);
+            } else if (nano % 1000 == 0) {
+                i = writeDigits(nano / 1000, 6, buffer, i);
+            } else {
+                i = writeDigits(nano, 9, buffer, i);
+            }
+        }
+        buffer[i++] = 'Z';
+        return i - offset;
+    }
+
+    /**
+     * Parses a timestamp like yyyy-MM-ddTHH:mm:ss[.fraction][Z|+HH:mm|-HH:mm]; without offset UTC is assumed.
+     * Accepts a subset of {@link DateTimeFormatter#ISO_DATE_TIME}.
+     *
+     * @param text  the text
+     * @param start the start of the timestamp in text
+     * @param end   the end (exclusive) of the timestamp in text
+     * @return the instant or null if the text is not in the supported format or invalid (use {@link java.time} to parse or to report the error).
+     */
+    @Nullable
+    public static Instant parse(@NonNull CharSequence text, int start, int end) {
+        // yyyy-MM-ddTHH:mm:ss
+        if (end - start < 19
+                || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-' || text.charAt(start + 10) != 'T'
+                || text.charAt(start + 13) != ':' || text.charAt(start + 16) != ':') {
+            return null;
+        }
+        int year = readDigits(text, start, 4);
+        int month = readDigits(text, start + 5, 2);
+        int day = readDigits(text, start + 8, 2);
+        int hour = readDigits(text, start + 11, 2);
+        int minute = readDigits(text, start + 14, 2);
+        int second = readDigits(text, start + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+
+        int i = start + 19;
+
+        // Fraction: up to nine digits are used
+        int nano = 0;
+        if (i < end && text.charAt(i) == '.') {
+            i++;
+            int fractionStart = i;
+            int scale = 100000000;
+            while (i < end && isDigit(text.charAt(i))) {
+                if (i - fractionStart < 9) {
+                    nano += (text.charAt(i) - '0') * scale;
+                    scale /= 10;
+                }
+                i++;
+            }
+            if (i == fractionStart || i - fractionStart > 9) {
+                return null;
+            }
+        }
+
+        // Offset
+        int offsetSeconds = 0;
+        if (i < end) {
+            char c = text.charAt(i);
+            if (c == 'Z' && i + 1 == end) {
+                i++;
+            } else if ((c == '+' || c == '-') && i + 6 == end && text.charAt(i + 3) == ':') {
+                int offsetHours = readDigits(text, i + 1, 2);
+                int offsetMinutes = readDigits(text, i + 4, 2);
+                if (offsetHours < 0 || offsetHours > MAX_OFFSET_HOURS || offsetMinutes < 0 || offsetMinutes > 59
+                        || (offsetHours == MAX_OFFSET_HOURS && offsetMinutes > 0)) {
+                    return null;
+                }
+                offsetSeconds = (offsetHours * 60 + offsetMinutes) * 60;
+                if (c == '-') {
+                    offsetSeconds = -offsetSeconds;
+                }
+                i += 6;
+            } else {
+                return null;
+            }
+        }
+
+        long epochSecond = toEpochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second - offsetSeconds;
+        return Instant.ofEpochSecond(epochSecond, nano);
+    }
+
+    /**
+     * Parses a timestamp; see {@link #parse(CharSequence, int, int)}.
+     */
+    @Nullable
+    public static Instant parse(@NonNull CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * As java.time.LocalDate.toEpochDay() for years >= 0.
+     */
+    private static long toEpochDay(int year, int month, int day) {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @return the value of digits ASCII digits or -1 if a char is not a digit.
+     */
+    private static int readDigits(CharSequence text, int start, int digits) {
+        int value = 0;
+        for (int i = start; i < start + digits; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int writeDigits(int value, int digits, char[] buffer, int offset) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+}
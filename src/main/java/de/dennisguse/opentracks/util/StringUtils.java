@@ -64,7 +64,9 @@ public class StringUtils {
      * Formats the time using the ISO 8601 date time format with fractional seconds in UTC time zone.
      */
     public static String formatDateTimeIso8601(@NonNull Instant time) {
-        return time.toString();
+        char[] buffer = new char[Iso8601Utils.MAX_LENGTH];
+        int length = Iso8601Utils.format(time.getEpochSecond(), time.getNano(), buffer, 0);
+        return length < 0 ? time.toString() : new String(buffer, 0, length);
     }
 
     /**
@@ -280,10 +282,16 @@ public class StringUtils {
     /**
      * Gets the time, in milliseconds, from an XML date time string (ISO8601) as defined at http://www.w3.org/TR/xmlschema-2/#dateTime
      * Let's be lenient: if timezone information is not provided, UTC will be used.
+     * Common timestamps are parsed by {@link Iso8601Utils}; all others by java.time.
      *
      * @param xmlDateTime the XML date time string
      */
     public static Instant parseTime(String xmlDateTime) {
+        Instant time = Iso8601Utils.parse(xmlDateTime);
+        if (time != null) {
+            return time;
+        }
+
         try {
             TemporalAccessor t = DateTimeFormatter.ISO_DATE_TIME.parseBest(xmlDateTime, ZonedDateTime::from, LocalDateTime::from);
             if (t instanceof LocalDateTime) {
@@ -9,55 +9,116 @@ import java.util.List;
 import de.dennisguse.opentracks.content.data.TrackPoint;
 import de.dennisguse.opentracks.util.UnitConversions;
 
+/**
+ * Splits a track into intervals of a fixed distance.
+ * {@link TrackPoint}s can be added one at a time (e.g., while recording), so that the last completed interval is available without re-reading the track.
+ */
 public class IntervalStatistics {
     private final List<Interval> intervalList = new ArrayList<>();
     private final float distanceInterval_m;
 
+    // The interval currently in progress; null until the first TrackPoint is added.
+    private Interval interval;
+    private TrackPoint prevTrackPoint;
+
+    /**
+     * @param distanceInterval_m the meters of every interval.
+     */
+    public IntervalStatistics(float distanceInterval_m) {
+        this.distanceInterval_m = distanceInterval_m;
+    }
+
     /**
      * @param trackPoints        the list of TrackPoint.
      * @param distanceInterval_m the meters of every interval.
      */
     public IntervalStatistics(@NonNull List<TrackPoint> trackPoints, float distanceInterval_m) {
-        intervalList.clear();
-        this.distanceInterval_m = distanceInterval_m;
+        this(distanceInterval_m);
+        for (TrackPoint trackPoint : trackPoints) {
+            addTrackPoint(trackPoint);
+        }
+    }
+
+    public float getDistanceInterval_m() {
+        return distanceInterval_m;
+    }
 
-        if (trackPoints.size() == 0) {
+    /**
+     * Adds the next {@link TrackPoint} of the track; runs in O(1).
+     */
+    public synchronized void addTrackPoint(@NonNull TrackPoint trackPoint) {
+        if (interval == null) {
+            interval = new Interval();
+            interval.gain_m += trackPoint.hasAltitudeGain() ? trackPoint.getAltitudeGain() : 0;
+            interval.loss_m += trackPoint.hasAltitudeLoss() ? trackPoint.getAltitudeLoss() : 0;
+            prevTrackPoint = trackPoint;
             return;
         }
 
-        Interval interval = new Interval();
-        interval.gain_m += trackPoints.get(0).hasAltitudeGain() ? trackPoints.get(0).getAltitudeGain() : 0;
-        interval.loss_m += trackPoints.get(0).hasAltitudeLoss() ? trackPoints.get(0).getAltitudeLoss() : 0;
-        for (int i = 1; i < trackPoints.size(); i++) {
-            TrackPoint prevTrackPoint = trackPoints.get(i - 1);
-            TrackPoint trackPoint = trackPoints.get(i);
+        if (trackPoint.hasLocation() && prevTrackPoint.hasLocation()) {
+            interval.distance_m += prevTrackPoint.distanceToPrevious(trackPoint);
+            interval.time = interval.time.plus(Duration.between(prevTrackPoint.getTime(), trackPoint.getTime()));
+            interval.gain_m += trackPoint.hasAltitudeGain() ? trackPoint.getAltitudeGain() : 0;
+            interval.loss_m += trackPoint.hasAltitudeLoss() ? trackPoint.getAltitudeLoss() : 0;
 
-            if (trackPoint.hasLocation() && prevTrackPoint.hasLocation()) {
-                interval.distance_m += prevTrackPoint.distanceToPrevious(trackPoint);
-                interval.time = interval.time.plus(Duration.between(prevTrackPoint.getTime(), trackPoint.getTime()));
-                interval.gain_m += trackPoint.hasAltitudeGain() ? trackPoint.getAltitudeGain() : 0;
-                interval.loss_m += trackPoint.hasAltitudeLoss() ? trackPoint.getAltitudeLoss() : 0;
-
-                if (interval.distance_m >= distanceInterval_m) {
-                    float adjustFactor = distanceInterval_m / interval.distance_m;
-                    Interval adjustedInterval = new Interval(interval);
-                    adjustedInterval.adjust(adjustFactor);
+            if (interval.distance_m >= distanceInterval_m) {
+                completeInterval();
+            }
+        }
+        prevTrackPoint = trackPoint;
+    }
 
-                    intervalList.add(adjustedInterval);
+    /**
+     * Returns a copy with another distance interval (e.g., after the unit changed) without re-reading the track; runs in O(intervals).
+     * The new intervals are computed from the existing ones assuming a constant speed within each; so they are approximations.
+     *
+     * @param distanceInterval_m the meters of every interval.
+     */
+    public synchronized IntervalStatistics withDistanceInterval(float distanceInterval_m) {
+        IntervalStatistics intervalStatistics = new IntervalStatistics(distanceInterval_m);
+        if (interval == null) {
+            return intervalStatistics;
+        }
 
-                    interval = new Interval(interval.distance_m - adjustedInterval.distance_m, interval.time.minus(adjustedInterval.time));
-                }
-            }
+        intervalStatistics.interval = new Interval();
+        for (Interval i : intervalList) {
+            intervalStatistics.addInterval(i);
         }
+        intervalStatistics.addInterval(interval);
+        intervalStatistics.prevTrackPoint = prevTrackPoint;
+        return intervalStatistics;
+    }
 
-        if (interval.distance_m > 1f) {
-            intervalList.add(interval);
+    private void addInterval(Interval i) {
+        interval.distance_m += i.distance_m;
+        interval.time = interval.time.plus(i.time);
+        interval.gain_m += i.gain_m;
+        interval.loss_m += i.loss_m;
+
+        while (interval.distance_m >= distanceInterval_m) {
+            completeInterval();
         }
     }
 
+    private void completeInterval() {
+        float adjustFactor = distanceInterval_m / interval.distance_m;
+        Interval adjustedInterval = new Interval(interval);
+        adjustedInterval.adjust(adjustFactor);
+
+        intervalList.add(adjustedInterval);
 
-    public List<Interval> getIntervalList() {
-        return intervalList;
+        interval = new Interval(interval.distance_m - adjustedInterval.distance_m, interval.time.minus(adjustedInterval.time));
+    }
+
+    /**
+     * @return all completed intervals followed by the interval in progress (if it is longer than 1m).
+     */
+    public synchronized List<Interval> getIntervalList() {
+        List<Interval> result = new ArrayList<>(intervalList);
+        if (interval != null && interval.distance_m > 1f) {
+            result.add(new Interval(interval));
+        }
+        return result;
     }
 
     /**
@@ -66,18 +127,11 @@ public class IntervalStatistics {
      *
      * @return the interval object or null if any interval is completed.
      */
-    public Interval getLastInterval() {
-        if (intervalList.size() == 1 && intervalList.get(0).getDistance_m() < distanceInterval_m) {
+    public synchronized Interval getLastInterval() {
+        if (intervalList.isEmpty()) {
             return null;
         }
-
-        for (int i = intervalList.size() - 1; i >= 0; i--) {
-            if (intervalList.get(i).getDistance_m() >= distanceInterval_m) {
-                return this.intervalList.get(i);
-            }
-        }
-
-        return null;
+        return intervalList.get(intervalList.size() - 1);
     }
 
     public static class Interval {